@@ -0,0 +1,122 @@
+package com.wscastro.betransferscheduler.bulkhead;
+
+import com.wscastro.betransferscheduler.exception.BulkheadSaturadoException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.task.TaskDecorator;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Pool de threads com fila limitada reservado a uma classe de requisicoes. Com threads e fila ocupadas a
+ * tarefa é recusada na hora, em vez de prender a thread do Tomcat que a entregou; uma tarefa que esperou na
+ * fila mais do que {@code esperaMaxima} também é recusada, pois o cliente provavelmente já desistiu dela.
+ */
+public class Bulkhead {
+    private static final Logger logger = LoggerFactory.getLogger(Bulkhead.class);
+
+    private final String nome;
+    private final int threads;
+    private final int capacidadeFila;
+    private final Duration esperaMaxima;
+    private final long retryAfterSegundos;
+    private final TaskDecorator decorador;
+    private final ThreadPoolExecutor executor;
+    private final Counter recusadasFilaCheia;
+    private final Counter recusadasEsperaExcedida;
+    private final Timer espera;
+
+    public Bulkhead(String nome, int threads, int capacidadeFila, Duration esperaMaxima, long retryAfterSegundos,
+                    TaskDecorator decorador, MeterRegistry meterRegistry) {
+        this.nome = nome;
+        this.threads = threads;
+        this.capacidadeFila = capacidadeFila;
+        this.esperaMaxima = esperaMaxima;
+        this.retryAfterSegundos = retryAfterSegundos;
+        this.decorador = decorador;
+        AtomicInteger contador = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(capacidadeFila), r -> {
+                    Thread thread = new Thread(r, "bulkhead-" + nome + "-" + contador.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+
+        Gauge.builder("bulkhead.ativas", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Requisicoes em execucao no bulkhead")
+                .tag("bulkhead", nome)
+                .register(meterRegistry);
+        Gauge.builder("bulkhead.fila", executor, e -> e.getQueue().size())
+                .description("Requisicoes aguardando uma thread do bulkhead")
+                .tag("bulkhead", nome)
+                .register(meterRegistry);
+        Gauge.builder("bulkhead.saturacao", this, Bulkhead::saturacao)
+                .description("Fracao ocupada de threads e fila do bulkhead")
+                .tag("bulkhead", nome)
+                .register(meterRegistry);
+        this.recusadasFilaCheia = Counter.builder("bulkhead.recusadas")
+                .tag("bulkhead", nome).tag("motivo", "fila-cheia").register(meterRegistry);
+        this.recusadasEsperaExcedida = Counter.builder("bulkhead.recusadas")
+                .tag("bulkhead", nome).tag("motivo", "espera-excedida").register(meterRegistry);
+        this.espera = Timer.builder("bulkhead.espera")
+                .description("Tempo entre a entrega da requisicao e o início da execucao")
+                .tag("bulkhead", nome)
+                .register(meterRegistry);
+    }
+
+    /**
+     * @throws BulkheadSaturadoException se threads e fila estiverem ocupadas
+     */
+    public <T> CompletableFuture<T> executar(Supplier<T> tarefa) {
+        CompletableFuture<T> resultado = new CompletableFuture<>();
+        long entregueEm = System.nanoTime();
+        Runnable execucao = decorador.decorate(() -> {
+            Duration aguardado = Duration.ofNanos(System.nanoTime() - entregueEm);
+            espera.record(aguardado);
+            if (aguardado.compareTo(esperaMaxima) > 0) {
+                logger.error("Requisicao esperou {} ms no bulkhead {}; recusando", aguardado.toMillis(), nome);
+                recusadasEsperaExcedida.increment();
+                resultado.completeExceptionally(saturado());
+                return;
+            }
+            try {
+                resultado.complete(tarefa.get());
+            } catch (Throwable e) {
+                resultado.completeExceptionally(e);
+            }
+        });
+        try {
+            executor.execute(execucao);
+        } catch (RejectedExecutionException e) {
+            logger.error("Bulkhead {} saturado: {} threads e {} posicoes de fila ocupadas", nome, threads, capacidadeFila);
+            recusadasFilaCheia.increment();
+            throw saturado();
+        }
+        return resultado;
+    }
+
+    public double saturacao() {
+        return (double) (executor.getActiveCount() + executor.getQueue().size()) / (threads + capacidadeFila);
+    }
+
+    public void encerrar() {
+        executor.shutdown();
+    }
+
+    private BulkheadSaturadoException saturado() {
+        return new BulkheadSaturadoException("Servidor ocupado (" + nome + "); tente novamente em instantes",
+                retryAfterSegundos);
+    }
+}
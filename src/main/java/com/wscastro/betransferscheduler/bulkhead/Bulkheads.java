@@ -0,0 +1,83 @@
+package com.wscastro.betransferscheduler.bulkhead;
+
+import com.wscastro.betransferscheduler.datasource.ContextoLeitura;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Bulkheads de escrita (agendar e deletar), leitura (listagens) e administracao (relatórios). Os controllers
+ * devolvem o {@link CompletableFuture} e o Spring MVC libera a thread do Tomcat enquanto a tarefa roda no pool
+ * da classe: uma listagem lenta ocupa apenas o pool de leitura e nao atrasa os agendamentos.
+ *
+ * <p>Desabilitado, executa a tarefa na própria thread da requisicao.
+ */
+@Component
+public class Bulkheads {
+
+    private final Bulkhead escrita;
+    private final Bulkhead leitura;
+    private final Bulkhead administracao;
+
+    @Autowired
+    public Bulkheads(MeterRegistry meterRegistry,
+                     @Value("${app.bulkhead.habilitado:true}") boolean habilitado,
+                     @Value("${app.bulkhead.escrita.threads:20}") int threadsEscrita,
+                     @Value("${app.bulkhead.escrita.fila:100}") int filaEscrita,
+                     @Value("${app.bulkhead.leitura.threads:20}") int threadsLeitura,
+                     @Value("${app.bulkhead.leitura.fila:200}") int filaLeitura,
+                     @Value("${app.bulkhead.administracao.threads:4}") int threadsAdministracao,
+                     @Value("${app.bulkhead.administracao.fila:10}") int filaAdministracao,
+                     @Value("${app.bulkhead.espera-maxima-ms:2000}") long esperaMaximaMs,
+                     @Value("${app.bulkhead.retry-after-segundos:1}") long retryAfterSegundos) {
+        Duration esperaMaxima = Duration.ofMillis(esperaMaximaMs);
+        this.escrita = habilitado ? new Bulkhead("escrita", threadsEscrita, filaEscrita, esperaMaxima,
+                retryAfterSegundos, ContextoLeitura::propagar, meterRegistry) : null;
+        this.leitura = habilitado ? new Bulkhead("leitura", threadsLeitura, filaLeitura, esperaMaxima,
+                retryAfterSegundos, ContextoLeitura::propagar, meterRegistry) : null;
+        this.administracao = habilitado ? new Bulkhead("administracao", threadsAdministracao, filaAdministracao,
+                esperaMaxima, retryAfterSegundos, ContextoLeitura::propagar, meterRegistry) : null;
+    }
+
+    private Bulkheads() {
+        this.escrita = null;
+        this.leitura = null;
+        this.administracao = null;
+    }
+
+    /** Executa tudo na thread de quem chama; usado nos testes de controller. */
+    public static Bulkheads desabilitados() {
+        return new Bulkheads();
+    }
+
+    public <T> CompletableFuture<T> escrita(Supplier<T> tarefa) {
+        return executar(escrita, tarefa);
+    }
+
+    public <T> CompletableFuture<T> leitura(Supplier<T> tarefa) {
+        return executar(leitura, tarefa);
+    }
+
+    public <T> CompletableFuture<T> administracao(Supplier<T> tarefa) {
+        return executar(administracao, tarefa);
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        if (escrita != null) {
+            escrita.encerrar();
+            leitura.encerrar();
+            administracao.encerrar();
+        }
+    }
+
+    private static <T> CompletableFuture<T> executar(Bulkhead bulkhead, Supplier<T> tarefa) {
+        return bulkhead != null ? bulkhead.executar(tarefa) : CompletableFuture.completedFuture(tarefa.get());
+    }
+}
@@ -0,0 +1,39 @@
+package com.wscastro.betransferscheduler.config;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Conversores CBOR ({@code application/cbor}) e Smile ({@code application/x-jackson-smile}) para clientes
+ * internos que negociam formato binário via Accept/Content-Type. Usam as mesmas customizacoes do
+ * ObjectMapper JSON, de modo que datas e valores saem com a mesma representacao; o JSON continua
+ * sendo o formato padrao.
+ */
+@Configuration
+public class FormatosBinariosConfig {
+
+    @Bean
+    @ConditionalOnClass(name = "com.fasterxml.jackson.dataformat.cbor.CBORFactory")
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(
+            ApplicationContext applicationContext, ObjectProvider<Jackson2ObjectMapperBuilderCustomizer> customizers) {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.cbor().applicationContext(applicationContext);
+        customizers.orderedStream().forEach(customizer -> customizer.customize(builder));
+        return new MappingJackson2CborHttpMessageConverter(builder.build());
+    }
+
+    @Bean
+    @ConditionalOnClass(name = "com.fasterxml.jackson.dataformat.smile.SmileFactory")
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(
+            ApplicationContext applicationContext, ObjectProvider<Jackson2ObjectMapperBuilderCustomizer> customizers) {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.smile().applicationContext(applicationContext);
+        customizers.orderedStream().forEach(customizer -> customizer.customize(builder));
+        return new MappingJackson2SmileHttpMessageConverter(builder.build());
+    }
+}
@@ -0,0 +1,55 @@
+package com.wscastro.betransferscheduler.config;
+
+import com.wscastro.betransferscheduler.service.TaxaService;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.MethodIntrospector;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+
+/**
+ * Ajustes de inicializacao usados pelo perfil {@code rapido} (ver {@code application-rapido.properties}).
+ */
+@Configuration
+public class InicializacaoConfig {
+
+    /**
+     * Com {@code spring.main.lazy-initialization=true} um bean só é criado no primeiro uso. Beans com métodos
+     * {@link Scheduled} ou que se inicializam em {@link SmartInitializingSingleton} precisam existir desde o
+     * início para funcionar, entao continuam sendo criados na subida.
+     */
+    @Bean
+    public static LazyInitializationExcludeFilter beansComTrabalhoEmSegundoPlano() {
+        return (nome, definicao, tipo) -> tipo != null
+                && (SmartInitializingSingleton.class.isAssignableFrom(tipo) || temMetodoAgendado(tipo));
+    }
+
+    /** Aquece o cálculo de taxa antes de a aplicacao ser declarada pronta. */
+    @Bean
+    @ConditionalOnProperty(name = "app.inicializacao.aquecer-taxas", havingValue = "true", matchIfMissing = true)
+    public ApplicationListener<ApplicationStartedEvent> aquecimentoTaxas(TaxaService taxaService) {
+        return evento -> taxaService.aquecer();
+    }
+
+    /**
+     * Encerra a aplicacao assim que ela fica pronta. Usado pela execucao de treino que gera o arquivo de
+     * class-data sharing no perfil Maven {@code cds}.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "app.inicializacao.encerrar-apos-inicio", havingValue = "true")
+    public ApplicationListener<ApplicationReadyEvent> encerramentoAposInicio() {
+        return evento -> System.exit(SpringApplication.exit(evento.getApplicationContext()));
+    }
+
+    private static boolean temMetodoAgendado(Class<?> tipo) {
+        return !MethodIntrospector.selectMethods(tipo, (MethodIntrospector.MetadataLookup<Scheduled>) metodo ->
+                AnnotatedElementUtils.findMergedAnnotation(metodo, Scheduled.class)).isEmpty();
+    }
+}
@@ -0,0 +1,67 @@
+package com.wscastro.betransferscheduler.config;
+
+import com.wscastro.betransferscheduler.particao.DespachanteFaixas;
+import com.wscastro.betransferscheduler.particao.GerenciadorParticoes;
+import com.wscastro.betransferscheduler.particao.ProcessadorVencidas;
+import com.wscastro.betransferscheduler.repository.TransferenciaRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.TaskScheduler;
+
+import javax.sql.DataSource;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Execucao das transferências vencidas repartida entre as instâncias que compartilham o banco, por leases em
+ * {@code particao_lease}. Todas as instâncias precisam usar a mesma {@code app.particoes.quantidade}.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.particoes", name = "habilitado", havingValue = "true")
+public class ParticoesConfig {
+
+    @Bean(initMethod = "iniciar", destroyMethod = "encerrar")
+    public GerenciadorParticoes gerenciadorParticoes(DataSource dataSource,
+                                                     @Value("${app.particoes.no-id:}") String noId,
+                                                     @Value("${app.particoes.quantidade:16}") int quantidade,
+                                                     @Value("${app.particoes.duracao-lease-ms:10000}") long duracaoLeaseMs,
+                                                     @Value("${app.particoes.intervalo-heartbeat-ms:2000}") long intervaloMs) {
+        String no = noId.isBlank() ? gerarNoId() : noId;
+        return new GerenciadorParticoes(dataSource, no, quantidade, Duration.ofMillis(duracaoLeaseMs),
+                Duration.ofMillis(intervaloMs));
+    }
+
+    @Bean(initMethod = "iniciar", destroyMethod = "encerrar")
+    public DespachanteFaixas despachanteFaixas(@Value("${app.particoes.faixas:0}") int faixas,
+                                               @Value("${app.particoes.limite-faixa-quente:1000}") int limiteFaixaQuente,
+                                               MeterRegistry meterRegistry) {
+        int quantidade = faixas > 0 ? faixas : Runtime.getRuntime().availableProcessors();
+        return new DespachanteFaixas(quantidade, limiteFaixaQuente, meterRegistry);
+    }
+
+    @Bean(initMethod = "iniciar", destroyMethod = "encerrar")
+    public ProcessadorVencidas processadorVencidas(DataSource dataSource, GerenciadorParticoes gerenciadorParticoes,
+                                                   DespachanteFaixas despachanteFaixas,
+                                                   TransferenciaRepository transferenciaRepository,
+                                                   TaskScheduler taskScheduler,
+                                                   @Value("${app.particoes.tamanho-lote:500}") int tamanhoLote,
+                                                   @Value("${app.particoes.intervalo-processamento-ms:1000}") long intervaloMs) {
+        return new ProcessadorVencidas(dataSource, transferenciaRepository, gerenciadorParticoes, despachanteFaixas,
+                tamanhoLote, taskScheduler, Duration.ofMillis(intervaloMs));
+    }
+
+    private static String gerarNoId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "instancia";
+        }
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
@@ -0,0 +1,95 @@
+package com.wscastro.betransferscheduler.config;
+
+import com.wscastro.betransferscheduler.datasource.ConsistenciaLeituraFilter;
+import com.wscastro.betransferscheduler.datasource.MonitorReplica;
+import com.wscastro.betransferscheduler.datasource.RoteamentoDataSource;
+import com.wscastro.betransferscheduler.datasource.SessoesEscrita;
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.init.DatabasePopulatorUtils;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Réplica de leitura: só é ativada quando {@code app.datasource.replica.url} está definida. As transacoes
+ * {@code readOnly} vao para a réplica enquanto ela estiver dentro da tolerância de atraso; escritas e leituras
+ * de sessoes que ainda nao viram a própria escrita ficam na primária.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.datasource.replica", name = "url")
+public class ReplicaLeituraConfig {
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaLeituraConfig.class);
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSourcePrimaria(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    @ConfigurationProperties("app.datasource.replica.hikari")
+    public HikariDataSource dataSourceReplica(@Value("${app.datasource.replica.url}") String url,
+                                              @Value("${app.datasource.replica.username:sa}") String username,
+                                              @Value("${app.datasource.replica.password:}") String password,
+                                              @Value("${app.datasource.replica.inicializar:false}") boolean inicializar) {
+        HikariDataSource replica = DataSourceBuilder.create().type(HikariDataSource.class)
+                .url(url).username(username).password(password).build();
+        if (inicializar) {
+            // Usado com uma base local no lugar da réplica, que nesse caso nao recebe o esquema por replicacao
+            logger.info("Inicializando o esquema da réplica em {}", url);
+            DatabasePopulatorUtils.execute(new ResourceDatabasePopulator(
+                    new ClassPathResource("schema.sql"), new ClassPathResource("data.sql")), replica);
+        }
+        return replica;
+    }
+
+    @Bean
+    public MonitorReplica monitorReplica(@Qualifier("dataSourcePrimaria") DataSource primaria,
+                                         @Qualifier("dataSourceReplica") DataSource replica,
+                                         @Value("${app.datasource.replica.tolerancia-atraso-ms:5000}") long toleranciaMs,
+                                         @Value("${app.datasource.replica.intervalo-heartbeat-ms:1000}") long intervaloMs,
+                                         @Value("${app.datasource.replica.heartbeats-validade:3}") int heartbeatsValidade) {
+        // Sem heartbeat por alguns ciclos, a última medicao é considerada velha demais para rotear leituras
+        return new MonitorReplica(primaria, replica, Duration.ofMillis(toleranciaMs),
+                Duration.ofMillis(intervaloMs * heartbeatsValidade));
+    }
+
+    /**
+     * O roteamento depende do flag {@code readOnly} da transacao, que o Spring só publica depois de iniciá-la;
+     * o proxy preguicoso adia a escolha da conexao até a primeira instrucao, quando o flag já está disponível.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("dataSourcePrimaria") DataSource primaria,
+                                 @Qualifier("dataSourceReplica") DataSource replica,
+                                 MonitorReplica monitorReplica) {
+        RoteamentoDataSource roteamento = new RoteamentoDataSource(primaria, replica, monitorReplica);
+        roteamento.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(roteamento);
+    }
+
+    @Bean
+    public SessoesEscrita sessoesEscrita(MonitorReplica monitorReplica,
+                                         @Value("${app.datasource.replica.max-sessoes:10000}") int maxSessoes) {
+        return new SessoesEscrita(monitorReplica, maxSessoes);
+    }
+
+    @Bean
+    public ConsistenciaLeituraFilter consistenciaLeituraFilter(SessoesEscrita sessoesEscrita) {
+        return new ConsistenciaLeituraFilter(sessoesEscrita);
+    }
+}
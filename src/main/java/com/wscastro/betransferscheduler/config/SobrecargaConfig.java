@@ -0,0 +1,41 @@
+package com.wscastro.betransferscheduler.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wscastro.betransferscheduler.sobrecarga.LimiteAdaptativo;
+import com.wscastro.betransferscheduler.sobrecarga.LimiteConcorrenciaFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * Limite adaptativo de concorrência em {@code /agendamentos}. Fica antes dos demais filtros para que uma
+ * requisicao recusada custe o mínimo possível.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.sobrecarga", name = "habilitado", havingValue = "true", matchIfMissing = true)
+public class SobrecargaConfig {
+
+    @Bean
+    public LimiteAdaptativo limiteAdaptativo(@Value("${app.sobrecarga.limite-inicial:20}") int limiteInicial,
+                                             @Value("${app.sobrecarga.limite-minimo:4}") int limiteMinimo,
+                                             @Value("${app.sobrecarga.limite-maximo:200}") int limiteMaximo,
+                                             @Value("${app.sobrecarga.fracao-leitura:0.75}") double fracaoLeitura) {
+        return new LimiteAdaptativo(limiteInicial, limiteMinimo, limiteMaximo, fracaoLeitura);
+    }
+
+    @Bean
+    public FilterRegistrationBean<LimiteConcorrenciaFilter> limiteConcorrenciaFilter(
+            LimiteAdaptativo limiteAdaptativo, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+            @Value("${app.sobrecarga.retry-after-segundos:1}") long retryAfterSegundos) {
+        FilterRegistrationBean<LimiteConcorrenciaFilter> registro = new FilterRegistrationBean<>(
+                new LimiteConcorrenciaFilter(limiteAdaptativo, objectMapper, retryAfterSegundos, meterRegistry));
+        registro.addUrlPatterns("/agendamentos", "/agendamentos/*");
+        registro.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+        registro.setAsyncSupported(true);
+        return registro;
+    }
+}
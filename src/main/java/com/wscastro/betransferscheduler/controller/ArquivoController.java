@@ -0,0 +1,43 @@
+package com.wscastro.betransferscheduler.controller;
+
+import com.wscastro.betransferscheduler.bulkhead.Bulkheads;
+import com.wscastro.betransferscheduler.dto.ArquivamentoDTO;
+import com.wscastro.betransferscheduler.dto.TransferenciaArquivadaDTO;
+import com.wscastro.betransferscheduler.service.ArquivamentoService;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.concurrent.CompletableFuture;
+
+@RestController
+@RequestMapping("/arquivo")
+public class ArquivoController {
+
+    private final ArquivamentoService arquivamentoService;
+    private final Bulkheads bulkheads;
+
+    public ArquivoController(ArquivamentoService arquivamentoService, Bulkheads bulkheads) {
+        this.arquivamentoService = arquivamentoService;
+        this.bulkheads = bulkheads;
+    }
+
+    @GetMapping("/transferencias")
+    public CompletableFuture<ResponseEntity<Page<TransferenciaArquivadaDTO>>> listar(
+            @RequestParam(required = false) String contaOrigem,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate inicio,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fim,
+            @PageableDefault(size = 20, sort = "id") Pageable pageable) {
+        return bulkheads.leitura(() ->
+                ResponseEntity.ok(arquivamentoService.listar(contaOrigem, inicio, fim, pageable)));
+    }
+
+    @PostMapping("/execucoes")
+    public CompletableFuture<ResponseEntity<ArquivamentoDTO>> arquivar() {
+        return bulkheads.administracao(() -> ResponseEntity.ok(arquivamentoService.arquivar()));
+    }
+}
@@ -0,0 +1,69 @@
+package com.wscastro.betransferscheduler.controller;
+
+import com.wscastro.betransferscheduler.bulkhead.Bulkheads;
+import com.wscastro.betransferscheduler.dto.OcorrenciaDTO;
+import com.wscastro.betransferscheduler.dto.RecorrenciaRequestDTO;
+import com.wscastro.betransferscheduler.dto.RecorrenciaResponseDTO;
+import com.wscastro.betransferscheduler.service.LimiteRequisicoesService;
+import com.wscastro.betransferscheduler.service.RecorrenciaService;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import javax.validation.Valid;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+@RestController
+@RequestMapping("/recorrencias")
+public class RecorrenciaController {
+
+    private static final int MAXIMO_OCORRENCIAS = 500;
+
+    private final RecorrenciaService recorrenciaService;
+    private final Bulkheads bulkheads;
+    private final LimiteRequisicoesService limiteRequisicoesService;
+
+    public RecorrenciaController(RecorrenciaService recorrenciaService, Bulkheads bulkheads,
+                                 LimiteRequisicoesService limiteRequisicoesService) {
+        this.recorrenciaService = recorrenciaService;
+        this.bulkheads = bulkheads;
+        this.limiteRequisicoesService = limiteRequisicoesService;
+    }
+
+    @PostMapping
+    public CompletableFuture<ResponseEntity<RecorrenciaResponseDTO>> criar(
+            @RequestBody @Valid RecorrenciaRequestDTO dto) {
+        limiteRequisicoesService.consumir(dto.getContaOrigem());
+        return bulkheads.escrita(() -> ResponseEntity.ok(recorrenciaService.criar(dto)));
+    }
+
+    @GetMapping
+    public CompletableFuture<ResponseEntity<Page<RecorrenciaResponseDTO>>> listar(
+            @PageableDefault(size = 20) Pageable pageable) {
+        return bulkheads.leitura(() -> ResponseEntity.ok(recorrenciaService.listar(pageable)));
+    }
+
+    @GetMapping("/{id}/ocorrencias")
+    public CompletableFuture<ResponseEntity<List<OcorrenciaDTO>>> listarOcorrencias(
+            @PathVariable Long id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate ate,
+            @RequestParam(defaultValue = "100") int limite) {
+        LocalDate dataFinal = ate != null ? ate : LocalDate.now().plusYears(1);
+        int quantidade = Math.max(1, Math.min(limite, MAXIMO_OCORRENCIAS));
+        return bulkheads.leitura(() ->
+                ResponseEntity.ok(recorrenciaService.listarOcorrencias(id, dataFinal, quantidade)));
+    }
+
+    @DeleteMapping("/{id}")
+    public CompletableFuture<ResponseEntity<Void>> encerrar(@PathVariable Long id) {
+        return bulkheads.escrita(() -> {
+            recorrenciaService.encerrar(id);
+            return ResponseEntity.noContent().<Void>build();
+        });
+    }
+}
@@ -0,0 +1,82 @@
+package com.wscastro.betransferscheduler.controller;
+
+import com.wscastro.betransferscheduler.bulkhead.Bulkheads;
+import com.wscastro.betransferscheduler.dto.CompensacaoDTO;
+import com.wscastro.betransferscheduler.dto.RecalculoTaxasDTO;
+import com.wscastro.betransferscheduler.dto.ResumoDiarioDTO;
+import com.wscastro.betransferscheduler.service.CompensacaoService;
+import com.wscastro.betransferscheduler.service.RecalculoTaxasService;
+import com.wscastro.betransferscheduler.service.ResumoDiarioService;
+import com.wscastro.betransferscheduler.service.colunar.LeituraPendentesService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.net.URI;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+@RestController
+@RequestMapping("/relatorios")
+public class RelatorioController {
+
+    private final ResumoDiarioService resumoDiarioService;
+    private final CompensacaoService compensacaoService;
+    private final RecalculoTaxasService recalculoTaxasService;
+    private final LeituraPendentesService leituraPendentesService;
+    private final Bulkheads bulkheads;
+
+    public RelatorioController(ResumoDiarioService resumoDiarioService, CompensacaoService compensacaoService,
+                               RecalculoTaxasService recalculoTaxasService,
+                               LeituraPendentesService leituraPendentesService, Bulkheads bulkheads) {
+        this.resumoDiarioService = resumoDiarioService;
+        this.compensacaoService = compensacaoService;
+        this.recalculoTaxasService = recalculoTaxasService;
+        this.leituraPendentesService = leituraPendentesService;
+        this.bulkheads = bulkheads;
+    }
+
+    @GetMapping("/diario")
+    public CompletableFuture<ResponseEntity<List<ResumoDiarioDTO>>> diario(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate inicio,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fim) {
+        LocalDate dataInicial = inicio != null ? inicio : LocalDate.now();
+        return bulkheads.administracao(() -> ResponseEntity.ok(resumoDiarioService.listar(dataInicial, fim)));
+    }
+
+    @GetMapping("/pendentes")
+    public CompletableFuture<ResponseEntity<List<ResumoDiarioDTO>>> pendentes(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate inicio,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fim) {
+        LocalDate dataInicial = inicio != null ? inicio : LocalDate.now();
+        return bulkheads.administracao(() -> ResponseEntity.ok(leituraPendentesService.resumirPorDia(dataInicial, fim)));
+    }
+
+    @PostMapping("/diario/reconstrucao")
+    public CompletableFuture<ResponseEntity<List<LocalDate>>> reconstruirDiario() {
+        return bulkheads.administracao(() -> ResponseEntity.ok(resumoDiarioService.verificarEReconstruir()));
+    }
+
+    @PostMapping("/compensacao")
+    public CompletableFuture<ResponseEntity<CompensacaoDTO>> compensar(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate data) {
+        return bulkheads.administracao(() -> ResponseEntity.ok(compensacaoService.compensar(data)));
+    }
+
+    // O recálculo roda em segundo plano: a resposta traz a execucao, acompanhada pelo GET abaixo
+    @PostMapping("/recalculo-taxas")
+    public CompletableFuture<ResponseEntity<RecalculoTaxasDTO>> recalcularTaxas() {
+        return bulkheads.administracao(() -> {
+            RecalculoTaxasDTO recalculo = recalculoTaxasService.iniciar();
+            return ResponseEntity.accepted()
+                    .location(URI.create("/relatorios/recalculo-taxas/" + recalculo.getExecucao()))
+                    .body(recalculo);
+        });
+    }
+
+    @GetMapping("/recalculo-taxas/{execucao}")
+    public CompletableFuture<ResponseEntity<RecalculoTaxasDTO>> progressoRecalculoTaxas(@PathVariable long execucao) {
+        return bulkheads.administracao(() -> ResponseEntity.ok(recalculoTaxasService.progresso(execucao)));
+    }
+}
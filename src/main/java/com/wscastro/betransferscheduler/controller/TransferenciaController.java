@@ -1,41 +1,108 @@
 package com.wscastro.betransferscheduler.controller;
 
+import com.wscastro.betransferscheduler.bulkhead.Bulkheads;
+import com.wscastro.betransferscheduler.dto.AlteracoesDTO;
 import com.wscastro.betransferscheduler.dto.TransferenciaRequestDTO;
 import com.wscastro.betransferscheduler.dto.TransferenciaResponseDTO;
+import com.wscastro.betransferscheduler.service.CacheListagemService;
+import com.wscastro.betransferscheduler.service.LimiteRequisicoesService;
+import com.wscastro.betransferscheduler.service.SincronizacaoService;
 import com.wscastro.betransferscheduler.service.TransferenciaService;
+import com.wscastro.betransferscheduler.service.TransferenciaService.ListagemPaginada;
+import com.wscastro.betransferscheduler.service.fluxo.FluxoAgendamentosService;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import javax.validation.Valid;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/agendamentos")
 public class TransferenciaController {
+    // Identifica o cliente para a política de duplicidade (app.duplicidade.politicas)
+    public static final String CABECALHO_CLIENTE = "X-Cliente-Id";
 
     private final TransferenciaService transferenciaService;
+    private final FluxoAgendamentosService fluxoAgendamentosService;
+    private final SincronizacaoService sincronizacaoService;
+    private final CacheListagemService cacheListagemService;
+    private final Bulkheads bulkheads;
+    private final LimiteRequisicoesService limiteRequisicoesService;
 
-    public TransferenciaController(TransferenciaService transferenciaService) {
+    public TransferenciaController(TransferenciaService transferenciaService,
+                                   FluxoAgendamentosService fluxoAgendamentosService,
+                                   SincronizacaoService sincronizacaoService,
+                                   CacheListagemService cacheListagemService,
+                                   Bulkheads bulkheads,
+                                   LimiteRequisicoesService limiteRequisicoesService) {
         this.transferenciaService = transferenciaService;
+        this.fluxoAgendamentosService = fluxoAgendamentosService;
+        this.sincronizacaoService = sincronizacaoService;
+        this.cacheListagemService = cacheListagemService;
+        this.bulkheads = bulkheads;
+        this.limiteRequisicoesService = limiteRequisicoesService;
     }
 
     @PostMapping
-    public ResponseEntity<TransferenciaResponseDTO> agendar(@RequestBody @Valid TransferenciaRequestDTO dto) {
-        TransferenciaResponseDTO response = transferenciaService.agendarTransferencia(dto);
-        return ResponseEntity.ok(response);
+    public CompletableFuture<ResponseEntity<TransferenciaResponseDTO>> agendar(
+            @RequestBody @Valid TransferenciaRequestDTO dto,
+            @RequestHeader(value = CABECALHO_CLIENTE, required = false) String cliente) {
+        // Conta acima do limite é recusada aqui, sem ocupar o bulkhead de escrita nem conexao do banco
+        limiteRequisicoesService.consumir(dto.getContaOrigem());
+        return bulkheads.escrita(() -> ResponseEntity.ok(transferenciaService.agendarTransferencia(dto, cliente)));
     }
 
     @GetMapping
-    public ResponseEntity<Page<TransferenciaResponseDTO>> listarTodos(@PageableDefault(size = 20) Pageable pageable) {
-        Page<TransferenciaResponseDTO> agendamentos = transferenciaService.listarTodas(pageable);
-        return ResponseEntity.ok(agendamentos);
+    public CompletableFuture<ResponseEntity<Page<TransferenciaResponseDTO>>> listarTodos(
+            @PageableDefault(size = 20) Pageable pageable, ServletWebRequest request) {
+        // Responde 304 sem executar a consulta da página, e sem passar pelo bulkhead, quando nada mudou desde a última leitura.
+        // A comparacao é feita sem a resposta para nao gravar a ETag antes de saber de onde a página virá.
+        String etag = cacheListagemService.etag();
+        if (new ServletWebRequest(request.getRequest()).checkNotModified(etag) && request.checkNotModified(etag)) {
+            return null;
+        }
+        return bulkheads.leitura(() -> {
+            ListagemPaginada listagem = transferenciaService.listarTodas(pageable);
+            ResponseEntity.BodyBuilder resposta = ResponseEntity.ok();
+            if (listagem.getEtag() != null) {
+                resposta.eTag(listagem.getEtag());
+            }
+            return resposta.body(listagem.getPagina());
+        });
+    }
+
+    @GetMapping("/vencimentos")
+    public CompletableFuture<ResponseEntity<List<TransferenciaResponseDTO>>> listarVencimentos(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate inicio,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fim) {
+        return bulkheads.leitura(() -> ResponseEntity.ok(transferenciaService.listarVencimentos(inicio, fim)));
+    }
+
+    @GetMapping("/changes")
+    public CompletableFuture<ResponseEntity<AlteracoesDTO>> listarAlteracoes(
+            @RequestParam(defaultValue = "0") long since, @RequestParam(defaultValue = "500") int limite) {
+        return bulkheads.leitura(() -> ResponseEntity.ok(sincronizacaoService.listarAlteracoes(since, limite)));
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter acompanhar(@RequestHeader(value = "Last-Event-ID", required = false) Long ultimoEventoId) {
+        return fluxoAgendamentosService.assinar(ultimoEventoId);
     }
 
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> deletar(@PathVariable Long id) {
-        transferenciaService.deletarTransferencia(id);
-        return ResponseEntity.noContent().build();
+    public CompletableFuture<ResponseEntity<Void>> deletar(@PathVariable Long id) {
+        return bulkheads.escrita(() -> {
+            transferenciaService.deletarTransferencia(id);
+            return ResponseEntity.noContent().<Void>build();
+        });
     }
 }
@@ -0,0 +1,82 @@
+package com.wscastro.betransferscheduler.datasource;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Instant;
+
+/**
+ * Identifica a sessao pelo cabecalho {@value #CABECALHO_SESSAO}. Depois de uma escrita bem-sucedida (já
+ * confirmada, pois a transacao do servico termina antes da resposta) registra o instante; nas requisicoes
+ * seguintes da mesma sessao, expoe esse instante para o {@link RoteamentoDataSource}.
+ */
+public class ConsistenciaLeituraFilter extends OncePerRequestFilter {
+
+    public static final String CABECALHO_SESSAO = "X-Sessao-Id";
+
+    private final SessoesEscrita sessoes;
+
+    public ConsistenciaLeituraFilter(SessoesEscrita sessoes) {
+        this.sessoes = sessoes;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String sessao = request.getHeader(CABECALHO_SESSAO);
+        if (sessao == null || sessao.isBlank()) {
+            chain.doFilter(request, response);
+            return;
+        }
+        ContextoLeitura.definirEscritaDaSessao(sessoes.pendente(sessao));
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            ContextoLeitura.limpar();
+        }
+        if (!escrita(request)) {
+            return;
+        }
+        if (isAsyncStarted(request)) {
+            // A escrita roda num bulkhead e só está confirmada quando a resposta assíncrona termina
+            request.getAsyncContext().addListener(new AsyncListener() {
+                @Override
+                public void onComplete(AsyncEvent event) {
+                    registrarSeSucesso(sessao, response);
+                }
+
+                @Override
+                public void onTimeout(AsyncEvent event) {
+                }
+
+                @Override
+                public void onError(AsyncEvent event) {
+                }
+
+                @Override
+                public void onStartAsync(AsyncEvent event) {
+                }
+            });
+        } else {
+            registrarSeSucesso(sessao, response);
+        }
+    }
+
+    private void registrarSeSucesso(String sessao, HttpServletResponse response) {
+        if (response.getStatus() < 400) {
+            sessoes.registrar(sessao, Instant.now());
+        }
+    }
+
+    private static boolean escrita(HttpServletRequest request) {
+        HttpMethod metodo = HttpMethod.resolve(request.getMethod());
+        return metodo != HttpMethod.GET && metodo != HttpMethod.HEAD && metodo != HttpMethod.OPTIONS;
+    }
+}
@@ -0,0 +1,67 @@
+package com.wscastro.betransferscheduler.datasource;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+
+/**
+ * Estado de consistência da leitura corrente: a escrita mais recente da sessao que a réplica precisa ter
+ * recebido (read-your-writes) e se a transacao corrente foi atendida pela réplica.
+ */
+public final class ContextoLeitura {
+
+    private static final ThreadLocal<Instant> ESCRITA_DA_SESSAO = new ThreadLocal<>();
+    private static final Object LEITURA_NA_REPLICA = new Object();
+
+    private ContextoLeitura() {
+    }
+
+    static void definirEscritaDaSessao(Instant instante) {
+        ESCRITA_DA_SESSAO.set(instante);
+    }
+
+    static Instant escritaDaSessao() {
+        return ESCRITA_DA_SESSAO.get();
+    }
+
+    static void limpar() {
+        ESCRITA_DA_SESSAO.remove();
+    }
+
+    /**
+     * Leva a escrita pendente da sessao para a tarefa, que roda em outra thread (ver
+     * {@link org.springframework.core.task.TaskDecorator}).
+     */
+    public static Runnable propagar(Runnable tarefa) {
+        Instant escrita = ESCRITA_DA_SESSAO.get();
+        return () -> {
+            ESCRITA_DA_SESSAO.set(escrita);
+            try {
+                tarefa.run();
+            } finally {
+                ESCRITA_DA_SESSAO.remove();
+            }
+        };
+    }
+
+    /** Marca a transacao corrente como atendida pela réplica até o seu término. */
+    static void registrarLeituraNaReplica() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()
+                || TransactionSynchronizationManager.hasResource(LEITURA_NA_REPLICA)) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(LEITURA_NA_REPLICA, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(LEITURA_NA_REPLICA);
+            }
+        });
+    }
+
+    /** Indica se a transacao corrente leu da réplica e, portanto, pode ter visto dados atrasados. */
+    public static boolean leituraNaReplica() {
+        return TransactionSynchronizationManager.hasResource(LEITURA_NA_REPLICA);
+    }
+}
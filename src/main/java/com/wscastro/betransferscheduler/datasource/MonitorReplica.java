@@ -0,0 +1,88 @@
+package com.wscastro.betransferscheduler.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Mede o atraso da réplica por heartbeat: a cada ciclo grava o instante atual na tabela
+ * {@code replicacao_heartbeat} da primária e lê o último instante que chegou à réplica. Como a replicacao
+ * aplica os commits em ordem, a réplica que já tem o heartbeat H tem também tudo que foi confirmado antes de H.
+ *
+ * <p>Uma medicao só vale por {@code validade}: se o agendador travar ou atrasar os ciclos, o último atraso medido
+ * deixa de dizer algo sobre a réplica, e ela passa a ser tratada como indisponível até o próximo heartbeat.
+ */
+public class MonitorReplica {
+    private static final Logger logger = LoggerFactory.getLogger(MonitorReplica.class);
+
+    private static final String GRAVAR_HEARTBEAT = "merge into replicacao_heartbeat key (id) values (1, ?)";
+    private static final String LER_HEARTBEAT = "select instante from replicacao_heartbeat where id = 1";
+
+    private final JdbcTemplate primaria;
+    private final JdbcTemplate replica;
+    private final Duration tolerancia;
+    private final Duration validade;
+
+    private volatile Instant replicadoAte;
+    private volatile Duration atraso;
+    private volatile Instant medidoEm;
+
+    public MonitorReplica(DataSource primaria, DataSource replica, Duration tolerancia, Duration validade) {
+        this.primaria = new JdbcTemplate(primaria);
+        this.replica = new JdbcTemplate(replica);
+        this.tolerancia = tolerancia;
+        this.validade = validade;
+    }
+
+    @Scheduled(fixedDelayString = "${app.datasource.replica.intervalo-heartbeat-ms:1000}")
+    public void verificar() {
+        Instant agora = Instant.now();
+        try {
+            primaria.update(GRAVAR_HEARTBEAT, Timestamp.from(agora));
+            List<Timestamp> lido = replica.queryForList(LER_HEARTBEAT, Timestamp.class);
+            replicadoAte = lido.isEmpty() ? null : lido.get(0).toInstant();
+            atraso = replicadoAte == null ? null : Duration.between(replicadoAte, agora);
+            medidoEm = agora;
+        } catch (RuntimeException e) {
+            logger.error("Falha ao medir o atraso da réplica; leituras seguem para a primária", e);
+            replicadoAte = null;
+            atraso = null;
+        }
+        if (atraso != null && atraso.compareTo(tolerancia) > 0) {
+            logger.warn("Réplica atrasada {} ms (tolerância {} ms); leituras seguem para a primária",
+                    atraso.toMillis(), tolerancia.toMillis());
+        }
+    }
+
+    /** A réplica respondeu a um heartbeat recente e está dentro da tolerância de atraso. */
+    public boolean disponivel() {
+        Duration atual = atraso;
+        Instant medicao = medidoEm;
+        if (atual == null || medicao == null) {
+            return false;
+        }
+        if (Duration.between(medicao, Instant.now()).compareTo(validade) > 0) {
+            logger.debug("Última medicao de atraso da réplica é de {}; leituras seguem para a primária", medicao);
+            return false;
+        }
+        return atual.compareTo(tolerancia) <= 0;
+    }
+
+    /** A réplica já recebeu tudo que foi confirmado na primária até {@code instante}. */
+    public boolean replicou(Instant instante) {
+        Instant ate = replicadoAte;
+        return ate != null && !ate.isBefore(instante);
+    }
+
+    /** Atraso medido no último ciclo, ou {@code null} se a réplica nao respondeu. */
+    public Duration atraso() {
+        return atraso;
+    }
+}
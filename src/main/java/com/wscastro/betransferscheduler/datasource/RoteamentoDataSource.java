@@ -0,0 +1,43 @@
+package com.wscastro.betransferscheduler.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Envia as transacoes {@code readOnly} para a réplica e todo o resto para a primária. A réplica só é usada
+ * quando está dentro da tolerância de atraso e já recebeu a última escrita da sessao que fez a requisicao.
+ *
+ * <p>A decisao depende do estado da transacao, que só é conhecido depois que ela comeca; por isso este
+ * DataSource precisa ficar atrás de um {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy},
+ * que adia a obtencao da conexao até a primeira instrucao.
+ */
+public class RoteamentoDataSource extends AbstractRoutingDataSource {
+
+    static final String PRIMARIA = "primaria";
+    static final String REPLICA = "replica";
+
+    private final MonitorReplica monitor;
+
+    public RoteamentoDataSource(DataSource primaria, DataSource replica, MonitorReplica monitor) {
+        this.monitor = monitor;
+        setTargetDataSources(Map.of(PRIMARIA, primaria, REPLICA, replica));
+        setDefaultTargetDataSource(primaria);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly() || !monitor.disponivel()) {
+            return PRIMARIA;
+        }
+        Instant escritaDaSessao = ContextoLeitura.escritaDaSessao();
+        if (escritaDaSessao != null && !monitor.replicou(escritaDaSessao)) {
+            return PRIMARIA;
+        }
+        ContextoLeitura.registrarLeituraNaReplica();
+        return REPLICA;
+    }
+}
@@ -0,0 +1,46 @@
+package com.wscastro.betransferscheduler.datasource;
+
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Instante da última escrita confirmada de cada sessao, usado para garantir read-your-writes: enquanto a
+ * réplica nao alcancar esse instante, as leituras da sessao vao para a primária. Uma entrada deixa de ser
+ * necessária assim que a réplica a alcanca, e é descartada na limpeza seguinte.
+ */
+public class SessoesEscrita {
+
+    private final MonitorReplica monitor;
+    private final int maxSessoes;
+    private final Map<String, Instant> ultimaEscrita = new ConcurrentHashMap<>();
+
+    public SessoesEscrita(MonitorReplica monitor, int maxSessoes) {
+        this.monitor = monitor;
+        this.maxSessoes = maxSessoes;
+    }
+
+    public void registrar(String sessao, Instant instante) {
+        if (ultimaEscrita.size() >= maxSessoes && !ultimaEscrita.containsKey(sessao)) {
+            limpar();
+        }
+        ultimaEscrita.merge(sessao, instante, (atual, novo) -> novo.isAfter(atual) ? novo : atual);
+    }
+
+    /** Instante que a réplica precisa ter alcancado para atender a sessao, ou {@code null} se ela já alcancou. */
+    public Instant pendente(String sessao) {
+        Instant instante = ultimaEscrita.get(sessao);
+        return instante == null || monitor.replicou(instante) ? null : instante;
+    }
+
+    @Scheduled(fixedDelayString = "${app.datasource.replica.intervalo-heartbeat-ms:1000}")
+    public void limpar() {
+        ultimaEscrita.values().removeIf(monitor::replicou);
+    }
+
+    int tamanho() {
+        return ultimaEscrita.size();
+    }
+}
@@ -0,0 +1,16 @@
+package com.wscastro.betransferscheduler.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class AlteracoesDTO {
+
+    private List<TransferenciaResponseDTO> alteradas = new ArrayList<>();
+    private List<RemocaoDTO> removidas = new ArrayList<>();
+    // Marca d'água a ser enviada como "since" na próxima chamada
+    private Long versao;
+    private boolean haMais;
+}
@@ -0,0 +1,19 @@
+package com.wscastro.betransferscheduler.dto;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+
+@Data
+public class ArquivamentoDTO {
+
+    private LocalDate anteriorA;
+    private long arquivadas;
+    private long lotes;
+
+    public ArquivamentoDTO() {}
+
+    public ArquivamentoDTO(LocalDate anteriorA) {
+        this.anteriorA = anteriorA;
+    }
+}
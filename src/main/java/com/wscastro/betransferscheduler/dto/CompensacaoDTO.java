@@ -0,0 +1,30 @@
+package com.wscastro.betransferscheduler.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+public class CompensacaoDTO {
+
+    private LocalDate data;
+    private long transferencias;
+    private long liquidacoes;
+    private int particoes;
+    private BigDecimal valorBruto = BigDecimal.ZERO;
+    private BigDecimal valorLiquido = BigDecimal.ZERO;
+
+    public CompensacaoDTO() {}
+
+    public CompensacaoDTO(LocalDate data) {
+        this.data = data;
+    }
+
+    public void acumular(long transferencias, long liquidacoes, BigDecimal valorBruto, BigDecimal valorLiquido) {
+        this.transferencias += transferencias;
+        this.liquidacoes += liquidacoes;
+        this.valorBruto = this.valorBruto.add(valorBruto);
+        this.valorLiquido = this.valorLiquido.add(valorLiquido);
+    }
+}
@@ -0,0 +1,21 @@
+package com.wscastro.betransferscheduler.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/** Ocorrência de uma recorrência, calculada na hora; {@code materializada} indica se já virou transferência. */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OcorrenciaDTO {
+
+    private int indice;
+    private LocalDateTime dataTransferencia;
+    private BigDecimal valor;
+    private boolean materializada;
+
+}
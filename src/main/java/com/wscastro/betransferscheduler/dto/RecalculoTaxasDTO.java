@@ -0,0 +1,26 @@
+package com.wscastro.betransferscheduler.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+public class RecalculoTaxasDTO {
+
+    private long execucao;
+    private boolean retomada;
+    private long lidas;
+    private long alteradas;
+    private long semTaxa;
+    private long lotes;
+    private long ultimoId;
+    private LocalDateTime iniciadaEm;
+    private LocalDateTime concluidaEm;
+
+    public RecalculoTaxasDTO() {}
+
+    public RecalculoTaxasDTO(long execucao, boolean retomada) {
+        this.execucao = execucao;
+        this.retomada = retomada;
+    }
+}
@@ -0,0 +1,36 @@
+package com.wscastro.betransferscheduler.dto;
+
+import com.wscastro.betransferscheduler.model.Periodicidade;
+import lombok.Data;
+
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Pattern;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+public class RecorrenciaRequestDTO {
+
+    @NotBlank(message = "Conta de origem nao pode ser vazia")
+    @Pattern(regexp = "\\d{10}", message = "Conta de origem inválida")
+    private String contaOrigem;
+
+    @NotBlank(message = "Conta de destino nao pode ser vazia")
+    @Pattern(regexp = "\\d{10}", message = "Conta de destino inválida")
+    private String contaDestino;
+
+    @NotNull(message = "Valor nao pode ser nulo")
+    @DecimalMin(value = "0.01", message = "Valor deve ser maior que zero")
+    private BigDecimal valor;
+
+    @NotNull(message = "Periodicidade nao pode ser nula")
+    private Periodicidade periodicidade;
+
+    @NotNull(message = "Data de início nao pode ser nula")
+    private LocalDateTime dataInicio;
+
+    private LocalDateTime dataFim;
+
+}
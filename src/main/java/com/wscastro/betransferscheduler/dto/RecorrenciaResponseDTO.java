@@ -0,0 +1,36 @@
+package com.wscastro.betransferscheduler.dto;
+
+import com.wscastro.betransferscheduler.model.Periodicidade;
+import com.wscastro.betransferscheduler.model.Recorrencia;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+public class RecorrenciaResponseDTO {
+
+    private Long id;
+    private String contaOrigem;
+    private String contaDestino;
+    private BigDecimal valor;
+    private Periodicidade periodicidade;
+    private LocalDateTime dataInicio;
+    private LocalDateTime dataFim;
+    private int ocorrenciasMaterializadas;
+    private LocalDateTime proximaOcorrencia;
+
+    public RecorrenciaResponseDTO() {}
+
+    public RecorrenciaResponseDTO(Recorrencia r) {
+        this.id = r.getId();
+        this.contaOrigem = r.getContaOrigem();
+        this.contaDestino = r.getContaDestino();
+        this.valor = r.getValor();
+        this.periodicidade = r.getPeriodicidade();
+        this.dataInicio = r.getDataInicio();
+        this.dataFim = r.getDataFim();
+        this.ocorrenciasMaterializadas = r.getOcorrenciasMaterializadas();
+        this.proximaOcorrencia = r.getProximaOcorrencia();
+    }
+}
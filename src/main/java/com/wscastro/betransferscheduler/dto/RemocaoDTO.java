@@ -0,0 +1,22 @@
+package com.wscastro.betransferscheduler.dto;
+
+import com.wscastro.betransferscheduler.model.TransferenciaRemovida;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+public class RemocaoDTO {
+
+    private Long id;
+    private Long versao;
+    private LocalDateTime removidaEm;
+
+    public RemocaoDTO() {}
+
+    public RemocaoDTO(TransferenciaRemovida r) {
+        this.id = r.getId();
+        this.versao = r.getVersao();
+        this.removidaEm = r.getRemovidaEm();
+    }
+}
@@ -0,0 +1,25 @@
+package com.wscastro.betransferscheduler.dto;
+
+import com.wscastro.betransferscheduler.model.ResumoDiario;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+public class ResumoDiarioDTO {
+
+    private LocalDate data;
+    private Long quantidade;
+    private BigDecimal valorTotal;
+    private BigDecimal taxaTotal;
+
+    public ResumoDiarioDTO() {}
+
+    public ResumoDiarioDTO(ResumoDiario r) {
+        this.data = r.getData();
+        this.quantidade = r.getQuantidade();
+        this.valorTotal = r.getValorTotal();
+        this.taxaTotal = r.getTaxaTotal();
+    }
+}
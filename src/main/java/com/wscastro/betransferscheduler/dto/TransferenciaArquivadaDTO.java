@@ -0,0 +1,33 @@
+package com.wscastro.betransferscheduler.dto;
+
+import com.wscastro.betransferscheduler.model.TransferenciaArquivada;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+public class TransferenciaArquivadaDTO {
+
+    private Long id;
+    private String contaOrigem;
+    private String contaDestino;
+    private BigDecimal valor;
+    private BigDecimal taxa;
+    private LocalDateTime dataAgendamento;
+    private LocalDateTime dataTransferencia;
+    private LocalDateTime arquivadaEm;
+
+    public TransferenciaArquivadaDTO() {}
+
+    public TransferenciaArquivadaDTO(TransferenciaArquivada t) {
+        this.id = t.getId();
+        this.contaOrigem = t.getContaOrigem();
+        this.contaDestino = t.getContaDestino();
+        this.valor = t.getValor();
+        this.taxa = t.getTaxa();
+        this.dataAgendamento = t.getDataAgendamento();
+        this.dataTransferencia = t.getDataTransferencia();
+        this.arquivadaEm = t.getArquivadaEm();
+    }
+}
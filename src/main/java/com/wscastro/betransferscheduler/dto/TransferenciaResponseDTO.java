@@ -1,5 +1,6 @@
 package com.wscastro.betransferscheduler.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.wscastro.betransferscheduler.model.Transferencia;
 import lombok.Data;
 
@@ -16,6 +17,10 @@ public class TransferenciaResponseDTO {
     private BigDecimal taxa;
     private LocalDateTime dataAgendamento;
     private LocalDateTime dataTransferencia;
+    private Long versao;
+    // Só no agendamento aceito com aviso de duplicidade: id do agendamento pendente igual
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long duplicadaDe;
 
     public TransferenciaResponseDTO() {}
 
@@ -27,5 +32,6 @@ public class TransferenciaResponseDTO {
         this.taxa = t.getTaxa();
         this.dataAgendamento = t.getDataAgendamento();
         this.dataTransferencia = t.getDataTransferencia();
+        this.versao = t.getVersao();
     }
 }
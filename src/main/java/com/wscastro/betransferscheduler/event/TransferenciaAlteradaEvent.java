@@ -0,0 +1,12 @@
+package com.wscastro.betransferscheduler.event;
+
+import com.wscastro.betransferscheduler.model.Transferencia;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+// Alteracao de uma transferência vigente (hoje, só a taxa, pelo recálculo); nao muda contagens nem valores agendados
+@Getter
+@RequiredArgsConstructor
+public class TransferenciaAlteradaEvent {
+    private final Transferencia transferencia;
+}
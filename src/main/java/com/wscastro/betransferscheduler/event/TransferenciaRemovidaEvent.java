@@ -0,0 +1,11 @@
+package com.wscastro.betransferscheduler.event;
+
+import com.wscastro.betransferscheduler.model.Transferencia;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor
+public class TransferenciaRemovidaEvent {
+    private final Transferencia transferencia;
+}
@@ -0,0 +1,7 @@
+package com.wscastro.betransferscheduler.exception;
+
+public class AgendamentoDuplicadoException extends RuntimeException {
+    public AgendamentoDuplicadoException(String message) {
+        super(message);
+    }
+}
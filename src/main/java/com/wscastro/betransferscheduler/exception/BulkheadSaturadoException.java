@@ -0,0 +1,14 @@
+package com.wscastro.betransferscheduler.exception;
+
+public class BulkheadSaturadoException extends RuntimeException {
+    private final long retryAfterSegundos;
+
+    public BulkheadSaturadoException(String message, long retryAfterSegundos) {
+        super(message);
+        this.retryAfterSegundos = retryAfterSegundos;
+    }
+
+    public long getRetryAfterSegundos() {
+        return retryAfterSegundos;
+    }
+}
@@ -2,12 +2,14 @@ package com.wscastro.betransferscheduler.exception;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.AsyncRequestTimeoutException;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.time.LocalDateTime;
@@ -42,6 +44,47 @@ public class GlobalExceptionHandler {
         return buildErrorResponse(ex, HttpStatus.BAD_REQUEST, request);
     }
 
+    @ExceptionHandler(LimiteSaidaExcedidoException.class)
+    public ResponseEntity<ErrorResponse> handleLimiteSaida(LimiteSaidaExcedidoException ex, WebRequest request) {
+        logger.error("Limite de saída excedido: {}", ex.getMessage());
+        return buildErrorResponse(ex, HttpStatus.BAD_REQUEST, request);
+    }
+
+    @ExceptionHandler(AgendamentoDuplicadoException.class)
+    public ResponseEntity<ErrorResponse> handleAgendamentoDuplicado(AgendamentoDuplicadoException ex, WebRequest request) {
+        logger.error("Agendamento duplicado: {}", ex.getMessage());
+        return buildErrorResponse(ex, HttpStatus.CONFLICT, request);
+    }
+
+    @ExceptionHandler(BulkheadSaturadoException.class)
+    public ResponseEntity<ErrorResponse> handleBulkheadSaturado(BulkheadSaturadoException ex, WebRequest request) {
+        logger.error("Bulkhead saturado: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSegundos()))
+                .body(buildErrorResponse(ex, HttpStatus.SERVICE_UNAVAILABLE, request).getBody());
+    }
+
+    @ExceptionHandler(RequisicoesExcedidasException.class)
+    public ResponseEntity<ErrorResponse> handleRequisicoesExcedidas(RequisicoesExcedidasException ex, WebRequest request) {
+        logger.error("Limite de requisicoes excedido: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSegundos()))
+                .body(buildErrorResponse(ex, HttpStatus.TOO_MANY_REQUESTS, request).getBody());
+    }
+
+    @ExceptionHandler(AsyncRequestTimeoutException.class)
+    public ResponseEntity<ErrorResponse> handleTimeoutAssincrono(AsyncRequestTimeoutException ex, WebRequest request) {
+        logger.error("Tempo limite da requisicao assíncrona esgotado");
+        ErrorResponse errorResponse = ErrorResponse.builder()
+                .timestamp(LocalDateTime.now())
+                .status(HttpStatus.SERVICE_UNAVAILABLE.value())
+                .error(HttpStatus.SERVICE_UNAVAILABLE.getReasonPhrase())
+                .message("Tempo limite da requisicao esgotado")
+                .path(request.getDescription(false).substring(4))
+                .build();
+        return new ResponseEntity<>(errorResponse, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<ErrorResponse> handleValidacao(MethodArgumentNotValidException ex, WebRequest request) {
         logger.error("Erro de validacao: {}", ex.getMessage());
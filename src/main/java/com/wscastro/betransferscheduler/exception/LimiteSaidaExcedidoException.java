@@ -0,0 +1,7 @@
+package com.wscastro.betransferscheduler.exception;
+
+public class LimiteSaidaExcedidoException extends RuntimeException {
+    public LimiteSaidaExcedidoException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,14 @@
+package com.wscastro.betransferscheduler.exception;
+
+public class RequisicoesExcedidasException extends RuntimeException {
+    private final long retryAfterSegundos;
+
+    public RequisicoesExcedidasException(String message, long retryAfterSegundos) {
+        super(message);
+        this.retryAfterSegundos = retryAfterSegundos;
+    }
+
+    public long getRetryAfterSegundos() {
+        return retryAfterSegundos;
+    }
+}
@@ -0,0 +1,21 @@
+package com.wscastro.betransferscheduler.model;
+
+import java.time.LocalDateTime;
+
+public enum Periodicidade {
+    SEMANAL {
+        @Override
+        public LocalDateTime ocorrencia(LocalDateTime inicio, long indice) {
+            return inicio.plusWeeks(indice);
+        }
+    },
+    MENSAL {
+        // Sempre a partir do início: uma recorrência do dia 31 cai no último dia dos meses curtos e volta ao 31
+        @Override
+        public LocalDateTime ocorrencia(LocalDateTime inicio, long indice) {
+            return inicio.plusMonths(indice);
+        }
+    };
+
+    public abstract LocalDateTime ocorrencia(LocalDateTime inicio, long indice);
+}
@@ -0,0 +1,9 @@
+package com.wscastro.betransferscheduler.model;
+
+/** O que fazer com um agendamento igual a outro já pendente: mesmas contas, valor e data de transferência. */
+public enum PoliticaDuplicidade {
+    /** Agenda e devolve o id do agendamento anterior em {@code duplicadaDe}. */
+    AVISO,
+    /** Recusa o agendamento com 409. */
+    REJEITAR
+}
@@ -0,0 +1,84 @@
+package com.wscastro.betransferscheduler.model;
+
+import lombok.*;
+import org.hibernate.proxy.HibernateProxy;
+
+import javax.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Regra de uma transferência repetida. As ocorrências nao sao gravadas de antemao: {@code ocorrenciasMaterializadas}
+ * conta quantas já viraram {@link Transferencia} e {@code proximaOcorrencia} é a data da seguinte, ou nula quando
+ * a recorrência terminou.
+ */
+@Entity
+@Getter
+@Setter
+@ToString
+@RequiredArgsConstructor
+public class Recorrencia {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String contaOrigem;
+
+    @Column(nullable = false)
+    private String contaDestino;
+
+    @Column(nullable = false)
+    private BigDecimal valor;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Periodicidade periodicidade;
+
+    @Column(nullable = false)
+    private LocalDateTime dataInicio;
+
+    private LocalDateTime dataFim;
+
+    @Column(nullable = false)
+    private int ocorrenciasMaterializadas;
+
+    private LocalDateTime proximaOcorrencia;
+
+    @Column(nullable = false)
+    private LocalDateTime dataCriacao;
+
+    /** Data da ocorrência de índice {@code indice}, ou nula se ela cai depois do fim da recorrência. */
+    public LocalDateTime ocorrencia(long indice) {
+        LocalDateTime data = periodicidade.ocorrencia(dataInicio, indice);
+        return dataFim != null && data.isAfter(dataFim) ? null : data;
+    }
+
+    public boolean pendenteAte(LocalDate horizonte) {
+        return proximaOcorrencia != null && !proximaOcorrencia.toLocalDate().isAfter(horizonte);
+    }
+
+    public void avancar() {
+        ocorrenciasMaterializadas++;
+        proximaOcorrencia = ocorrencia(ocorrenciasMaterializadas);
+    }
+
+    @Override
+    public final boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null) return false;
+        Class<?> oEffectiveClass = o instanceof HibernateProxy ? ((HibernateProxy) o).getHibernateLazyInitializer().getPersistentClass() : o.getClass();
+        Class<?> thisEffectiveClass = this instanceof HibernateProxy ? ((HibernateProxy) this).getHibernateLazyInitializer().getPersistentClass() : this.getClass();
+        if (thisEffectiveClass != oEffectiveClass) return false;
+        Recorrencia that = (Recorrencia) o;
+        return getId() != null && Objects.equals(getId(), that.getId());
+    }
+
+    @Override
+    public final int hashCode() {
+        return this instanceof HibernateProxy ? ((HibernateProxy) this).getHibernateLazyInitializer().getPersistentClass().hashCode() : getClass().hashCode();
+    }
+}
@@ -28,6 +28,11 @@ public class Taxa {
     @Column(nullable = false)
     private Long diasMaximo;
 
+    // Limites inclusivos do valor da transferência; nulo = sem limite
+    private BigDecimal valorMinimo;
+
+    private BigDecimal valorMaximo;
+
     @Column(nullable = false)
     private BigDecimal percentual;
 
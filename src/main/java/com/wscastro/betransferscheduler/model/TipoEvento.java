@@ -0,0 +1,7 @@
+package com.wscastro.betransferscheduler.model;
+
+public enum TipoEvento {
+    TRANSFERENCIA_AGENDADA,
+    TRANSFERENCIA_REMOVIDA,
+    TRANSFERENCIA_ALTERADA
+}
@@ -1,5 +1,6 @@
 package com.wscastro.betransferscheduler.model;
 
+import com.wscastro.betransferscheduler.service.AlteracaoTransferenciaListener;
 import lombok.*;
 import org.hibernate.proxy.HibernateProxy;
 
@@ -9,6 +10,7 @@ import java.time.LocalDateTime;
 import java.util.Objects;
 
 @Entity
+@EntityListeners(AlteracaoTransferenciaListener.class)
 @Getter
 @Setter
 @ToString
@@ -37,6 +39,8 @@ public class Transferencia {
     @Column(nullable = false)
     private LocalDateTime dataTransferencia;
 
+    private Long versao;
+
     @Override
     public final boolean equals(Object o) {
         if (this == o) return true;
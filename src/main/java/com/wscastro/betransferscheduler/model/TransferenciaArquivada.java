@@ -0,0 +1,63 @@
+package com.wscastro.betransferscheduler.model;
+
+import lombok.*;
+import org.hibernate.proxy.HibernateProxy;
+
+import javax.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Transferência antiga movida de {@code transferencia} pelo arquivamento. Mantém o id e a versao originais e só é
+ * lida, nunca alterada.
+ */
+@Entity
+@Getter
+@Setter
+@ToString
+@RequiredArgsConstructor
+public class TransferenciaArquivada {
+
+    @Id
+    private Long id;
+
+    @Column(nullable = false)
+    private String contaOrigem;
+
+    @Column(nullable = false)
+    private String contaDestino;
+
+    @Column(nullable = false)
+    private BigDecimal valor;
+
+    @Column(nullable = false)
+    private BigDecimal taxa;
+
+    @Column(nullable = false)
+    private LocalDateTime dataAgendamento;
+
+    @Column(nullable = false)
+    private LocalDateTime dataTransferencia;
+
+    private Long versao;
+
+    @Column(nullable = false)
+    private LocalDateTime arquivadaEm;
+
+    @Override
+    public final boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null) return false;
+        Class<?> oEffectiveClass = o instanceof HibernateProxy ? ((HibernateProxy) o).getHibernateLazyInitializer().getPersistentClass() : o.getClass();
+        Class<?> thisEffectiveClass = this instanceof HibernateProxy ? ((HibernateProxy) this).getHibernateLazyInitializer().getPersistentClass() : this.getClass();
+        if (thisEffectiveClass != oEffectiveClass) return false;
+        TransferenciaArquivada that = (TransferenciaArquivada) o;
+        return getId() != null && Objects.equals(getId(), that.getId());
+    }
+
+    @Override
+    public final int hashCode() {
+        return this instanceof HibernateProxy ? ((HibernateProxy) this).getHibernateLazyInitializer().getPersistentClass().hashCode() : getClass().hashCode();
+    }
+}
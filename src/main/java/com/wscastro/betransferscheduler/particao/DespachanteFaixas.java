@@ -0,0 +1,196 @@
+package com.wscastro.betransferscheduler.particao;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Executa tarefas em {@code N} faixas, cada uma com uma fila sem lock ({@link ConcurrentLinkedQueue}, vários
+ * produtores) e uma única thread consumidora. Todas as tarefas de uma conta vao para a mesma faixa e rodam na
+ * ordem em que foram despachadas; contas diferentes rodam em paralelo nas demais faixas.
+ *
+ * <p>A faixa de uma conta é o hash dela, exceto quando essa faixa está quente (fila com {@code limiteFaixaQuente}
+ * tarefas ou mais): aí a conta vai para a faixa menos ocupada. A escolha só é feita quando a conta nao tem nada
+ * pendente, entao mudar de faixa nunca inverte a ordem dela. Uma única conta que sozinha enche a faixa continua
+ * nela.
+ */
+public class DespachanteFaixas {
+    private static final Logger logger = LoggerFactory.getLogger(DespachanteFaixas.class);
+
+    private final Faixa[] faixas;
+    private final int limiteFaixaQuente;
+    private final ConcurrentHashMap<String, Rota> rotas = new ConcurrentHashMap<>();
+    private final Counter redistribuidas;
+    private volatile boolean ativo = true;
+
+    public DespachanteFaixas(int quantidade, int limiteFaixaQuente, MeterRegistry meterRegistry) {
+        this.faixas = new Faixa[quantidade];
+        this.limiteFaixaQuente = limiteFaixaQuente;
+        for (int i = 0; i < quantidade; i++) {
+            faixas[i] = new Faixa(i);
+            Gauge.builder("execucao.faixa.profundidade", faixas[i].profundidade, AtomicInteger::get)
+                    .tag("faixa", String.valueOf(i))
+                    .description("Tarefas aguardando na faixa de execucao")
+                    .register(meterRegistry);
+        }
+        this.redistribuidas = Counter.builder("execucao.faixa.redistribuidas")
+                .description("Contas desviadas de uma faixa quente para a menos ocupada")
+                .register(meterRegistry);
+    }
+
+    public void iniciar() {
+        for (Faixa faixa : faixas) {
+            faixa.consumidor.start();
+        }
+        logger.info("Despachante iniciado com {} faixa(s) de execucao", faixas.length);
+    }
+
+    public void encerrar() {
+        ativo = false;
+        for (Faixa faixa : faixas) {
+            LockSupport.unpark(faixa.consumidor);
+        }
+        for (Faixa faixa : faixas) {
+            try {
+                faixa.consumidor.join(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            for (Item item; (item = faixa.fila.poll()) != null; ) {
+                item.concluida.cancel(false);
+            }
+        }
+    }
+
+    /** Enfileira a tarefa na faixa da conta; o futuro conclui quando ela terminar de rodar. */
+    public CompletableFuture<Void> despachar(String conta, Runnable tarefa) {
+        CompletableFuture<Void> concluida = new CompletableFuture<>();
+        // Rota e enfileiramento juntos no compute: dois produtores da mesma conta enfileiram na ordem da rota
+        rotas.compute(conta, (chave, rota) -> {
+            Rota atual = rota != null ? rota : new Rota(escolherFaixa(chave));
+            atual.pendentes++;
+            faixas[atual.faixa].enfileirar(new Item(chave, tarefa, concluida));
+            return atual;
+        });
+        return concluida;
+    }
+
+    public int getQuantidade() {
+        return faixas.length;
+    }
+
+    public int profundidade(int faixa) {
+        return faixas[faixa].profundidade.get();
+    }
+
+    /** Faixa para onde vai a próxima tarefa da conta, ou -1 se ela nao tem nada pendente. */
+    int faixaAtual(String conta) {
+        Rota rota = rotas.get(conta);
+        return rota != null ? rota.faixa : -1;
+    }
+
+    private int escolherFaixa(String conta) {
+        int natural = Math.floorMod(conta.hashCode(), faixas.length);
+        int profundidadeNatural = faixas[natural].profundidade.get();
+        if (profundidadeNatural < limiteFaixaQuente) {
+            return natural;
+        }
+        int escolhida = natural;
+        int menor = profundidadeNatural;
+        for (int i = 0; i < faixas.length; i++) {
+            int profundidade = faixas[i].profundidade.get();
+            if (profundidade < menor) {
+                escolhida = i;
+                menor = profundidade;
+            }
+        }
+        if (escolhida != natural) {
+            redistribuidas.increment();
+        }
+        return escolhida;
+    }
+
+    private void executar(Item item) {
+        RuntimeException falha = null;
+        try {
+            item.tarefa.run();
+        } catch (RuntimeException e) {
+            logger.error("Falha na tarefa da conta {}", item.conta, e);
+            falha = e;
+        }
+        rotas.computeIfPresent(item.conta, (chave, rota) -> --rota.pendentes == 0 ? null : rota);
+        if (falha == null) {
+            item.concluida.complete(null);
+        } else {
+            item.concluida.completeExceptionally(falha);
+        }
+    }
+
+    /** Só é lida e alterada dentro de compute/computeIfPresent da conta. */
+    private static final class Rota {
+        final int faixa;
+        int pendentes;
+
+        Rota(int faixa) {
+            this.faixa = faixa;
+        }
+    }
+
+    private static final class Item {
+        final String conta;
+        final Runnable tarefa;
+        final CompletableFuture<Void> concluida;
+
+        Item(String conta, Runnable tarefa, CompletableFuture<Void> concluida) {
+            this.conta = conta;
+            this.tarefa = tarefa;
+            this.concluida = concluida;
+        }
+    }
+
+    private final class Faixa implements Runnable {
+        final ConcurrentLinkedQueue<Item> fila = new ConcurrentLinkedQueue<>();
+        final AtomicInteger profundidade = new AtomicInteger();
+        final Thread consumidor;
+        volatile boolean dormindo;
+
+        Faixa(int indice) {
+            this.consumidor = new Thread(this, "faixa-execucao-" + indice);
+            this.consumidor.setDaemon(true);
+        }
+
+        void enfileirar(Item item) {
+            profundidade.incrementAndGet();
+            fila.offer(item);
+            if (dormindo) {
+                LockSupport.unpark(consumidor);
+            }
+        }
+
+        @Override
+        public void run() {
+            while (ativo) {
+                Item item = fila.poll();
+                if (item == null) {
+                    // Marca antes de conferir a fila de novo: um produtor que enfileirou depois do poll vê a marca
+                    dormindo = true;
+                    if (fila.isEmpty() && ativo) {
+                        LockSupport.park(this);
+                    }
+                    dormindo = false;
+                    continue;
+                }
+                profundidade.decrementAndGet();
+                executar(item);
+            }
+        }
+    }
+}
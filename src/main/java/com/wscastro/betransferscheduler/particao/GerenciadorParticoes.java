@@ -0,0 +1,185 @@
+package com.wscastro.betransferscheduler.particao;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Divide as transferências em {@code quantidade} particoes (conta de origem módulo quantidade) e reparte as
+ * particoes entre as instâncias usando só o banco: cada instância registra um heartbeat em {@code particao_no}
+ * e segura leases com prazo em {@code particao_lease}. A cada ciclo ela renova as suas, devolve o que passa da
+ * sua parte ({@code ceil(particoes / instâncias vivas)}) e toma as livres ou vencidas até completá-la. Se uma
+ * instância morre, as leases dela vencem e as demais as assumem; ao encerrar normalmente, ela as devolve na hora.
+ *
+ * <p>Cada tomada incrementa a {@code epoca} da particao. Os prazos usam o relógio das instâncias, que precisam
+ * estar sincronizados com folga bem menor que a duracao da lease.
+ */
+public class GerenciadorParticoes {
+    private static final Logger logger = LoggerFactory.getLogger(GerenciadorParticoes.class);
+
+    private static final String CRIAR_PARTICAO = "insert into particao_lease (particao, epoca) values (?, 0)";
+    private static final String REGISTRAR_NO = "merge into particao_no key (no) values (?, ?)";
+    private static final String REMOVER_NOS_MORTOS = "delete from particao_no where visto_em < ?";
+    private static final String CONTAR_NOS = "select count(*) from particao_no";
+    private static final String RENOVAR = "update particao_lease set expira_em = ? where dono = ? and expira_em >= ?";
+    private static final String BUSCAR_PROPRIAS =
+            "select particao, epoca from particao_lease where dono = ? and expira_em >= ? order by particao";
+    private static final String BUSCAR_LIVRES =
+            "select particao from particao_lease where dono is null or expira_em < ? order by particao";
+    private static final String TOMAR = "update particao_lease set dono = ?, expira_em = ?, epoca = epoca + 1 "
+            + "where particao = ? and (dono is null or expira_em < ?)";
+    private static final String BUSCAR_EPOCA = "select epoca from particao_lease where particao = ?";
+    private static final String DEVOLVER =
+            "update particao_lease set dono = null, expira_em = null where particao = ? and dono = ?";
+    private static final String DEVOLVER_TODAS =
+            "update particao_lease set dono = null, expira_em = null where dono = ?";
+    private static final String REMOVER_NO = "delete from particao_no where no = ?";
+
+    private final JdbcTemplate jdbc;
+    private final String no;
+    private final int quantidade;
+    private final Duration duracaoLease;
+    private final Duration intervaloHeartbeat;
+    private final ScheduledExecutorService executor;
+
+    private volatile Map<Integer, Long> possuidas = Collections.emptyMap();
+    private volatile LocalDateTime validasAte = LocalDateTime.MIN;
+
+    public GerenciadorParticoes(DataSource dataSource, String no, int quantidade, Duration duracaoLease,
+                                Duration intervaloHeartbeat) {
+        this.jdbc = new JdbcTemplate(dataSource);
+        this.no = no;
+        this.quantidade = quantidade;
+        this.duracaoLease = duracaoLease;
+        this.intervaloHeartbeat = intervaloHeartbeat;
+        // Thread própria: o heartbeat nao pode esperar atrás das outras tarefas agendadas, senao a lease vence
+        this.executor = Executors.newSingleThreadScheduledExecutor(tarefa -> {
+            Thread thread = new Thread(tarefa, "particoes-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void iniciar() {
+        for (int particao = 0; particao < quantidade; particao++) {
+            try {
+                jdbc.update(CRIAR_PARTICAO, particao);
+            } catch (DuplicateKeyException e) {
+                // já criada por esta ou por outra instância
+            }
+        }
+        logger.info("Instância {} participando de {} particoes (lease de {} ms)", no, quantidade,
+                duracaoLease.toMillis());
+        executor.scheduleWithFixedDelay(this::heartbeatSeguro, 0, intervaloHeartbeat.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    public void encerrar() {
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        possuidas = Collections.emptyMap();
+        validasAte = LocalDateTime.MIN;
+        try {
+            int devolvidas = jdbc.update(DEVOLVER_TODAS, no);
+            jdbc.update(REMOVER_NO, no);
+            logger.info("Instância {} encerrada; {} particao(oes) devolvida(s)", no, devolvidas);
+        } catch (RuntimeException e) {
+            logger.error("Falha ao devolver as particoes da instância {}; elas vencem sozinhas", no, e);
+        }
+    }
+
+    /** Renova, devolve e toma leases; executado periodicamente pela thread de heartbeat. */
+    public synchronized void heartbeat() {
+        LocalDateTime agora = LocalDateTime.now();
+        Timestamp expiraEm = Timestamp.valueOf(agora.plus(duracaoLease));
+        Timestamp instante = Timestamp.valueOf(agora);
+
+        jdbc.update(REGISTRAR_NO, no, instante);
+        jdbc.update(REMOVER_NOS_MORTOS, Timestamp.valueOf(agora.minus(duracaoLease)));
+        jdbc.update(RENOVAR, expiraEm, no, instante);
+
+        Map<Integer, Long> proprias = new TreeMap<>();
+        jdbc.query(BUSCAR_PROPRIAS, rs -> {
+            proprias.put(rs.getInt("particao"), rs.getLong("epoca"));
+        }, no, instante);
+
+        int nos = Math.max(1, jdbc.queryForObject(CONTAR_NOS, Integer.class));
+        int alvo = (quantidade + nos - 1) / nos;
+
+        if (proprias.size() > alvo) {
+            List<Integer> excedentes = new ArrayList<>(proprias.keySet()).subList(alvo, proprias.size());
+            for (Integer particao : excedentes) {
+                jdbc.update(DEVOLVER, particao, no);
+                proprias.remove(particao);
+            }
+            logger.info("Instância {} devolveu as particoes {} para rebalancear entre {} instância(s)",
+                    no, excedentes, nos);
+        } else if (proprias.size() < alvo) {
+            List<Integer> tomadas = new ArrayList<>();
+            for (Integer particao : jdbc.queryForList(BUSCAR_LIVRES, Integer.class, instante)) {
+                if (proprias.size() >= alvo) {
+                    break;
+                }
+                if (jdbc.update(TOMAR, no, expiraEm, particao, instante) == 1) {
+                    proprias.put(particao, jdbc.queryForObject(BUSCAR_EPOCA, Long.class, particao));
+                    tomadas.add(particao);
+                }
+            }
+            if (!tomadas.isEmpty()) {
+                logger.info("Instância {} assumiu as particoes {} ({} de {} para {} instância(s))",
+                        no, tomadas, proprias.size(), quantidade, nos);
+            }
+        }
+
+        possuidas = Collections.unmodifiableMap(proprias);
+        // Conta a partir do início do ciclo: no banco a lease vale até agora + duracao, nunca menos
+        validasAte = agora.plus(duracaoLease);
+    }
+
+    /** Particoes com lease válida e a época em que foram tomadas. */
+    public Map<Integer, Long> particoes() {
+        return LocalDateTime.now().isBefore(validasAte) ? possuidas : Collections.emptyMap();
+    }
+
+    /**
+     * Ainda dá tempo de trabalhar na particao: a lease vale por mais de um intervalo de heartbeat, entao outra
+     * instância nao pode tê-la tomado.
+     */
+    public boolean possui(int particao) {
+        return possuidas.containsKey(particao) && LocalDateTime.now().plus(intervaloHeartbeat).isBefore(validasAte);
+    }
+
+    public int getQuantidade() {
+        return quantidade;
+    }
+
+    public String getNo() {
+        return no;
+    }
+
+    private void heartbeatSeguro() {
+        try {
+            heartbeat();
+        } catch (RuntimeException e) {
+            logger.error("Falha no heartbeat das particoes da instância {}", no, e);
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package com.wscastro.betransferscheduler.particao;
+
+import com.wscastro.betransferscheduler.model.Transferencia;
+import com.wscastro.betransferscheduler.repository.TransferenciaRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.TaskScheduler;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executa as transferências cuja data chegou, só nas particoes que esta instância segura. A execucao é o registro
+ * em {@code transferencia_execucao}, cuja chave é o id da transferência: mesmo que duas instâncias se sobreponham
+ * na troca de uma lease, só uma insercao vence e a transferência é executada uma única vez.
+ *
+ * <p>As vencidas sao lidas por {@link TransferenciaRepository#buscarVencimentos}, numa leitura por ciclo para todas
+ * as particoes seguras, e valem para qualquer armazenamento; o particionado só lê os meses do intervalo. As já
+ * executadas ou compensadas saem por uma consulta aos ids lidos.
+ *
+ * <p>As vencidas sao despachadas em ordem de data pela conta de origem no {@link DespachanteFaixas}: as de
+ * uma mesma conta executam em sequência, na ordem de vencimento, e contas diferentes em paralelo. O próximo ciclo
+ * só é agendado quando o lote inteiro termina, para nao despachar de novo o que ainda está na fila; ninguém espera
+ * o lote parado, entao a thread do agendador fica livre para as outras tarefas enquanto as faixas trabalham.
+ *
+ * <p>As que entraram numa liquidacao do {@code CompensacaoService} nao sao executadas uma a uma: quem se executa é a
+ * liquidacao, no dia dela, registrada em {@code liquidacao_execucao}. Ela cai na particao da menor conta do par, a
+ * mesma da compensacao, e é despachada pela conta que paga o saldo.
+ *
+ * <p>A busca tem limite inferior de data, para nao percorrer a cada ciclo todo o histórico já executado. Ao tomar
+ * uma particao (nova época) a primeira varredura vai desde o início; depois que um ciclo esvazia a particao sem
+ * falhas, as seguintes comecam no início do dia corrente menos {@link #MARGEM}. Como o agendamento recusa datas
+ * anteriores ao dia corrente, toda transferência nova cai nesse intervalo; a margem cobre a que foi validada antes
+ * da meia-noite e confirmada depois. Um ciclo com lote cheio ou com falha mantém o limite anterior.
+ */
+public class ProcessadorVencidas {
+    private static final Logger logger = LoggerFactory.getLogger(ProcessadorVencidas.class);
+
+    private static final String BUSCAR_RESOLVIDAS = "select transferencia_id from transferencia_execucao "
+            + "where transferencia_id in (%s) union select transferencia_id from transferencia_liquidacao "
+            + "where transferencia_id in (%s)";
+    private static final int BLOCO_IDS = 500;
+    private static final String REGISTRAR_EXECUCAO = "insert into transferencia_execucao "
+            + "(transferencia_id, particao, no, epoca, executada_em) values (?, ?, ?, ?, ?)";
+    private static final String BUSCAR_LIQUIDACOES = "select l.id, l.conta_origem from liquidacao l "
+            + "where l.data >= ? and l.data <= ? "
+            + "and mod(cast(least(l.conta_origem, l.conta_destino) as bigint), ?) = ? "
+            + "and not exists (select 1 from liquidacao_execucao x where x.liquidacao_id = l.id) "
+            + "order by l.data, l.id limit ?";
+    private static final String REGISTRAR_LIQUIDACAO = "insert into liquidacao_execucao "
+            + "(liquidacao_id, particao, no, epoca, executada_em) values (?, ?, ?, ?, ?)";
+
+    static final Duration MARGEM = Duration.ofMinutes(5);
+    private static final long ESPERA_ENCERRAMENTO_SEGUNDOS = 10;
+    private static final LocalDateTime DESDE_O_INICIO = LocalDateTime.of(1900, 1, 1, 0, 0);
+
+    private final JdbcTemplate jdbc;
+    private final TransferenciaRepository repository;
+    private final GerenciadorParticoes gerenciador;
+    private final DespachanteFaixas despachante;
+    private final int tamanhoLote;
+    private final TaskScheduler agendador;
+    private final Duration intervalo;
+    private final Map<Integer, Varredura> varreduras = new ConcurrentHashMap<>();
+    private volatile boolean ativo;
+    private CompletableFuture<Void> cicloAtual = CompletableFuture.completedFuture(null);
+
+    public ProcessadorVencidas(DataSource dataSource, TransferenciaRepository repository,
+                               GerenciadorParticoes gerenciador, DespachanteFaixas despachante, int tamanhoLote,
+                               TaskScheduler agendador, Duration intervalo) {
+        this.jdbc = new JdbcTemplate(dataSource);
+        this.repository = repository;
+        this.gerenciador = gerenciador;
+        this.despachante = despachante;
+        this.tamanhoLote = tamanhoLote;
+        this.agendador = agendador;
+        this.intervalo = intervalo;
+    }
+
+    public synchronized void iniciar() {
+        ativo = true;
+        agendarProximo();
+    }
+
+    /**
+     * Para de agendar ciclos e espera o que estiver em andamento, para ele nao seguir contra um pool de conexoes
+     * ou faixas já encerrados: o Spring só fecha as dependências depois que este método devolve.
+     */
+    public void encerrar() {
+        CompletableFuture<Void> emAndamento;
+        synchronized (this) {
+            ativo = false;
+            emAndamento = cicloAtual;
+        }
+        try {
+            emAndamento.get(ESPERA_ENCERRAMENTO_SEGUNDOS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            logger.warn("Ciclo de execucao das vencidas nao terminou no encerramento", e);
+        }
+    }
+
+    private void agendarProximo() {
+        if (ativo) {
+            agendador.schedule(this::cicloSeguro, Instant.now().plus(intervalo));
+        }
+    }
+
+    // Um ciclo que falha antes de despachar ainda agenda o seguinte, senao a execucao pararia de vez
+    private void cicloSeguro() {
+        CompletableFuture<Void> termino = new CompletableFuture<>();
+        synchronized (this) {
+            if (!ativo) {
+                return;
+            }
+            cicloAtual = termino;
+        }
+        CompletableFuture<Void> ciclo;
+        try {
+            ciclo = processar();
+        } catch (RuntimeException e) {
+            logger.error("Falha no ciclo de execucao das vencidas", e);
+            ciclo = CompletableFuture.completedFuture(null);
+        }
+        ciclo.whenComplete((ok, erro) -> {
+            termino.complete(null);
+            agendarProximo();
+        });
+    }
+
+    /** Despacha um ciclo e devolve sem esperar; o futuro completa quando todas as tarefas do ciclo terminam. */
+    public CompletableFuture<Void> processar() {
+        AtomicInteger executadas = new AtomicInteger();
+        List<CompletableFuture<Void>> pendentes = new ArrayList<>();
+        Map<Integer, Long> particoes = gerenciador.particoes();
+        varreduras.keySet().retainAll(particoes.keySet());
+        if (particoes.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        LocalDateTime inicioCiclo = LocalDateTime.now();
+        Map<Integer, LocalDateTime> limites = new HashMap<>();
+        particoes.forEach((particao, epoca) -> {
+            Varredura anterior = varreduras.get(particao);
+            limites.put(particao, anterior != null && anterior.epoca == epoca ? anterior.desde : DESDE_O_INICIO);
+        });
+        Map<Integer, List<Transferencia>> vencidas = vencidasPorParticao(Collections.min(limites.values()),
+                inicioCiclo, limites);
+        for (Map.Entry<Integer, Long> particao : particoes.entrySet()) {
+            try {
+                pendentes.add(despachar(particao.getKey(), particao.getValue(), inicioCiclo,
+                        limites.get(particao.getKey()),
+                        vencidas.getOrDefault(particao.getKey(), Collections.emptyList()), executadas));
+            } catch (RuntimeException e) {
+                logger.error("Falha ao processar a particao {}", particao.getKey(), e);
+            }
+        }
+        return CompletableFuture.allOf(pendentes.toArray(new CompletableFuture[0]))
+                .handle((ok, erro) -> {
+                    if (executadas.get() > 0) {
+                        logger.info("Instância {} executou {} transferência(s) e liquidacao(oes) vencida(s)",
+                                gerenciador.getNo(), executadas.get());
+                    }
+                    return null;
+                });
+    }
+
+    // Uma leitura só para todas as particoes seguras, a partir do menor limite; cada uma fica com as do seu limite
+    private Map<Integer, List<Transferencia>> vencidasPorParticao(LocalDateTime desde, LocalDateTime ate,
+                                                                  Map<Integer, LocalDateTime> limites) {
+        List<Transferencia> lidas = repository.buscarVencimentos(desde, ate);
+        Set<Long> resolvidas = resolvidas(lidas);
+        Map<Integer, List<Transferencia>> porParticao = new HashMap<>();
+        for (Transferencia t : lidas) {
+            int particao = (int) Math.floorMod(Long.parseLong(t.getContaOrigem()), (long) gerenciador.getQuantidade());
+            LocalDateTime limite = limites.get(particao);
+            if (limite == null || t.getDataTransferencia().isBefore(limite) || resolvidas.contains(t.getId())) {
+                continue;
+            }
+            List<Transferencia> lote = porParticao.computeIfAbsent(particao, p -> new ArrayList<>());
+            if (lote.size() < tamanhoLote) {
+                lote.add(t);
+            }
+        }
+        return porParticao;
+    }
+
+    // Já executadas ou compensadas numa liquidacao, consultadas em blocos de ids
+    private Set<Long> resolvidas(List<Transferencia> lidas) {
+        Set<Long> resolvidas = new HashSet<>();
+        for (int inicio = 0; inicio < lidas.size(); inicio += BLOCO_IDS) {
+            List<Transferencia> bloco = lidas.subList(inicio, Math.min(inicio + BLOCO_IDS, lidas.size()));
+            String marcadores = String.join(",", Collections.nCopies(bloco.size(), "?"));
+            Object[] ids = new Object[bloco.size() * 2];
+            for (int i = 0; i < bloco.size(); i++) {
+                ids[i] = bloco.get(i).getId();
+                ids[bloco.size() + i] = bloco.get(i).getId();
+            }
+            resolvidas.addAll(jdbc.queryForList(String.format(BUSCAR_RESOLVIDAS, marcadores, marcadores),
+                    Long.class, ids));
+        }
+        return resolvidas;
+    }
+
+    private CompletableFuture<Void> despachar(int particao, long epoca, LocalDateTime inicioCiclo,
+                                              LocalDateTime desde, List<Transferencia> vencidas,
+                                              AtomicInteger executadas) {
+        Timestamp agora = Timestamp.valueOf(inicioCiclo);
+        List<CompletableFuture<Void>> lote = new ArrayList<>();
+        for (Transferencia t : vencidas) {
+            long id = t.getId();
+            lote.add(despachante.despachar(t.getContaOrigem(), () -> {
+                if (executar(REGISTRAR_EXECUCAO, "Transferência", id, particao, epoca, agora)) {
+                    executadas.incrementAndGet();
+                }
+            }));
+        }
+        int transferencias = lote.size();
+        jdbc.query(BUSCAR_LIQUIDACOES, rs -> {
+            long id = rs.getLong("id");
+            lote.add(despachante.despachar(rs.getString("conta_origem"), () -> {
+                if (executar(REGISTRAR_LIQUIDACAO, "Liquidacao", id, particao, epoca, agora)) {
+                    executadas.incrementAndGet();
+                }
+            }));
+        }, desde.toLocalDate(), inicioCiclo.toLocalDate(), gerenciador.getQuantidade(), particao, tamanhoLote);
+
+        // O limite só avanca se as duas buscas esvaziaram a particao e todas as tarefas terminaram sem erro
+        LocalDateTime proximo = transferencias < tamanhoLote && lote.size() - transferencias < tamanhoLote
+                ? inicioCiclo.toLocalDate().atStartOfDay().minus(MARGEM)
+                : desde;
+        return CompletableFuture.allOf(lote.toArray(new CompletableFuture[0]))
+                .whenComplete((ok, erro) -> varreduras.put(particao, new Varredura(epoca, erro == null ? proximo : desde)));
+    }
+
+    private boolean executar(String registro, String tipo, long id, int particao, long epoca, Timestamp agora) {
+        // A lease pode ter sido perdida enquanto a tarefa esperava na faixa; o novo dono a executa
+        if (!gerenciador.possui(particao)) {
+            logger.debug("Instância {} nao segura mais a particao {}; {} {} fica para o novo dono",
+                    gerenciador.getNo(), particao, tipo, id);
+            return false;
+        }
+        try {
+            jdbc.update(registro, id, particao, gerenciador.getNo(), epoca, agora);
+            return true;
+        } catch (DuplicateKeyException e) {
+            logger.debug("{} {} já executada por outra instância", tipo, id);
+            return false;
+        }
+    }
+
+    private static final class Varredura {
+        private final long epoca;
+        private final LocalDateTime desde;
+
+        private Varredura(long epoca, LocalDateTime desde) {
+            this.epoca = epoca;
+            this.desde = desde;
+        }
+    }
+}
@@ -0,0 +1,612 @@
+package com.wscastro.betransferscheduler.repository;
+
+import com.wscastro.betransferscheduler.model.Transferencia;
+import com.wscastro.betransferscheduler.service.CacheListagemService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.repository.query.FluentQuery;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityNotFoundException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Base dos armazenamentos de transferências fora do JPA. Concentra a geracao de ids, a aplicacao das escritas,
+ * ordenacao, paginacao e as consultas de {@link TransferenciaRepository}; as subclasses só precisam gravar, remover
+ * e ler as transferências vigentes.
+ *
+ * <p>Dentro de uma transacao as escritas ficam pendentes e sao aplicadas no {@code beforeCommit}, na ordem em que
+ * foram feitas: uma falha ali desfaz a transacao inteira em vez de deixar confirmados o resumo, o outbox e as
+ * versoes sem a transferência. Se a transacao for desfeita depois disso, as escritas aplicadas sao revertidas na
+ * ordem inversa. Remover uma transferência que já nao existe falha como a remocao concorrente no JPA. Um
+ * armazenamento no mesmo banco ({@link #escreveNaTransacao()}) escreve na hora e deixa o resto com a transacao.
+ *
+ * <p>Sem o banco, os índices de vencimento, versao e duplicidade ficam em memória ({@link IndiceTransferencias}),
+ * mantidos a cada escrita; as consultas leem só as transferências que o índice aponta.
+ */
+public abstract class AbstractTransferenciaRepository implements TransferenciaRepository {
+
+    private static final Map<String, Comparator<Transferencia>> ORDENACOES = Map.of(
+            "id", Comparator.comparing(Transferencia::getId),
+            "contaOrigem", Comparator.comparing(Transferencia::getContaOrigem),
+            "contaDestino", Comparator.comparing(Transferencia::getContaDestino),
+            "valor", Comparator.comparing(Transferencia::getValor),
+            "taxa", Comparator.comparing(Transferencia::getTaxa),
+            "dataAgendamento", Comparator.comparing(Transferencia::getDataAgendamento),
+            "dataTransferencia", Comparator.comparing(Transferencia::getDataTransferencia),
+            "versao", Comparator.comparing(Transferencia::getVersao, Comparator.nullsFirst(Comparator.naturalOrder())));
+
+    private static final Logger logger = LoggerFactory.getLogger(AbstractTransferenciaRepository.class);
+
+    protected final AtomicLong ultimoId = new AtomicLong();
+    private final CacheListagemService cacheListagemService;
+    private final IndiceTransferencias indice = new IndiceTransferencias();
+
+    protected AbstractTransferenciaRepository(CacheListagemService cacheListagemService) {
+        this.cacheListagemService = cacheListagemService;
+    }
+
+    /**
+     * Grava a versao mais recente de uma transferência, com uma cópia da entidade. Chamado no commit, ou na hora se
+     * {@link #escreveNaTransacao()}.
+     */
+    protected abstract void gravar(Transferencia transferencia);
+
+    /** Grava uma transferência nova, cujo id acabou de ser gerado por {@link #proximoId()}. */
+    protected void inserir(Transferencia transferencia) {
+        gravar(transferencia);
+    }
+
+    /** Id para uma transferência nova: por padrão, o maior id conhecido por esta instância mais um. */
+    protected long proximoId() {
+        return ultimoId.incrementAndGet();
+    }
+
+    /**
+     * Remove uma transferência e devolve se ela existia; a verificacao e a remocao precisam ser atômicas. Chamado
+     * no mesmo momento que {@link #gravar}.
+     */
+    protected abstract boolean remover(long id);
+
+    /** Cópias de todas as transferências vigentes, em qualquer ordem. */
+    protected abstract List<Transferencia> lerTodas();
+
+    protected abstract List<Long> idsAtuais();
+
+    /**
+     * Se as escritas participam da transacao corrente em vez de esperar o commit. Só pode ser verdadeiro para um
+     * armazenamento no mesmo banco, cuja conexao a transacao já controla.
+     */
+    protected boolean escreveNaTransacao() {
+        return false;
+    }
+
+    /** Se a base mantém os índices em memória. Um armazenamento no banco usa os índices das próprias tabelas. */
+    protected boolean indexaEmMemoria() {
+        return true;
+    }
+
+    /** Monta os índices em memória com as transferências recuperadas; chamado ao fim da abertura. */
+    protected void indexarVigentes() {
+        if (indexaEmMemoria()) {
+            lerTodas().forEach(indice::incluir);
+        }
+    }
+
+    // ---- Escrita ----
+
+    @Override
+    public <S extends Transferencia> S save(S entity) {
+        boolean nova = entity.getId() == null;
+        if (nova) {
+            entity.setId(proximoId());
+        } else {
+            ultimoId.accumulateAndGet(entity.getId(), Math::max);
+        }
+        aoConfirmar(new Gravacao(copiar(entity), nova));
+        return entity;
+    }
+
+    @Override
+    public <S extends Transferencia> List<S> saveAll(Iterable<S> entities) {
+        List<S> salvas = new ArrayList<>();
+        entities.forEach(e -> salvas.add(save(e)));
+        return salvas;
+    }
+
+    @Override
+    public void deleteById(Long id) {
+        if (!existsById(id)) {
+            throw new EmptyResultDataAccessException("Transferência não encontrada com ID: " + id, 1);
+        }
+        aoConfirmar(new Remocao(id, true));
+    }
+
+    @Override
+    public void delete(Transferencia entity) {
+        aoConfirmar(new Remocao(entity.getId(), true));
+    }
+
+    @Override
+    public void deleteAllById(Iterable<? extends Long> ids) {
+        ids.forEach(this::deleteById);
+    }
+
+    @Override
+    public void deleteAll(Iterable<? extends Transferencia> entities) {
+        entities.forEach(this::delete);
+    }
+
+    // Como no JPA, que remove o que leu: o que outra transacao removeu no meio do caminho só fica de fora
+    @Override
+    public void deleteAll() {
+        idsAtuais().forEach(id -> aoConfirmar(new Remocao(id, false)));
+    }
+
+    @Override
+    public void deleteAllInBatch(Iterable<Transferencia> entities) {
+        deleteAll(entities);
+    }
+
+    @Override
+    public void deleteAllByIdInBatch(Iterable<Long> ids) {
+        deleteAllById(ids);
+    }
+
+    @Override
+    public void deleteAllInBatch() {
+        deleteAll();
+    }
+
+    @Override
+    public <S extends Transferencia> S saveAndFlush(S entity) {
+        S salva = save(entity);
+        flush();
+        return salva;
+    }
+
+    @Override
+    public <S extends Transferencia> List<S> saveAllAndFlush(Iterable<S> entities) {
+        List<S> salvas = saveAll(entities);
+        flush();
+        return salvas;
+    }
+
+    private void aoConfirmar(Escrita escrita) {
+        if (cacheListagemService != null) {
+            cacheListagemService.registrarAlteracao();
+        }
+        if (escreveNaTransacao() || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            escrita.aplicar(false);
+            return;
+        }
+        EscritasPendentes pendentes = (EscritasPendentes) TransactionSynchronizationManager.getResource(this);
+        if (pendentes == null) {
+            pendentes = new EscritasPendentes();
+            TransactionSynchronizationManager.bindResource(this, pendentes);
+            TransactionSynchronizationManager.registerSynchronization(pendentes);
+        }
+        pendentes.escritas.add(escrita);
+    }
+
+    private void gravarIndexado(Transferencia t, boolean nova) {
+        if (nova) {
+            inserir(t);
+        } else {
+            gravar(t);
+        }
+        if (indexaEmMemoria()) {
+            indice.incluir(t);
+        }
+    }
+
+    private boolean removerIndexado(long id) {
+        boolean existia = remover(id);
+        if (existia && indexaEmMemoria()) {
+            indice.excluir(id);
+        }
+        return existia;
+    }
+
+    /** Escrita guardada até o commit, que sabe se desfazer se a transacao for desfeita depois de aplicada. */
+    private interface Escrita {
+        /** Aplica a escrita; se {@code reversivel}, guarda antes o que for preciso para desfazê-la. */
+        void aplicar(boolean reversivel);
+
+        void desfazer();
+    }
+
+    private final class Gravacao implements Escrita {
+        private final Transferencia transferencia;
+        private final boolean nova;
+        private Transferencia anterior;
+
+        Gravacao(Transferencia transferencia, boolean nova) {
+            this.transferencia = transferencia;
+            this.nova = nova;
+        }
+
+        @Override
+        public void aplicar(boolean reversivel) {
+            anterior = nova || !reversivel ? null : findById(transferencia.getId()).orElse(null);
+            gravarIndexado(transferencia, nova);
+        }
+
+        @Override
+        public void desfazer() {
+            if (anterior != null) {
+                gravarIndexado(anterior, false);
+            } else {
+                removerIndexado(transferencia.getId());
+            }
+        }
+    }
+
+    private final class Remocao implements Escrita {
+        private final long id;
+        private final boolean exigirExistente;
+        private Transferencia anterior;
+
+        Remocao(long id, boolean exigirExistente) {
+            this.id = id;
+            this.exigirExistente = exigirExistente;
+        }
+
+        @Override
+        public void aplicar(boolean reversivel) {
+            Transferencia lida = reversivel ? findById(id).orElse(null) : null;
+            if (removerIndexado(id)) {
+                anterior = lida;
+            } else if (exigirExistente) {
+                // A mesma falha do JPA quando o DELETE nao acha a linha: só uma remocao concorrente vence
+                throw new ObjectOptimisticLockingFailureException(Transferencia.class, id);
+            }
+        }
+
+        @Override
+        public void desfazer() {
+            if (anterior != null) {
+                gravarIndexado(anterior, false);
+            }
+        }
+    }
+
+    private final class EscritasPendentes implements TransactionSynchronization {
+        private final List<Escrita> escritas = new ArrayList<>();
+        private final List<Escrita> aplicadas = new ArrayList<>();
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            for (Escrita escrita : escritas) {
+                escrita.aplicar(true);
+                aplicadas.add(escrita);
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(AbstractTransferenciaRepository.this);
+            if (status == STATUS_COMMITTED) {
+                return;
+            }
+            for (int i = aplicadas.size() - 1; i >= 0; i--) {
+                try {
+                    aplicadas.get(i).desfazer();
+                } catch (RuntimeException e) {
+                    logger.error("Falha ao reverter uma escrita de transferência após o rollback", e);
+                }
+            }
+        }
+    }
+
+    // ---- Leitura ----
+
+    @Override
+    public List<Transferencia> findAll() {
+        return findAll(Sort.unsorted());
+    }
+
+    @Override
+    public List<Transferencia> findAll(Sort sort) {
+        List<Transferencia> todas = lerTodas();
+        todas.sort(comparador(sort));
+        return todas;
+    }
+
+    @Override
+    public Page<Transferencia> findAll(Pageable pageable) {
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(findAll(pageable.getSort()));
+        }
+        List<Long> ids = paginaIndexada(pageable);
+        if (ids != null) {
+            return new PageImpl<>(lerPorIds(ids, t -> true), pageable, indice.tamanho());
+        }
+        List<Transferencia> todas = findAll(pageable.getSort());
+        int inicio = (int) Math.min(pageable.getOffset(), todas.size());
+        int fim = Math.min(inicio + pageable.getPageSize(), todas.size());
+        return new PageImpl<>(new ArrayList<>(todas.subList(inicio, fim)), pageable, todas.size());
+    }
+
+    // Sem ordenacao, por id ou por data de transferência a página sai do índice; outras ordens leem tudo
+    private List<Long> paginaIndexada(Pageable pageable) {
+        if (!indexaEmMemoria()) {
+            return null;
+        }
+        List<Sort.Order> ordens = pageable.getSort().toList();
+        if (ordens.isEmpty()) {
+            return indice.paginaPorId(true, pageable.getOffset(), pageable.getPageSize());
+        }
+        Sort.Order primeira = ordens.get(0);
+        boolean desempate = ordens.size() == 1
+                || (ordens.size() == 2 && ordens.get(1).getProperty().equals("id") && ordens.get(1).isAscending());
+        if (primeira.getProperty().equals("id") && ordens.size() == 1) {
+            return indice.paginaPorId(primeira.isAscending(), pageable.getOffset(), pageable.getPageSize());
+        }
+        if (primeira.getProperty().equals("dataTransferencia") && desempate && primeira.isAscending()) {
+            return indice.paginaPorVencimento(true, pageable.getOffset(), pageable.getPageSize());
+        }
+        return null;
+    }
+
+    /** Lê as transferências dos ids, na mesma ordem, deixando de fora as que mudaram e nao atendem mais o filtro. */
+    protected List<Transferencia> lerPorIds(List<Long> ids, Predicate<Transferencia> filtro) {
+        List<Transferencia> lidas = new ArrayList<>(ids.size());
+        for (Transferencia t : findAllById(ids)) {
+            if (filtro.test(t)) {
+                lidas.add(t);
+            }
+        }
+        return lidas;
+    }
+
+    @Override
+    public List<Transferencia> findAllById(Iterable<Long> ids) {
+        List<Transferencia> encontradas = new ArrayList<>();
+        for (Long id : ids) {
+            findById(id).ifPresent(encontradas::add);
+        }
+        return encontradas;
+    }
+
+    @Override
+    public Transferencia getOne(Long id) {
+        return getReferenceById(id);
+    }
+
+    @Override
+    public Transferencia getById(Long id) {
+        return getReferenceById(id);
+    }
+
+    @Override
+    public Transferencia getReferenceById(Long id) {
+        return findById(id).orElseThrow(() -> new EntityNotFoundException(
+                "Transferência não encontrada com ID: " + id));
+    }
+
+    @Override
+    public boolean naTabelaTransferencia() {
+        return false;
+    }
+
+    @Override
+    public List<SaidaDiaria> somarSaidasPorContaEDia(LocalDateTime inicio) {
+        Map<String, Map<LocalDate, BigDecimal>> totais = new HashMap<>();
+        for (Transferencia t : buscarVencimentos(inicio, LocalDateTime.MAX)) {
+            totais.computeIfAbsent(t.getContaOrigem(), c -> new HashMap<>())
+                    .merge(t.getDataTransferencia().toLocalDate(), t.getValor(), BigDecimal::add);
+        }
+        List<SaidaDiaria> saidas = new ArrayList<>();
+        totais.forEach((conta, porDia) -> porDia.forEach((dia, total) -> saidas.add(new Saida(conta, dia, total))));
+        return saidas;
+    }
+
+    @Override
+    public List<ResumoDiarioRepository.TotaisDiarios> somarTotaisPorDia() {
+        Map<LocalDate, Totais> porDia = new HashMap<>();
+        for (Transferencia t : lerTodas()) {
+            porDia.computeIfAbsent(t.getDataTransferencia().toLocalDate(), Totais::new).somar(t);
+        }
+        return new ArrayList<>(porDia.values());
+    }
+
+    @Override
+    public List<Transferencia> buscarVencimentos(LocalDateTime inicio, LocalDateTime fim) {
+        Predicate<Transferencia> noPeriodo = t -> !t.getDataTransferencia().isBefore(inicio)
+                && t.getDataTransferencia().isBefore(fim);
+        List<Transferencia> vencimentos = lerPorIds(indice.vencimentos(inicio, fim), noPeriodo);
+        vencimentos.sort(Comparator.comparing(Transferencia::getDataTransferencia).thenComparing(Transferencia::getId));
+        return vencimentos;
+    }
+
+    @Override
+    public List<Long> buscarDuplicadas(String contaOrigem, String contaDestino, BigDecimal valor,
+                                       LocalDateTime dataTransferencia) {
+        Predicate<Transferencia> igual = t -> t.getContaOrigem().equals(contaOrigem)
+                && t.getContaDestino().equals(contaDestino) && t.getValor().compareTo(valor) == 0
+                && t.getDataTransferencia().equals(dataTransferencia);
+        return lerPorIds(indice.duplicadas(contaOrigem, contaDestino, valor, dataTransferencia), igual).stream()
+                .map(Transferencia::getId)
+                .sorted()
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Transferencia> findByVersaoGreaterThanAndVersaoLessThanEqualOrderByVersaoAsc(Long desde, Long ate, Pageable pageable) {
+        Predicate<Transferencia> noIntervalo = t -> t.getVersao() != null && t.getVersao() > desde
+                && t.getVersao() <= ate;
+        List<Transferencia> alteradas = lerPorIds(
+                indice.versoes(desde, ate, pageable.isPaged() ? pageable.getPageSize() : Long.MAX_VALUE), noIntervalo);
+        alteradas.sort(Comparator.comparing(Transferencia::getVersao));
+        return alteradas;
+    }
+
+    @Override
+    public Long buscarMaiorVersao() {
+        return indice.maiorVersao();
+    }
+
+    private static Comparator<Transferencia> comparador(Sort sort) {
+        Comparator<Transferencia> comparador = null;
+        for (Sort.Order ordem : sort) {
+            Comparator<Transferencia> campo = ORDENACOES.get(ordem.getProperty());
+            if (campo == null) {
+                throw new IllegalArgumentException("Propriedade de ordenacao desconhecida: " + ordem.getProperty());
+            }
+            campo = ordem.isAscending() ? campo : campo.reversed();
+            comparador = comparador == null ? campo : comparador.thenComparing(campo);
+        }
+        // Sem ordenacao explícita, segue a ordem de criacao, como o banco faz na prática
+        Comparator<Transferencia> porId = ORDENACOES.get("id");
+        return comparador == null ? porId : comparador.thenComparing(porId);
+    }
+
+    protected static Transferencia copiar(Transferencia origem) {
+        Transferencia copia = new Transferencia();
+        copia.setId(origem.getId());
+        copia.setContaOrigem(origem.getContaOrigem());
+        copia.setContaDestino(origem.getContaDestino());
+        copia.setValor(origem.getValor());
+        copia.setTaxa(origem.getTaxa());
+        copia.setDataAgendamento(origem.getDataAgendamento());
+        copia.setDataTransferencia(origem.getDataTransferencia());
+        copia.setVersao(origem.getVersao());
+        return copia;
+    }
+
+    // ---- Consultas por exemplo nao sao suportadas fora do JPA ----
+
+    @Override
+    public <S extends Transferencia> Optional<S> findOne(Example<S> example) {
+        throw consultaPorExemplo();
+    }
+
+    @Override
+    public <S extends Transferencia> List<S> findAll(Example<S> example) {
+        throw consultaPorExemplo();
+    }
+
+    @Override
+    public <S extends Transferencia> List<S> findAll(Example<S> example, Sort sort) {
+        throw consultaPorExemplo();
+    }
+
+    @Override
+    public <S extends Transferencia> Page<S> findAll(Example<S> example, Pageable pageable) {
+        throw consultaPorExemplo();
+    }
+
+    @Override
+    public <S extends Transferencia> long count(Example<S> example) {
+        throw consultaPorExemplo();
+    }
+
+    @Override
+    public <S extends Transferencia> boolean exists(Example<S> example) {
+        throw consultaPorExemplo();
+    }
+
+    @Override
+    public <S extends Transferencia, R> R findBy(Example<S> example,
+                                                 Function<FluentQuery.FetchableFluentQuery<S>, R> queryFunction) {
+        throw consultaPorExemplo();
+    }
+
+    private UnsupportedOperationException consultaPorExemplo() {
+        return new UnsupportedOperationException("Consulta por exemplo nao suportada por " + getClass().getSimpleName());
+    }
+
+    protected static final class Saida implements SaidaDiaria {
+        private final String contaOrigem;
+        private final LocalDate data;
+        private final BigDecimal total;
+
+        public Saida(String contaOrigem, LocalDate data, BigDecimal total) {
+            this.contaOrigem = contaOrigem;
+            this.data = data;
+            this.total = total;
+        }
+
+        @Override
+        public String getContaOrigem() {
+            return contaOrigem;
+        }
+
+        @Override
+        public LocalDate getData() {
+            return data;
+        }
+
+        @Override
+        public BigDecimal getTotal() {
+            return total;
+        }
+    }
+
+    protected static final class Totais implements ResumoDiarioRepository.TotaisDiarios {
+        private final LocalDate data;
+        private long quantidade;
+        private BigDecimal valorTotal = BigDecimal.ZERO;
+        private BigDecimal taxaTotal = BigDecimal.ZERO;
+
+        public Totais(LocalDate data) {
+            this.data = data;
+        }
+
+        public Totais(LocalDate data, long quantidade, BigDecimal valorTotal, BigDecimal taxaTotal) {
+            this.data = data;
+            this.quantidade = quantidade;
+            this.valorTotal = valorTotal;
+            this.taxaTotal = taxaTotal;
+        }
+
+        // Arredonda cada transferência como as colunas numeric(19,2) da tabela fariam
+        void somar(Transferencia t) {
+            quantidade++;
+            valorTotal = valorTotal.add(t.getValor().setScale(2, RoundingMode.HALF_UP));
+            taxaTotal = taxaTotal.add(t.getTaxa().setScale(2, RoundingMode.HALF_UP));
+        }
+
+        @Override
+        public LocalDate getData() {
+            return data;
+        }
+
+        @Override
+        public Long getQuantidade() {
+            return quantidade;
+        }
+
+        @Override
+        public BigDecimal getValorTotal() {
+            return valorTotal;
+        }
+
+        @Override
+        public BigDecimal getTaxaTotal() {
+            return taxaTotal;
+        }
+    }
+}
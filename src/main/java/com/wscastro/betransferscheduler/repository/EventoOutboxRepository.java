@@ -0,0 +1,27 @@
+package com.wscastro.betransferscheduler.repository;
+
+import com.wscastro.betransferscheduler.model.EventoOutbox;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface EventoOutboxRepository extends JpaRepository<EventoOutbox, Long> {
+
+    List<EventoOutbox> findByPublicadoEmIsNullOrderByIdAsc(Pageable pageable);
+
+    long countByPublicadoEmIsNull();
+
+    @Modifying
+    @Query("update EventoOutbox e set e.publicadoEm = :publicadoEm where e.id in :ids")
+    int marcarPublicados(@Param("ids") Collection<Long> ids, @Param("publicadoEm") LocalDateTime publicadoEm);
+
+    @Modifying
+    @Query("delete from EventoOutbox e where e.publicadoEm < :limite")
+    int removerPublicadosAntesDe(@Param("limite") LocalDateTime limite);
+}
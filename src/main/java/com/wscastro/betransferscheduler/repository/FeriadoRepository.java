@@ -0,0 +1,11 @@
+package com.wscastro.betransferscheduler.repository;
+
+import com.wscastro.betransferscheduler.model.Feriado;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface FeriadoRepository extends JpaRepository<Feriado, LocalDate> {
+    List<Feriado> findByDataBetween(LocalDate inicio, LocalDate fim);
+}
@@ -0,0 +1,159 @@
+package com.wscastro.betransferscheduler.repository;
+
+import com.wscastro.betransferscheduler.model.Transferencia;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+/**
+ * Índices em memória dos armazenamentos fora do banco, no lugar dos índices da tabela {@code transferencia}: por
+ * id, por data de transferência, por versao e pela chave de duplicidade. Guardam só ids; quem consulta lê as
+ * transferências pelo id e confere de novo o filtro, porque uma escrita pode ficar entre a consulta e a leitura.
+ */
+final class IndiceTransferencias {
+
+    private final TreeMap<Long, Chaves> porId = new TreeMap<>();
+    private final NavigableSet<Entrada<LocalDateTime>> porVencimento = new TreeSet<>();
+    private final NavigableSet<Entrada<Long>> porVersao = new TreeSet<>();
+    private final Map<String, Set<Long>> porDuplicidade = new HashMap<>();
+
+    synchronized void incluir(Transferencia t) {
+        excluir(t.getId());
+        Chaves chaves = new Chaves(t.getDataTransferencia(), t.getVersao(),
+                duplicidade(t.getContaOrigem(), t.getContaDestino(), t.getValor(), t.getDataTransferencia()));
+        porId.put(t.getId(), chaves);
+        porVencimento.add(new Entrada<>(chaves.dataTransferencia, t.getId()));
+        if (chaves.versao != null) {
+            porVersao.add(new Entrada<>(chaves.versao, t.getId()));
+        }
+        porDuplicidade.computeIfAbsent(chaves.duplicidade, d -> new TreeSet<>()).add(t.getId());
+    }
+
+    synchronized void excluir(long id) {
+        Chaves chaves = porId.remove(id);
+        if (chaves == null) {
+            return;
+        }
+        porVencimento.remove(new Entrada<>(chaves.dataTransferencia, id));
+        if (chaves.versao != null) {
+            porVersao.remove(new Entrada<>(chaves.versao, id));
+        }
+        Set<Long> iguais = porDuplicidade.get(chaves.duplicidade);
+        iguais.remove(id);
+        if (iguais.isEmpty()) {
+            porDuplicidade.remove(chaves.duplicidade);
+        }
+    }
+
+    synchronized int tamanho() {
+        return porId.size();
+    }
+
+    /** Ids da página em ordem de id, percorrendo só até o fim dela. */
+    synchronized List<Long> paginaPorId(boolean crescente, long deslocamento, int tamanho) {
+        return pagina(crescente ? porId.navigableKeySet().iterator() : porId.descendingKeySet().iterator(),
+                id -> id, deslocamento, tamanho);
+    }
+
+    /** Ids da página em ordem de data de transferência e id. */
+    synchronized List<Long> paginaPorVencimento(boolean crescente, long deslocamento, int tamanho) {
+        return pagina(crescente ? porVencimento.iterator() : porVencimento.descendingIterator(),
+                entrada -> entrada.id, deslocamento, tamanho);
+    }
+
+    /** Ids com data de transferência em [inicio, fim), em ordem de data e id. */
+    synchronized List<Long> vencimentos(LocalDateTime inicio, LocalDateTime fim) {
+        if (!inicio.isBefore(fim)) {
+            return new ArrayList<>();
+        }
+        List<Long> ids = new ArrayList<>();
+        for (Entrada<LocalDateTime> entrada : porVencimento.subSet(new Entrada<>(inicio, Long.MIN_VALUE), true,
+                new Entrada<>(fim, Long.MIN_VALUE), false)) {
+            ids.add(entrada.id);
+        }
+        return ids;
+    }
+
+    /** Ids com versao em (desde, ate], em ordem de versao, no máximo {@code limite}. */
+    synchronized List<Long> versoes(long desde, long ate, long limite) {
+        List<Long> ids = new ArrayList<>();
+        if (desde >= ate) {
+            return ids;
+        }
+        for (Entrada<Long> entrada : porVersao.subSet(new Entrada<>(desde, Long.MAX_VALUE), false,
+                new Entrada<>(ate, Long.MAX_VALUE), true)) {
+            if (ids.size() >= limite) {
+                break;
+            }
+            ids.add(entrada.id);
+        }
+        return ids;
+    }
+
+    synchronized Long maiorVersao() {
+        return porVersao.isEmpty() ? null : porVersao.last().chave;
+    }
+
+    synchronized List<Long> duplicadas(String contaOrigem, String contaDestino, BigDecimal valor,
+                                       LocalDateTime dataTransferencia) {
+        Set<Long> iguais = porDuplicidade.get(duplicidade(contaOrigem, contaDestino, valor, dataTransferencia));
+        return iguais == null ? new ArrayList<>() : new ArrayList<>(iguais);
+    }
+
+    private static <T> List<Long> pagina(Iterator<T> entradas, Function<T, Long> id, long deslocamento,
+                                         int tamanho) {
+        List<Long> ids = new ArrayList<>(tamanho);
+        for (long i = 0; entradas.hasNext() && ids.size() < tamanho; i++) {
+            T entrada = entradas.next();
+            if (i >= deslocamento) {
+                ids.add(id.apply(entrada));
+            }
+        }
+        return ids;
+    }
+
+    // Valores iguais em escalas diferentes, como 100.0 e 100.00, caem na mesma chave, como na comparacao do banco
+    private static String duplicidade(String contaOrigem, String contaDestino, BigDecimal valor,
+                                      LocalDateTime dataTransferencia) {
+        return contaOrigem + '|' + contaDestino + '|' + valor.stripTrailingZeros().toPlainString() + '|'
+                + dataTransferencia;
+    }
+
+    private static final class Chaves {
+        final LocalDateTime dataTransferencia;
+        final Long versao;
+        final String duplicidade;
+
+        Chaves(LocalDateTime dataTransferencia, Long versao, String duplicidade) {
+            this.dataTransferencia = dataTransferencia;
+            this.versao = versao;
+            this.duplicidade = duplicidade;
+        }
+    }
+
+    private static final class Entrada<K extends Comparable<? super K>> implements Comparable<Entrada<K>> {
+        final K chave;
+        final long id;
+
+        Entrada(K chave, long id) {
+            this.chave = chave;
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(Entrada<K> outra) {
+            int comparacao = chave.compareTo(outra.chave);
+            return comparacao != 0 ? comparacao : Long.compare(id, outra.id);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.wscastro.betransferscheduler.repository;
+
+import com.wscastro.betransferscheduler.model.Recorrencia;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.LockModeType;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface RecorrenciaRepository extends JpaRepository<Recorrencia, Long> {
+
+    @Query("select r.id from Recorrencia r where r.proximaOcorrencia < :limite order by r.proximaOcorrencia")
+    List<Long> buscarPendentes(@Param("limite") LocalDateTime limite);
+
+    // Trava a linha: a materializacao agendada e a da criacao nao podem agendar a mesma ocorrência
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select r from Recorrencia r where r.id = :id")
+    Optional<Recorrencia> buscarParaMaterializar(@Param("id") Long id);
+}
@@ -0,0 +1,42 @@
+package com.wscastro.betransferscheduler.repository;
+
+import com.wscastro.betransferscheduler.model.ResumoDiario;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+public interface ResumoDiarioRepository extends JpaRepository<ResumoDiario, LocalDate> {
+
+    List<ResumoDiario> findByDataGreaterThanEqualOrderByDataAsc(LocalDate inicio);
+
+    List<ResumoDiario> findByDataBetweenOrderByDataAsc(LocalDate inicio, LocalDate fim);
+
+    @Modifying
+    @Query("update ResumoDiario r set r.quantidade = r.quantidade + :quantidade, " +
+            "r.valorTotal = r.valorTotal + :valor, r.taxaTotal = r.taxaTotal + :taxa where r.data = :data")
+    int incrementar(@Param("data") LocalDate data, @Param("quantidade") long quantidade,
+                    @Param("valor") BigDecimal valor, @Param("taxa") BigDecimal taxa);
+
+    @Modifying
+    @Query(value = "insert into resumo_diario (data, quantidade, valor_total, taxa_total) values (:data, 0, 0, 0)",
+            nativeQuery = true)
+    int criarVazio(@Param("data") LocalDate data);
+
+    // O resumo continua valendo para os dias cujas transferências já foram arquivadas
+    @Query(value = "select cast(t.data_transferencia as date) as data, count(*) as quantidade, " +
+            "sum(t.valor) as valorTotal, sum(t.taxa) as taxaTotal " +
+            "from transferencia_arquivada t group by cast(t.data_transferencia as date)", nativeQuery = true)
+    List<TotaisDiarios> somarArquivadasPorDia();
+
+    interface TotaisDiarios {
+        LocalDate getData();
+        Long getQuantidade();
+        BigDecimal getValorTotal();
+        BigDecimal getTaxaTotal();
+    }
+}
@@ -0,0 +1,17 @@
+package com.wscastro.betransferscheduler.repository;
+
+import com.wscastro.betransferscheduler.model.TransferenciaArquivada;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.time.LocalDateTime;
+
+public interface TransferenciaArquivadaRepository extends JpaRepository<TransferenciaArquivada, Long> {
+
+    Page<TransferenciaArquivada> findByDataTransferenciaGreaterThanEqualAndDataTransferenciaLessThan(
+            LocalDateTime inicio, LocalDateTime fim, Pageable pageable);
+
+    Page<TransferenciaArquivada> findByContaOrigemAndDataTransferenciaGreaterThanEqualAndDataTransferenciaLessThan(
+            String contaOrigem, LocalDateTime inicio, LocalDateTime fim, Pageable pageable);
+}
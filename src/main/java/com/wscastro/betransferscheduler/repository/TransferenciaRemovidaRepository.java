@@ -0,0 +1,26 @@
+package com.wscastro.betransferscheduler.repository;
+
+import com.wscastro.betransferscheduler.model.TransferenciaRemovida;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface TransferenciaRemovidaRepository extends JpaRepository<TransferenciaRemovida, Long> {
+
+    List<TransferenciaRemovida> findByVersaoGreaterThanAndVersaoLessThanEqualOrderByVersaoAsc(Long desde, Long ate, Pageable pageable);
+
+    @Query("select max(r.versao) from TransferenciaRemovida r")
+    Long buscarMaiorVersao();
+
+    @Query("select max(r.versao) from TransferenciaRemovida r where r.removidaEm < :limite")
+    Long buscarMaiorVersaoAntesDe(@Param("limite") LocalDateTime limite);
+
+    @Modifying
+    @Query("delete from TransferenciaRemovida r where r.removidaEm < :limite")
+    int removerAntesDe(@Param("limite") LocalDateTime limite);
+}
@@ -1,9 +1,75 @@
 package com.wscastro.betransferscheduler.repository;
 
 import com.wscastro.betransferscheduler.model.Transferencia;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Repository;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
 
 @Repository
 public interface TransferenciaRepository extends JpaRepository<Transferencia, Long> {
+
+    List<Transferencia> findByVersaoGreaterThanAndVersaoLessThanEqualOrderByVersaoAsc(Long desde, Long ate, Pageable pageable);
+
+    // Inclui as arquivadas: o contador de versoes nao pode voltar quando a mais recente sai da tabela
+    @Query(value = "select max(v) from (select max(versao) v from transferencia " +
+            "union all select max(versao) from transferencia_arquivada) m", nativeQuery = true)
+    Long buscarMaiorVersao();
+
+    @Query("select t from Transferencia t where t.dataTransferencia >= :inicio and t.dataTransferencia < :fim " +
+            "order by t.dataTransferencia, t.id")
+    List<Transferencia> buscarVencimentos(@Param("inicio") LocalDateTime inicio, @Param("fim") LocalDateTime fim);
+
+    // Coberta por idx_transferencia_duplicidade; só é chamada quando o filtro de duplicidade aponta um possível par
+    @Query("select t.id from Transferencia t where t.contaOrigem = :contaOrigem " +
+            "and t.dataTransferencia = :dataTransferencia and t.contaDestino = :contaDestino and t.valor = :valor " +
+            "order by t.id")
+    List<Long> buscarDuplicadas(@Param("contaOrigem") String contaOrigem, @Param("contaDestino") String contaDestino,
+                                @Param("valor") BigDecimal valor,
+                                @Param("dataTransferencia") LocalDateTime dataTransferencia);
+
+    @Query(value = "select t.conta_origem as contaOrigem, cast(t.data_transferencia as date) as data, sum(t.valor) as total " +
+            "from transferencia t where t.data_transferencia >= :inicio " +
+            "group by t.conta_origem, cast(t.data_transferencia as date)", nativeQuery = true)
+    List<SaidaDiaria> somarSaidasPorContaEDia(@Param("inicio") LocalDateTime inicio);
+
+    // Totais das transferências vigentes, na mesma escala das colunas de resumo_diario
+    @Query(value = "select cast(t.data_transferencia as date) as data, count(*) as quantidade, " +
+            "sum(t.valor) as valorTotal, sum(t.taxa) as taxaTotal " +
+            "from transferencia t group by cast(t.data_transferencia as date)", nativeQuery = true)
+    List<ResumoDiarioRepository.TotaisDiarios> somarTotaisPorDia();
+
+    /**
+     * Se as transferências vigentes ficam na tabela {@code transferencia}. Os armazenamentos alternativos respondem
+     * {@code false}, e os jobs que trabalham com SQL direto nessa tabela se recusam a rodar sobre eles.
+     */
+    default boolean naTabelaTransferencia() {
+        return true;
+    }
+
+    /**
+     * Recusa com 501 uma operacao que trabalha com SQL direto na tabela {@code transferencia} quando as
+     * transferências estao num armazenamento alternativo. {@code operacao} abre a mensagem, como em
+     * "O arquivamento".
+     */
+    default void exigirTabelaTransferencia(String operacao) {
+        if (!naTabelaTransferencia()) {
+            throw new ResponseStatusException(HttpStatus.NOT_IMPLEMENTED,
+                    operacao + " só está disponível com o armazenamento jpa");
+        }
+    }
+
+    interface SaidaDiaria {
+        String getContaOrigem();
+        LocalDate getData();
+        BigDecimal getTotal();
+    }
 }
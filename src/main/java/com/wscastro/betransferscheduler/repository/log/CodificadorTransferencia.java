@@ -0,0 +1,138 @@
+package com.wscastro.betransferscheduler.repository.log;
+
+import com.wscastro.betransferscheduler.model.Transferencia;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.zip.CRC32;
+
+/**
+ * Layout binário de tamanho fixo ({@value #TAMANHO_REGISTRO} bytes) de uma transferência ou de uma marca
+ * de remocao. Valores monetários sao gravados em centavos, como na coluna numeric(19,2) do banco, e cada
+ * registro termina com um CRC32 que permite detectar gravacoes incompletas.
+ *
+ * <pre>
+ * tipo(1) id(8) versao(8) valor(8) taxa(8) agendamento(8+4) transferencia(8+4)
+ * contaOrigem(1+32) contaDestino(1+32) reservado(1) crc(4)
+ * </pre>
+ */
+public final class CodificadorTransferencia {
+
+    public static final int TAMANHO_REGISTRO = 128;
+    public static final byte TIPO_VAZIO = 0;
+    public static final byte TIPO_TRANSFERENCIA = 1;
+    public static final byte TIPO_REMOCAO = 2;
+
+    private static final int TAMANHO_CONTA = 32;
+    private static final int POSICAO_ID = 1;
+    private static final int POSICAO_CRC = TAMANHO_REGISTRO - 4;
+    private static final long SEM_VERSAO = Long.MIN_VALUE;
+
+    private CodificadorTransferencia() {
+    }
+
+    /** Escreve o registro na posicao corrente de {@code destino}, avancando {@value #TAMANHO_REGISTRO} bytes. */
+    public static void codificar(Transferencia t, ByteBuffer destino) {
+        int inicio = destino.position();
+        destino.put(TIPO_TRANSFERENCIA);
+        destino.putLong(t.getId());
+        destino.putLong(t.getVersao() != null ? t.getVersao() : SEM_VERSAO);
+        destino.putLong(centavos(t.getValor()));
+        destino.putLong(centavos(t.getTaxa()));
+        putDataHora(destino, t.getDataAgendamento());
+        putDataHora(destino, t.getDataTransferencia());
+        putConta(destino, t.getContaOrigem());
+        putConta(destino, t.getContaDestino());
+        finalizar(destino, inicio);
+    }
+
+    public static void codificarRemocao(long id, ByteBuffer destino) {
+        int inicio = destino.position();
+        destino.put(TIPO_REMOCAO);
+        destino.putLong(id);
+        finalizar(destino, inicio);
+    }
+
+    /** Tipo do registro que começa em {@code posicao}, ou {@link #TIPO_VAZIO} se estiver ausente ou corrompido. */
+    public static byte tipoValido(ByteBuffer origem, int posicao) {
+        byte tipo = origem.get(posicao);
+        if (tipo == TIPO_VAZIO) {
+            return TIPO_VAZIO;
+        }
+        return crc(origem, posicao) == origem.getInt(posicao + POSICAO_CRC) ? tipo : TIPO_VAZIO;
+    }
+
+    public static long id(ByteBuffer origem, int posicao) {
+        return origem.getLong(posicao + POSICAO_ID);
+    }
+
+    public static Transferencia decodificar(ByteBuffer origem, int posicao) {
+        ByteBuffer leitura = origem.duplicate();
+        leitura.position(posicao + POSICAO_ID);
+        Transferencia t = new Transferencia();
+        t.setId(leitura.getLong());
+        long versao = leitura.getLong();
+        t.setVersao(versao != SEM_VERSAO ? versao : null);
+        t.setValor(BigDecimal.valueOf(leitura.getLong(), 2));
+        t.setTaxa(BigDecimal.valueOf(leitura.getLong(), 2));
+        t.setDataAgendamento(getDataHora(leitura));
+        t.setDataTransferencia(getDataHora(leitura));
+        t.setContaOrigem(getConta(leitura));
+        t.setContaDestino(getConta(leitura));
+        return t;
+    }
+
+    private static void finalizar(ByteBuffer destino, int inicio) {
+        while (destino.position() < inicio + POSICAO_CRC) {
+            destino.put((byte) 0);
+        }
+        destino.putInt(crc(destino, inicio));
+    }
+
+    private static int crc(ByteBuffer buffer, int inicio) {
+        ByteBuffer trecho = buffer.duplicate();
+        trecho.limit(inicio + POSICAO_CRC).position(inicio);
+        CRC32 crc = new CRC32();
+        crc.update(trecho);
+        return (int) crc.getValue();
+    }
+
+    private static long centavos(BigDecimal valor) {
+        return valor.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    private static void putDataHora(ByteBuffer destino, LocalDateTime dataHora) {
+        destino.putLong(dataHora.toEpochSecond(ZoneOffset.UTC));
+        destino.putInt(dataHora.getNano());
+    }
+
+    private static LocalDateTime getDataHora(ByteBuffer origem) {
+        long segundos = origem.getLong();
+        int nanos = origem.getInt();
+        return LocalDateTime.ofEpochSecond(segundos, nanos, ZoneOffset.UTC);
+    }
+
+    private static void putConta(ByteBuffer destino, String conta) {
+        byte[] bytes = conta.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > TAMANHO_CONTA) {
+            throw new IllegalArgumentException("Conta excede " + TAMANHO_CONTA + " bytes: " + conta);
+        }
+        destino.put((byte) bytes.length);
+        destino.put(bytes);
+        for (int i = bytes.length; i < TAMANHO_CONTA; i++) {
+            destino.put((byte) 0);
+        }
+    }
+
+    private static String getConta(ByteBuffer origem) {
+        int tamanho = origem.get();
+        byte[] bytes = new byte[tamanho];
+        origem.get(bytes);
+        origem.position(origem.position() + TAMANHO_CONTA - tamanho);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,350 @@
+package com.wscastro.betransferscheduler.repository.log;
+
+import com.wscastro.betransferscheduler.model.Transferencia;
+import com.wscastro.betransferscheduler.repository.AbstractTransferenciaRepository;
+import com.wscastro.betransferscheduler.service.CacheListagemService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Repository;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Armazenamento de transferências em log append-only, sem banco: cada gravacao ou remocao é um registro
+ * de tamanho fixo anexado ao segmento ativo (arquivo mapeado em memória), e um índice em memória aponta
+ * cada id para a posicao da sua versao mais recente. Na inicializacao os segmentos sao relidos em ordem
+ * para reconstruir o índice.
+ *
+ * <p>Remocoes gravam uma marca; segmentos com poucos registros vivos sao compactados em segundo plano,
+ * copiando os vivos para o segmento ativo e excluindo o arquivo antigo.
+ *
+ * <p>O log nao participa da transacao JPA: dentro de uma transacao as escritas sao anexadas no commit, e uma
+ * falha ao anexar desfaz a transacao. Ativado com {@code app.armazenamento.transferencias=log}.
+ */
+@Repository
+@Primary
+@ConditionalOnProperty(name = "app.armazenamento.transferencias", havingValue = "log")
+public class LogTransferenciaRepository extends AbstractTransferenciaRepository {
+    private static final Logger logger = LoggerFactory.getLogger(LogTransferenciaRepository.class);
+
+    private static final String PREFIXO_SEGMENTO = "segmento-";
+    private static final String EXTENSAO_SEGMENTO = ".log";
+
+    private final Path diretorio;
+    private final int tamanhoSegmento;
+    private final double limiteCompactacao;
+    private final boolean sincronizarEscritas;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<Integer, SegmentoLog> segmentos = new TreeMap<>();
+    private final Map<Long, Long> indice = new HashMap<>();
+    private SegmentoLog ativo;
+
+    @Autowired
+    public LogTransferenciaRepository(@Value("${app.armazenamento.log.diretorio:./dados/transferencias}") String diretorio,
+                                      @Value("${app.armazenamento.log.tamanho-segmento-mb:64}") int tamanhoSegmentoMb,
+                                      @Value("${app.armazenamento.log.compactacao-limite:0.5}") double limiteCompactacao,
+                                      @Value("${app.armazenamento.log.sincronizar-escritas:false}") boolean sincronizarEscritas,
+                                      ObjectProvider<CacheListagemService> cacheListagemService) {
+        this(Paths.get(diretorio), tamanhoSegmentoMb * 1024 * 1024, limiteCompactacao, sincronizarEscritas,
+                cacheListagemService.getIfAvailable());
+    }
+
+    public LogTransferenciaRepository(Path diretorio, int tamanhoSegmentoBytes, double limiteCompactacao,
+                                      boolean sincronizarEscritas, CacheListagemService cacheListagemService) {
+        super(cacheListagemService);
+        if (tamanhoSegmentoBytes < CodificadorTransferencia.TAMANHO_REGISTRO) {
+            throw new IllegalArgumentException("Segmento menor que um registro: " + tamanhoSegmentoBytes);
+        }
+        this.diretorio = diretorio;
+        this.tamanhoSegmento = tamanhoSegmentoBytes;
+        this.limiteCompactacao = limiteCompactacao;
+        this.sincronizarEscritas = sincronizarEscritas;
+        recuperar();
+        indexarVigentes();
+    }
+
+    private void recuperar() {
+        try {
+            Files.createDirectories(diretorio);
+            List<Integer> numeros;
+            try (Stream<Path> arquivos = Files.list(diretorio)) {
+                numeros = arquivos.map(p -> p.getFileName().toString())
+                        .filter(n -> n.startsWith(PREFIXO_SEGMENTO) && n.endsWith(EXTENSAO_SEGMENTO))
+                        .map(n -> Integer.parseInt(n.substring(PREFIXO_SEGMENTO.length(), n.length() - EXTENSAO_SEGMENTO.length())))
+                        .sorted()
+                        .collect(Collectors.toList());
+            }
+            for (int numero : numeros) {
+                SegmentoLog segmento = SegmentoLog.abrir(arquivo(numero), numero, tamanhoSegmento);
+                segmentos.put(numero, segmento);
+                segmento.percorrer((tipo, id, deslocamento) -> {
+                    segmento.registros++;
+                    ultimoId.accumulateAndGet(id, Math::max);
+                    if (tipo == CodificadorTransferencia.TIPO_TRANSFERENCIA) {
+                        apontar(id, segmento, deslocamento);
+                    } else {
+                        desapontar(id);
+                    }
+                });
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao abrir o diretório de segmentos " + diretorio, e);
+        }
+        ativo = segmentos.isEmpty() ? novoSegmento(1) : segmentos.lastEntry().getValue();
+        logger.info("Log de transferências recuperado: {} segmento(s), {} transferência(s)", segmentos.size(), indice.size());
+    }
+
+    // ---- Escrita ----
+
+    @Override
+    public void flush() {
+        lock.writeLock().lock();
+        try {
+            ativo.forcar();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    protected void gravar(Transferencia t) {
+        lock.writeLock().lock();
+        try {
+            garantirEspaco();
+            int deslocamento = ativo.anexarTransferencia(t);
+            apontar(t.getId(), ativo, deslocamento);
+            sincronizar();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    protected boolean remover(long id) {
+        lock.writeLock().lock();
+        try {
+            if (!desapontar(id)) {
+                return false;
+            }
+            garantirEspaco();
+            ativo.anexarRemocao(id);
+            sincronizar();
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void sincronizar() {
+        if (sincronizarEscritas) {
+            ativo.forcar();
+        }
+    }
+
+    // ---- Leitura ----
+
+    @Override
+    public Optional<Transferencia> findById(Long id) {
+        lock.readLock().lock();
+        try {
+            Long posicao = indice.get(id);
+            return posicao == null ? Optional.empty() : Optional.of(ler(posicao));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean existsById(Long id) {
+        lock.readLock().lock();
+        try {
+            return indice.containsKey(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public long count() {
+        lock.readLock().lock();
+        try {
+            return indice.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Transferencia> findAllById(Iterable<Long> ids) {
+        lock.readLock().lock();
+        try {
+            List<Transferencia> encontradas = new ArrayList<>();
+            for (Long id : ids) {
+                Long posicao = indice.get(id);
+                if (posicao != null) {
+                    encontradas.add(ler(posicao));
+                }
+            }
+            return encontradas;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    protected List<Transferencia> lerTodas() {
+        lock.readLock().lock();
+        try {
+            List<Transferencia> todas = new ArrayList<>(indice.size());
+            for (Long posicao : indice.values()) {
+                todas.add(ler(posicao));
+            }
+            return todas;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    protected List<Long> idsAtuais() {
+        lock.readLock().lock();
+        try {
+            return new ArrayList<>(indice.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Transferencia ler(long posicao) {
+        return segmentos.get(segmentoDe(posicao)).ler(deslocamentoDe(posicao));
+    }
+
+    // ---- Compactacao ----
+
+    /**
+     * Reescreve os segmentos fechados cuja fracao de registros vivos ficou abaixo do limite. Marcas de remocao
+     * só podem ser descartadas no segmento mais antigo; nos demais elas sao copiadas adiante para que uma
+     * versao anterior, em um segmento mais antigo, nao reapareça na recuperacao.
+     */
+    @Scheduled(fixedDelayString = "${app.armazenamento.log.compactacao-intervalo-ms:60000}")
+    public void compactar() {
+        lock.writeLock().lock();
+        try {
+            for (Integer numero : new ArrayList<>(segmentos.keySet())) {
+                SegmentoLog segmento = segmentos.get(numero);
+                if (segmento == ativo || segmento.registros == 0
+                        || segmento.vivos >= segmento.registros * limiteCompactacao) {
+                    continue;
+                }
+                boolean maisAntigo = numero.equals(segmentos.firstKey());
+                int copiados = segmento.vivos;
+                segmento.percorrer((tipo, id, deslocamento) -> {
+                    if (tipo == CodificadorTransferencia.TIPO_TRANSFERENCIA) {
+                        Long posicao = indice.get(id);
+                        if (posicao != null && posicao == posicao(segmento.numero(), deslocamento)) {
+                            garantirEspaco();
+                            apontar(id, ativo, ativo.anexarCopia(segmento, deslocamento));
+                        }
+                    } else if (!maisAntigo && !indice.containsKey(id)) {
+                        garantirEspaco();
+                        ativo.anexarCopia(segmento, deslocamento);
+                    }
+                });
+                ativo.forcar();
+                segmentos.remove(numero);
+                segmento.excluir();
+                logger.info("Segmento {} compactado: {} de {} registro(s) copiado(s)", numero, copiados, segmento.registros);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @PreDestroy
+    public void fechar() {
+        lock.writeLock().lock();
+        try {
+            segmentos.values().forEach(SegmentoLog::forcar);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    int quantidadeSegmentos() {
+        lock.readLock().lock();
+        try {
+            return segmentos.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ---- Índice e segmentos (chamados com o lock de escrita) ----
+
+    private void apontar(long id, SegmentoLog segmento, int deslocamento) {
+        Long anterior = indice.put(id, posicao(segmento.numero(), deslocamento));
+        if (anterior != null) {
+            segmentos.get(segmentoDe(anterior)).vivos--;
+        }
+        segmento.vivos++;
+    }
+
+    private boolean desapontar(long id) {
+        Long anterior = indice.remove(id);
+        if (anterior == null) {
+            return false;
+        }
+        segmentos.get(segmentoDe(anterior)).vivos--;
+        return true;
+    }
+
+    private void garantirEspaco() {
+        if (ativo.cheio()) {
+            ativo.forcar();
+            ativo = novoSegmento(ativo.numero() + 1);
+        }
+    }
+
+    private SegmentoLog novoSegmento(int numero) {
+        SegmentoLog segmento = SegmentoLog.abrir(arquivo(numero), numero, tamanhoSegmento);
+        segmentos.put(numero, segmento);
+        return segmento;
+    }
+
+    private Path arquivo(int numero) {
+        return diretorio.resolve(String.format("%s%06d%s", PREFIXO_SEGMENTO, numero, EXTENSAO_SEGMENTO));
+    }
+
+    private static long posicao(int segmento, int deslocamento) {
+        return ((long) segmento << 32) | (deslocamento & 0xFFFFFFFFL);
+    }
+
+    private static int segmentoDe(long posicao) {
+        return (int) (posicao >>> 32);
+    }
+
+    private static int deslocamentoDe(long posicao) {
+        return (int) posicao;
+    }
+}
@@ -0,0 +1,129 @@
+package com.wscastro.betransferscheduler.repository.log;
+
+import com.wscastro.betransferscheduler.model.Transferencia;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static com.wscastro.betransferscheduler.repository.log.CodificadorTransferencia.TAMANHO_REGISTRO;
+
+/**
+ * Arquivo de tamanho fixo mapeado em memória, preenchido sequencialmente com registros de
+ * {@link CodificadorTransferencia}. Nao é thread-safe: o acesso é coordenado por {@link LogTransferenciaRepository}.
+ */
+final class SegmentoLog {
+
+    private final int numero;
+    private final Path arquivo;
+    private final MappedByteBuffer buffer;
+    private final int capacidade;
+    private int posicao;
+
+    // Registros gravados (incluindo remocoes) e quantos deles ainda sao a versao atual de alguma transferência
+    int registros;
+    int vivos;
+
+    private SegmentoLog(int numero, Path arquivo, MappedByteBuffer buffer, int capacidade) {
+        this.numero = numero;
+        this.arquivo = arquivo;
+        this.buffer = buffer;
+        this.capacidade = capacidade;
+    }
+
+    static SegmentoLog abrir(Path arquivo, int numero, int tamanhoBytes) {
+        int capacidade = tamanhoBytes / TAMANHO_REGISTRO * TAMANHO_REGISTRO;
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            // O mapeamento continua válido depois que o canal é fechado
+            MappedByteBuffer buffer = canal.map(FileChannel.MapMode.READ_WRITE, 0, capacidade);
+            return new SegmentoLog(numero, arquivo, buffer, capacidade);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao abrir o segmento " + arquivo, e);
+        }
+    }
+
+    int numero() {
+        return numero;
+    }
+
+    boolean cheio() {
+        return posicao + TAMANHO_REGISTRO > capacidade;
+    }
+
+    int anexarTransferencia(Transferencia t) {
+        ByteBuffer escrita = escrita();
+        CodificadorTransferencia.codificar(t, escrita);
+        return avancar();
+    }
+
+    int anexarRemocao(long id) {
+        ByteBuffer escrita = escrita();
+        CodificadorTransferencia.codificarRemocao(id, escrita);
+        return avancar();
+    }
+
+    /** Copia um registro já codificado de outro segmento, sem decodificá-lo. */
+    int anexarCopia(SegmentoLog origem, int deslocamento) {
+        ByteBuffer leitura = origem.buffer.duplicate();
+        leitura.limit(deslocamento + TAMANHO_REGISTRO).position(deslocamento);
+        escrita().put(leitura);
+        return avancar();
+    }
+
+    Transferencia ler(int deslocamento) {
+        return CodificadorTransferencia.decodificar(buffer, deslocamento);
+    }
+
+    /**
+     * Percorre os registros válidos desde o início. A leitura para no primeiro registro vazio ou com CRC
+     * inválido, que passa a ser a posicao de escrita: uma gravacao interrompida é sobrescrita pela próxima.
+     */
+    void percorrer(Visitante visitante) {
+        int deslocamento = 0;
+        while (deslocamento + TAMANHO_REGISTRO <= capacidade) {
+            byte tipo = CodificadorTransferencia.tipoValido(buffer, deslocamento);
+            if (tipo == CodificadorTransferencia.TIPO_VAZIO) {
+                break;
+            }
+            visitante.visitar(tipo, CodificadorTransferencia.id(buffer, deslocamento), deslocamento);
+            deslocamento += TAMANHO_REGISTRO;
+        }
+        posicao = Math.max(posicao, deslocamento);
+    }
+
+    void forcar() {
+        buffer.force();
+    }
+
+    void excluir() {
+        try {
+            Files.deleteIfExists(arquivo);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao excluir o segmento " + arquivo, e);
+        }
+    }
+
+    private ByteBuffer escrita() {
+        ByteBuffer escrita = buffer.duplicate();
+        escrita.position(posicao);
+        return escrita;
+    }
+
+    private int avancar() {
+        int deslocamento = posicao;
+        posicao += TAMANHO_REGISTRO;
+        registros++;
+        return deslocamento;
+    }
+
+    @FunctionalInterface
+    interface Visitante {
+        void visitar(byte tipo, long id, int deslocamento);
+    }
+}
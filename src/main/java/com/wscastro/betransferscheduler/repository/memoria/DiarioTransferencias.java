@@ -0,0 +1,290 @@
+package com.wscastro.betransferscheduler.repository.memoria;
+
+import com.wscastro.betransferscheduler.model.Transferencia;
+import com.wscastro.betransferscheduler.repository.log.CodificadorTransferencia;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.wscastro.betransferscheduler.repository.log.CodificadorTransferencia.TAMANHO_REGISTRO;
+
+/**
+ * Diário (write-ahead log) das alteracoes do armazenamento em memória, com registros de
+ * {@link CodificadorTransferencia}. As escritas vao para um buffer; uma thread dedicada descarrega o buffer
+ * e faz o fsync de todos os registros pendentes de uma vez, de modo que várias gravacoes concorrentes
+ * compartilham o mesmo fsync (group commit).
+ */
+final class DiarioTransferencias {
+    private static final Logger logger = LoggerFactory.getLogger(DiarioTransferencias.class);
+
+    private static final int TAMANHO_BUFFER = 1024 * TAMANHO_REGISTRO;
+
+    private final boolean sincronizar;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition pendente = lock.newCondition();
+    private final Condition sincronizado = lock.newCondition();
+    // Serializa o fsync com a troca de arquivo, que fecha o canal anterior
+    private final ReentrantLock forcando = new ReentrantLock();
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(TAMANHO_BUFFER);
+    private final Thread sincronizador;
+
+    private FileChannel canal;
+    private long anexados;
+    private long duraveis;
+    private IOException falha;
+    private boolean fechado;
+
+    DiarioTransferencias(Path arquivo, boolean sincronizar) {
+        this.sincronizar = sincronizar;
+        this.canal = abrirCanal(arquivo);
+        this.sincronizador = new Thread(this::sincronizarContinuamente, "diario-transferencias");
+        this.sincronizador.setDaemon(true);
+        this.sincronizador.start();
+    }
+
+    /** Anexa a transferência e devolve a sua sequência, a ser passada para {@link #aguardar(long)}. */
+    long anexarTransferencia(Transferencia t) {
+        lock.lock();
+        try {
+            garantirEspaco();
+            CodificadorTransferencia.codificar(t, buffer);
+            return anexado();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long anexarRemocao(long id) {
+        lock.lock();
+        try {
+            garantirEspaco();
+            CodificadorTransferencia.codificarRemocao(id, buffer);
+            return anexado();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Bloqueia até que o registro de sequência {@code sequencia} esteja em disco. Sem efeito se o fsync estiver desligado. */
+    void aguardar(long sequencia) {
+        if (!sincronizar) {
+            return;
+        }
+        lock.lock();
+        try {
+            while (duraveis < sequencia && falha == null && !fechado) {
+                sincronizado.awaitUninterruptibly();
+            }
+            verificarFalha();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Descarrega e sincroniza tudo que foi anexado até agora, independentemente da configuracao de fsync. */
+    void sincronizarAgora() {
+        forcando.lock();
+        try {
+            long alvo;
+            lock.lock();
+            try {
+                descarregar();
+                alvo = anexados;
+            } finally {
+                lock.unlock();
+            }
+            canal.force(false);
+            marcarDuraveis(alvo);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao sincronizar o diário de transferências", e);
+        } finally {
+            forcando.unlock();
+        }
+    }
+
+    /** Sincroniza o arquivo atual e passa a anexar em {@code novoArquivo}. Usado ao gerar um snapshot. */
+    void rotacionar(Path novoArquivo) {
+        forcando.lock();
+        try {
+            lock.lock();
+            try {
+                descarregar();
+                canal.force(false);
+                canal.close();
+                canal = abrirCanal(novoArquivo);
+                duraveis = anexados;
+                sincronizado.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao trocar o arquivo do diário para " + novoArquivo, e);
+        } finally {
+            forcando.unlock();
+        }
+    }
+
+    void fechar() {
+        sincronizarAgora();
+        lock.lock();
+        try {
+            fechado = true;
+            pendente.signalAll();
+            sincronizado.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            sincronizador.join();
+            canal.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao fechar o diário de transferências", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Relê um arquivo do diário em ordem. A leitura para no primeiro registro vazio ou com CRC inválido,
+     * deixado por uma gravacao interrompida.
+     */
+    static long reproduzir(Path arquivo, Visitante visitante) {
+        long lidos = 0;
+        ByteBuffer leitura = ByteBuffer.allocateDirect(TAMANHO_BUFFER);
+        try (FileChannel origem = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            while (origem.read(leitura) > 0 || leitura.position() > 0) {
+                leitura.flip();
+                int completos = leitura.remaining() / TAMANHO_REGISTRO * TAMANHO_REGISTRO;
+                for (int posicao = 0; posicao < completos; posicao += TAMANHO_REGISTRO) {
+                    byte tipo = CodificadorTransferencia.tipoValido(leitura, posicao);
+                    if (tipo == CodificadorTransferencia.TIPO_VAZIO) {
+                        return lidos;
+                    }
+                    visitante.visitar(tipo, leitura, posicao);
+                    lidos++;
+                }
+                if (completos == 0) {
+                    // Sobrou só um registro parcial no fim do arquivo
+                    return lidos;
+                }
+                leitura.position(completos);
+                leitura.compact();
+            }
+            return lidos;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao ler o diário " + arquivo, e);
+        }
+    }
+
+    // ---- Chamados com o lock ----
+
+    private void garantirEspaco() {
+        verificarFalha();
+        if (buffer.remaining() < TAMANHO_REGISTRO) {
+            try {
+                descarregar();
+            } catch (IOException e) {
+                falha = e;
+                verificarFalha();
+            }
+        }
+    }
+
+    private long anexado() {
+        anexados++;
+        pendente.signal();
+        return anexados;
+    }
+
+    private void descarregar() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            canal.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void verificarFalha() {
+        if (falha != null) {
+            throw new UncheckedIOException("Falha ao gravar o diário de transferências", falha);
+        }
+    }
+
+    // ---- Thread de sincronizacao ----
+
+    private void sincronizarContinuamente() {
+        while (true) {
+            long alvo;
+            lock.lock();
+            try {
+                while (anexados == duraveis && !fechado) {
+                    pendente.awaitUninterruptibly();
+                }
+                if (fechado) {
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+            forcando.lock();
+            try {
+                lock.lock();
+                try {
+                    descarregar();
+                    alvo = anexados;
+                } finally {
+                    lock.unlock();
+                }
+                // O fsync roda fora do lock: novas gravacoes seguem acumulando para o próximo grupo
+                if (sincronizar) {
+                    canal.force(false);
+                }
+                marcarDuraveis(alvo);
+            } catch (IOException e) {
+                logger.error("Falha ao sincronizar o diário de transferências", e);
+                lock.lock();
+                try {
+                    falha = e;
+                    sincronizado.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                return;
+            } finally {
+                forcando.unlock();
+            }
+        }
+    }
+
+    private void marcarDuraveis(long alvo) {
+        lock.lock();
+        try {
+            duraveis = Math.max(duraveis, alvo);
+            sincronizado.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static FileChannel abrirCanal(Path arquivo) {
+        try {
+            return FileChannel.open(arquivo, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao abrir o diário " + arquivo, e);
+        }
+    }
+
+    @FunctionalInterface
+    interface Visitante {
+        void visitar(byte tipo, ByteBuffer registro, int posicao);
+    }
+}
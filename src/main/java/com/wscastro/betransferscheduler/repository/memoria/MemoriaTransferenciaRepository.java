@@ -0,0 +1,293 @@
+package com.wscastro.betransferscheduler.repository.memoria;
+
+import com.wscastro.betransferscheduler.model.Transferencia;
+import com.wscastro.betransferscheduler.repository.AbstractTransferenciaRepository;
+import com.wscastro.betransferscheduler.repository.log.CodificadorTransferencia;
+import com.wscastro.betransferscheduler.service.CacheListagemService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Repository;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Armazenamento das transferências inteiramente em memória, durável por meio de um diário (write-ahead log)
+ * com fsync em grupo e de snapshots periódicos. Na inicializacao o snapshot mais recente é carregado e
+ * somente o trecho do diário posterior a ele é reproduzido, o que mantém a recuperacao proporcional ao
+ * volume de dados e nao ao histórico de alteracoes.
+ *
+ * <p>Cada snapshot de número N troca o diário para o arquivo N e cobre todos os arquivos anteriores, que
+ * sao excluídos depois que o snapshot é publicado. Como no log, as escritas feitas dentro de uma transacao
+ * sao aplicadas no commit, que falha se o diário nao puder ser gravado. Ativado com {@code app.armazenamento.transferencias=memoria}.
+ */
+@Repository
+@Primary
+@ConditionalOnProperty(name = "app.armazenamento.transferencias", havingValue = "memoria")
+public class MemoriaTransferenciaRepository extends AbstractTransferenciaRepository {
+    private static final Logger logger = LoggerFactory.getLogger(MemoriaTransferenciaRepository.class);
+
+    private static final String PREFIXO_DIARIO = "diario-";
+    private static final String EXTENSAO_DIARIO = ".wal";
+    private static final String PREFIXO_SNAPSHOT = "snapshot-";
+    private static final String EXTENSAO_SNAPSHOT = ".bin";
+
+    private final Path diretorio;
+
+    // As transferências guardadas nunca sao alteradas: cada gravacao substitui o objeto, e as leituras devolvem cópias
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Transferencia> transferencias = new HashMap<>();
+    private final DiarioTransferencias diario;
+    private int numeroDiario;
+    private long alteracoesDesdeSnapshot;
+
+    @Autowired
+    public MemoriaTransferenciaRepository(@Value("${app.armazenamento.memoria.diretorio:./dados/memoria}") String diretorio,
+                                          @Value("${app.armazenamento.memoria.sincronizar-escritas:true}") boolean sincronizarEscritas,
+                                          ObjectProvider<CacheListagemService> cacheListagemService) {
+        this(Paths.get(diretorio), sincronizarEscritas, cacheListagemService.getIfAvailable());
+    }
+
+    public MemoriaTransferenciaRepository(Path diretorio, boolean sincronizarEscritas,
+                                          CacheListagemService cacheListagemService) {
+        super(cacheListagemService);
+        this.diretorio = diretorio;
+        recuperar();
+        this.diario = new DiarioTransferencias(arquivoDiario(numeroDiario), sincronizarEscritas);
+        indexarVigentes();
+    }
+
+    private void recuperar() {
+        long inicio = System.nanoTime();
+        try {
+            Files.createDirectories(diretorio);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao criar o diretório " + diretorio, e);
+        }
+        List<Integer> snapshots = numeros(PREFIXO_SNAPSHOT, EXTENSAO_SNAPSHOT);
+        List<Integer> diarios = numeros(PREFIXO_DIARIO, EXTENSAO_DIARIO);
+
+        int snapshot = snapshots.isEmpty() ? 0 : snapshots.get(snapshots.size() - 1);
+        if (snapshot > 0) {
+            long ultimo = SnapshotTransferencias.ler(arquivoSnapshot(snapshot), t -> transferencias.put(t.getId(), t));
+            ultimoId.accumulateAndGet(ultimo, Math::max);
+        }
+        long reproduzidos = 0;
+        for (int numero : diarios) {
+            if (numero >= snapshot) {
+                reproduzidos += DiarioTransferencias.reproduzir(arquivoDiario(numero), this::reaplicar);
+            }
+        }
+        alteracoesDesdeSnapshot = reproduzidos;
+
+        // Sempre comeca um arquivo novo: o final do anterior pode ter ficado com um registro incompleto
+        int ultimoDiario = diarios.isEmpty() ? 0 : diarios.get(diarios.size() - 1);
+        numeroDiario = Math.max(ultimoDiario, snapshot) + 1;
+        logger.info("Armazenamento em memória recuperado em {} ms: {} transferência(s), snapshot {}, {} registro(s) do diário",
+                (System.nanoTime() - inicio) / 1_000_000, transferencias.size(), snapshot, reproduzidos);
+    }
+
+    private void reaplicar(byte tipo, ByteBuffer registro, int posicao) {
+        long id = CodificadorTransferencia.id(registro, posicao);
+        ultimoId.accumulateAndGet(id, Math::max);
+        if (tipo == CodificadorTransferencia.TIPO_TRANSFERENCIA) {
+            transferencias.put(id, CodificadorTransferencia.decodificar(registro, posicao));
+        } else {
+            transferencias.remove(id);
+        }
+    }
+
+    // ---- Escrita ----
+
+    @Override
+    protected void gravar(Transferencia t) {
+        long sequencia;
+        lock.writeLock().lock();
+        try {
+            // Anexar sob o mesmo lock garante que o diário tem a mesma ordem que o estado em memória
+            sequencia = diario.anexarTransferencia(t);
+            transferencias.put(t.getId(), t);
+            alteracoesDesdeSnapshot++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        diario.aguardar(sequencia);
+    }
+
+    @Override
+    protected boolean remover(long id) {
+        long sequencia;
+        lock.writeLock().lock();
+        try {
+            if (!transferencias.containsKey(id)) {
+                return false;
+            }
+            sequencia = diario.anexarRemocao(id);
+            transferencias.remove(id);
+            alteracoesDesdeSnapshot++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        diario.aguardar(sequencia);
+        return true;
+    }
+
+    @Override
+    public void flush() {
+        diario.sincronizarAgora();
+    }
+
+    // ---- Leitura ----
+
+    @Override
+    public Optional<Transferencia> findById(Long id) {
+        lock.readLock().lock();
+        try {
+            Transferencia t = transferencias.get(id);
+            return t == null ? Optional.empty() : Optional.of(copiar(t));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean existsById(Long id) {
+        lock.readLock().lock();
+        try {
+            return transferencias.containsKey(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public long count() {
+        lock.readLock().lock();
+        try {
+            return transferencias.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    protected List<Transferencia> lerTodas() {
+        lock.readLock().lock();
+        try {
+            List<Transferencia> todas = new ArrayList<>(transferencias.size());
+            for (Transferencia t : transferencias.values()) {
+                todas.add(copiar(t));
+            }
+            return todas;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    protected List<Long> idsAtuais() {
+        lock.readLock().lock();
+        try {
+            return new ArrayList<>(transferencias.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ---- Snapshots ----
+
+    /**
+     * Grava um snapshot se houve alteracoes desde o anterior. Só a troca de arquivo do diário e a cópia das
+     * referências acontecem sob o lock; a serializacao roda em paralelo com novas escritas.
+     */
+    @Scheduled(fixedDelayString = "${app.armazenamento.memoria.snapshot-intervalo-ms:300000}")
+    public synchronized void gerarSnapshot() {
+        long inicio = System.nanoTime();
+        List<Transferencia> estado;
+        long ultimo;
+        int numero;
+        lock.writeLock().lock();
+        try {
+            if (alteracoesDesdeSnapshot == 0) {
+                return;
+            }
+            numero = numeroDiario + 1;
+            diario.rotacionar(arquivoDiario(numero));
+            numeroDiario = numero;
+            estado = new ArrayList<>(transferencias.values());
+            ultimo = ultimoId.get();
+            alteracoesDesdeSnapshot = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        SnapshotTransferencias.gravar(arquivoSnapshot(numero), ultimo, estado);
+        for (int anterior : numeros(PREFIXO_SNAPSHOT, EXTENSAO_SNAPSHOT)) {
+            if (anterior < numero) {
+                excluir(arquivoSnapshot(anterior));
+            }
+        }
+        for (int anterior : numeros(PREFIXO_DIARIO, EXTENSAO_DIARIO)) {
+            if (anterior < numero) {
+                excluir(arquivoDiario(anterior));
+            }
+        }
+        logger.info("Snapshot {} gravado em {} ms com {} transferência(s)",
+                numero, (System.nanoTime() - inicio) / 1_000_000, estado.size());
+    }
+
+    @PreDestroy
+    public void fechar() {
+        gerarSnapshot();
+        diario.fechar();
+    }
+
+    // ---- Arquivos ----
+
+    private List<Integer> numeros(String prefixo, String extensao) {
+        try (Stream<Path> arquivos = Files.list(diretorio)) {
+            return arquivos.map(p -> p.getFileName().toString())
+                    .filter(n -> n.startsWith(prefixo) && n.endsWith(extensao))
+                    .map(n -> Integer.parseInt(n.substring(prefixo.length(), n.length() - extensao.length())))
+                    .sorted()
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao listar o diretório " + diretorio, e);
+        }
+    }
+
+    private Path arquivoDiario(int numero) {
+        return diretorio.resolve(String.format("%s%06d%s", PREFIXO_DIARIO, numero, EXTENSAO_DIARIO));
+    }
+
+    private Path arquivoSnapshot(int numero) {
+        return diretorio.resolve(String.format("%s%06d%s", PREFIXO_SNAPSHOT, numero, EXTENSAO_SNAPSHOT));
+    }
+
+    private static void excluir(Path arquivo) {
+        try {
+            Files.deleteIfExists(arquivo);
+        } catch (IOException e) {
+            logger.error("Falha ao excluir {}", arquivo, e);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.wscastro.betransferscheduler.repository.memoria;
+
+import com.wscastro.betransferscheduler.model.Transferencia;
+import com.wscastro.betransferscheduler.repository.log.CodificadorTransferencia;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.function.Consumer;
+
+import static com.wscastro.betransferscheduler.repository.log.CodificadorTransferencia.TAMANHO_REGISTRO;
+
+/**
+ * Fotografia binária do estado do armazenamento em memória: um cabecalho com o último id emitido e a
+ * quantidade de transferências, seguido de um registro de {@link CodificadorTransferencia} por transferência.
+ * O arquivo é escrito ao lado com extensao temporária e renomeado atomicamente depois do fsync, de modo que
+ * um snapshot visível está sempre completo.
+ */
+final class SnapshotTransferencias {
+
+    private static final int MAGICO = 0x54524E53;
+    private static final int TAMANHO_CABECALHO = 4 + 8 + 8;
+    private static final int TAMANHO_BUFFER = 8192 * TAMANHO_REGISTRO;
+
+    private SnapshotTransferencias() {
+    }
+
+    static void gravar(Path arquivo, long ultimoId, Collection<Transferencia> transferencias) {
+        Path temporario = arquivo.resolveSibling(arquivo.getFileName() + ".tmp");
+        ByteBuffer buffer = ByteBuffer.allocateDirect(TAMANHO_BUFFER);
+        try (FileChannel destino = FileChannel.open(temporario, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            buffer.putInt(MAGICO).putLong(ultimoId).putLong(transferencias.size());
+            for (Transferencia t : transferencias) {
+                if (buffer.remaining() < TAMANHO_REGISTRO) {
+                    escrever(destino, buffer);
+                }
+                CodificadorTransferencia.codificar(t, buffer);
+            }
+            escrever(destino, buffer);
+            destino.force(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao gravar o snapshot " + arquivo, e);
+        }
+        try {
+            Files.move(temporario, arquivo, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao publicar o snapshot " + arquivo, e);
+        }
+    }
+
+    /** Entrega cada transferência do snapshot a {@code destino} e devolve o último id emitido. */
+    static long ler(Path arquivo, Consumer<Transferencia> destino) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(TAMANHO_BUFFER);
+        try (FileChannel origem = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            buffer.limit(TAMANHO_CABECALHO);
+            lerCompleto(origem, buffer, arquivo);
+            buffer.flip();
+            if (buffer.getInt() != MAGICO) {
+                throw new IllegalStateException("Snapshot inválido: " + arquivo);
+            }
+            long ultimoId = buffer.getLong();
+            long restantes = buffer.getLong();
+            if (origem.size() != TAMANHO_CABECALHO + restantes * TAMANHO_REGISTRO) {
+                throw new IllegalStateException("Snapshot truncado: " + arquivo);
+            }
+            while (restantes > 0) {
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), restantes * TAMANHO_REGISTRO));
+                lerCompleto(origem, buffer, arquivo);
+                buffer.flip();
+                for (int posicao = 0; posicao < buffer.limit(); posicao += TAMANHO_REGISTRO) {
+                    if (CodificadorTransferencia.tipoValido(buffer, posicao) != CodificadorTransferencia.TIPO_TRANSFERENCIA) {
+                        throw new IllegalStateException("Registro corrompido no snapshot " + arquivo);
+                    }
+                    destino.accept(CodificadorTransferencia.decodificar(buffer, posicao));
+                    restantes--;
+                }
+            }
+            return ultimoId;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao ler o snapshot " + arquivo, e);
+        }
+    }
+
+    private static void escrever(FileChannel destino, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            destino.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static void lerCompleto(FileChannel origem, ByteBuffer buffer, Path arquivo) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (origem.read(buffer) < 0) {
+                throw new IllegalStateException("Snapshot truncado: " + arquivo);
+            }
+        }
+    }
+}
@@ -0,0 +1,497 @@
+package com.wscastro.betransferscheduler.repository.particionado;
+
+import com.wscastro.betransferscheduler.model.Transferencia;
+import com.wscastro.betransferscheduler.repository.AbstractTransferenciaRepository;
+import com.wscastro.betransferscheduler.repository.ResumoDiarioRepository;
+import com.wscastro.betransferscheduler.service.CacheListagemService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Armazenamento das transferências em uma tabela por mês de {@code dataTransferencia}
+ * ({@code transferencia_pAAAAMM}), criada na primeira gravacao do mês e registrada em {@code transferencia_particao}.
+ * Consultas por período de vencimento só leem as tabelas dos meses do período, e um mês vencido é descartado com um
+ * DROP TABLE, que só mexe em metadados, em vez de um DELETE linha a linha. O H2 nao tem particionamento nativo; num
+ * banco que tenha, cada tabela mensal seria uma particao de uma tabela única.
+ *
+ * <p>A data de transferência é a chave de particao e nao muda depois do agendamento. Buscas por id, que nao
+ * conhecem a data, consultam a chave primária de todas as particoes numa única instrucao. Os ids vêm da sequência
+ * {@code transferencia_id_seq}, compartilhada por todas as instâncias, e uma transferência nova entra com INSERT
+ * simples: um id repetido falha com violacao de chave em vez de sobrescrever outra linha. As tabelas ficam no
+ * mesmo banco do JPA, entao as escritas usam a conexao da transacao corrente e sao confirmadas ou desfeitas junto
+ * com ela. Só a criacao de uma particao nova roda numa transacao própria, porque o DDL confirmaria a corrente.
+ *
+ * <p>Listagens e consultas por versao levam ordenacao, limite e filtro ao SQL: cada particao devolve no máximo o
+ * que a página pode usar, e uma página ordenada pelo vencimento só lê as particoes que a cobrem.
+ * Ativado com {@code app.armazenamento.transferencias=particionado}.
+ */
+@Repository
+@Primary
+@ConditionalOnProperty(name = "app.armazenamento.transferencias", havingValue = "particionado")
+public class ParticionadoTransferenciaRepository extends AbstractTransferenciaRepository {
+    private static final Logger logger = LoggerFactory.getLogger(ParticionadoTransferenciaRepository.class);
+
+    private static final DateTimeFormatter SUFIXO = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final String COLUNAS = "id, conta_origem, conta_destino, valor, taxa, data_agendamento, "
+            + "data_transferencia, versao";
+    private static final String CRIAR_PARTICAO = "create table if not exists %s (id bigint not null, "
+            + "conta_origem varchar(255) not null, conta_destino varchar(255) not null, valor numeric(19,2) not null, "
+            + "taxa numeric(19,2) not null, data_agendamento timestamp not null, data_transferencia timestamp not null, "
+            + "versao bigint, primary key (id))";
+    private static final String CRIAR_INDICE = "create index if not exists idx_%1$s_data on %1$s (data_transferencia)";
+    private static final String CRIAR_INDICE_VERSAO = "create index if not exists idx_%1$s_versao on %1$s (versao)";
+    private static final Map<String, String> COLUNAS_ORDENACAO = Map.of(
+            "id", "id",
+            "contaOrigem", "conta_origem",
+            "contaDestino", "conta_destino",
+            "valor", "valor",
+            "taxa", "taxa",
+            "dataAgendamento", "data_agendamento",
+            "dataTransferencia", "data_transferencia",
+            "versao", "versao");
+    private static final String REGISTRAR = "merge into transferencia_particao (mes, tabela, criada_em) key (mes) "
+            + "values (?, ?, ?)";
+    private static final String PROXIMO_ID = "select next value for transferencia_id_seq";
+    private static final String LER_SEQUENCIA = "select base_value from information_schema.sequences "
+            + "where sequence_name = 'TRANSFERENCIA_ID_SEQ'";
+    private static final String REINICIAR_SEQUENCIA = "alter sequence transferencia_id_seq restart with %d";
+    private static final String LER_CATALOGO = "select mes, tabela from transferencia_particao";
+    private static final String DESCARTAR = "delete from transferencia_particao where mes = ?";
+
+    private static final RowMapper<Transferencia> TRANSFERENCIA = (rs, i) -> {
+        Transferencia t = new Transferencia();
+        t.setId(rs.getLong("id"));
+        t.setContaOrigem(rs.getString("conta_origem"));
+        t.setContaDestino(rs.getString("conta_destino"));
+        t.setValor(rs.getBigDecimal("valor"));
+        t.setTaxa(rs.getBigDecimal("taxa"));
+        t.setDataAgendamento(rs.getTimestamp("data_agendamento").toLocalDateTime());
+        t.setDataTransferencia(rs.getTimestamp("data_transferencia").toLocalDateTime());
+        long versao = rs.getLong("versao");
+        t.setVersao(rs.wasNull() ? null : versao);
+        return t;
+    };
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate novaTransacao;
+    private final int retencaoMeses;
+    private final CacheListagemService cacheListagemService;
+
+    // Meses cuja tabela esta instância já criou ou encontrou; evita o DDL a cada gravacao
+    private final Set<YearMonth> criadas = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public ParticionadoTransferenciaRepository(JdbcTemplate jdbc, PlatformTransactionManager transactionManager,
+                                               @Value("${app.armazenamento.particionado.retencao-meses:0}") int retencaoMeses,
+                                               ObjectProvider<CacheListagemService> cacheListagemService) {
+        this(jdbc, transactionManager, retencaoMeses, cacheListagemService.getIfAvailable());
+    }
+
+    public ParticionadoTransferenciaRepository(JdbcTemplate jdbc, PlatformTransactionManager transactionManager,
+                                               int retencaoMeses, CacheListagemService cacheListagemService) {
+        super(cacheListagemService);
+        this.jdbc = jdbc;
+        this.novaTransacao = new TransactionTemplate(transactionManager);
+        this.novaTransacao.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.retencaoMeses = retencaoMeses;
+        this.cacheListagemService = cacheListagemService;
+        NavigableMap<YearMonth, String> particoes = particoes();
+        criadas.addAll(particoes.keySet());
+        // Particoes criadas antes do índice de versao
+        particoes.values().forEach(tabela -> jdbc.execute(String.format(CRIAR_INDICE_VERSAO, tabela)));
+        // Particoes gravadas antes de a sequência existir: ela precisa comecar depois do maior id delas
+        Long maior = agregar(particoes.values(), "max", "max(id)");
+        if (maior != null && jdbc.queryForObject(LER_SEQUENCIA, Long.class) <= maior) {
+            jdbc.execute(String.format(REINICIAR_SEQUENCIA, maior + 1));
+        }
+        logger.info("Armazenamento particionado aberto com {} particao(oes) mensal(is), último id {}",
+                particoes.size(), maior);
+    }
+
+    // ---- Escrita ----
+
+    @Override
+    protected long proximoId() {
+        return jdbc.queryForObject(PROXIMO_ID, Long.class);
+    }
+
+    @Override
+    protected void inserir(Transferencia t) {
+        String tabela = garantirParticao(YearMonth.from(t.getDataTransferencia()));
+        jdbc.update("insert into " + tabela + " (" + COLUNAS + ") values (?, ?, ?, ?, ?, ?, ?, ?)",
+                t.getId(), t.getContaOrigem(), t.getContaDestino(), t.getValor(), t.getTaxa(),
+                Timestamp.valueOf(t.getDataAgendamento()), Timestamp.valueOf(t.getDataTransferencia()), t.getVersao());
+    }
+
+    // Id informado: atualiza a linha onde ela está, ou a move se a data passou para outro mês
+    @Override
+    protected void gravar(Transferencia t) {
+        String atual = localizar(t.getId());
+        String tabela = garantirParticao(YearMonth.from(t.getDataTransferencia()));
+        if (tabela.equals(atual)) {
+            jdbc.update("update " + tabela + " set conta_origem = ?, conta_destino = ?, valor = ?, taxa = ?, "
+                            + "data_agendamento = ?, data_transferencia = ?, versao = ? where id = ?",
+                    t.getContaOrigem(), t.getContaDestino(), t.getValor(), t.getTaxa(),
+                    Timestamp.valueOf(t.getDataAgendamento()), Timestamp.valueOf(t.getDataTransferencia()),
+                    t.getVersao(), t.getId());
+            return;
+        }
+        if (atual != null) {
+            jdbc.update("delete from " + atual + " where id = ?", t.getId());
+        }
+        inserir(t);
+    }
+
+    @Override
+    protected boolean remover(long id) {
+        String tabela = localizar(id);
+        return tabela != null && jdbc.update("delete from " + tabela + " where id = ?", id) > 0;
+    }
+
+    @Override
+    protected boolean escreveNaTransacao() {
+        return true;
+    }
+
+    @Override
+    protected boolean indexaEmMemoria() {
+        return false;
+    }
+
+    @Override
+    public void flush() {
+        // Cada gravacao já vai direto para a tabela da particao
+    }
+
+    /**
+     * Descarta as particoes de meses anteriores à retencao com DROP TABLE. Com {@code retencaoMeses = 0} nada é
+     * descartado.
+     */
+    @Scheduled(cron = "${app.armazenamento.particionado.limpeza-cron:0 15 3 * * *}")
+    public void descartarVencidas() {
+        if (retencaoMeses <= 0) {
+            return;
+        }
+        YearMonth limite = YearMonth.now().minusMonths(retencaoMeses);
+        for (Map.Entry<YearMonth, String> particao : particoes().headMap(limite, false).entrySet()) {
+            criadas.remove(particao.getKey());
+            jdbc.update(DESCARTAR, Date.valueOf(particao.getKey().atDay(1)));
+            jdbc.execute("drop table if exists " + particao.getValue());
+            if (cacheListagemService != null) {
+                cacheListagemService.registrarAlteracao();
+            }
+            logger.info("Particao {} de {} descartada", particao.getValue(), particao.getKey());
+        }
+    }
+
+    // ---- Leitura ----
+
+    @Override
+    public Optional<Transferencia> findById(Long id) {
+        List<Transferencia> encontradas = consultar(particoes().values(), " where id = ?", "", id);
+        return encontradas.isEmpty() ? Optional.empty() : Optional.of(encontradas.get(0));
+    }
+
+    @Override
+    public boolean existsById(Long id) {
+        return localizar(id) != null;
+    }
+
+    @Override
+    public long count() {
+        Long total = agregar(particoes().values(), "sum", "count(*)");
+        return total != null ? total : 0L;
+    }
+
+    @Override
+    public List<Transferencia> findAll(Sort sort) {
+        return consultar(particoes().values(), "", " order by " + ordem(sort));
+    }
+
+    @Override
+    public Page<Transferencia> findAll(Pageable pageable) {
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(findAll(pageable.getSort()));
+        }
+        NavigableMap<YearMonth, String> particoes = particoes();
+        String ordem = ordem(pageable.getSort());
+        Sort.Order primeira = pageable.getSort().stream().findFirst().orElse(null);
+        if (primeira != null && primeira.getProperty().equals("dataTransferencia")) {
+            return paginarPorVencimento(particoes, primeira.isAscending(), ordem, pageable);
+        }
+        Long total = agregar(particoes.values(), "sum", "count(*)");
+        return new PageImpl<>(paginar(particoes.values(), "", ordem, pageable.getOffset(), pageable.getPageSize()),
+                pageable, total != null ? total : 0L);
+    }
+
+    @Override
+    public List<Transferencia> findByVersaoGreaterThanAndVersaoLessThanEqualOrderByVersaoAsc(Long desde, Long ate,
+                                                                                            Pageable pageable) {
+        String filtro = " where versao > ? and versao <= ?";
+        if (pageable.isUnpaged()) {
+            return consultar(particoes().values(), filtro, " order by versao, id", desde, ate);
+        }
+        return paginar(particoes().values(), filtro, "versao, id", 0, pageable.getPageSize(), desde, ate);
+    }
+
+    @Override
+    public Long buscarMaiorVersao() {
+        return agregar(particoes().values(), "max", "max(versao)");
+    }
+
+    @Override
+    public List<Transferencia> buscarVencimentos(LocalDateTime inicio, LocalDateTime fim) {
+        return consultar(particoesEntre(inicio, fim), " where data_transferencia >= ? and data_transferencia < ?",
+                " order by data_transferencia, id", Timestamp.valueOf(inicio), Timestamp.valueOf(fim));
+    }
+
+    // A data de transferência aponta a única particao onde a duplicata pode estar
+    @Override
+    public List<Long> buscarDuplicadas(String contaOrigem, String contaDestino, BigDecimal valor,
+                                       LocalDateTime dataTransferencia) {
+        String tabela = particoes().get(YearMonth.from(dataTransferencia));
+        if (tabela == null) {
+            return Collections.emptyList();
+        }
+        return jdbc.queryForList("select id from " + tabela + " where data_transferencia = ? and conta_origem = ? "
+                        + "and conta_destino = ? and valor = ? order by id", Long.class,
+                Timestamp.valueOf(dataTransferencia), contaOrigem, contaDestino, valor);
+    }
+
+    @Override
+    public List<SaidaDiaria> somarSaidasPorContaEDia(LocalDateTime inicio) {
+        Collection<String> tabelas = particoes().tailMap(YearMonth.from(inicio), true).values();
+        if (tabelas.isEmpty()) {
+            return Collections.emptyList();
+        }
+        String filtro = " where data_transferencia >= ?";
+        String sql = "select conta_origem, cast(data_transferencia as date) as data, sum(valor) as total from ("
+                + tabelas.stream().map(t -> "select conta_origem, data_transferencia, valor from " + t + filtro)
+                .collect(Collectors.joining(" union all "))
+                + ") s group by conta_origem, cast(data_transferencia as date)";
+        return jdbc.query(sql, (rs, i) -> new Saida(rs.getString("conta_origem"), rs.getDate("data").toLocalDate(),
+                rs.getBigDecimal("total")), repetir(tabelas.size(), Timestamp.valueOf(inicio)));
+    }
+
+    // Cada dia cai numa única particao, entao os totais por dia podem ser calculados tabela a tabela
+    @Override
+    public List<ResumoDiarioRepository.TotaisDiarios> somarTotaisPorDia() {
+        Collection<String> tabelas = particoes().values();
+        if (tabelas.isEmpty()) {
+            return Collections.emptyList();
+        }
+        String sql = tabelas.stream().map(t -> "select cast(data_transferencia as date) as data, count(*) as quantidade, "
+                        + "sum(valor) as valor_total, sum(taxa) as taxa_total from " + t
+                        + " group by cast(data_transferencia as date)")
+                .collect(Collectors.joining(" union all "));
+        return jdbc.query(sql, (rs, i) -> new Totais(rs.getDate("data").toLocalDate(), rs.getLong("quantidade"),
+                rs.getBigDecimal("valor_total"), rs.getBigDecimal("taxa_total")));
+    }
+
+    @Override
+    protected List<Transferencia> lerTodas() {
+        return consultar(particoes().values(), "", "");
+    }
+
+    @Override
+    protected List<Long> idsAtuais() {
+        Collection<String> tabelas = particoes().values();
+        if (tabelas.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return jdbc.queryForList(tabelas.stream().map(t -> "select id from " + t)
+                .collect(Collectors.joining(" union all ")), Long.class);
+    }
+
+    /**
+     * Cada mês de vencimento está numa única particao: as particoes inteiras antes do deslocamento da página sao
+     * puladas pela contagem, e só as que cobrem a página sao consultadas.
+     */
+    private Page<Transferencia> paginarPorVencimento(NavigableMap<YearMonth, String> particoes, boolean ascendente,
+                                                     String ordem, Pageable pageable) {
+        Map<String, Long> contagens = contar(particoes.values());
+        long total = contagens.values().stream().mapToLong(Long::longValue).sum();
+        long pular = pageable.getOffset();
+        long restante = pageable.getPageSize();
+        List<String> lidas = new ArrayList<>();
+        for (String tabela : ascendente ? particoes.values() : particoes.descendingMap().values()) {
+            if (restante <= 0) {
+                break;
+            }
+            long quantidade = contagens.getOrDefault(tabela, 0L);
+            if (lidas.isEmpty()) {
+                if (pular >= quantidade) {
+                    pular -= quantidade;
+                    continue;
+                }
+                restante -= quantidade - pular;
+            } else {
+                restante -= quantidade;
+            }
+            lidas.add(tabela);
+        }
+        return new PageImpl<>(paginar(lidas, "", ordem, pular, pageable.getPageSize()), pageable, total);
+    }
+
+    // ---- Particoes ----
+
+    /** Tabelas dos meses que podem ter transferências com vencimento em {@code [inicio, fim)}. */
+    List<String> particoesEntre(LocalDateTime inicio, LocalDateTime fim) {
+        if (!fim.isAfter(inicio)) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(particoes().subMap(YearMonth.from(inicio), true,
+                YearMonth.from(fim.minusNanos(1)), true).values());
+    }
+
+    // Relido a cada consulta: é uma tabela pequena, e outra instância pode ter criado ou descartado um mês
+    NavigableMap<YearMonth, String> particoes() {
+        NavigableMap<YearMonth, String> particoes = new TreeMap<>();
+        jdbc.query(LER_CATALOGO, rs -> {
+            particoes.put(YearMonth.from(rs.getDate("mes").toLocalDate()), rs.getString("tabela"));
+        });
+        return particoes;
+    }
+
+    private String garantirParticao(YearMonth mes) {
+        String tabela = "transferencia_p" + mes.format(SUFIXO);
+        if (criadas.contains(mes)) {
+            return tabela;
+        }
+        novaTransacao.executeWithoutResult(status -> {
+            jdbc.execute(String.format(CRIAR_PARTICAO, tabela));
+            jdbc.execute(String.format(CRIAR_INDICE, tabela));
+            jdbc.execute(String.format(CRIAR_INDICE_VERSAO, tabela));
+            jdbc.update(REGISTRAR, Date.valueOf(mes.atDay(1)), tabela, Timestamp.valueOf(LocalDateTime.now()));
+        });
+        criadas.add(mes);
+        logger.info("Particao {} criada para {}", tabela, mes);
+        return tabela;
+    }
+
+    /** Tabela que guarda o id, ou {@code null}. */
+    private String localizar(long id) {
+        Collection<String> tabelas = particoes().values();
+        if (tabelas.isEmpty()) {
+            return null;
+        }
+        List<String> encontrada = jdbc.queryForList(tabelas.stream()
+                        .map(t -> "select '" + t + "' as tabela from " + t + " where id = ?")
+                        .collect(Collectors.joining(" union all ")), String.class,
+                repetir(tabelas.size(), id));
+        return encontrada.isEmpty() ? null : encontrada.get(0);
+    }
+
+    /** UNION ALL do mesmo filtro em cada particao; os parâmetros se repetem para cada parte. */
+    private List<Transferencia> consultar(Collection<String> tabelas, String filtro, String ordem,
+                                          Object... parametros) {
+        if (tabelas.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String sql = tabelas.stream().map(t -> "select " + COLUNAS + " from " + t + filtro)
+                .collect(Collectors.joining(" union all ")) + ordem;
+        return jdbc.query(sql, TRANSFERENCIA, repetir(tabelas.size(), parametros));
+    }
+
+    /**
+     * Uma página da uniao das particoes: cada uma devolve no máximo {@code deslocamento + tamanho} linhas já
+     * ordenadas, e a uniao é ordenada e cortada de novo.
+     */
+    private List<Transferencia> paginar(Collection<String> tabelas, String filtro, String ordem, long deslocamento,
+                                        int tamanho, Object... parametros) {
+        if (tabelas.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String sql = "select " + COLUNAS + " from (" + tabelas.stream()
+                .map(t -> "(select " + COLUNAS + " from " + t + filtro + " order by " + ordem + " limit ?)")
+                .collect(Collectors.joining(" union all ")) + ") u order by " + ordem + " limit ? offset ?";
+        Object[] porParticao = Arrays.copyOf(parametros, parametros.length + 1);
+        porParticao[parametros.length] = deslocamento + tamanho;
+        Object[] repetidos = repetir(tabelas.size(), porParticao);
+        Object[] todos = Arrays.copyOf(repetidos, repetidos.length + 2);
+        todos[repetidos.length] = tamanho;
+        todos[repetidos.length + 1] = deslocamento;
+        return jdbc.query(sql, TRANSFERENCIA, todos);
+    }
+
+    private Map<String, Long> contar(Collection<String> tabelas) {
+        Map<String, Long> contagens = new HashMap<>();
+        if (!tabelas.isEmpty()) {
+            jdbc.query(tabelas.stream().map(t -> "select '" + t + "' as tabela, count(*) as quantidade from " + t)
+                    .collect(Collectors.joining(" union all ")), rs -> {
+                contagens.put(rs.getString("tabela"), rs.getLong("quantidade"));
+            });
+        }
+        return contagens;
+    }
+
+    /** ORDER BY equivalente à ordenacao pedida, desempatado pelo id como nos demais armazenamentos. */
+    private static String ordem(Sort sort) {
+        List<String> colunas = new ArrayList<>();
+        for (Sort.Order ordem : sort) {
+            String coluna = COLUNAS_ORDENACAO.get(ordem.getProperty());
+            if (coluna == null) {
+                throw new IllegalArgumentException("Propriedade de ordenacao desconhecida: " + ordem.getProperty());
+            }
+            colunas.add(coluna + (ordem.isAscending() ? " asc" : " desc"));
+        }
+        colunas.add("id asc");
+        return String.join(", ", colunas);
+    }
+
+    /** Agrega com {@code funcao} a {@code expressao} calculada em cada particao, ou {@code null} sem particoes. */
+    private Long agregar(Collection<String> tabelas, String funcao, String expressao) {
+        if (tabelas.isEmpty()) {
+            return null;
+        }
+        String sql = "select " + funcao + "(v) from (" + tabelas.stream()
+                .map(t -> "select " + expressao + " as v from " + t)
+                .collect(Collectors.joining(" union all ")) + ") u";
+        return jdbc.queryForObject(sql, Long.class);
+    }
+
+    /** Os mesmos parâmetros para cada parte de um UNION ALL. */
+    private static Object[] repetir(int vezes, Object... parametros) {
+        Object[] repetidos = new Object[vezes * parametros.length];
+        for (int i = 0; i < vezes; i++) {
+            System.arraycopy(parametros, 0, repetidos, i * parametros.length, parametros.length);
+        }
+        return repetidos;
+    }
+}
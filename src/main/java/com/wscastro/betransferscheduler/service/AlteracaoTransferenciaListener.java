@@ -0,0 +1,32 @@
+package com.wscastro.betransferscheduler.service;
+
+import com.wscastro.betransferscheduler.model.Transferencia;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+/**
+ * Avisa o cache da listagem sobre qualquer gravacao de {@link Transferencia} feita via JPA, inclusive as
+ * que nao passam pelo {@link TransferenciaService}. Atualizacoes em lote por JPQL ou SQL nativo nao
+ * disparam callbacks e precisam chamar {@link CacheListagemService#registrarAlteracao()} diretamente.
+ */
+@Component
+public class AlteracaoTransferenciaListener {
+
+    // Opcional para que contextos só de JPA (ex.: @DataJpaTest) consigam instanciar o listener
+    private final ObjectProvider<CacheListagemService> cacheListagemService;
+
+    public AlteracaoTransferenciaListener(ObjectProvider<CacheListagemService> cacheListagemService) {
+        this.cacheListagemService = cacheListagemService;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void aoAlterar(Transferencia transferencia) {
+        cacheListagemService.ifAvailable(CacheListagemService::registrarAlteracao);
+    }
+}
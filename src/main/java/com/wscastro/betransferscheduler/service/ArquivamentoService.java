@@ -0,0 +1,172 @@
+package com.wscastro.betransferscheduler.service;
+
+import com.wscastro.betransferscheduler.dto.ArquivamentoDTO;
+import com.wscastro.betransferscheduler.dto.TransferenciaArquivadaDTO;
+import com.wscastro.betransferscheduler.exception.DataEntradaInvalidaException;
+import com.wscastro.betransferscheduler.repository.TransferenciaArquivadaRepository;
+import com.wscastro.betransferscheduler.repository.TransferenciaRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Move para {@code transferencia_arquivada} as transferências com data de transferência anterior à janela de
+ * retencao, para que listagens, contagens e índices de {@code transferencia} deixem de crescer com o histórico.
+ *
+ * <p>As linhas sao percorridas por id (keyset: {@code id > último}) em lotes de {@code tamanhoLote}; cada lote é
+ * uma transacao curta que trava as linhas lidas, grava todas no arquivo num INSERT em lote e as remove num DELETE em
+ * lote. Uma interrupcao perde no máximo o lote em andamento, que volta inteiro na próxima execucao. Id e versao sao
+ * preservados, e o resumo diário e a maior versao consideram as duas tabelas.
+ *
+ * <p>Para a sincronizacao incremental uma arquivada é uma remocao: o lote grava em {@code transferencia_removida}
+ * uma marca com versao nova para cada id arquivado, como faz a exclusao comum.
+ */
+@Service
+public class ArquivamentoService {
+    private static final Logger logger = LoggerFactory.getLogger(ArquivamentoService.class);
+
+    private static final String BUSCAR_LOTE = "select id, conta_origem, conta_destino, valor, taxa, data_agendamento, "
+            + "data_transferencia, versao from transferencia where data_transferencia < ? and id > ? "
+            + "order by id limit ? for update";
+    private static final String ARQUIVAR = "insert into transferencia_arquivada (id, conta_origem, conta_destino, "
+            + "valor, taxa, data_agendamento, data_transferencia, versao, arquivada_em) "
+            + "values (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String REMOVER = "delete from transferencia where id = ?";
+    private static final String MARCAR_REMOCAO = "insert into transferencia_removida (id, versao, removida_em) "
+            + "values (?, ?, ?)";
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate novaTransacao;
+    private final TransferenciaArquivadaRepository arquivadaRepository;
+    private final TransferenciaRepository transferenciaRepository;
+    private final SincronizacaoService sincronizacaoService;
+    private final CacheListagemService cacheListagemService;
+    private final int retencaoDias;
+    private final int tamanhoLote;
+
+    public ArquivamentoService(JdbcTemplate jdbc, PlatformTransactionManager transactionManager,
+                               TransferenciaArquivadaRepository arquivadaRepository,
+                               TransferenciaRepository transferenciaRepository,
+                               SincronizacaoService sincronizacaoService,
+                               CacheListagemService cacheListagemService,
+                               @Value("${app.arquivamento.retencao-dias:90}") int retencaoDias,
+                               @Value("${app.arquivamento.tamanho-lote:1000}") int tamanhoLote) {
+        this.jdbc = jdbc;
+        this.novaTransacao = new TransactionTemplate(transactionManager);
+        this.novaTransacao.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.arquivadaRepository = arquivadaRepository;
+        this.transferenciaRepository = transferenciaRepository;
+        this.sincronizacaoService = sincronizacaoService;
+        this.cacheListagemService = cacheListagemService;
+        this.retencaoDias = retencaoDias;
+        this.tamanhoLote = tamanhoLote;
+    }
+
+    @Scheduled(cron = "${app.arquivamento.cron:0 30 2 * * *}")
+    public void arquivarAgendado() {
+        if (!transferenciaRepository.naTabelaTransferencia()) {
+            logger.warn("Arquivamento agendado pulado: as transferências nao estao na tabela transferencia");
+            return;
+        }
+        arquivar();
+    }
+
+    public ArquivamentoDTO arquivar() {
+        transferenciaRepository.exigirTabelaTransferencia("O arquivamento");
+        LocalDate anteriorA = LocalDate.now().minusDays(retencaoDias);
+        Timestamp corte = Timestamp.valueOf(anteriorA.atStartOfDay());
+        ArquivamentoDTO resultado = new ArquivamentoDTO(anteriorA);
+
+        long ultimoId = 0;
+        while (true) {
+            long desde = ultimoId;
+            Lote lote;
+            try {
+                lote = novaTransacao.execute(status -> arquivarLote(corte, desde));
+            } catch (DuplicateKeyException e) {
+                // Outra instância arquivou parte do lote; a transacao foi desfeita e a próxima execucao continua
+                logger.warn("Lote após o id {} arquivado concorrentemente; encerrando esta execucao", desde);
+                break;
+            }
+            if (lote.linhas == 0) {
+                break;
+            }
+            // DELETE por SQL nao passa pelos callbacks do JPA
+            cacheListagemService.registrarAlteracao();
+            resultado.setArquivadas(resultado.getArquivadas() + lote.linhas);
+            resultado.setLotes(resultado.getLotes() + 1);
+            ultimoId = lote.ultimoId;
+        }
+
+        logger.info("{} transferência(s) anteriores a {} arquivada(s) em {} lote(s)", resultado.getArquivadas(),
+                anteriorA, resultado.getLotes());
+        return resultado;
+    }
+
+    @Transactional(readOnly = true)
+    public Page<TransferenciaArquivadaDTO> listar(String contaOrigem, LocalDate inicio, LocalDate fim,
+                                                  Pageable pageable) {
+        if (fim.isBefore(inicio)) {
+            throw new DataEntradaInvalidaException("A data final nao pode ser anterior à inicial");
+        }
+        logger.info("Consultando transferências arquivadas de {} até {}", inicio, fim);
+        LocalDateTime de = inicio.atStartOfDay();
+        LocalDateTime ate = fim.plusDays(1).atStartOfDay();
+        return (contaOrigem == null
+                ? arquivadaRepository.findByDataTransferenciaGreaterThanEqualAndDataTransferenciaLessThan(de, ate, pageable)
+                : arquivadaRepository.findByContaOrigemAndDataTransferenciaGreaterThanEqualAndDataTransferenciaLessThan(
+                        contaOrigem, de, ate, pageable))
+                .map(TransferenciaArquivadaDTO::new);
+    }
+
+    private Lote arquivarLote(Timestamp corte, long desde) {
+        Timestamp agora = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> arquivadas = new ArrayList<>(tamanhoLote);
+        List<Object[]> removidas = new ArrayList<>(tamanhoLote);
+        jdbc.query(BUSCAR_LOTE, rs -> {
+            long id = rs.getLong("id");
+            arquivadas.add(new Object[]{id, rs.getString("conta_origem"), rs.getString("conta_destino"),
+                    rs.getBigDecimal("valor"), rs.getBigDecimal("taxa"), rs.getTimestamp("data_agendamento"),
+                    rs.getTimestamp("data_transferencia"), rs.getObject("versao"), agora});
+            removidas.add(new Object[]{id});
+        }, corte, desde, tamanhoLote);
+        if (arquivadas.isEmpty()) {
+            return new Lote(0, desde);
+        }
+        jdbc.batchUpdate(ARQUIVAR, arquivadas);
+        jdbc.batchUpdate(REMOVER, removidas);
+        long versao = sincronizacaoService.reservarVersoes(removidas.size());
+        List<Object[]> marcas = new ArrayList<>(removidas.size());
+        for (Object[] removida : removidas) {
+            marcas.add(new Object[]{removida[0], versao++, agora});
+        }
+        jdbc.batchUpdate(MARCAR_REMOCAO, marcas);
+        return new Lote(arquivadas.size(), (Long) removidas.get(removidas.size() - 1)[0]);
+    }
+
+    private static final class Lote {
+        final int linhas;
+        final long ultimoId;
+
+        Lote(int linhas, long ultimoId) {
+            this.linhas = linhas;
+            this.ultimoId = ultimoId;
+        }
+    }
+}
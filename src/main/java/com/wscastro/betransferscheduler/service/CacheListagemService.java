@@ -0,0 +1,126 @@
+package com.wscastro.betransferscheduler.service;
+
+import com.wscastro.betransferscheduler.dto.TransferenciaResponseDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Contador de modificacoes das transferências, usado como ETag da listagem, e cache das primeiras
+ * páginas para cada ordenacao. O contador avanca ao fim de toda transacao que grava, altera ou remove
+ * uma transferência (ver {@link AlteracaoTransferenciaListener}), o que invalida de uma vez as páginas guardadas.
+ *
+ * <p>Escritas de outras instâncias chegam pela versao segura de {@link ContadorVersoes}, lida a cada
+ * {@code app.listagem.cache.atualizacao-ms}: se ela avancou, as páginas sao invalidadas como uma escrita local
+ * faria. A versao e a ETag, consultadas a cada GET inclusive no caminho do 304, nunca vao ao banco; uma escrita de
+ * outra instância leva até um intervalo para mudar a ETag.
+ *
+ * <p>Quem consulta deve ler a versao antes de ir ao banco: se uma escrita for confirmada no meio da
+ * consulta, a página fica associada à versao antiga e é descartada na próxima leitura.
+ */
+@Service
+public class CacheListagemService {
+    private static final Logger logger = LoggerFactory.getLogger(CacheListagemService.class);
+
+    // Distingue ETags de execucoes diferentes, já que o contador recomeca a cada inicializacao
+    private final String instancia = Long.toHexString(System.currentTimeMillis());
+    private final AtomicLong versao = new AtomicLong();
+    private final AtomicLong versaoGlobal = new AtomicLong(Long.MIN_VALUE);
+    private final Map<Pageable, PaginaGuardada> paginas = new ConcurrentHashMap<>();
+    private final ContadorVersoes contadorVersoes;
+    private final int paginasPorOrdenacao;
+    private final int maxEntradas;
+
+    public CacheListagemService(ContadorVersoes contadorVersoes,
+                                @Value("${app.listagem.cache.paginas:3}") int paginasPorOrdenacao,
+                                @Value("${app.listagem.cache.max-entradas:64}") int maxEntradas) {
+        this.contadorVersoes = contadorVersoes;
+        this.paginasPorOrdenacao = paginasPorOrdenacao;
+        this.maxEntradas = maxEntradas;
+    }
+
+    public long versao() {
+        return versao.get();
+    }
+
+    @Scheduled(fixedDelayString = "${app.listagem.cache.atualizacao-ms:1000}")
+    public void atualizarVersaoGlobal() {
+        // Uma leitura atrasada (da réplica, ou que perdeu a corrida com outra) nunca volta a versao vista
+        long global = contadorVersoes.versaoSegura();
+        if (global > versaoGlobal.getAndAccumulate(global, Math::max)) {
+            invalidar();
+        }
+    }
+
+    public String etag() {
+        return etag(versao());
+    }
+
+    /** ETag de uma página lida na versao {@code versaoLida}. */
+    public String etag(long versaoLida) {
+        return "W/\"" + instancia + "-" + versaoLida + "\"";
+    }
+
+    public Page<TransferenciaResponseDTO> buscar(Pageable pageable, long versaoLida) {
+        PaginaGuardada guardada = paginas.get(pageable);
+        return guardada != null && guardada.versao == versaoLida ? guardada.pagina : null;
+    }
+
+    public void guardar(Pageable pageable, long versaoLida, Page<TransferenciaResponseDTO> pagina) {
+        if (pageable.isUnpaged() || pageable.getPageNumber() >= paginasPorOrdenacao || versaoLida != versao.get()) {
+            return;
+        }
+        if (paginas.size() >= maxEntradas && !paginas.containsKey(pageable)) {
+            return;
+        }
+        paginas.put(pageable, new PaginaGuardada(versaoLida, pagina));
+    }
+
+    /**
+     * Avanca a versao quando a transacao corrente terminar, uma única vez por transacao. Avancar antes do
+     * commit permitiria guardar, sob a versao nova, uma página lida com os dados antigos.
+     */
+    public void registrarAlteracao() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidar();
+            return;
+        }
+        if (TransactionSynchronizationManager.hasResource(this)) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(CacheListagemService.this);
+                invalidar();
+            }
+        });
+    }
+
+    private void invalidar() {
+        long nova = versao.incrementAndGet();
+        paginas.clear();
+        logger.debug("Listagem de transferências na versao {}", nova);
+    }
+
+    private static final class PaginaGuardada {
+        private final long versao;
+        private final Page<TransferenciaResponseDTO> pagina;
+
+        private PaginaGuardada(long versao, Page<TransferenciaResponseDTO> pagina) {
+            this.versao = versao;
+            this.pagina = pagina;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.wscastro.betransferscheduler.service;
+
+import com.wscastro.betransferscheduler.model.Feriado;
+import com.wscastro.betransferscheduler.repository.FeriadoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Contagem de dias úteis. Feriados da tabela {@code feriado} e do arquivo opcional sao compilados num bitmap
+ * (um bit por dia, ligado nos dias úteis) que cobre de um mês atrás até {@code horizonteDias} à frente, com a
+ * contagem acumulada por palavra de 64 dias. A distância entre duas datas vira duas consultas de popcount, sem
+ * percorrer os dias. Datas fora da cobertura sao contadas dia a dia, só com os fins de semana e os feriados já
+ * carregados.
+ */
+@Service
+public class CalendarioService {
+    private static final Logger logger = LoggerFactory.getLogger(CalendarioService.class);
+
+    private final FeriadoRepository feriadoRepository;
+    private final String arquivo;
+    private final int horizonteDias;
+
+    private volatile Calendario calendario;
+
+    public CalendarioService(FeriadoRepository feriadoRepository,
+                             @Value("${app.calendario.arquivo:}") String arquivo,
+                             @Value("${app.calendario.horizonte-dias:400}") int horizonteDias) {
+        this.feriadoRepository = feriadoRepository;
+        this.arquivo = arquivo;
+        this.horizonteDias = horizonteDias;
+    }
+
+    /** Dias úteis em {@code (de, ate]}: o dia de partida nao conta e o de chegada conta se for útil. */
+    public long diasUteisEntre(LocalDate de, LocalDate ate) {
+        Calendario atual = calendario;
+        if (atual == null) {
+            recarregar();
+            atual = calendario;
+        }
+        if (atual.cobre(de) && atual.cobre(ate)) {
+            return atual.diasUteisEntre(de, ate);
+        }
+        logger.debug("Datas {} e {} fora do calendário compilado; contando dia a dia", de, ate);
+        return atual.contarDiaADia(de, ate);
+    }
+
+    @Scheduled(cron = "${app.calendario.recarga-cron:0 5 0 * * *}")
+    public synchronized void recarregar() {
+        LocalDate inicio = LocalDate.now().minusMonths(1);
+        LocalDate fim = LocalDate.now().plusDays(horizonteDias);
+        Set<LocalDate> feriados = new HashSet<>();
+        for (Feriado feriado : feriadoRepository.findByDataBetween(inicio, fim)) {
+            feriados.add(feriado.getData());
+        }
+        if (!arquivo.isBlank()) {
+            feriados.addAll(lerArquivo());
+        }
+        calendario = Calendario.compilar(inicio, fim, feriados);
+        logger.info("Calendário de dias úteis compilado de {} a {} com {} feriado(s)", inicio, fim, feriados.size());
+    }
+
+    private Set<LocalDate> lerArquivo() {
+        Set<LocalDate> feriados = new HashSet<>();
+        try {
+            for (String linha : Files.readAllLines(Paths.get(arquivo), StandardCharsets.UTF_8)) {
+                String conteudo = linha.strip();
+                if (conteudo.isEmpty() || conteudo.startsWith("#")) {
+                    continue;
+                }
+                int separador = conteudo.indexOf(';');
+                feriados.add(LocalDate.parse(separador < 0 ? conteudo : conteudo.substring(0, separador).strip()));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Nao foi possível ler o arquivo de feriados " + arquivo, e);
+        }
+        return feriados;
+    }
+
+    /** Bitmap imutável de dias úteis; substituído por inteiro a cada recarga. */
+    static final class Calendario {
+        private final long inicio;
+        private final int dias;
+        private final long[] uteis;
+        private final int[] acumulado;
+        private final Set<LocalDate> feriados;
+
+        private Calendario(long inicio, int dias, long[] uteis, int[] acumulado, Set<LocalDate> feriados) {
+            this.inicio = inicio;
+            this.dias = dias;
+            this.uteis = uteis;
+            this.acumulado = acumulado;
+            this.feriados = feriados;
+        }
+
+        static Calendario compilar(LocalDate inicio, LocalDate fim, Set<LocalDate> feriados) {
+            int dias = (int) ChronoUnit.DAYS.between(inicio, fim) + 1;
+            long[] uteis = new long[(dias + 63) >>> 6];
+            for (int i = 0; i < dias; i++) {
+                if (ehUtil(inicio.plusDays(i), feriados)) {
+                    uteis[i >>> 6] |= 1L << (i & 63);
+                }
+            }
+            // acumulado[p] = dias úteis nas palavras anteriores a p
+            int[] acumulado = new int[uteis.length];
+            for (int p = 1; p < uteis.length; p++) {
+                acumulado[p] = acumulado[p - 1] + Long.bitCount(uteis[p - 1]);
+            }
+            return new Calendario(inicio.toEpochDay(), dias, uteis, acumulado, Set.copyOf(feriados));
+        }
+
+        boolean cobre(LocalDate data) {
+            long indice = data.toEpochDay() - inicio;
+            return indice >= 0 && indice < dias;
+        }
+
+        long diasUteisEntre(LocalDate de, LocalDate ate) {
+            return uteisAte((int) (ate.toEpochDay() - inicio)) - uteisAte((int) (de.toEpochDay() - inicio));
+        }
+
+        long contarDiaADia(LocalDate de, LocalDate ate) {
+            boolean invertido = ate.isBefore(de);
+            LocalDate dia = invertido ? ate : de;
+            LocalDate fim = invertido ? de : ate;
+            long uteis = 0;
+            while (dia.isBefore(fim)) {
+                dia = dia.plusDays(1);
+                if (ehUtil(dia, feriados)) {
+                    uteis++;
+                }
+            }
+            return invertido ? -uteis : uteis;
+        }
+
+        /** Dias úteis em {@code [0, indice]}. */
+        private long uteisAte(int indice) {
+            int palavra = indice >>> 6;
+            return acumulado[palavra] + Long.bitCount(uteis[palavra] & (-1L >>> (63 - (indice & 63))));
+        }
+
+        private static boolean ehUtil(LocalDate dia, Set<LocalDate> feriados) {
+            DayOfWeek diaDaSemana = dia.getDayOfWeek();
+            return diaDaSemana != DayOfWeek.SATURDAY && diaDaSemana != DayOfWeek.SUNDAY && !feriados.contains(dia);
+        }
+    }
+}
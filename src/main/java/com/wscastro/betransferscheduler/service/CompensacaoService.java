@@ -0,0 +1,234 @@
+package com.wscastro.betransferscheduler.service;
+
+import com.wscastro.betransferscheduler.dto.CompensacaoDTO;
+import com.wscastro.betransferscheduler.event.TransferenciaRemovidaEvent;
+import com.wscastro.betransferscheduler.exception.DataEntradaInvalidaException;
+import com.wscastro.betransferscheduler.repository.TransferenciaRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compensacao das transferências de uma data entre pares de contas: todas as pendentes entre A e B (nos dois
+ * sentidos) viram uma única liquidacao com o saldo líquido, e cada original fica ligada a ela em
+ * {@code transferencia_liquidacao}. As ligadas nao sao mais executadas individualmente: no dia, o
+ * {@code ProcessadorVencidas} executa a liquidacao no lugar delas.
+ *
+ * <p>O job é particionado pela menor conta do par, que mantém o par inteiro na mesma particao. O número de particoes
+ * sai das pendentes da data divididas por {@code linhasPorParticao}, e cada particao lê no máximo esse número de
+ * linhas numa transacao própria, com as linhas travadas até o commit; a memória usada nao depende do volume do dia.
+ * Um par maior que a particao é compensado em mais de uma liquidacao, o que continua correto.
+ *
+ * <p>Só compensa datas futuras: as transferências de hoje podem estar sendo executadas.
+ */
+@Service
+public class CompensacaoService {
+    private static final Logger logger = LoggerFactory.getLogger(CompensacaoService.class);
+
+    private static final String FILTRO_PENDENTES = "from transferencia t "
+            + "where t.data_transferencia >= ? and t.data_transferencia < ? "
+            + "and not exists (select 1 from transferencia_liquidacao l where l.transferencia_id = t.id) "
+            + "and not exists (select 1 from transferencia_execucao e where e.transferencia_id = t.id)";
+    private static final String CONTAR_PENDENTES = "select count(*) " + FILTRO_PENDENTES;
+    private static final String BUSCAR_PARTICAO = "select t.id, t.conta_origem, t.conta_destino, t.valor "
+            + FILTRO_PENDENTES + " and mod(cast(least(t.conta_origem, t.conta_destino) as bigint), ?) = ? "
+            + "limit ? for update";
+    private static final String RESERVAR_IDS = "select next value for liquidacao_seq from system_range(1, ?)";
+    private static final String INSERIR_LIQUIDACAO = "insert into liquidacao (id, data, conta_origem, conta_destino, "
+            + "valor, valor_bruto, quantidade, criada_em) values (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String LIGAR = "insert into transferencia_liquidacao (transferencia_id, liquidacao_id) "
+            + "values (?, ?)";
+    private static final String BUSCAR_LIGACAO =
+            "select liquidacao_id from transferencia_liquidacao where transferencia_id = ?";
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate novaTransacao;
+    private final TransferenciaRepository transferenciaRepository;
+    private final int linhasPorParticao;
+
+    public CompensacaoService(JdbcTemplate jdbc, PlatformTransactionManager transactionManager,
+                              TransferenciaRepository transferenciaRepository,
+                              @Value("${app.compensacao.linhas-por-particao:50000}") int linhasPorParticao) {
+        this.jdbc = jdbc;
+        this.novaTransacao = new TransactionTemplate(transactionManager);
+        this.novaTransacao.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.transferenciaRepository = transferenciaRepository;
+        this.linhasPorParticao = linhasPorParticao;
+    }
+
+    @Scheduled(cron = "${app.compensacao.cron:0 0 22 * * *}")
+    public void compensarAmanha() {
+        if (!transferenciaRepository.naTabelaTransferencia()) {
+            logger.warn("Compensacao agendada pulada: as transferências nao estao na tabela transferencia");
+            return;
+        }
+        compensar(LocalDate.now().plusDays(1));
+    }
+
+    public CompensacaoDTO compensar(LocalDate data) {
+        transferenciaRepository.exigirTabelaTransferencia("A compensacao");
+        if (!data.isAfter(LocalDate.now())) {
+            throw new DataEntradaInvalidaException("Só é possível compensar transferências de datas futuras");
+        }
+        Timestamp inicio = Timestamp.valueOf(data.atStartOfDay());
+        Timestamp fim = Timestamp.valueOf(data.plusDays(1).atStartOfDay());
+        CompensacaoDTO resultado = new CompensacaoDTO(data);
+        Lote lote = new Lote(linhasPorParticao);
+
+        long pendentes = jdbc.queryForObject(CONTAR_PENDENTES, Long.class, inicio, fim);
+        while (pendentes > 0) {
+            int particoes = (int) Math.max(1, (pendentes + linhasPorParticao - 1) / linhasPorParticao);
+            long antes = resultado.getTransferencias();
+            for (int particao = 0; particao < particoes; particao++) {
+                compensarParticao(data, inicio, fim, particoes, particao, lote, resultado);
+            }
+            resultado.setParticoes(resultado.getParticoes() + particoes);
+            if (resultado.getTransferencias() == antes) {
+                break;
+            }
+            // Sobra quando uma particao enviesada passou do limite; a rodada seguinte continua de onde parou
+            pendentes = jdbc.queryForObject(CONTAR_PENDENTES, Long.class, inicio, fim);
+        }
+
+        logger.info("Compensacao de {}: {} transferência(s) em {} liquidacao(oes), bruto {} e líquido {}",
+                data, resultado.getTransferencias(), resultado.getLiquidacoes(), resultado.getValorBruto(),
+                resultado.getValorLiquido());
+        return resultado;
+    }
+
+    private void compensarParticao(LocalDate data, Timestamp inicio, Timestamp fim, int particoes, int particao,
+                                   Lote lote, CompensacaoDTO resultado) {
+        try {
+            novaTransacao.executeWithoutResult(status -> {
+                lote.limpar();
+                jdbc.query(BUSCAR_PARTICAO, rs -> {
+                    lote.adicionar(rs.getLong("id"), rs.getString("conta_origem"), rs.getString("conta_destino"),
+                            rs.getBigDecimal("valor"));
+                }, inicio, fim, particoes, particao, linhasPorParticao);
+                if (lote.linhas == 0) {
+                    return;
+                }
+                gravar(data, lote);
+            });
+        } catch (DuplicateKeyException e) {
+            // Outra instância compensou parte destas linhas; a transacao inteira foi desfeita
+            logger.warn("Particao {}/{} de {} compensada concorrentemente", particao, particoes, data);
+            return;
+        }
+        resultado.acumular(lote.linhas, lote.pares.size(), lote.bruto(), lote.liquido());
+    }
+
+    private void gravar(LocalDate data, Lote lote) {
+        List<Long> ids = jdbc.queryForList(RESERVAR_IDS, Long.class, lote.pares.size());
+        Timestamp agora = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> liquidacoes = new ArrayList<>(lote.pares.size());
+        for (int i = 0; i < lote.pares.size(); i++) {
+            Par par = lote.pares.get(i);
+            boolean sentidoDireto = par.saldo.signum() >= 0;
+            liquidacoes.add(new Object[]{ids.get(i), data,
+                    sentidoDireto ? par.menor : par.maior, sentidoDireto ? par.maior : par.menor,
+                    par.saldo.abs(), par.bruto, par.quantidade, agora});
+        }
+        jdbc.batchUpdate(INSERIR_LIQUIDACAO, liquidacoes);
+
+        List<Object[]> ligacoes = new ArrayList<>(lote.linhas);
+        for (int i = 0; i < lote.linhas; i++) {
+            ligacoes.add(new Object[]{lote.ids[i], ids.get(lote.indicePar[i])});
+        }
+        jdbc.batchUpdate(LIGAR, ligacoes);
+    }
+
+    // Antes dos demais ouvintes: a remocao é recusada antes de reservar versao ou mexer em limites
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void aoRemover(TransferenciaRemovidaEvent event) {
+        List<Long> liquidacao = jdbc.queryForList(BUSCAR_LIGACAO, Long.class, event.getTransferencia().getId());
+        if (!liquidacao.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "Transferência já compensada na liquidacao " + liquidacao.get(0));
+        }
+    }
+
+    /** Linhas lidas de uma particao; os vetores sao alocados uma vez por execucao e reaproveitados. */
+    private static final class Lote {
+        final long[] ids;
+        final int[] indicePar;
+        final Map<String, Integer> indices = new HashMap<>();
+        final List<Par> pares = new ArrayList<>();
+        int linhas;
+
+        Lote(int capacidade) {
+            this.ids = new long[capacidade];
+            this.indicePar = new int[capacidade];
+        }
+
+        void limpar() {
+            indices.clear();
+            pares.clear();
+            linhas = 0;
+        }
+
+        void adicionar(long id, String origem, String destino, BigDecimal valor) {
+            boolean origemMenor = origem.compareTo(destino) < 0;
+            String menor = origemMenor ? origem : destino;
+            String maior = origemMenor ? destino : origem;
+            int indice = indices.computeIfAbsent(menor + ':' + maior, chave -> {
+                pares.add(new Par(menor, maior));
+                return pares.size() - 1;
+            });
+            pares.get(indice).somar(origemMenor ? valor : valor.negate());
+            ids[linhas] = id;
+            indicePar[linhas] = indice;
+            linhas++;
+        }
+
+        BigDecimal bruto() {
+            return pares.stream().map(p -> p.bruto).reduce(BigDecimal.ZERO, BigDecimal::add);
+        }
+
+        BigDecimal liquido() {
+            return pares.stream().map(p -> p.saldo.abs()).reduce(BigDecimal.ZERO, BigDecimal::add);
+        }
+    }
+
+    /** Saldo positivo: a menor conta paga a maior. */
+    private static final class Par {
+        final String menor;
+        final String maior;
+        BigDecimal saldo = BigDecimal.ZERO;
+        BigDecimal bruto = BigDecimal.ZERO;
+        int quantidade;
+
+        Par(String menor, String maior) {
+            this.menor = menor;
+            this.maior = maior;
+        }
+
+        void somar(BigDecimal valor) {
+            saldo = saldo.add(valor);
+            bruto = bruto.add(valor.abs());
+            quantidade++;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.wscastro.betransferscheduler.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Contador das versoes da sincronizacao incremental, guardado no banco para que todas as instâncias distribuam
+ * versoes de uma mesma sequência. Cada reserva avanca {@code versao_contador} e registra a primeira versao reservada
+ * em {@code versao_reservada} numa transacao própria e curta, entao as outras instâncias enxergam a reserva antes do
+ * commit da alteracao que vai usá-la. O registro é apagado pela própria transacao da alteracao, e some para as
+ * outras instâncias no mesmo commit; só se ela for desfeita é preciso apagá-lo de novo, numa transacao própria.
+ *
+ * <p>A versao segura é a anterior à menor reserva registrada, ou a última distribuída se nao houver nenhuma. Uma
+ * reserva mais antiga que {@code app.sincronizacao.reserva-expira-segundos}, deixada por uma instância que parou no
+ * meio de uma transacao, deixa de segurar a versao segura.
+ *
+ * <p>A mesma linha guarda a maior versao de remocao já compactada, para que todas as instâncias, e a própria depois
+ * de reiniciar, recusem marcas d'água anteriores a ela.
+ */
+@Component
+public class ContadorVersoes {
+    private static final Logger logger = LoggerFactory.getLogger(ContadorVersoes.class);
+
+    private static final String AVANCAR = "update versao_contador set ultima = ultima + ? where id = 1";
+    private static final String LER = "select ultima from versao_contador where id = 1";
+    private static final String AJUSTAR = "update versao_contador set ultima = ? where id = 1 and ultima < ?";
+    private static final String RESERVAR = "insert into versao_reservada (versao, reservada_em) values (?, ?)";
+    private static final String LIBERAR = "delete from versao_reservada where versao = ?";
+    private static final String MENOR_RESERVADA = "select min(versao) from versao_reservada where reservada_em > ?";
+    private static final String LER_COMPACTADA = "select compactada from versao_contador where id = 1";
+    private static final String AVANCAR_COMPACTADA =
+            "update versao_contador set compactada = ? where id = 1 and compactada < ?";
+    private static final String DESCARTAR_EXPIRADAS = "delete from versao_reservada where reservada_em <= ?";
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate novaTransacao;
+    private final Duration expiracao;
+
+    public ContadorVersoes(JdbcTemplate jdbc, PlatformTransactionManager transactionManager,
+                           @Value("${app.sincronizacao.reserva-expira-segundos:300}") long expiracaoSegundos) {
+        this.jdbc = jdbc;
+        this.novaTransacao = new TransactionTemplate(transactionManager);
+        this.novaTransacao.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.expiracao = Duration.ofSeconds(expiracaoSegundos);
+    }
+
+    /** Leva o contador pelo menos até {@code versao}, sem nunca voltá-lo. */
+    public void garantirAoMenos(long versao) {
+        novaTransacao.executeWithoutResult(status -> jdbc.update(AJUSTAR, versao, versao));
+    }
+
+    /**
+     * Reserva {@code quantidade} versoes consecutivas e devolve a primeira. A reserva segura a versao segura até
+     * {@link #liberar(long)} ser chamado com a mesma primeira versao.
+     */
+    public long reservar(int quantidade) {
+        Long primeira = novaTransacao.execute(status -> {
+            jdbc.update(AVANCAR, quantidade);
+            long inicio = jdbc.queryForObject(LER, Long.class) - quantidade + 1;
+            jdbc.update(RESERVAR, inicio, Timestamp.valueOf(LocalDateTime.now()));
+            return inicio;
+        });
+        return primeira;
+    }
+
+    /** Apaga a reserva na transacao corrente: ela continua valendo para as outras instâncias até o commit. */
+    public void liberarNoCommit(long primeira) {
+        jdbc.update(LIBERAR, primeira);
+    }
+
+    public void liberar(long primeira) {
+        try {
+            novaTransacao.executeWithoutResult(status -> jdbc.update(LIBERAR, primeira));
+        } catch (RuntimeException e) {
+            logger.error("Falha ao liberar a reserva da versao {}; ela segura a sincronizacao até expirar", primeira, e);
+        }
+    }
+
+    /**
+     * Maior versao abaixo da qual toda alteracao já foi confirmada ou desfeita. O contador é lido antes das
+     * reservas: uma reserva feita entre as duas leituras só pode ter versao maior que o contador lido.
+     */
+    public long versaoSegura() {
+        long ultima = jdbc.queryForObject(LER, Long.class);
+        Long menor = jdbc.queryForObject(MENOR_RESERVADA, Long.class,
+                Timestamp.valueOf(LocalDateTime.now().minus(expiracao)));
+        return menor == null ? ultima : Math.min(ultima, menor - 1);
+    }
+
+    /** Maior versao cujas marcas de remocao já foram apagadas. */
+    public long versaoCompactada() {
+        return jdbc.queryForObject(LER_COMPACTADA, Long.class);
+    }
+
+    /** Registra, na transacao corrente, que as remocoes até {@code versao} foram apagadas; nunca volta. */
+    public void registrarCompactacao(long versao) {
+        jdbc.update(AVANCAR_COMPACTADA, versao, versao);
+    }
+
+    /** Apaga as reservas expiradas; devolve quantas eram. */
+    public int descartarExpiradas() {
+        int descartadas = jdbc.update(DESCARTAR_EXPIRADAS, Timestamp.valueOf(LocalDateTime.now().minus(expiracao)));
+        if (descartadas > 0) {
+            logger.warn("{} reserva(s) de versao expirada(s) descartada(s)", descartadas);
+        }
+        return descartadas;
+    }
+}
@@ -0,0 +1,146 @@
+package com.wscastro.betransferscheduler.service;
+
+import com.wscastro.betransferscheduler.exception.RequisicoesExcedidasException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.function.LongSupplier;
+
+/**
+ * Limita a quantidade de agendamentos por conta de origem com um balde de fichas por conta, checado antes de
+ * qualquer acesso ao banco. Cada balde guarda um único {@code long}, o instante teórico em que ele volta a
+ * ficar cheio (GCRA), atualizado por compare-and-set; o {@link ConcurrentHashMap} já divide as contas em
+ * listras, entao contas diferentes nunca disputam lock.
+ *
+ * <p>Um balde cheio equivale a um balde que nao existe, por isso os ociosos podem ser descartados sem perder
+ * nada. O mapa tem tamanho máximo: se ele encher mesmo depois do descarte, a conta nova passa sem limite em vez
+ * de derrubar o agendamento.
+ */
+@Service
+public class LimiteRequisicoesService {
+    private static final Logger logger = LoggerFactory.getLogger(LimiteRequisicoesService.class);
+
+    private static final long INTERVALO_MINIMO_DESCARTE_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final ConcurrentHashMap<String, Balde> baldes = new ConcurrentHashMap<>();
+    private final long intervaloNanos;
+    private final long toleranciaNanos;
+    private final int maximoContas;
+    private final LongSupplier relogio;
+    private final AtomicLong ultimoDescarte;
+
+    @Autowired
+    public LimiteRequisicoesService(
+            @Value("${app.transferencia.limite-requisicoes.por-minuto:60}") int porMinuto,
+            @Value("${app.transferencia.limite-requisicoes.rajada:20}") int rajada,
+            @Value("${app.transferencia.limite-requisicoes.max-contas:1000000}") int maximoContas) {
+        this(porMinuto, rajada, maximoContas, System::nanoTime);
+    }
+
+    LimiteRequisicoesService(int porMinuto, int rajada, int maximoContas, LongSupplier relogio) {
+        if (porMinuto < 1) {
+            throw new IllegalArgumentException(
+                    "app.transferencia.limite-requisicoes.por-minuto deve ser pelo menos 1, mas é " + porMinuto);
+        }
+        if (rajada < 1) {
+            throw new IllegalArgumentException(
+                    "app.transferencia.limite-requisicoes.rajada deve ser pelo menos 1, mas é " + rajada);
+        }
+        this.intervaloNanos = TimeUnit.MINUTES.toNanos(1) / porMinuto;
+        this.toleranciaNanos = intervaloNanos * (rajada - 1);
+        this.maximoContas = maximoContas;
+        this.relogio = relogio;
+        this.ultimoDescarte = new AtomicLong(relogio.getAsLong() - INTERVALO_MINIMO_DESCARTE_NANOS);
+    }
+
+    /** Consome uma ficha da conta ou lanca {@link RequisicoesExcedidasException} com o tempo até a próxima. */
+    public void consumir(String contaOrigem) {
+        long agora = relogio.getAsLong();
+        Balde balde = baldes.get(contaOrigem);
+        if (balde == null) {
+            if (baldes.size() >= maximoContas) {
+                descartarOciosos(agora, false);
+                if (baldes.size() >= maximoContas) {
+                    logger.error("Limite de {} contas acompanhadas atingido; conta {} sem limite de requisicoes",
+                            maximoContas, contaOrigem);
+                    return;
+                }
+            }
+            balde = baldes.computeIfAbsent(contaOrigem, conta -> new Balde(agora));
+        }
+
+        long esperaNanos = balde.consumir(agora, intervaloNanos, toleranciaNanos);
+        if (esperaNanos > 0) {
+            long retryAfterSegundos = Math.max(1, (esperaNanos + TimeUnit.SECONDS.toNanos(1) - 1)
+                    / TimeUnit.SECONDS.toNanos(1));
+            logger.error("Limite de requisicoes excedido para a conta {}", contaOrigem);
+            throw new RequisicoesExcedidasException("Muitos agendamentos para a conta de origem "
+                    + contaOrigem + ", tente novamente em " + retryAfterSegundos + " segundo(s)", retryAfterSegundos);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.transferencia.limite-requisicoes.limpeza-ms:60000}")
+    public void descartarOciosos() {
+        descartarOciosos(relogio.getAsLong(), true);
+    }
+
+    int contasAcompanhadas() {
+        return baldes.size();
+    }
+
+    private void descartarOciosos(long agora, boolean agendado) {
+        long anterior = ultimoDescarte.get();
+        // No caminho da requisicao, no máximo um descarte por segundo: com o mapa cheio de contas ativas ele
+        // nao libera nada e percorreria o mapa inteiro a cada conta nova
+        if (!agendado && (agora - anterior < INTERVALO_MINIMO_DESCARTE_NANOS
+                || !ultimoDescarte.compareAndSet(anterior, agora))) {
+            return;
+        }
+        int antes = baldes.size();
+        baldes.values().removeIf(balde -> balde.cheio(agora));
+        int descartados = antes - baldes.size();
+        if (descartados > 0) {
+            logger.info("Limite de requisicoes: {} conta(s) ociosa(s) descartada(s), {} acompanhada(s)",
+                    descartados, baldes.size());
+        }
+    }
+
+    private static final class Balde {
+        private static final AtomicLongFieldUpdater<Balde> CHEIO_EM =
+                AtomicLongFieldUpdater.newUpdater(Balde.class, "cheioEm");
+
+        /** Instante (em {@link System#nanoTime()}) em que o balde volta a ter todas as fichas. */
+        private volatile long cheioEm;
+
+        Balde(long agora) {
+            this.cheioEm = agora;
+        }
+
+        /** Devolve 0 se consumiu a ficha, ou quantos nanossegundos faltam para a próxima. */
+        long consumir(long agora, long intervaloNanos, long toleranciaNanos) {
+            while (true) {
+                long atual = cheioEm;
+                long base = atual - agora > 0 ? atual : agora;
+                long excesso = base - agora - toleranciaNanos;
+                if (excesso > 0) {
+                    return excesso;
+                }
+                if (CHEIO_EM.compareAndSet(this, atual, base + intervaloNanos)) {
+                    return 0;
+                }
+            }
+        }
+
+        boolean cheio(long agora) {
+            return cheioEm - agora <= 0;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.wscastro.betransferscheduler.service;
+
+import com.wscastro.betransferscheduler.event.TransferenciaRemovidaEvent;
+import com.wscastro.betransferscheduler.exception.LimiteSaidaExcedidoException;
+import com.wscastro.betransferscheduler.model.Transferencia;
+import com.wscastro.betransferscheduler.repository.TransferenciaRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Mantém em memória o total agendado por conta de origem e dia, para validar o limite diário de saída
+ * sem consultar o banco a cada agendamento. Os totais ficam divididos em listras, cada uma com seu próprio
+ * lock, de modo que agendamentos de contas diferentes raramente disputam o mesmo lock.
+ */
+@Service
+public class LimiteSaidaService implements SmartInitializingSingleton {
+    private static final Logger logger = LoggerFactory.getLogger(LimiteSaidaService.class);
+
+    private final TransferenciaRepository repository;
+    private final BigDecimal limiteDiario;
+    private final Listra[] listras;
+
+    public LimiteSaidaService(TransferenciaRepository repository,
+                              @Value("${app.transferencia.limite-diario-saida}") BigDecimal limiteDiario,
+                              @Value("${app.transferencia.limite-saida.listras:64}") int quantidadeListras) {
+        this.repository = repository;
+        this.limiteDiario = limiteDiario;
+        this.listras = new Listra[quantidadeListras];
+        for (int i = 0; i < quantidadeListras; i++) {
+            listras[i] = new Listra();
+        }
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        LocalDate hoje = LocalDate.now();
+        int chaves = 0;
+        for (TransferenciaRepository.SaidaDiaria saida : repository.somarSaidasPorContaEDia(hoje.atStartOfDay())) {
+            Chave chave = new Chave(saida.getContaOrigem(), saida.getData());
+            Listra listra = listraDe(chave);
+            synchronized (listra) {
+                listra.totais.merge(chave, saida.getTotal(), BigDecimal::add);
+            }
+            chaves++;
+        }
+        logger.info("Limite diário de saída: {} total(is) por conta e dia carregados", chaves);
+    }
+
+    /**
+     * Soma o valor ao total da conta no dia, rejeitando se o limite for ultrapassado. Se a transacao
+     * corrente for desfeita, o valor é devolvido automaticamente.
+     */
+    public void reservar(String contaOrigem, LocalDate dia, BigDecimal valor) {
+        Chave chave = new Chave(contaOrigem, dia);
+        Listra listra = listraDe(chave);
+        synchronized (listra) {
+            BigDecimal atual = listra.totais.getOrDefault(chave, BigDecimal.ZERO);
+            BigDecimal novoTotal = atual.add(valor);
+            if (novoTotal.compareTo(limiteDiario) > 0) {
+                logger.error("Limite diário de saída excedido para a conta {} em {}: {} + {} > {}",
+                        contaOrigem, dia, atual, valor, limiteDiario);
+                throw new LimiteSaidaExcedidoException("O agendamento ultrapassa o limite diário de saída de "
+                        + limiteDiario + " da conta de origem");
+            }
+            listra.totais.put(chave, novoTotal);
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        liberar(contaOrigem, dia, valor);
+                    }
+                }
+            });
+        }
+    }
+
+    @EventListener
+    public void aoRemover(TransferenciaRemovidaEvent event) {
+        Transferencia t = event.getTransferencia();
+        String contaOrigem = t.getContaOrigem();
+        LocalDate dia = t.getDataTransferencia().toLocalDate();
+        BigDecimal valor = t.getValor();
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    liberar(contaOrigem, dia, valor);
+                }
+            });
+        } else {
+            liberar(contaOrigem, dia, valor);
+        }
+    }
+
+    public BigDecimal totalAgendado(String contaOrigem, LocalDate dia) {
+        Chave chave = new Chave(contaOrigem, dia);
+        Listra listra = listraDe(chave);
+        synchronized (listra) {
+            return listra.totais.getOrDefault(chave, BigDecimal.ZERO);
+        }
+    }
+
+    @Scheduled(cron = "${app.transferencia.limite-saida.limpeza-cron:0 5 0 * * *}")
+    public void descartarDiasPassados() {
+        LocalDate hoje = LocalDate.now();
+        for (Listra listra : listras) {
+            synchronized (listra) {
+                listra.totais.keySet().removeIf(chave -> chave.dia.isBefore(hoje));
+            }
+        }
+    }
+
+    private void liberar(String contaOrigem, LocalDate dia, BigDecimal valor) {
+        Chave chave = new Chave(contaOrigem, dia);
+        Listra listra = listraDe(chave);
+        synchronized (listra) {
+            listra.totais.computeIfPresent(chave, (k, atual) -> {
+                BigDecimal restante = atual.subtract(valor);
+                return restante.signum() > 0 ? restante : null;
+            });
+        }
+    }
+
+    private Listra listraDe(Chave chave) {
+        return listras[Math.floorMod(chave.hashCode(), listras.length)];
+    }
+
+    private static final class Listra {
+        private final Map<Chave, BigDecimal> totais = new HashMap<>();
+    }
+
+    private static final class Chave {
+        private final String conta;
+        private final LocalDate dia;
+        private final int hash;
+
+        private Chave(String conta, LocalDate dia) {
+            this.conta = conta;
+            this.dia = dia;
+            this.hash = 31 * conta.hashCode() + dia.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Chave)) return false;
+            Chave that = (Chave) o;
+            return conta.equals(that.conta) && dia.equals(that.dia);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,371 @@
+package com.wscastro.betransferscheduler.service;
+
+import com.wscastro.betransferscheduler.dto.RecalculoTaxasDTO;
+import com.wscastro.betransferscheduler.event.TransferenciaAlteradaEvent;
+import com.wscastro.betransferscheduler.exception.DataEntradaInvalidaException;
+import com.wscastro.betransferscheduler.exception.TaxaInvalidaException;
+import com.wscastro.betransferscheduler.model.Transferencia;
+import com.wscastro.betransferscheduler.repository.TransferenciaRepository;
+import com.wscastro.betransferscheduler.service.colunar.LeituraPendentesService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.IntStream;
+
+/**
+ * Recalcula a taxa das transferências pendentes depois de uma mudanca na tabela {@code taxa}, com a mesma regra de
+ * {@link TaxaService#calcularTaxa}. As pendentes sao lidas em lotes ordenados por id (keyset: {@code id > último}),
+ * as taxas de cada lote sao calculadas em paralelo e as que mudaram sao gravadas num único UPDATE em lote, junto com
+ * uma versao nova para a sincronizacao incremental e o ajuste da taxa total em {@code resumo_diario}.
+ *
+ * <p>Cada lote é uma transacao curta que comeca travando a linha de checkpoint em {@code recalculo_taxas} e termina
+ * avancando o último id processado. Só ficam travadas, e só até o commit do lote, o checkpoint e as linhas alteradas;
+ * uma execucao interrompida continua do último lote confirmado, e instâncias que rodem a mesma execucao ao mesmo
+ * tempo se revezam nos lotes em vez de repeti-los.
+ *
+ * <p>Cada linha regravada publica um {@link TransferenciaAlteradaEvent} na transacao do lote, que chega ao outbox e
+ * ao fluxo SSE como as demais alteracoes. O resumo diário é ajustado aqui mesmo, e nao por esse evento.
+ *
+ * <p>Um recálculo de todas as pendentes passa do tempo de uma requisicao: {@link #iniciar} abre ou retoma a execucao
+ * e a entrega a uma thread própria, e o andamento é lido do checkpoint por {@link #progresso}, em qualquer instância.
+ */
+@Service
+public class RecalculoTaxasService {
+    private static final Logger logger = LoggerFactory.getLogger(RecalculoTaxasService.class);
+
+    private static final String BUSCAR_ABERTA = "select id from recalculo_taxas where concluido_em is null "
+            + "order by id limit 1";
+    private static final String ABRIR = "insert into recalculo_taxas (id, ultimo_id, lidas, alteradas, sem_taxa, "
+            + "iniciado_em) select coalesce(max(id), 0) + 1, 0, 0, 0, 0, ? from recalculo_taxas";
+    private static final String TRAVAR_CHECKPOINT = "select ultimo_id, concluido_em from recalculo_taxas "
+            + "where id = ? for update";
+    private static final String BUSCAR_LOTE = "select t.id, t.conta_origem, t.conta_destino, t.valor, t.taxa, "
+            + "t.data_agendamento, t.data_transferencia "
+            + "from transferencia t where t.id > ? and t.data_transferencia >= ? "
+            + "and not exists (select 1 from transferencia_execucao e where e.transferencia_id = t.id) "
+            + "order by t.id limit ?";
+    private static final String ATUALIZAR_TAXA = "update transferencia set taxa = ?, versao = ? where id = ? and taxa = ?";
+    private static final String AJUSTAR_RESUMO = "update resumo_diario set taxa_total = taxa_total + ? where data = ?";
+    private static final String AVANCAR = "update recalculo_taxas set ultimo_id = ?, lidas = lidas + ?, "
+            + "alteradas = alteradas + ?, sem_taxa = sem_taxa + ? where id = ?";
+    private static final String CONCLUIR = "update recalculo_taxas set concluido_em = ? where id = ?";
+    private static final String TOTAIS = "select lidas, alteradas, sem_taxa from recalculo_taxas where id = ?";
+    private static final String PROGRESSO = "select ultimo_id, lidas, alteradas, sem_taxa, iniciado_em, concluido_em "
+            + "from recalculo_taxas where id = ?";
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate novaTransacao;
+    private final TaxaService taxaService;
+    private final TransferenciaRepository transferenciaRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final SincronizacaoService sincronizacaoService;
+    private final CacheListagemService cacheListagemService;
+    private final LeituraPendentesService leituraPendentesService;
+    private final int tamanhoLote;
+    private final int paralelismo;
+    private final Executor execucao;
+    // Execucao entregue à thread desta instância e ainda nao terminada; null quando nenhuma
+    private Long emAndamento;
+
+    @Autowired
+    public RecalculoTaxasService(JdbcTemplate jdbc, PlatformTransactionManager transactionManager,
+                                 TaxaService taxaService, TransferenciaRepository transferenciaRepository,
+                                 ApplicationEventPublisher eventPublisher, SincronizacaoService sincronizacaoService,
+                                 CacheListagemService cacheListagemService,
+                                 LeituraPendentesService leituraPendentesService,
+                                 @Value("${app.recalculo-taxas.tamanho-lote:1000}") int tamanhoLote,
+                                 @Value("${app.recalculo-taxas.paralelismo:0}") int paralelismo) {
+        this(jdbc, transactionManager, taxaService, transferenciaRepository, eventPublisher, sincronizacaoService,
+                cacheListagemService, leituraPendentesService, tamanhoLote, paralelismo,
+                Executors.newSingleThreadExecutor(tarefa -> {
+                    Thread thread = new Thread(tarefa, "recalculo-taxas");
+                    thread.setDaemon(true);
+                    return thread;
+                }));
+    }
+
+    RecalculoTaxasService(JdbcTemplate jdbc, PlatformTransactionManager transactionManager,
+                          TaxaService taxaService, TransferenciaRepository transferenciaRepository,
+                          ApplicationEventPublisher eventPublisher, SincronizacaoService sincronizacaoService,
+                          CacheListagemService cacheListagemService, LeituraPendentesService leituraPendentesService,
+                          int tamanhoLote, int paralelismo, Executor execucao) {
+        this.jdbc = jdbc;
+        this.novaTransacao = new TransactionTemplate(transactionManager);
+        this.novaTransacao.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.taxaService = taxaService;
+        this.transferenciaRepository = transferenciaRepository;
+        this.eventPublisher = eventPublisher;
+        this.sincronizacaoService = sincronizacaoService;
+        this.cacheListagemService = cacheListagemService;
+        this.leituraPendentesService = leituraPendentesService;
+        this.tamanhoLote = tamanhoLote;
+        this.paralelismo = paralelismo > 0 ? paralelismo : Runtime.getRuntime().availableProcessors();
+        this.execucao = execucao;
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        // Um lote interrompido é desfeito; a execucao continua do último checkpoint na próxima subida
+        if (execucao instanceof ExecutorService) {
+            ((ExecutorService) execucao).shutdownNow();
+        }
+    }
+
+    /** Retoma em segundo plano uma execucao que ficou pela metade antes da última parada. */
+    @EventListener(ApplicationReadyEvent.class)
+    public void retomarInterrompida() {
+        if (!transferenciaRepository.naTabelaTransferencia()) {
+            return;
+        }
+        if (!jdbc.queryForList(BUSCAR_ABERTA, Long.class).isEmpty()) {
+            logger.info("Recálculo de taxas interrompido encontrado; retomando");
+            iniciar();
+        }
+    }
+
+    /**
+     * Abre uma execucao, ou retoma a que estiver em aberto, e a processa em segundo plano. Devolve o andamento no
+     * momento da chamada; se esta instância já estiver processando a execucao, só devolve o andamento dela.
+     */
+    public synchronized RecalculoTaxasDTO iniciar() {
+        transferenciaRepository.exigirTabelaTransferencia("O recálculo de taxas");
+        if (emAndamento != null) {
+            return progresso(emAndamento);
+        }
+        RecalculoTaxasDTO aberta = abrirOuRetomar();
+        long id = aberta.getExecucao();
+        emAndamento = id;
+        try {
+            execucao.execute(() -> {
+                try {
+                    processar(aberta);
+                } catch (RuntimeException e) {
+                    logger.error("Falha no recálculo de taxas {}; ele continua do último lote na próxima chamada", id,
+                            e);
+                } finally {
+                    terminar(id);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            emAndamento = null;
+            throw e;
+        }
+        RecalculoTaxasDTO resultado = progresso(id);
+        resultado.setRetomada(aberta.isRetomada());
+        return resultado;
+    }
+
+    private synchronized void terminar(long id) {
+        if (emAndamento != null && emAndamento == id) {
+            emAndamento = null;
+        }
+    }
+
+    /** Andamento de uma execucao, lido do checkpoint: vale também para as processadas por outras instâncias. */
+    public RecalculoTaxasDTO progresso(long id) {
+        List<RecalculoTaxasDTO> encontrado = jdbc.query(PROGRESSO, (rs, i) -> {
+            RecalculoTaxasDTO dto = new RecalculoTaxasDTO(id, false);
+            dto.setUltimoId(rs.getLong("ultimo_id"));
+            dto.setLidas(rs.getLong("lidas"));
+            dto.setAlteradas(rs.getLong("alteradas"));
+            dto.setSemTaxa(rs.getLong("sem_taxa"));
+            dto.setIniciadaEm(rs.getTimestamp("iniciado_em").toLocalDateTime());
+            Timestamp concluida = rs.getTimestamp("concluido_em");
+            dto.setConcluidaEm(concluida != null ? concluida.toLocalDateTime() : null);
+            return dto;
+        }, id);
+        if (encontrado.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Recálculo de taxas nao encontrado");
+        }
+        return encontrado.get(0);
+    }
+
+    /** Recalcula as pendentes na thread que chama, continuando a execucao em aberto se houver uma. */
+    public RecalculoTaxasDTO recalcular() {
+        transferenciaRepository.exigirTabelaTransferencia("O recálculo de taxas");
+        return processar(abrirOuRetomar());
+    }
+
+    private RecalculoTaxasDTO processar(RecalculoTaxasDTO resultado) {
+        // As faixas podem ter mudado há menos de um intervalo de recarga
+        taxaService.recarregarTaxas();
+        Timestamp corte = Timestamp.valueOf(LocalDate.now().atStartOfDay());
+        ForkJoinPool calculo = new ForkJoinPool(paralelismo);
+        try {
+            Integer alteradas;
+            while ((alteradas = novaTransacao.execute(status -> processarLote(resultado.getExecucao(), corte, calculo)))
+                    != null) {
+                resultado.setLotes(resultado.getLotes() + 1);
+                if (alteradas > 0) {
+                    // UPDATE por SQL nao passa pelos callbacks do JPA
+                    cacheListagemService.registrarAlteracao();
+                }
+            }
+        } finally {
+            calculo.shutdown();
+        }
+
+        Map<String, Object> totais = jdbc.queryForMap(TOTAIS, resultado.getExecucao());
+        resultado.setConcluidaEm(LocalDateTime.now());
+        resultado.setLidas(((Number) totais.get("lidas")).longValue());
+        resultado.setAlteradas(((Number) totais.get("alteradas")).longValue());
+        resultado.setSemTaxa(((Number) totais.get("sem_taxa")).longValue());
+        if (resultado.getAlteradas() > 0) {
+            // O modelo colunar só acompanha agendamentos e remocoes por evento: precisa reler as pendentes
+            leituraPendentesService.recarregar();
+        }
+        logger.info("Recálculo de taxas {} concluído: {} pendente(s) lida(s), {} alterada(s), {} sem faixa aplicável",
+                resultado.getExecucao(), resultado.getLidas(), resultado.getAlteradas(), resultado.getSemTaxa());
+        return resultado;
+    }
+
+    private RecalculoTaxasDTO abrirOuRetomar() {
+        for (;;) {
+            List<Long> aberta = jdbc.queryForList(BUSCAR_ABERTA, Long.class);
+            if (!aberta.isEmpty()) {
+                return new RecalculoTaxasDTO(aberta.get(0), true);
+            }
+            try {
+                jdbc.update(ABRIR, Timestamp.valueOf(LocalDateTime.now()));
+            } catch (DuplicateKeyException e) {
+                logger.debug("Recálculo de taxas aberto concorrentemente");
+                continue;
+            }
+            return new RecalculoTaxasDTO(jdbc.queryForList(BUSCAR_ABERTA, Long.class).get(0), false);
+        }
+    }
+
+    /** Processa o próximo lote; devolve quantas linhas mudaram ou {@code null} quando nao há mais pendentes. */
+    private Integer processarLote(long execucao, Timestamp corte, ForkJoinPool calculo) {
+        Map<String, Object> checkpoint = jdbc.queryForMap(TRAVAR_CHECKPOINT, execucao);
+        if (checkpoint.get("concluido_em") != null) {
+            return null;
+        }
+        long ultimoId = ((Number) checkpoint.get("ultimo_id")).longValue();
+        List<Pendente> lote = jdbc.query(BUSCAR_LOTE, (rs, i) -> new Pendente(rs.getLong("id"),
+                rs.getString("conta_origem"), rs.getString("conta_destino"), rs.getBigDecimal("valor"),
+                rs.getBigDecimal("taxa"), rs.getTimestamp("data_agendamento").toLocalDateTime(),
+                rs.getTimestamp("data_transferencia").toLocalDateTime()), ultimoId, corte, tamanhoLote);
+        if (lote.isEmpty()) {
+            jdbc.update(CONCLUIR, Timestamp.valueOf(LocalDateTime.now()), execucao);
+            return null;
+        }
+
+        BigDecimal[] novas = new BigDecimal[lote.size()];
+        calculo.submit(() -> IntStream.range(0, lote.size()).parallel()
+                .forEach(i -> novas[i] = calcular(lote.get(i)))).join();
+
+        List<Object[]> atualizacoes = new ArrayList<>();
+        List<Pendente> alteradas = new ArrayList<>();
+        int semTaxa = 0;
+        for (int i = 0; i < lote.size(); i++) {
+            Pendente pendente = lote.get(i);
+            if (novas[i] == null) {
+                semTaxa++;
+            } else if (novas[i].compareTo(pendente.taxa) != 0) {
+                atualizacoes.add(new Object[]{novas[i], null, pendente.id, pendente.taxa});
+                alteradas.add(pendente);
+            }
+        }
+        int gravadas = 0;
+        if (!atualizacoes.isEmpty()) {
+            // Uma única reserva no contador para o lote inteiro
+            long versao = sincronizacaoService.reservarVersoes(atualizacoes.size());
+            for (Object[] atualizacao : atualizacoes) {
+                atualizacao[1] = versao++;
+            }
+            int[] linhas = jdbc.batchUpdate(ATUALIZAR_TAXA, atualizacoes);
+            // Ordenado por data para que lotes concorrentes travem as linhas do resumo na mesma ordem
+            Map<LocalDate, BigDecimal> diferencas = new TreeMap<>();
+            for (int i = 0; i < linhas.length; i++) {
+                if (linhas[i] > 0) {
+                    Pendente pendente = alteradas.get(i);
+                    BigDecimal novaTaxa = (BigDecimal) atualizacoes.get(i)[0];
+                    diferencas.merge(pendente.dataTransferencia.toLocalDate(), novaTaxa.subtract(pendente.taxa),
+                            BigDecimal::add);
+                    eventPublisher.publishEvent(new TransferenciaAlteradaEvent(
+                            pendente.alterada(novaTaxa, (Long) atualizacoes.get(i)[1])));
+                    gravadas++;
+                }
+            }
+            List<Object[]> ajustes = new ArrayList<>(diferencas.size());
+            diferencas.forEach((data, diferenca) -> ajustes.add(new Object[]{diferenca, data}));
+            jdbc.batchUpdate(AJUSTAR_RESUMO, ajustes);
+        }
+        jdbc.update(AVANCAR, lote.get(lote.size() - 1).id, lote.size(), gravadas, semTaxa, execucao);
+        return gravadas;
+    }
+
+    /** Taxa nova na escala da coluna, ou {@code null} se a tabela atual nao tem faixa para a transferência. */
+    private BigDecimal calcular(Pendente pendente) {
+        try {
+            return taxaService.calcularTaxa(pendente.valor, pendente.dataAgendamento, pendente.dataTransferencia)
+                    .setScale(2, RoundingMode.HALF_UP);
+        } catch (TaxaInvalidaException | DataEntradaInvalidaException e) {
+            logger.warn("Transferência {} mantida com a taxa atual: {}", pendente.id, e.getMessage());
+            return null;
+        }
+    }
+
+    private static final class Pendente {
+        final long id;
+        final String contaOrigem;
+        final String contaDestino;
+        final BigDecimal valor;
+        final BigDecimal taxa;
+        final LocalDateTime dataAgendamento;
+        final LocalDateTime dataTransferencia;
+
+        Pendente(long id, String contaOrigem, String contaDestino, BigDecimal valor, BigDecimal taxa,
+                 LocalDateTime dataAgendamento, LocalDateTime dataTransferencia) {
+            this.id = id;
+            this.contaOrigem = contaOrigem;
+            this.contaDestino = contaDestino;
+            this.valor = valor;
+            this.taxa = taxa;
+            this.dataAgendamento = dataAgendamento;
+            this.dataTransferencia = dataTransferencia;
+        }
+
+        Transferencia alterada(BigDecimal novaTaxa, Long versao) {
+            Transferencia t = new Transferencia();
+            t.setId(id);
+            t.setContaOrigem(contaOrigem);
+            t.setContaDestino(contaDestino);
+            t.setValor(valor);
+            t.setTaxa(novaTaxa);
+            t.setDataAgendamento(dataAgendamento);
+            t.setDataTransferencia(dataTransferencia);
+            t.setVersao(versao);
+            return t;
+        }
+    }
+}
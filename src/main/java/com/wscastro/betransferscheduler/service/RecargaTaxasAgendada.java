@@ -0,0 +1,23 @@
+package com.wscastro.betransferscheduler.service;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Agenda a recarga das faixas de taxa. Fica fora do {@link TaxaService} porque beans com métodos agendados nunca
+ * sao preguiçosos (ver {@code InicializacaoConfig}), e o {@link TaxaService} deve continuar sendo.
+ */
+@Component
+public class RecargaTaxasAgendada {
+
+    private final TaxaService taxaService;
+
+    public RecargaTaxasAgendada(TaxaService taxaService) {
+        this.taxaService = taxaService;
+    }
+
+    @Scheduled(fixedDelayString = "${app.taxa.recarga-ms:60000}", initialDelayString = "${app.taxa.recarga-ms:60000}")
+    public void recarregar() {
+        taxaService.recarregarTaxas();
+    }
+}
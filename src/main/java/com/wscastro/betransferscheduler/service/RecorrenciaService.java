@@ -0,0 +1,208 @@
+package com.wscastro.betransferscheduler.service;
+
+import com.wscastro.betransferscheduler.dto.OcorrenciaDTO;
+import com.wscastro.betransferscheduler.dto.RecorrenciaRequestDTO;
+import com.wscastro.betransferscheduler.dto.RecorrenciaResponseDTO;
+import com.wscastro.betransferscheduler.dto.TransferenciaRequestDTO;
+import com.wscastro.betransferscheduler.exception.ContasIguaisException;
+import com.wscastro.betransferscheduler.exception.DataEntradaInvalidaException;
+import com.wscastro.betransferscheduler.exception.DataTransferenciaNaoFuturaException;
+import com.wscastro.betransferscheduler.model.Recorrencia;
+import com.wscastro.betransferscheduler.repository.RecorrenciaRepository;
+import com.wscastro.betransferscheduler.repository.TransferenciaRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Transferências recorrentes. Só as ocorrências dentro do horizonte de {@code app.transferencia.dias-limite} dias
+ * viram {@link com.wscastro.betransferscheduler.model.Transferencia}, e cada uma passa pelo fluxo normal de
+ * agendamento: a taxa é a do {@link TaxaService} no momento da materializacao. O restante é calculado a partir
+ * da regra sempre que alguém consulta as ocorrências.
+ */
+@Service
+public class RecorrenciaService {
+    private static final Logger logger = LoggerFactory.getLogger(RecorrenciaService.class);
+
+    private final RecorrenciaRepository repository;
+    private final TransferenciaService transferenciaService;
+    private final TransferenciaRepository transferenciaRepository;
+    private final TransactionTemplate novaTransacao;
+
+    @Value("${app.transferencia.dias-limite}")
+    private long diasLimite;
+
+    public RecorrenciaService(RecorrenciaRepository repository, TransferenciaService transferenciaService,
+                              TransferenciaRepository transferenciaRepository,
+                              PlatformTransactionManager transactionManager) {
+        this.repository = repository;
+        this.transferenciaService = transferenciaService;
+        this.transferenciaRepository = transferenciaRepository;
+        this.novaTransacao = new TransactionTemplate(transactionManager);
+        this.novaTransacao.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    // Setter for testing purposes
+    public void setDiasLimite(long diasLimite) {
+        this.diasLimite = diasLimite;
+    }
+
+    /** Grava a regra e já materializa as ocorrências que caem dentro do horizonte. */
+    public RecorrenciaResponseDTO criar(RecorrenciaRequestDTO dto) {
+        logger.info("Criando recorrência {} de {} para {}, valor: {}, início: {}", dto.getPeriodicidade(),
+                dto.getContaOrigem(), dto.getContaDestino(), dto.getValor(), dto.getDataInicio());
+
+        if (dto.getContaOrigem().equals(dto.getContaDestino())) {
+            logger.error("Contas de origem e destino sao iguais: {}", dto.getContaOrigem());
+            throw new ContasIguaisException("A conta de origem e destino nao podem ser iguais");
+        }
+        if (dto.getDataInicio().isBefore(LocalDateTime.now())) {
+            logger.error("Data de início da recorrência está no passado: {}", dto.getDataInicio());
+            throw new DataTransferenciaNaoFuturaException("A data de início deve ser igual ou posterior à data atual");
+        }
+        if (dto.getDataFim() != null && dto.getDataFim().isBefore(dto.getDataInicio())) {
+            logger.error("Data de fim {} anterior ao início {}", dto.getDataFim(), dto.getDataInicio());
+            throw new DataEntradaInvalidaException("A data de fim nao pode ser anterior à data de início.");
+        }
+
+        Recorrencia recorrencia = new Recorrencia();
+        recorrencia.setContaOrigem(dto.getContaOrigem());
+        recorrencia.setContaDestino(dto.getContaDestino());
+        recorrencia.setValor(dto.getValor());
+        recorrencia.setPeriodicidade(dto.getPeriodicidade());
+        recorrencia.setDataInicio(dto.getDataInicio());
+        recorrencia.setDataFim(dto.getDataFim());
+        recorrencia.setProximaOcorrencia(dto.getDataInicio());
+        recorrencia.setDataCriacao(LocalDateTime.now());
+        Recorrencia salva = repository.save(recorrencia);
+        logger.info("Recorrência criada com sucesso. ID: {}", salva.getId());
+
+        materializar(salva.getId(), horizonte());
+        return buscar(salva.getId());
+    }
+
+    @Transactional(readOnly = true)
+    public RecorrenciaResponseDTO buscar(Long id) {
+        return new RecorrenciaResponseDTO(encontrar(id));
+    }
+
+    @Transactional(readOnly = true)
+    public Page<RecorrenciaResponseDTO> listar(Pageable pageable) {
+        logger.info("Listando recorrências: page={}, size={}", pageable.getPageNumber(), pageable.getPageSize());
+        return repository.findAll(pageable).map(RecorrenciaResponseDTO::new);
+    }
+
+    /**
+     * Expande a regra até {@code ate} (no máximo {@code limite} ocorrências) sem gravar nada. Uma ocorrência já
+     * processada só conta como materializada se a transferência dela existe: as recusadas e as que já tinham
+     * passado foram puladas sem agendar nada.
+     */
+    @Transactional(readOnly = true)
+    public List<OcorrenciaDTO> listarOcorrencias(Long id, LocalDate ate, int limite) {
+        Recorrencia recorrencia = encontrar(id);
+        List<OcorrenciaDTO> ocorrencias = new ArrayList<>();
+        for (int indice = 0; ocorrencias.size() < limite; indice++) {
+            LocalDateTime data = recorrencia.ocorrencia(indice);
+            if (data == null || data.toLocalDate().isAfter(ate)) {
+                break;
+            }
+            boolean materializada = indice < recorrencia.getOcorrenciasMaterializadas()
+                    && !transferenciaRepository.buscarDuplicadas(recorrencia.getContaOrigem(),
+                    recorrencia.getContaDestino(), recorrencia.getValor(), data).isEmpty();
+            ocorrencias.add(new OcorrenciaDTO(indice, data, recorrencia.getValor(), materializada));
+        }
+        return ocorrencias;
+    }
+
+    /** Encerra a recorrência; as transferências já materializadas continuam agendadas. */
+    @Transactional
+    public void encerrar(Long id) {
+        logger.info("Encerrando recorrência com ID: {}", id);
+        repository.delete(encontrar(id));
+    }
+
+    /** Avanca o horizonte de todas as recorrências; roda de hora em hora porque o horizonte anda com o relógio. */
+    @Scheduled(fixedDelayString = "${app.transferencia.recorrencia.intervalo-ms:3600000}")
+    public void materializarPendentes() {
+        LocalDate horizonte = horizonte();
+        List<Long> pendentes = repository.buscarPendentes(horizonte.plusDays(1).atStartOfDay());
+        int total = 0;
+        for (Long id : pendentes) {
+            total += materializar(id, horizonte);
+        }
+        if (total > 0) {
+            logger.info("{} ocorrência(s) de {} recorrência(s) materializada(s) até {}", total, pendentes.size(), horizonte);
+        }
+    }
+
+    private int materializar(Long id, LocalDate horizonte) {
+        int materializadas = 0;
+        while (true) {
+            Boolean avancou;
+            try {
+                avancou = novaTransacao.execute(status -> materializarProxima(id, horizonte));
+            } catch (RuntimeException e) {
+                // A ocorrência recusada (limite de saída, taxa) é pulada para nao travar as seguintes
+                logger.error("Ocorrência da recorrência {} nao agendada: {}", id, e.getMessage());
+                novaTransacao.executeWithoutResult(status ->
+                        repository.buscarParaMaterializar(id).ifPresent(Recorrencia::avancar));
+                continue;
+            }
+            if (!Boolean.TRUE.equals(avancou)) {
+                return materializadas;
+            }
+            materializadas++;
+        }
+    }
+
+    /**
+     * Agenda a próxima ocorrência e avanca o contador na mesma transacao, entao uma ocorrência nunca é agendada
+     * duas vezes.
+     */
+    private boolean materializarProxima(Long id, LocalDate horizonte) {
+        Recorrencia recorrencia = repository.buscarParaMaterializar(id).orElse(null);
+        if (recorrencia == null || !recorrencia.pendenteAte(horizonte)) {
+            return false;
+        }
+        LocalDateTime data = recorrencia.getProximaOcorrencia();
+        if (data.isAfter(LocalDateTime.now())) {
+            TransferenciaRequestDTO transferencia = new TransferenciaRequestDTO();
+            transferencia.setContaOrigem(recorrencia.getContaOrigem());
+            transferencia.setContaDestino(recorrencia.getContaDestino());
+            transferencia.setValor(recorrencia.getValor());
+            transferencia.setDataTransferencia(data);
+            transferenciaService.agendarTransferencia(transferencia);
+        } else {
+            logger.error("Ocorrência {} da recorrência {} em {} já passou; nao será agendada",
+                    recorrencia.getOcorrenciasMaterializadas(), id, data);
+        }
+        recorrencia.avancar();
+        return true;
+    }
+
+    private Recorrencia encontrar(Long id) {
+        return repository.findById(id).orElseThrow(() -> {
+            logger.error("Recorrência não encontrada com ID: {}", id);
+            return new ResponseStatusException(HttpStatus.NOT_FOUND, "Recorrência não encontrada");
+        });
+    }
+
+    private LocalDate horizonte() {
+        return LocalDate.now().plusDays(diasLimite);
+    }
+}
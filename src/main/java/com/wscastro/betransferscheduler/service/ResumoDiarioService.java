@@ -0,0 +1,156 @@
+package com.wscastro.betransferscheduler.service;
+
+import com.wscastro.betransferscheduler.dto.ResumoDiarioDTO;
+import com.wscastro.betransferscheduler.event.TransferenciaAgendadaEvent;
+import com.wscastro.betransferscheduler.event.TransferenciaRemovidaEvent;
+import com.wscastro.betransferscheduler.model.ResumoDiario;
+import com.wscastro.betransferscheduler.model.Transferencia;
+import com.wscastro.betransferscheduler.repository.ResumoDiarioRepository;
+import com.wscastro.betransferscheduler.repository.ResumoDiarioRepository.TotaisDiarios;
+import com.wscastro.betransferscheduler.repository.TransferenciaRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+@Service
+public class ResumoDiarioService {
+    private static final Logger logger = LoggerFactory.getLogger(ResumoDiarioService.class);
+
+    private final ResumoDiarioRepository repository;
+    private final TransferenciaRepository transferenciaRepository;
+    private final TransactionTemplate novaTransacao;
+
+    public ResumoDiarioService(ResumoDiarioRepository repository, TransferenciaRepository transferenciaRepository,
+                               PlatformTransactionManager transactionManager) {
+        this.repository = repository;
+        this.transferenciaRepository = transferenciaRepository;
+        this.novaTransacao = new TransactionTemplate(transactionManager);
+        this.novaTransacao.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    // Executado de forma síncrona, dentro da transacao de agendarTransferencia
+    @EventListener
+    public void aoAgendar(TransferenciaAgendadaEvent event) {
+        Transferencia t = event.getTransferencia();
+        registrar(t.getDataTransferencia().toLocalDate(), 1, arredondar(t.getValor()), arredondar(t.getTaxa()));
+    }
+
+    // Executado de forma síncrona, dentro da transacao de deletarTransferencia
+    @EventListener
+    public void aoRemover(TransferenciaRemovidaEvent event) {
+        Transferencia t = event.getTransferencia();
+        registrar(t.getDataTransferencia().toLocalDate(), -1, arredondar(t.getValor()).negate(), arredondar(t.getTaxa()).negate());
+    }
+
+    private void registrar(LocalDate data, long quantidade, BigDecimal valor, BigDecimal taxa) {
+        if (repository.incrementar(data, quantidade, valor, taxa) > 0) {
+            return;
+        }
+        // Primeiro agendamento da data: a linha é criada numa transacao separada para que uma
+        // corrida com outro agendamento do mesmo dia nao invalide a transacao corrente.
+        try {
+            novaTransacao.executeWithoutResult(status -> repository.criarVazio(data));
+        } catch (DataIntegrityViolationException e) {
+            logger.debug("Resumo do dia {} criado concorrentemente", data);
+        }
+        repository.incrementar(data, quantidade, valor, taxa);
+    }
+
+    @Transactional(readOnly = true)
+    public List<ResumoDiarioDTO> listar(LocalDate inicio, LocalDate fim) {
+        logger.info("Consultando resumo diário de {} até {}", inicio, fim);
+        List<ResumoDiario> resumos = fim == null
+                ? repository.findByDataGreaterThanEqualOrderByDataAsc(inicio)
+                : repository.findByDataBetweenOrderByDataAsc(inicio, fim);
+        return resumos.stream()
+                .map(ResumoDiarioDTO::new)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Compara o resumo com os totais calculados pelo armazenamento de transferências configurado, somados aos das
+     * transferências arquivadas, e corrige os dias divergentes.
+     */
+    @Transactional
+    public List<LocalDate> verificarEReconstruir() {
+        Map<LocalDate, ResumoDiario> atuais = new HashMap<>();
+        repository.findAll().forEach(r -> atuais.put(r.getData(), r));
+        Map<LocalDate, ResumoDiario> esperados = calcularEsperados();
+
+        TreeSet<LocalDate> datas = new TreeSet<>(atuais.keySet());
+        datas.addAll(esperados.keySet());
+        List<LocalDate> divergentes = new ArrayList<>();
+        for (LocalDate data : datas) {
+            if (!confere(atuais.get(data), esperados.get(data))) {
+                divergentes.add(data);
+            }
+        }
+        if (divergentes.isEmpty()) {
+            logger.info("Resumo diário consistente com as transferências");
+            return divergentes;
+        }
+        logger.warn("Resumo diário divergente em {} dia(s): {}. Reconstruindo.", divergentes.size(), divergentes);
+        for (LocalDate data : divergentes) {
+            ResumoDiario esperado = esperados.get(data);
+            if (esperado == null) {
+                repository.delete(atuais.get(data));
+            } else {
+                repository.save(esperado);
+            }
+        }
+        return divergentes;
+    }
+
+    private Map<LocalDate, ResumoDiario> calcularEsperados() {
+        Map<LocalDate, ResumoDiario> esperados = new HashMap<>();
+        transferenciaRepository.somarTotaisPorDia().forEach(t -> acumular(esperados, t));
+        repository.somarArquivadasPorDia().forEach(t -> acumular(esperados, t));
+        return esperados;
+    }
+
+    private static void acumular(Map<LocalDate, ResumoDiario> esperados, TotaisDiarios totais) {
+        ResumoDiario resumo = esperados.computeIfAbsent(totais.getData(), data -> {
+            ResumoDiario novo = new ResumoDiario();
+            novo.setData(data);
+            novo.setQuantidade(0L);
+            novo.setValorTotal(BigDecimal.ZERO);
+            novo.setTaxaTotal(BigDecimal.ZERO);
+            return novo;
+        });
+        resumo.setQuantidade(resumo.getQuantidade() + totais.getQuantidade());
+        resumo.setValorTotal(resumo.getValorTotal().add(arredondar(totais.getValorTotal())));
+        resumo.setTaxaTotal(resumo.getTaxaTotal().add(arredondar(totais.getTaxaTotal())));
+    }
+
+    private boolean confere(ResumoDiario atual, ResumoDiario esperado) {
+        if (esperado == null) {
+            return atual == null || atual.getQuantidade() == 0;
+        }
+        return atual != null
+                && Objects.equals(atual.getQuantidade(), esperado.getQuantidade())
+                && atual.getValorTotal().compareTo(esperado.getValorTotal()) == 0
+                && atual.getTaxaTotal().compareTo(esperado.getTaxaTotal()) == 0;
+    }
+
+    // Mesma escala das colunas numeric(19,2) de transferencia
+    private static BigDecimal arredondar(BigDecimal valor) {
+        return valor.setScale(2, RoundingMode.HALF_UP);
+    }
+}
@@ -0,0 +1,181 @@
+package com.wscastro.betransferscheduler.service;
+
+import com.wscastro.betransferscheduler.dto.AlteracoesDTO;
+import com.wscastro.betransferscheduler.dto.RemocaoDTO;
+import com.wscastro.betransferscheduler.dto.TransferenciaResponseDTO;
+import com.wscastro.betransferscheduler.event.TransferenciaRemovidaEvent;
+import com.wscastro.betransferscheduler.model.Transferencia;
+import com.wscastro.betransferscheduler.model.TransferenciaRemovida;
+import com.wscastro.betransferscheduler.repository.TransferenciaRemovidaRepository;
+import com.wscastro.betransferscheduler.repository.TransferenciaRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Atribui versoes crescentes a cada alteracao de transferência e responde consultas incrementais
+ * ("o que mudou desde a versao N"). Remocoes deixam uma marca em {@code transferencia_removida},
+ * descartada após o período de retencao.
+ *
+ * <p>Como as versoes sao reservadas antes do commit, uma transacao pode confirmar uma versao menor
+ * depois que outra, maior, já ficou visível. Por isso as consultas só vao até a versao anterior à
+ * menor ainda em andamento: um cliente nunca avanca a marca d'água para além de uma alteracao que
+ * ainda nao enxergou. O contador e as reservas ficam no banco ({@link ContadorVersoes}), entao isso vale
+ * também para alteracoes feitas por outras instâncias. A versao até onde as remocoes foram compactadas também
+ * fica lá, e uma marca d'água anterior a ela recebe {@code 410} em qualquer instância.
+ */
+@Service
+public class SincronizacaoService implements SmartInitializingSingleton {
+    private static final Logger logger = LoggerFactory.getLogger(SincronizacaoService.class);
+
+    private final TransferenciaRepository transferenciaRepository;
+    private final TransferenciaRemovidaRepository removidaRepository;
+    private final ContadorVersoes contadorVersoes;
+    private final TransactionTemplate transacao;
+    private final long retencaoHoras;
+    private final int limiteMaximo;
+
+    public SincronizacaoService(TransferenciaRepository transferenciaRepository,
+                                TransferenciaRemovidaRepository removidaRepository,
+                                ContadorVersoes contadorVersoes,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${app.sincronizacao.retencao-remocoes-horas:168}") long retencaoHoras,
+                                @Value("${app.sincronizacao.limite-maximo:1000}") int limiteMaximo) {
+        this.transferenciaRepository = transferenciaRepository;
+        this.removidaRepository = removidaRepository;
+        this.contadorVersoes = contadorVersoes;
+        this.transacao = new TransactionTemplate(transactionManager);
+        this.retencaoHoras = retencaoHoras;
+        this.limiteMaximo = limiteMaximo;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        // Versoes gravadas antes de o contador existir no banco
+        long maior = Math.max(valor(transferenciaRepository.buscarMaiorVersao()), valor(removidaRepository.buscarMaiorVersao()));
+        contadorVersoes.garantirAoMenos(maior);
+        compactar();
+        logger.info("Sincronizacao incremental iniciada na versao {}", maior);
+    }
+
+    /**
+     * Reserva a próxima versao para uma alteracao feita na transacao corrente. A versao deixa de bloquear
+     * a marca d'água quando a transacao termina, com ou sem sucesso. A reserva sai na própria transacao, sem
+     * uma segunda transacao por escrita; só um rollback precisa liberá-la à parte.
+     */
+    public long reservarVersao() {
+        return reservarVersoes(1);
+    }
+
+    /** Reserva {@code quantidade} versoes consecutivas para a transacao corrente e devolve a primeira. */
+    public long reservarVersoes(int quantidade) {
+        long primeira = contadorVersoes.reservar(quantidade);
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            contadorVersoes.liberarNoCommit(primeira);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        contadorVersoes.liberar(primeira);
+                    }
+                }
+            });
+        } else {
+            contadorVersoes.liberar(primeira);
+        }
+        return primeira;
+    }
+
+    @EventListener
+    public void aoRemover(TransferenciaRemovidaEvent event) {
+        Transferencia t = event.getTransferencia();
+        TransferenciaRemovida remocao = new TransferenciaRemovida();
+        remocao.setId(t.getId());
+        remocao.setVersao(reservarVersao());
+        remocao.setRemovidaEm(LocalDateTime.now());
+        removidaRepository.save(remocao);
+    }
+
+    // Fica na primária: a réplica pode ainda nao ter as versoes abaixo de versaoSegura(), o que faria o
+    // cliente avancar o marcador pulando alteracoes
+    @Transactional
+    public AlteracoesDTO listarAlteracoes(long desde, int limite) {
+        // Quem parte do zero recebe todas as transferências vigentes e nao precisa das remocoes antigas
+        long versaoCompactada = desde > 0 ? contadorVersoes.versaoCompactada() : 0L;
+        if (desde < versaoCompactada) {
+            logger.error("Versao {} anterior às remocoes já compactadas ({})", desde, versaoCompactada);
+            throw new ResponseStatusException(HttpStatus.GONE,
+                    "A versao informada é anterior ao período de retencao; faca uma sincronizacao completa");
+        }
+        int tamanho = Math.max(1, Math.min(limite, limiteMaximo));
+        long ate = versaoSegura();
+        PageRequest pagina = PageRequest.of(0, tamanho);
+        List<Transferencia> alteradas = transferenciaRepository
+                .findByVersaoGreaterThanAndVersaoLessThanEqualOrderByVersaoAsc(desde, ate, pagina);
+        List<TransferenciaRemovida> removidas = removidaRepository
+                .findByVersaoGreaterThanAndVersaoLessThanEqualOrderByVersaoAsc(desde, ate, pagina);
+
+        // Intercala as duas listas pela versao e corta no limite pedido
+        AlteracoesDTO resultado = new AlteracoesDTO();
+        int i = 0;
+        int j = 0;
+        long versao = desde;
+        while (i + j < tamanho && (i < alteradas.size() || j < removidas.size())) {
+            boolean proximaEAlterada = j >= removidas.size()
+                    || (i < alteradas.size() && alteradas.get(i).getVersao() < removidas.get(j).getVersao());
+            if (proximaEAlterada) {
+                Transferencia t = alteradas.get(i++);
+                resultado.getAlteradas().add(new TransferenciaResponseDTO(t));
+                versao = t.getVersao();
+            } else {
+                TransferenciaRemovida r = removidas.get(j++);
+                resultado.getRemovidas().add(new RemocaoDTO(r));
+                versao = r.getVersao();
+            }
+        }
+        boolean haMais = i < alteradas.size() || j < removidas.size()
+                || alteradas.size() == tamanho || removidas.size() == tamanho;
+        resultado.setVersao(haMais ? versao : Math.max(desde, ate));
+        resultado.setHaMais(haMais);
+        return resultado;
+    }
+
+    @Scheduled(cron = "${app.sincronizacao.limpeza-cron:0 30 * * * *}")
+    public void compactar() {
+        LocalDateTime limite = LocalDateTime.now().minusHours(retencaoHoras);
+        Integer removidas = transacao.execute(status -> {
+            Long maior = removidaRepository.buscarMaiorVersaoAntesDe(limite);
+            if (maior == null) {
+                return 0;
+            }
+            // Na mesma transacao da limpeza: a marca nunca fica atrás de remocoes já apagadas
+            contadorVersoes.registrarCompactacao(maior);
+            return removidaRepository.removerAntesDe(limite);
+        });
+        logger.info("{} marca(s) de remocao compactada(s)", removidas);
+        contadorVersoes.descartarExpiradas();
+    }
+
+    long versaoSegura() {
+        return contadorVersoes.versaoSegura();
+    }
+
+    private static long valor(Long versao) {
+        return versao != null ? versao : 0L;
+    }
+}
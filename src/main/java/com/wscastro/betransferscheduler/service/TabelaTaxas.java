@@ -0,0 +1,153 @@
+package com.wscastro.betransferscheduler.service;
+
+import com.wscastro.betransferscheduler.exception.TaxaInvalidaException;
+import com.wscastro.betransferscheduler.model.Taxa;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Índice imutável das faixas de taxa em duas dimensoes: dias entre agendamento e transferência e valor da
+ * transferência, ambos com limites inclusivos (limite de valor nulo = sem limite).
+ *
+ * <p>O eixo de dias é cortado nos limites de todas as faixas, formando intervalos elementares em que o conjunto
+ * de faixas vigentes nao muda; cada intervalo guarda as suas faixas ordenadas pelo valor mínimo. A busca é uma
+ * busca binária no eixo de dias e outra no de valor, qualquer que seja o número de faixas. A compilacao recusa
+ * faixas que se sobreponham.
+ */
+public final class TabelaTaxas {
+
+    private static final Comparator<Taxa> POR_VALOR_MINIMO = Comparator.comparing(Taxa::getValorMinimo,
+            Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    private final long[] inicios;
+    private final long[] fins;
+    private final Faixas[] faixas;
+    private final int quantidade;
+
+    private TabelaTaxas(long[] inicios, long[] fins, Faixas[] faixas, int quantidade) {
+        this.inicios = inicios;
+        this.fins = fins;
+        this.faixas = faixas;
+        this.quantidade = quantidade;
+    }
+
+    public static TabelaTaxas compilar(List<Taxa> taxas) {
+        TreeSet<Long> cortes = new TreeSet<>();
+        for (Taxa taxa : taxas) {
+            validar(taxa);
+            cortes.add(taxa.getDiasMinimo());
+            cortes.add(taxa.getDiasMaximo() + 1);
+        }
+        long[] limites = cortes.stream().mapToLong(Long::longValue).toArray();
+        int intervalos = Math.max(0, limites.length - 1);
+
+        List<List<Taxa>> porIntervalo = new ArrayList<>(intervalos);
+        for (int i = 0; i < intervalos; i++) {
+            porIntervalo.add(new ArrayList<>());
+        }
+        for (Taxa taxa : taxas) {
+            int primeiro = Arrays.binarySearch(limites, taxa.getDiasMinimo());
+            int ultimo = Arrays.binarySearch(limites, taxa.getDiasMaximo() + 1);
+            for (int i = primeiro; i < ultimo; i++) {
+                porIntervalo.get(i).add(taxa);
+            }
+        }
+
+        long[] inicios = new long[intervalos];
+        long[] fins = new long[intervalos];
+        Faixas[] faixas = new Faixas[intervalos];
+        for (int i = 0; i < intervalos; i++) {
+            inicios[i] = limites[i];
+            fins[i] = limites[i + 1] - 1;
+            faixas[i] = Faixas.de(porIntervalo.get(i), inicios[i]);
+        }
+        return new TabelaTaxas(inicios, fins, faixas, taxas.size());
+    }
+
+    /** Faixa que cobre os dias e o valor, ou {@code null} se nenhuma cobre. */
+    public Taxa buscar(long dias, BigDecimal valor) {
+        int intervalo = ultimoAte(inicios, dias);
+        if (intervalo < 0 || dias > fins[intervalo]) {
+            return null;
+        }
+        return faixas[intervalo].buscar(valor);
+    }
+
+    public int getQuantidade() {
+        return quantidade;
+    }
+
+    private static void validar(Taxa taxa) {
+        if (taxa.getDiasMinimo() > taxa.getDiasMaximo()) {
+            throw new TaxaInvalidaException("Faixa de taxa " + taxa.getId() + " com dias mínimos acima dos máximos");
+        }
+        if (taxa.getValorMinimo() != null && taxa.getValorMaximo() != null
+                && taxa.getValorMinimo().compareTo(taxa.getValorMaximo()) > 0) {
+            throw new TaxaInvalidaException("Faixa de taxa " + taxa.getId() + " com valor mínimo acima do máximo");
+        }
+    }
+
+    /** Índice do último elemento menor ou igual à chave, ou -1. */
+    private static int ultimoAte(long[] ordenado, long chave) {
+        int posicao = Arrays.binarySearch(ordenado, chave);
+        return posicao >= 0 ? posicao : -posicao - 2;
+    }
+
+    /** Faixas vigentes num intervalo de dias, sem sobreposicao de valor, ordenadas pelo valor mínimo. */
+    private static final class Faixas {
+        private final BigDecimal[] minimos;
+        private final BigDecimal[] maximos;
+        private final Taxa[] taxas;
+
+        private Faixas(BigDecimal[] minimos, BigDecimal[] maximos, Taxa[] taxas) {
+            this.minimos = minimos;
+            this.maximos = maximos;
+            this.taxas = taxas;
+        }
+
+        static Faixas de(List<Taxa> vigentes, long dia) {
+            vigentes.sort(POR_VALOR_MINIMO);
+            int n = vigentes.size();
+            BigDecimal[] minimos = new BigDecimal[n];
+            BigDecimal[] maximos = new BigDecimal[n];
+            Taxa[] taxas = new Taxa[n];
+            for (int i = 0; i < n; i++) {
+                Taxa taxa = vigentes.get(i);
+                if (i > 0 && (maximos[i - 1] == null
+                        || (taxa.getValorMinimo() == null || maximos[i - 1].compareTo(taxa.getValorMinimo()) >= 0))) {
+                    throw new TaxaInvalidaException("Faixas de taxa " + taxas[i - 1].getId() + " e " + taxa.getId()
+                            + " se sobrepoem em " + dia + " dia(s)");
+                }
+                minimos[i] = taxa.getValorMinimo();
+                maximos[i] = taxa.getValorMaximo();
+                taxas[i] = taxa;
+            }
+            return new Faixas(minimos, maximos, taxas);
+        }
+
+        Taxa buscar(BigDecimal valor) {
+            // Último mínimo <= valor; um mínimo nulo só pode estar na primeira posicao
+            int baixo = 0;
+            int alto = minimos.length - 1;
+            int encontrado = -1;
+            while (baixo <= alto) {
+                int meio = (baixo + alto) >>> 1;
+                if (minimos[meio] == null || minimos[meio].compareTo(valor) <= 0) {
+                    encontrado = meio;
+                    baixo = meio + 1;
+                } else {
+                    alto = meio - 1;
+                }
+            }
+            if (encontrado < 0 || (maximos[encontrado] != null && valor.compareTo(maximos[encontrado]) > 0)) {
+                return null;
+            }
+            return taxas[encontrado];
+        }
+    }
+}
@@ -4,39 +4,60 @@ import com.wscastro.betransferscheduler.exception.DataEntradaInvalidaException;
 import com.wscastro.betransferscheduler.exception.TaxaInvalidaException;
 import com.wscastro.betransferscheduler.model.Taxa;
 import com.wscastro.betransferscheduler.repository.TaxaRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.List;
 
 @Service
 public class TaxaService {
+    private static final Logger logger = LoggerFactory.getLogger(TaxaService.class);
+
     private final TaxaRepository taxaRepository;
+    private final CalendarioService calendarioService;
 
     @Value("${app.transferencia.dias-limite}")
     private long diasLimite;
 
+    @Value("${app.transferencia.dias-uteis:false}")
+    private boolean diasUteis;
+
+    private volatile TabelaTaxas tabela;
+
     // Setter for testing purposes
     public void setDiasLimite(long diasLimite) {
         this.diasLimite = diasLimite;
     }
 
-    public TaxaService(TaxaRepository taxaRepository) {
+    // Setter for testing purposes
+    public void setDiasUteis(boolean diasUteis) {
+        this.diasUteis = diasUteis;
+    }
+
+    public TaxaService(TaxaRepository taxaRepository, CalendarioService calendarioService) {
         this.taxaRepository = taxaRepository;
+        this.calendarioService = calendarioService;
     }
 
     public BigDecimal calcularTaxa(BigDecimal valor, LocalDateTime dataAgendamento, LocalDateTime dataTransferencia) {
-        long dias = ChronoUnit.DAYS.between(dataAgendamento.toLocalDate(), dataTransferencia.toLocalDate());
+        LocalDate de = dataAgendamento.toLocalDate();
+        LocalDate ate = dataTransferencia.toLocalDate();
+        if (ate.isBefore(de)) {
+            throw new DataEntradaInvalidaException("A data de transferência nao pode ser anterior à data de agendamento.");
+        }
+        long dias = diasUteis ? calendarioService.diasUteisEntre(de, ate) : ChronoUnit.DAYS.between(de, ate);
         validaDistanciaEntreDatas(dias);
 
-        List<Taxa> taxas = taxaRepository.findByDiasMinimoLessThanEqualAndDiasMaximoGreaterThanEqual(dias, dias);
-        if (taxas.isEmpty()) {
-            throw new TaxaInvalidaException("Nao existe taxa aplicável para a data informada.");
+        Taxa taxa = tabela().buscar(dias, valor);
+        if (taxa == null) {
+            throw new TaxaInvalidaException("Nao existe taxa aplicável para a data e o valor informados.");
         }
-        Taxa taxa = taxas.get(0);
 
         BigDecimal taxaPercentual = taxa.getPercentual() != null ? valor.multiply(taxa.getPercentual()) : BigDecimal.ZERO;
         BigDecimal taxaFixa = taxa.getValorFixo() != null ? taxa.getValorFixo() : BigDecimal.ZERO;
@@ -44,12 +65,56 @@ public class TaxaService {
         return taxaPercentual.add(taxaFixa);
     }
 
-    private void validaDistanciaEntreDatas(long dias) {
-        if (dias < 0) {
-            throw new DataEntradaInvalidaException("A data de transferência nao pode ser anterior à data de agendamento.");
+    /**
+     * Compila as faixas e calcula uma taxa para cada uma, de modo que o índice, metadados do JPA e conexao já
+     * estejam prontos quando chegar o primeiro agendamento.
+     */
+    public void aquecer() {
+        List<Taxa> faixas = taxaRepository.findAll();
+        instalar(faixas);
+        LocalDateTime agora = LocalDateTime.now();
+        for (Taxa faixa : faixas) {
+            if (faixa.getDiasMinimo() <= diasLimite && !diasUteis) {
+                BigDecimal valor = faixa.getValorMinimo() != null ? faixa.getValorMinimo() : BigDecimal.ONE;
+                calcularTaxa(valor, agora, agora.plusDays(faixa.getDiasMinimo()));
+            }
         }
+        logger.info("TaxaService aquecido com {} faixa(s) de taxa", faixas.size());
+    }
+
+    /**
+     * Recompila o índice a partir da tabela {@code taxa}, que é alterada fora da aplicacao. Se as faixas novas se
+     * sobrepuserem, o índice anterior continua valendo. Chamado periodicamente por {@link RecargaTaxasAgendada}.
+     */
+    public void recarregarTaxas() {
+        instalar(taxaRepository.findAll());
+    }
+
+    private synchronized void instalar(List<Taxa> faixas) {
+        try {
+            tabela = TabelaTaxas.compilar(faixas);
+        } catch (TaxaInvalidaException e) {
+            if (tabela == null) {
+                throw e;
+            }
+            logger.error("Faixas de taxa inválidas; mantendo as {} faixa(s) anteriores: {}", tabela.getQuantidade(),
+                    e.getMessage());
+        }
+    }
+
+    private TabelaTaxas tabela() {
+        TabelaTaxas atual = tabela;
+        if (atual == null) {
+            recarregarTaxas();
+            atual = tabela;
+        }
+        return atual;
+    }
+
+    private void validaDistanciaEntreDatas(long dias) {
         if (dias > diasLimite) {
-            throw new DataEntradaInvalidaException("A distância entre as datas nao pode ser superior a " + diasLimite + " dias.");
+            throw new DataEntradaInvalidaException("A distância entre as datas nao pode ser superior a " + diasLimite
+                    + (diasUteis ? " dias úteis." : " dias."));
         }
     }
 
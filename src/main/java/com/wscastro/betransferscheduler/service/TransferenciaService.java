@@ -1,20 +1,28 @@
 package com.wscastro.betransferscheduler.service;
 
+import com.wscastro.betransferscheduler.datasource.ContextoLeitura;
 import com.wscastro.betransferscheduler.dto.TransferenciaRequestDTO;
 import com.wscastro.betransferscheduler.dto.TransferenciaResponseDTO;
 import com.wscastro.betransferscheduler.exception.ContasIguaisException;
+import com.wscastro.betransferscheduler.exception.DataEntradaInvalidaException;
+import com.wscastro.betransferscheduler.event.TransferenciaAgendadaEvent;
+import com.wscastro.betransferscheduler.event.TransferenciaRemovidaEvent;
 import com.wscastro.betransferscheduler.exception.DataTransferenciaNaoFuturaException;
 import com.wscastro.betransferscheduler.model.Transferencia;
 import com.wscastro.betransferscheduler.repository.TransferenciaRepository;
+import com.wscastro.betransferscheduler.service.duplicidade.DuplicidadeService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -25,21 +33,49 @@ public class TransferenciaService {
 
     private final TransferenciaRepository repository;
     private final TaxaService taxaService;
-
-    public TransferenciaService(TransferenciaRepository repository, TaxaService taxaService) {
+    private final LimiteSaidaService limiteSaidaService;
+    private final SincronizacaoService sincronizacaoService;
+    private final CacheListagemService cacheListagemService;
+    private final DuplicidadeService duplicidadeService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public TransferenciaService(TransferenciaRepository repository, TaxaService taxaService,
+                                LimiteSaidaService limiteSaidaService, SincronizacaoService sincronizacaoService,
+                                CacheListagemService cacheListagemService, DuplicidadeService duplicidadeService,
+                                ApplicationEventPublisher eventPublisher) {
         this.repository = repository;
         this.taxaService = taxaService;
+        this.limiteSaidaService = limiteSaidaService;
+        this.sincronizacaoService = sincronizacaoService;
+        this.cacheListagemService = cacheListagemService;
+        this.duplicidadeService = duplicidadeService;
+        this.eventPublisher = eventPublisher;
     }
 
+    // Sem verificacao de duplicidade: as recorrências já garantem que cada ocorrência é agendada uma única vez
+    @Transactional
     public TransferenciaResponseDTO agendarTransferencia(TransferenciaRequestDTO dto) {
+        return agendar(dto, null, false);
+    }
+
+    /** Agenda aplicando a política de duplicidade do cliente; {@code cliente} nulo usa a política padrao. */
+    @Transactional
+    public TransferenciaResponseDTO agendarTransferencia(TransferenciaRequestDTO dto, String cliente) {
+        return agendar(dto, cliente, true);
+    }
+
+    private TransferenciaResponseDTO agendar(TransferenciaRequestDTO dto, String cliente, boolean verificarDuplicidade) {
         logger.info("Agendando transferência de {} para {}, valor: {}, data: {}", 
                 dto.getContaOrigem(), dto.getContaDestino(), dto.getValor(), dto.getDataTransferencia());
 
         validarContasDiferentes(dto.getContaOrigem(), dto.getContaDestino());
         validarDataFutura(dto.getDataTransferencia());
+        Long duplicadaDe = verificarDuplicidade ? duplicidadeService.verificar(cliente, dto.getContaOrigem(),
+                dto.getContaDestino(), dto.getValor(), dto.getDataTransferencia()) : null;
 
         LocalDateTime hoje = LocalDateTime.now();
         BigDecimal taxa = taxaService.calcularTaxa(dto.getValor(), hoje, dto.getDataTransferencia());
+        limiteSaidaService.reservar(dto.getContaOrigem(), dto.getDataTransferencia().toLocalDate(), dto.getValor());
 
         Transferencia entity = new Transferencia();
         entity.setContaOrigem(dto.getContaOrigem());
@@ -48,11 +84,16 @@ public class TransferenciaService {
         entity.setTaxa(taxa);
         entity.setDataAgendamento(hoje);
         entity.setDataTransferencia(dto.getDataTransferencia());
+        entity.setVersao(sincronizacaoService.reservarVersao());
 
         repository.save(entity);
+        duplicidadeService.registrar(entity);
+        eventPublisher.publishEvent(new TransferenciaAgendadaEvent(entity));
         logger.info("Transferência agendada com sucesso. ID: {}", entity.getId());
 
-        return new TransferenciaResponseDTO(entity);
+        TransferenciaResponseDTO resposta = new TransferenciaResponseDTO(entity);
+        resposta.setDuplicadaDe(duplicadaDe);
+        return resposta;
     }
 
     private void validarContasDiferentes(String contaOrigem, String contaDestino) {
@@ -70,6 +111,7 @@ public class TransferenciaService {
         }
     }
 
+    @Transactional(readOnly = true)
     public List<TransferenciaResponseDTO> listarTodas() {
         logger.info("Listando todas as transferências");
         return repository.findAll().stream()
@@ -77,20 +119,65 @@ public class TransferenciaService {
                 .collect(Collectors.toList());
     }
 
-    public Page<TransferenciaResponseDTO> listarTodas(Pageable pageable) {
+    @Transactional(readOnly = true)
+    public ListagemPaginada listarTodas(Pageable pageable) {
         logger.info("Listando transferências com paginacao: page={}, size={}", 
                 pageable.getPageNumber(), pageable.getPageSize());
-        return repository.findAll(pageable)
+        long versao = cacheListagemService.versao();
+        Page<TransferenciaResponseDTO> guardada = cacheListagemService.buscar(pageable, versao);
+        if (guardada != null) {
+            return new ListagemPaginada(guardada, cacheListagemService.etag(versao));
+        }
+        Page<TransferenciaResponseDTO> pagina = repository.findAll(pageable)
                 .map(TransferenciaResponseDTO::new);
+        // Uma página lida da réplica pode estar atrasada em relacao à versao atual; nao entra no cache nem
+        // recebe a ETag dessa versao, que levaria o cliente a guardar dados antigos como atuais
+        if (ContextoLeitura.leituraNaReplica()) {
+            return new ListagemPaginada(pagina, null);
+        }
+        cacheListagemService.guardar(pageable, versao, pagina);
+        return new ListagemPaginada(pagina, cacheListagemService.etag(versao));
     }
 
+    @Transactional(readOnly = true)
+    public List<TransferenciaResponseDTO> listarVencimentos(LocalDate inicio, LocalDate fim) {
+        if (fim.isBefore(inicio)) {
+            throw new DataEntradaInvalidaException("A data final nao pode ser anterior à inicial");
+        }
+        logger.info("Listando transferências com vencimento de {} até {}", inicio, fim);
+        return repository.buscarVencimentos(inicio.atStartOfDay(), fim.plusDays(1).atStartOfDay()).stream()
+                .map(TransferenciaResponseDTO::new)
+                .collect(Collectors.toList());
+    }
+
+    @Transactional
     public void deletarTransferencia(Long id) {
         logger.info("Deletando transferência com ID: {}", id);
-        if (!repository.existsById(id)) {
+        Transferencia entity = repository.findById(id).orElseThrow(() -> {
             logger.error("Transferência não encontrada com ID: {}", id);
-            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Transferência não encontrada");
-        }
-        repository.deleteById(id);
+            return new ResponseStatusException(HttpStatus.NOT_FOUND, "Transferência não encontrada");
+        });
+        repository.delete(entity);
+        eventPublisher.publishEvent(new TransferenciaRemovidaEvent(entity));
         logger.info("Transferência deletada com sucesso. ID: {}", id);
     }
+
+    /** Página da listagem e a ETag da versao em que foi lida, ou {@code null} quando veio da réplica. */
+    public static final class ListagemPaginada {
+        private final Page<TransferenciaResponseDTO> pagina;
+        private final String etag;
+
+        public ListagemPaginada(Page<TransferenciaResponseDTO> pagina, String etag) {
+            this.pagina = pagina;
+            this.etag = etag;
+        }
+
+        public Page<TransferenciaResponseDTO> getPagina() {
+            return pagina;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+    }
 }
@@ -0,0 +1,173 @@
+package com.wscastro.betransferscheduler.service.colunar;
+
+import java.util.Arrays;
+
+/**
+ * Bloco imutável de transferências pendentes guardado em colunas paralelas de primitivos, ordenado por vencimento
+ * e id. Cada linha ocupa 48 bytes: vencimento em segundos desde a época (data e hora locais lidas como UTC, de modo
+ * que {@code floorDiv(vencimento, 86400)} é o {@link java.time.LocalDate#toEpochDay() dia}), as duas contas como o
+ * número de 10 dígitos e valor e taxa em centavos.
+ */
+final class BlocoColunar {
+    static final BlocoColunar VAZIO = new BlocoColunar(0);
+
+    final int tamanho;
+    final long[] vencimentos;
+    final long[] ids;
+    final long[] contasOrigem;
+    final long[] contasDestino;
+    final long[] valores;
+    final long[] taxas;
+
+    private BlocoColunar(int tamanho) {
+        this.tamanho = tamanho;
+        this.vencimentos = new long[tamanho];
+        this.ids = new long[tamanho];
+        this.contasOrigem = new long[tamanho];
+        this.contasDestino = new long[tamanho];
+        this.valores = new long[tamanho];
+        this.taxas = new long[tamanho];
+    }
+
+    /** Primeira posicao com vencimento igual ou posterior ao informado ({@code tamanho} se nao houver). */
+    int inicioEm(long vencimento) {
+        int baixo = 0;
+        int alto = tamanho;
+        while (baixo < alto) {
+            int meio = (baixo + alto) >>> 1;
+            if (vencimentos[meio] < vencimento) {
+                baixo = meio + 1;
+            } else {
+                alto = meio;
+            }
+        }
+        return baixo;
+    }
+
+    /** Posicao da linha com este vencimento e id, ou -1. */
+    int localizar(long vencimento, long id) {
+        int posicao = insercao(vencimento, id);
+        return posicao < tamanho && vencimentos[posicao] == vencimento && ids[posicao] == id ? posicao : -1;
+    }
+
+    /** Se a linha {@code i} deste bloco vem antes da linha {@code j} do outro na ordem (vencimento, id). */
+    boolean antes(int i, BlocoColunar outro, int j) {
+        return vencimentos[i] < outro.vencimentos[j]
+                || vencimentos[i] == outro.vencimentos[j] && ids[i] < outro.ids[j];
+    }
+
+    void visitar(int i, VisitantePendente visitante) {
+        visitante.visitar(ids[i], vencimentos[i], contasOrigem[i], contasDestino[i], valores[i], taxas[i]);
+    }
+
+    /** Cópia com a linha inserida na sua posicao; a linha nao pode existir no bloco. */
+    BlocoColunar comLinha(long vencimento, long id, long contaOrigem, long contaDestino, long valor, long taxa) {
+        int posicao = insercao(vencimento, id);
+        BlocoColunar novo = new BlocoColunar(tamanho + 1);
+        novo.copiar(0, this, 0, posicao);
+        novo.gravar(posicao, vencimento, id, contaOrigem, contaDestino, valor, taxa);
+        novo.copiar(posicao + 1, this, posicao, tamanho - posicao);
+        return novo;
+    }
+
+    /** Cópia sem a linha da posicao informada. */
+    BlocoColunar semPosicao(int posicao) {
+        BlocoColunar novo = new BlocoColunar(tamanho - 1);
+        novo.copiar(0, this, 0, posicao);
+        novo.copiar(posicao, this, posicao + 1, tamanho - posicao - 1);
+        return novo;
+    }
+
+    /**
+     * Junta as linhas da base, menos as posicoes removidas (em ordem crescente), com as do delta, descartando as
+     * que vencem antes do corte. O resultado sai ordenado sem reordenar: as duas entradas já estao em ordem.
+     */
+    static BlocoColunar juntar(BlocoColunar base, int[] removidas, BlocoColunar delta, long corte) {
+        int i = base.inicioEm(corte);
+        int j = delta.inicioEm(corte);
+        int r = primeiraDesde(removidas, i);
+        BlocoColunar novo = new BlocoColunar(base.tamanho - i - (removidas.length - r) + delta.tamanho - j);
+        int k = 0;
+        while (i < base.tamanho || j < delta.tamanho) {
+            if (j == delta.tamanho || i < base.tamanho && base.antes(i, delta, j)) {
+                if (r < removidas.length && removidas[r] == i) {
+                    r++;
+                } else {
+                    novo.copiarLinha(k++, base, i);
+                }
+                i++;
+            } else {
+                novo.copiarLinha(k++, delta, j++);
+            }
+        }
+        return novo;
+    }
+
+    /** Índice da primeira posicao removida igual ou posterior a {@code posicao}. */
+    static int primeiraDesde(int[] removidas, int posicao) {
+        int indice = Arrays.binarySearch(removidas, posicao);
+        return indice >= 0 ? indice : -indice - 1;
+    }
+
+    private int insercao(long vencimento, long id) {
+        int baixo = 0;
+        int alto = tamanho;
+        while (baixo < alto) {
+            int meio = (baixo + alto) >>> 1;
+            if (vencimentos[meio] < vencimento || vencimentos[meio] == vencimento && ids[meio] < id) {
+                baixo = meio + 1;
+            } else {
+                alto = meio;
+            }
+        }
+        return baixo;
+    }
+
+    private void gravar(int i, long vencimento, long id, long contaOrigem, long contaDestino, long valor, long taxa) {
+        vencimentos[i] = vencimento;
+        ids[i] = id;
+        contasOrigem[i] = contaOrigem;
+        contasDestino[i] = contaDestino;
+        valores[i] = valor;
+        taxas[i] = taxa;
+    }
+
+    private void copiarLinha(int destino, BlocoColunar origem, int de) {
+        gravar(destino, origem.vencimentos[de], origem.ids[de], origem.contasOrigem[de], origem.contasDestino[de],
+                origem.valores[de], origem.taxas[de]);
+    }
+
+    private void copiar(int destino, BlocoColunar origem, int de, int quantidade) {
+        System.arraycopy(origem.vencimentos, de, vencimentos, destino, quantidade);
+        System.arraycopy(origem.ids, de, ids, destino, quantidade);
+        System.arraycopy(origem.contasOrigem, de, contasOrigem, destino, quantidade);
+        System.arraycopy(origem.contasDestino, de, contasDestino, destino, quantidade);
+        System.arraycopy(origem.valores, de, valores, destino, quantidade);
+        System.arraycopy(origem.taxas, de, taxas, destino, quantidade);
+    }
+
+    /** Monta um bloco a partir de linhas que chegam já em ordem de vencimento e id. */
+    static final class Acumulador {
+        private BlocoColunar bloco = new BlocoColunar(1024);
+        private int tamanho;
+
+        void adicionar(long vencimento, long id, long contaOrigem, long contaDestino, long valor, long taxa) {
+            if (tamanho > 0 && (vencimento < bloco.vencimentos[tamanho - 1]
+                    || vencimento == bloco.vencimentos[tamanho - 1] && id <= bloco.ids[tamanho - 1])) {
+                throw new IllegalStateException("Linhas fora da ordem de vencimento e id: " + id);
+            }
+            if (tamanho == bloco.tamanho) {
+                BlocoColunar maior = new BlocoColunar(bloco.tamanho * 2);
+                maior.copiar(0, bloco, 0, tamanho);
+                bloco = maior;
+            }
+            bloco.gravar(tamanho++, vencimento, id, contaOrigem, contaDestino, valor, taxa);
+        }
+
+        BlocoColunar construir() {
+            BlocoColunar exato = new BlocoColunar(tamanho);
+            exato.copiar(0, bloco, 0, tamanho);
+            return exato;
+        }
+    }
+}
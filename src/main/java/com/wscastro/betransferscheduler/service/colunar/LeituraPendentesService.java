@@ -0,0 +1,366 @@
+package com.wscastro.betransferscheduler.service.colunar;
+
+import com.wscastro.betransferscheduler.dto.ResumoDiarioDTO;
+import com.wscastro.betransferscheduler.event.TransferenciaAgendadaEvent;
+import com.wscastro.betransferscheduler.event.TransferenciaRemovidaEvent;
+import com.wscastro.betransferscheduler.exception.DataEntradaInvalidaException;
+import com.wscastro.betransferscheduler.model.ResumoDiario;
+import com.wscastro.betransferscheduler.model.Transferencia;
+import com.wscastro.betransferscheduler.repository.ResumoDiarioRepository;
+import com.wscastro.betransferscheduler.repository.TransferenciaRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.UnaryOperator;
+
+/**
+ * Modelo de leitura em memória das transferências pendentes (vencimento a partir de hoje) em colunas de primitivos,
+ * para varreduras por janela de vencimento e totais por dia sem carregar entidades nem alocar objetos por linha.
+ * Uma {@link Transferencia} com suas datas, valores e contas ocupa centenas de bytes no heap; aqui cada linha ocupa
+ * 48.
+ *
+ * <p>As linhas ficam numa base grande e imutável, mais um delta pequeno com os agendamentos recentes e a lista das
+ * posicoes da base já removidas; os três sao publicados juntos e trocados por cópia, entao as leituras nunca
+ * travam. Quando delta e remocoes passam de {@code limiteDelta}, tudo é juntado numa base nova, deixando de fora os
+ * dias que já passaram. A juncao roda numa thread própria sobre uma visao fixa; as alteracoes que chegam enquanto
+ * isso sao aplicadas na visao corrente e guardadas, e reaplicadas sobre a base nova no momento da troca.
+ *
+ * <p>O modelo é recarregado do repositório no início e diariamente, e entre as cargas acompanha os eventos
+ * publicados pelo {@code TransferenciaService} depois do commit. A recarga troca a base do mesmo jeito que a juncao:
+ * é lida sem travar o modelo, e os eventos que chegam enquanto isso sao reaplicados sobre ela na troca.
+ */
+@Service
+public class LeituraPendentesService implements SmartInitializingSingleton {
+    private static final Logger logger = LoggerFactory.getLogger(LeituraPendentesService.class);
+
+    private static final long SEGUNDOS_POR_DIA = 86_400;
+    private static final int[] SEM_REMOCOES = new int[0];
+
+    private final TransferenciaRepository repository;
+    private final ResumoDiarioRepository resumoDiarioRepository;
+    private final int limiteDelta;
+    private final Executor compactacao;
+
+    private volatile Visao visao = new Visao(BlocoColunar.VAZIO, BlocoColunar.VAZIO, SEM_REMOCOES);
+    private volatile boolean carregado;
+    // Alteracoes feitas desde o início da compactacao ou da recarga em andamento; null quando nenhuma está rodando
+    private List<UnaryOperator<Visao>> duranteCompactacao;
+    // Muda a cada recarga, que invalida uma compactacao ou recarga iniciada antes dela
+    private long geracao;
+
+    @Autowired
+    public LeituraPendentesService(TransferenciaRepository repository, ResumoDiarioRepository resumoDiarioRepository,
+                                   @Value("${app.leitura-pendentes.limite-delta:1024}") int limiteDelta) {
+        this(repository, resumoDiarioRepository, limiteDelta, Executors.newSingleThreadExecutor(tarefa -> {
+            Thread thread = new Thread(tarefa, "colunar-compactacao");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    LeituraPendentesService(TransferenciaRepository repository, ResumoDiarioRepository resumoDiarioRepository,
+                            int limiteDelta, Executor compactacao) {
+        this.repository = repository;
+        this.resumoDiarioRepository = resumoDiarioRepository;
+        this.limiteDelta = limiteDelta;
+        this.compactacao = compactacao;
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        if (compactacao instanceof ExecutorService) {
+            ((ExecutorService) compactacao).shutdownNow();
+        }
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        carregar();
+    }
+
+    /** Faz a primeira carga, se ainda nao foi feita; para quem depende do modelo já na inicializacao. */
+    public void carregar() {
+        if (!carregado) {
+            recarregar();
+        }
+    }
+
+    /**
+     * Relê as pendentes um dia por vez, só nos dias com agendamentos segundo o resumo diário, para nunca ter mais
+     * que um dia de entidades no heap. A leitura nao trava o modelo: as consultas seguem na visao corrente, e os
+     * eventos que chegam durante a carga sao aplicados nela e guardados para a troca.
+     */
+    @Scheduled(cron = "${app.leitura-pendentes.recarga-cron:0 1 0 * * *}")
+    public void recarregar() {
+        long geracaoRecarga;
+        synchronized (this) {
+            geracaoRecarga = ++geracao;
+            duranteCompactacao = new ArrayList<>();
+        }
+        BlocoColunar base;
+        try {
+            base = ler(LocalDate.now());
+        } catch (RuntimeException e) {
+            trocar(geracaoRecarga, null);
+            throw e;
+        }
+        if (trocar(geracaoRecarga, base)) {
+            carregado = true;
+            logger.info("Modelo colunar de pendentes carregado com {} transferência(s)", base.tamanho);
+        }
+    }
+
+    private BlocoColunar ler(LocalDate hoje) {
+        BlocoColunar.Acumulador acumulador = new BlocoColunar.Acumulador();
+        for (ResumoDiario dia : resumoDiarioRepository.findByDataGreaterThanEqualOrderByDataAsc(hoje)) {
+            if (dia.getQuantidade() > 0) {
+                for (Transferencia t : repository.buscarVencimentos(dia.getData().atStartOfDay(),
+                        dia.getData().plusDays(1).atStartOfDay())) {
+                    acumulador.adicionar(segundos(t.getDataTransferencia()), t.getId(), conta(t.getContaOrigem()),
+                            conta(t.getContaDestino()), centavos(t.getValor()), centavos(t.getTaxa()));
+                }
+            }
+        }
+        return acumulador.construir();
+    }
+
+    // Antes do filtro de duplicidade, que conta com a transferência já no modelo quando é avisado
+    @TransactionalEventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void aoAgendar(TransferenciaAgendadaEvent event) {
+        inserir(event.getTransferencia());
+    }
+
+    @TransactionalEventListener
+    public void aoRemover(TransferenciaRemovidaEvent event) {
+        remover(event.getTransferencia());
+    }
+
+    /** Quantidade de pendentes no modelo. */
+    public int tamanho() {
+        Visao atual = visao;
+        return atual.base.tamanho - atual.removidas.length + atual.delta.tamanho;
+    }
+
+    /**
+     * Entrega ao visitante, em ordem de vencimento e id, as pendentes com vencimento de {@code inicio} até
+     * {@code fim}, inclusive. A varredura lê uma visao fixa do modelo e nao aloca nada por linha.
+     */
+    public void percorrer(LocalDate inicio, LocalDate fim, VisitantePendente visitante) {
+        long de = inicio.toEpochDay() * SEGUNDOS_POR_DIA;
+        long ate = (fim.toEpochDay() + 1) * SEGUNDOS_POR_DIA;
+        Visao atual = visao;
+        BlocoColunar base = atual.base;
+        BlocoColunar delta = atual.delta;
+        int[] removidas = atual.removidas;
+        int i = base.inicioEm(de);
+        int j = delta.inicioEm(de);
+        int r = BlocoColunar.primeiraDesde(removidas, i);
+        for (;;) {
+            boolean temBase = i < base.tamanho && base.vencimentos[i] < ate;
+            boolean temDelta = j < delta.tamanho && delta.vencimentos[j] < ate;
+            if (temBase && (!temDelta || base.antes(i, delta, j))) {
+                while (r < removidas.length && removidas[r] < i) {
+                    r++;
+                }
+                if (r == removidas.length || removidas[r] != i) {
+                    base.visitar(i, visitante);
+                }
+                i++;
+            } else if (temDelta) {
+                delta.visitar(j++, visitante);
+            } else {
+                return;
+            }
+        }
+    }
+
+    /** Quantidade, valor e taxa das pendentes por dia de vencimento, só nos dias com alguma. */
+    public List<ResumoDiarioDTO> resumirPorDia(LocalDate inicio, LocalDate fim) {
+        if (fim.isBefore(inicio)) {
+            throw new DataEntradaInvalidaException("A data final nao pode ser anterior à inicial");
+        }
+        long primeiroDia = inicio.toEpochDay();
+        long dias = fim.toEpochDay() - primeiroDia + 1;
+        if (dias > 366) {
+            throw new DataEntradaInvalidaException("O período consultado nao pode passar de 366 dias");
+        }
+        long[] quantidades = new long[(int) dias];
+        long[] valores = new long[(int) dias];
+        long[] taxas = new long[(int) dias];
+        percorrer(inicio, fim, (id, vencimento, contaOrigem, contaDestino, valor, taxa) -> {
+            int dia = (int) (Math.floorDiv(vencimento, SEGUNDOS_POR_DIA) - primeiroDia);
+            quantidades[dia]++;
+            valores[dia] += valor;
+            taxas[dia] += taxa;
+        });
+
+        List<ResumoDiarioDTO> resumos = new ArrayList<>();
+        for (int dia = 0; dia < dias; dia++) {
+            if (quantidades[dia] > 0) {
+                ResumoDiarioDTO resumo = new ResumoDiarioDTO();
+                resumo.setData(LocalDate.ofEpochDay(primeiroDia + dia));
+                resumo.setQuantidade(quantidades[dia]);
+                resumo.setValorTotal(BigDecimal.valueOf(valores[dia], 2));
+                resumo.setTaxaTotal(BigDecimal.valueOf(taxas[dia], 2));
+                resumos.add(resumo);
+            }
+        }
+        return resumos;
+    }
+
+    synchronized void inserir(Transferencia t) {
+        long vencimento = segundos(t.getDataTransferencia());
+        if (vencimento < inicioDeHoje()) {
+            return;
+        }
+        long id = t.getId();
+        long contaOrigem = conta(t.getContaOrigem());
+        long contaDestino = conta(t.getContaDestino());
+        long valor = centavos(t.getValor());
+        long taxa = centavos(t.getTaxa());
+        // Pode já ter entrado por uma recarga que leu a transferência depois do commit
+        aplicar(atual -> atual.contem(vencimento, id) ? atual : new Visao(atual.base,
+                atual.delta.comLinha(vencimento, id, contaOrigem, contaDestino, valor, taxa), atual.removidas));
+    }
+
+    synchronized void remover(Transferencia t) {
+        long vencimento = segundos(t.getDataTransferencia());
+        long id = t.getId();
+        aplicar(atual -> atual.sem(vencimento, id));
+    }
+
+    private void aplicar(UnaryOperator<Visao> alteracao) {
+        Visao nova = alteracao.apply(visao);
+        visao = nova;
+        if (duranteCompactacao != null) {
+            duranteCompactacao.add(alteracao);
+        } else if (nova.delta.tamanho + nova.removidas.length > limiteDelta) {
+            compactar(nova);
+        }
+    }
+
+    private void compactar(Visao origem) {
+        long geracaoOrigem = geracao;
+        long corte = inicioDeHoje();
+        duranteCompactacao = new ArrayList<>();
+        try {
+            compactacao.execute(() -> {
+                BlocoColunar base = null;
+                try {
+                    base = BlocoColunar.juntar(origem.base, origem.removidas, origem.delta, corte);
+                } catch (RuntimeException e) {
+                    logger.error("Falha ao compactar o modelo colunar de pendentes", e);
+                }
+                trocar(geracaoOrigem, base);
+            });
+        } catch (RejectedExecutionException e) {
+            // Encerrando: o delta simplesmente continua crescendo
+            duranteCompactacao = null;
+        }
+    }
+
+    /**
+     * Troca a base pela compactada ou recarregada e reaplica o que mudou enquanto ela era montada. Devolve
+     * {@code false} se uma recarga posterior invalidou esta base, ou se ela nao pôde ser montada.
+     */
+    private synchronized boolean trocar(long geracaoOrigem, BlocoColunar base) {
+        if (geracaoOrigem != geracao) {
+            return false;
+        }
+        List<UnaryOperator<Visao>> alteracoes = duranteCompactacao;
+        duranteCompactacao = null;
+        if (base == null) {
+            return false;
+        }
+        Visao nova = new Visao(base, BlocoColunar.VAZIO, SEM_REMOCOES);
+        for (UnaryOperator<Visao> alteracao : alteracoes) {
+            nova = alteracao.apply(nova);
+        }
+        visao = nova;
+        logger.debug("Base do modelo colunar de pendentes trocada com {} transferência(s), {} alteracao(oes) "
+                + "reaplicada(s)", base.tamanho, alteracoes.size());
+        if (nova.delta.tamanho + nova.removidas.length > limiteDelta) {
+            compactar(nova);
+        }
+        return true;
+    }
+
+    private static long inicioDeHoje() {
+        return LocalDate.now().toEpochDay() * SEGUNDOS_POR_DIA;
+    }
+
+    // Data e hora locais lidas como UTC: só a ordem e o dia importam, e assim o dia sai da divisao por 86400
+    private static long segundos(LocalDateTime dataHora) {
+        return dataHora.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static long conta(String conta) {
+        return Long.parseLong(conta);
+    }
+
+    // Mesma escala das colunas numeric(19,2) de transferencia
+    private static long centavos(BigDecimal valor) {
+        return valor.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    private static final class Visao {
+        final BlocoColunar base;
+        final BlocoColunar delta;
+        final int[] removidas;
+
+        Visao(BlocoColunar base, BlocoColunar delta, int[] removidas) {
+            this.base = base;
+            this.delta = delta;
+            this.removidas = removidas;
+        }
+
+        boolean contem(long vencimento, long id) {
+            if (delta.localizar(vencimento, id) >= 0) {
+                return true;
+            }
+            int posicao = base.localizar(vencimento, id);
+            return posicao >= 0 && Arrays.binarySearch(removidas, posicao) < 0;
+        }
+
+        /** Visao sem a linha, ou esta mesma se ela nao estiver presente. */
+        Visao sem(long vencimento, long id) {
+            int posicao = delta.localizar(vencimento, id);
+            if (posicao >= 0) {
+                return new Visao(base, delta.semPosicao(posicao), removidas);
+            }
+            posicao = base.localizar(vencimento, id);
+            int indice = Arrays.binarySearch(removidas, posicao);
+            if (posicao < 0 || indice >= 0) {
+                return this;
+            }
+            int insercao = -indice - 1;
+            int[] novas = new int[removidas.length + 1];
+            System.arraycopy(removidas, 0, novas, 0, insercao);
+            novas[insercao] = posicao;
+            System.arraycopy(removidas, insercao, novas, insercao + 1, removidas.length - insercao);
+            return new Visao(base, delta, novas);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.wscastro.betransferscheduler.service.colunar;
+
+/**
+ * Recebe as linhas de uma varredura do {@link LeituraPendentesService} como primitivos, sem objeto por linha.
+ * Vencimento em segundos desde a época, contas como número e valor e taxa em centavos.
+ */
+@FunctionalInterface
+public interface VisitantePendente {
+
+    void visitar(long id, long vencimento, long contaOrigem, long contaDestino, long valor, long taxa);
+}
@@ -0,0 +1,254 @@
+package com.wscastro.betransferscheduler.service.duplicidade;
+
+import com.wscastro.betransferscheduler.event.TransferenciaAgendadaEvent;
+import com.wscastro.betransferscheduler.exception.AgendamentoDuplicadoException;
+import com.wscastro.betransferscheduler.model.PoliticaDuplicidade;
+import com.wscastro.betransferscheduler.model.Transferencia;
+import com.wscastro.betransferscheduler.repository.TransferenciaRepository;
+import com.wscastro.betransferscheduler.service.ContadorVersoes;
+import com.wscastro.betransferscheduler.service.colunar.LeituraPendentesService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PostConstruct;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Detecta o agendamento repetido de uma transferência pendente (mesmas contas, valor e data de transferência) sem
+ * uma consulta ao banco por agendamento. As impressoes das pendentes ficam num {@link FiltroBloom}; só quando o
+ * filtro responde "talvez" a duplicata é confirmada na consulta indexada do repositório.
+ *
+ * <p>O filtro nao remove impressoes: ele é reconstruído todo dia a partir do modelo colunar das pendentes, o que
+ * descarta as vencidas e as canceladas; até lá uma cancelada custa só uma consulta que nao acha nada. Cada
+ * agendamento desta instância entra no filtro antes do commit, para ser detectado logo, e de novo depois dele, já no
+ * modelo colunar, para nao faltar num filtro montado com um retrato tirado entre os dois.
+ *
+ * <p>Os agendamentos das outras instâncias chegam pelo feed de versoes da sincronizacao, lido a cada
+ * {@code app.duplicidade.atualizacao-ms} até a versao segura. Como o modelo colunar só conhece os agendamentos
+ * remotos até a última carga, a reconstrucao repassa ao filtro novo o feed desde o início da reconstrucao anterior;
+ * isso conta com a recarga diária do modelo ({@code app.leitura-pendentes.recarga-cron}) entre as duas.
+ * Entre uma instância e outra a detecao leva até um intervalo; dois agendamentos iguais simultâneos podem passar sem
+ * aviso.
+ *
+ * <p>A política vem do cliente informado no agendamento ({@code app.duplicidade.politicas=cliente:POLITICA,...}),
+ * com {@code app.duplicidade.politica-padrao} para os demais.
+ */
+@Service
+public class DuplicidadeService implements SmartInitializingSingleton {
+    private static final Logger logger = LoggerFactory.getLogger(DuplicidadeService.class);
+
+    private static final int PAGINA_FEED = 1000;
+
+    private final TransferenciaRepository repository;
+    private final LeituraPendentesService leituraPendentesService;
+    private final ContadorVersoes contadorVersoes;
+    private final PoliticaDuplicidade politicaPadrao;
+    private final Map<String, PoliticaDuplicidade> politicas = new HashMap<>();
+    private final long capacidade;
+    private final double taxaFalsoPositivo;
+    private final Counter descartadas;
+    private final Counter confirmadas;
+    private final Counter falsosPositivos;
+
+    private volatile FiltroBloom filtro;
+    // Recebe também os agendamentos feitos enquanto um filtro novo é montado
+    private FiltroBloom emConstrucao;
+    // Protege a leitura do feed: até onde ele já entrou no filtro, e onde estava no início da última reconstrucao
+    private final Object feed = new Object();
+    private long versaoLida;
+    private long versaoDaReconstrucao;
+
+    public DuplicidadeService(TransferenciaRepository repository, LeituraPendentesService leituraPendentesService,
+                              ContadorVersoes contadorVersoes,
+                              @Value("${app.duplicidade.politica-padrao:AVISO}") PoliticaDuplicidade politicaPadrao,
+                              @Value("${app.duplicidade.politicas:}") List<String> politicas,
+                              @Value("${app.duplicidade.capacidade:1000000}") long capacidade,
+                              @Value("${app.duplicidade.taxa-falso-positivo:0.01}") double taxaFalsoPositivo,
+                              MeterRegistry meterRegistry) {
+        this.repository = repository;
+        this.leituraPendentesService = leituraPendentesService;
+        this.contadorVersoes = contadorVersoes;
+        this.politicaPadrao = politicaPadrao;
+        for (String politica : politicas) {
+            String[] partes = politica.split(":");
+            if (partes.length != 2) {
+                throw new IllegalArgumentException("Política de duplicidade inválida: " + politica);
+            }
+            this.politicas.put(partes[0].trim(), PoliticaDuplicidade.valueOf(partes[1].trim()));
+        }
+        this.capacidade = capacidade;
+        this.taxaFalsoPositivo = taxaFalsoPositivo;
+        this.filtro = FiltroBloom.dimensionar(capacidade, taxaFalsoPositivo);
+        this.descartadas = contador(meterRegistry, "descartada");
+        this.confirmadas = contador(meterRegistry, "confirmada");
+        this.falsosPositivos = contador(meterRegistry, "falso-positivo");
+    }
+
+    // Antes de qualquer carga do modelo colunar, que só acontece depois de todos os construtores: tudo que for
+    // confirmado depois da carga está acima desta versao
+    @PostConstruct
+    public void marcarInicio() {
+        long versao = contadorVersoes.versaoSegura();
+        synchronized (feed) {
+            versaoLida = versao;
+            versaoDaReconstrucao = versao;
+        }
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        leituraPendentesService.carregar();
+        reconstruir();
+    }
+
+    /** Inclui no filtro os agendamentos confirmados desde a última leitura, inclusive os de outras instâncias. */
+    @Scheduled(fixedDelayString = "${app.duplicidade.atualizacao-ms:1000}")
+    public void acompanhar() {
+        synchronized (feed) {
+            long ate = contadorVersoes.versaoSegura();
+            if (ate > versaoLida) {
+                lerFeed(versaoLida, ate, this::registrar);
+                versaoLida = ate;
+            }
+        }
+    }
+
+    /**
+     * Monta um filtro novo com as pendentes do modelo colunar e troca o atual por ele. O tamanho acompanha a
+     * quantidade de pendentes, para que a taxa de falso positivo nao suba com o volume.
+     */
+    @Scheduled(cron = "${app.duplicidade.reconstrucao-cron:0 2 0 * * *}")
+    public void reconstruir() {
+        FiltroBloom novo = FiltroBloom.dimensionar(Math.max(capacidade, 2L * leituraPendentesService.tamanho()),
+                taxaFalsoPositivo);
+        // Daqui em diante todo commit chega ao filtro novo por aoAgendar, esteja ou nao no retrato abaixo
+        synchronized (this) {
+            emConstrucao = novo;
+        }
+        LocalDate hoje = LocalDate.now();
+        leituraPendentesService.percorrer(hoje, LocalDate.MAX,
+                (id, vencimento, contaOrigem, contaDestino, valor, taxa) ->
+                        novo.adicionar(impressao(contaOrigem, contaDestino, valor, vencimento)));
+        // Os agendamentos remotos posteriores à última carga do modelo estao no feed; com o feed travado, o que
+        // vier depois de versaoLida entra pelo acompanhar já com o filtro novo em construcao
+        synchronized (feed) {
+            long inicio = versaoLida;
+            lerFeed(versaoDaReconstrucao, versaoLida, t -> novo.adicionar(impressao(t)));
+            versaoDaReconstrucao = inicio;
+        }
+        synchronized (this) {
+            filtro = novo;
+            emConstrucao = null;
+        }
+        logger.info("Filtro de duplicidade reconstruído com {} bits e {} funcoes de hash", novo.bits(), novo.funcoes());
+    }
+
+    public PoliticaDuplicidade politica(String cliente) {
+        return cliente == null ? politicaPadrao : politicas.getOrDefault(cliente, politicaPadrao);
+    }
+
+    /**
+     * Procura um agendamento pendente igual. Devolve o id dele, ou {@code null} se nao houver; com a política
+     * {@link PoliticaDuplicidade#REJEITAR} do cliente, lanca {@link AgendamentoDuplicadoException} em vez de devolver.
+     */
+    public Long verificar(String cliente, String contaOrigem, String contaDestino, BigDecimal valor,
+                          LocalDateTime dataTransferencia) {
+        if (!filtro.podeConter(impressao(contaOrigem, contaDestino, valor, dataTransferencia))) {
+            descartadas.increment();
+            return null;
+        }
+        List<Long> iguais = repository.buscarDuplicadas(contaOrigem, contaDestino, valor, dataTransferencia);
+        if (iguais.isEmpty()) {
+            falsosPositivos.increment();
+            return null;
+        }
+        confirmadas.increment();
+        Long anterior = iguais.get(0);
+        if (politica(cliente) == PoliticaDuplicidade.REJEITAR) {
+            logger.error("Agendamento de {} igual ao {} recusado para o cliente {}", contaOrigem, anterior, cliente);
+            throw new AgendamentoDuplicadoException("Já existe o agendamento " + anterior
+                    + " com as mesmas contas, valor e data de transferência");
+        }
+        logger.warn("Agendamento de {} igual ao {} aceito com aviso para o cliente {}", contaOrigem, anterior, cliente);
+        return anterior;
+    }
+
+    /** Inclui a transferência no filtro. Se a transacao for desfeita, a impressao sobra até a reconstrucao. */
+    public void registrar(Transferencia t) {
+        long impressao = impressao(t);
+        synchronized (this) {
+            filtro.adicionar(impressao);
+            if (emConstrucao != null) {
+                emConstrucao.adicionar(impressao);
+            }
+        }
+    }
+
+    /**
+     * Repete a inclusao depois do commit. Roda depois de {@link LeituraPendentesService#aoAgendar}: se o filtro
+     * novo ainda nao existia aqui, o retrato que vai montá-lo já inclui a transferência.
+     */
+    @TransactionalEventListener
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void aoAgendar(TransferenciaAgendadaEvent event) {
+        registrar(event.getTransferencia());
+    }
+
+    // Em páginas por versao, como a sincronizacao; as vencidas também entram e saem na próxima reconstrucao
+    private void lerFeed(long desde, long ate, Consumer<Transferencia> destino) {
+        long versao = desde;
+        while (versao < ate) {
+            List<Transferencia> pagina = repository.findByVersaoGreaterThanAndVersaoLessThanEqualOrderByVersaoAsc(
+                    versao, ate, PageRequest.of(0, PAGINA_FEED));
+            pagina.forEach(destino);
+            if (pagina.size() < PAGINA_FEED) {
+                break;
+            }
+            versao = pagina.get(pagina.size() - 1).getVersao();
+        }
+    }
+
+    private static long impressao(Transferencia t) {
+        return impressao(t.getContaOrigem(), t.getContaDestino(), t.getValor(), t.getDataTransferencia());
+    }
+
+    // Mesmas unidades do modelo colunar: contas como número, centavos e segundos com a data local lida como UTC
+    private static long impressao(String contaOrigem, String contaDestino, BigDecimal valor,
+                                  LocalDateTime dataTransferencia) {
+        return impressao(Long.parseLong(contaOrigem), Long.parseLong(contaDestino),
+                valor.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact(),
+                dataTransferencia.toEpochSecond(ZoneOffset.UTC));
+    }
+
+    private static long impressao(long contaOrigem, long contaDestino, long valor, long vencimento) {
+        long h = FiltroBloom.misturar(contaOrigem);
+        h = FiltroBloom.misturar(h ^ contaDestino);
+        h = FiltroBloom.misturar(h ^ valor);
+        return FiltroBloom.misturar(h ^ vencimento);
+    }
+
+    private static Counter contador(MeterRegistry meterRegistry, String resultado) {
+        return Counter.builder("duplicidade.verificacoes")
+                .tag("resultado", resultado)
+                .description("Verificacoes de agendamento duplicado por resultado do filtro e da consulta")
+                .register(meterRegistry);
+    }
+}
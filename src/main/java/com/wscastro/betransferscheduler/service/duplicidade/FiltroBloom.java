@@ -0,0 +1,76 @@
+package com.wscastro.betransferscheduler.service.duplicidade;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Filtro de Bloom sobre impressoes de 64 bits. Responde "talvez" ou "com certeza nao": uma resposta negativa
+ * dispensa a consulta ao banco, uma positiva pode ser falsa na taxa para a qual o filtro foi dimensionado. Os
+ * {@code k} bits de cada impressao vêm de dois hashes ({@code h1 + i * h2}), e os bits sao ligados por
+ * compare-and-set, entao inclusoes e consultas concorrentes nao precisam de lock.
+ */
+final class FiltroBloom {
+
+    private final AtomicLongArray palavras;
+    private final long bits;
+    private final int funcoes;
+
+    private FiltroBloom(long bits, int funcoes) {
+        this.palavras = new AtomicLongArray((int) ((bits + 63) >>> 6));
+        this.bits = bits;
+        this.funcoes = funcoes;
+    }
+
+    /** Filtro com bits e funcoes de hash ótimos para {@code capacidade} impressoes com a taxa de falso positivo. */
+    static FiltroBloom dimensionar(long capacidade, double taxaFalsoPositivo) {
+        long n = Math.max(1, capacidade);
+        long bits = Math.max(64, (long) Math.ceil(-n * Math.log(taxaFalsoPositivo) / (Math.log(2) * Math.log(2))));
+        int funcoes = Math.max(1, (int) Math.round((double) bits / n * Math.log(2)));
+        return new FiltroBloom(bits, funcoes);
+    }
+
+    void adicionar(long impressao) {
+        long h1 = impressao;
+        long h2 = segundoHash(impressao);
+        for (int i = 0; i < funcoes; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bits);
+            int indice = (int) (bit >>> 6);
+            long mascara = 1L << bit;
+            long atual = palavras.get(indice);
+            while ((atual & mascara) == 0 && !palavras.compareAndSet(indice, atual, atual | mascara)) {
+                atual = palavras.get(indice);
+            }
+        }
+    }
+
+    boolean podeConter(long impressao) {
+        long h1 = impressao;
+        long h2 = segundoHash(impressao);
+        for (int i = 0; i < funcoes; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bits);
+            if ((palavras.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    long bits() {
+        return bits;
+    }
+
+    int funcoes() {
+        return funcoes;
+    }
+
+    // Ímpar para que os k bits de uma impressao nunca se repitam por ciclo curto
+    private static long segundoHash(long impressao) {
+        return misturar(impressao ^ 0x9E3779B97F4A7C15L) | 1;
+    }
+
+    /** Finalizador do SplitMix64: espalha cada bit da entrada por todos os bits da saída. */
+    static long misturar(long x) {
+        x = (x ^ (x >>> 30)) * 0xBF58476D1CE4E5B9L;
+        x = (x ^ (x >>> 27)) * 0x94D049BB133111EBL;
+        return x ^ (x >>> 31);
+    }
+}
@@ -0,0 +1,89 @@
+package com.wscastro.betransferscheduler.service.fluxo;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Buffer circular de tamanho fixo, sem locks, com múltiplos produtores. Cada evento recebe uma sequência
+ * crescente (a partir de 1) que também serve de id para o Last-Event-ID. Leitores mantêm a própria posicao;
+ * quem ficar mais de {@code capacidade} eventos para trás perde os mais antigos e precisa ressincronizar.
+ */
+public class AnelEventos<T> {
+
+    private final AtomicReferenceArray<Celula<T>> celulas;
+    private final int mascara;
+    private final AtomicLong proximaSequencia = new AtomicLong(1);
+
+    public AnelEventos(int capacidade) {
+        if (capacidade <= 0 || Integer.bitCount(capacidade) != 1) {
+            throw new IllegalArgumentException("A capacidade deve ser uma potência de 2: " + capacidade);
+        }
+        this.celulas = new AtomicReferenceArray<>(capacidade);
+        this.mascara = capacidade - 1;
+    }
+
+    public long publicar(T valor) {
+        long sequencia = proximaSequencia.getAndIncrement();
+        Celula<T> nova = new Celula<>(sequencia, valor);
+        int i = indice(sequencia);
+        // Um produtor atrasado nunca sobrescreve um evento mais novo que já ocupou a mesma posicao
+        while (true) {
+            Celula<T> atual = celulas.get(i);
+            if ((atual != null && atual.sequencia > sequencia) || celulas.compareAndSet(i, atual, nova)) {
+                return sequencia;
+            }
+        }
+    }
+
+    /** Sequência do último evento reservado por um produtor (0 se nenhum). */
+    public long ultimaSequencia() {
+        return proximaSequencia.get() - 1;
+    }
+
+    /**
+     * Copia para {@code destino} até {@code maximo} eventos a partir de {@code desde}, parando no primeiro
+     * que ainda nao foi publicado. Retorna false se {@code desde} já foi sobrescrito.
+     */
+    public boolean ler(long desde, int maximo, List<Celula<T>> destino) {
+        long sequencia = desde;
+        while (destino.size() < maximo) {
+            Celula<T> celula = celulas.get(indice(sequencia));
+            if (celula == null || celula.sequencia < sequencia) {
+                return true;
+            }
+            if (celula.sequencia > sequencia) {
+                return false;
+            }
+            destino.add(celula);
+            sequencia++;
+        }
+        return true;
+    }
+
+    public int capacidade() {
+        return mascara + 1;
+    }
+
+    private int indice(long sequencia) {
+        return (int) (sequencia & mascara);
+    }
+
+    public static final class Celula<T> {
+        private final long sequencia;
+        private final T valor;
+
+        private Celula(long sequencia, T valor) {
+            this.sequencia = sequencia;
+            this.valor = valor;
+        }
+
+        public long getSequencia() {
+            return sequencia;
+        }
+
+        public T getValor() {
+            return valor;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.wscastro.betransferscheduler.service.fluxo;
+
+import com.wscastro.betransferscheduler.dto.TransferenciaResponseDTO;
+import com.wscastro.betransferscheduler.model.TipoEvento;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor
+public class EventoFluxo {
+    private final TipoEvento tipo;
+    private final TransferenciaResponseDTO transferencia;
+}
@@ -0,0 +1,223 @@
+package com.wscastro.betransferscheduler.service.fluxo;
+
+import com.wscastro.betransferscheduler.dto.TransferenciaResponseDTO;
+import com.wscastro.betransferscheduler.event.TransferenciaAgendadaEvent;
+import com.wscastro.betransferscheduler.event.TransferenciaAlteradaEvent;
+import com.wscastro.betransferscheduler.event.TransferenciaRemovidaEvent;
+import com.wscastro.betransferscheduler.model.TipoEvento;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Publica em Server-Sent Events as criacoes, alteracoes e remocoes de agendamentos. Os eventos ficam num
+ * {@link AnelEventos} de tamanho fixo e cada assinante avanca no próprio ritmo; quem ficar para trás
+ * além da capacidade do anel recebe um evento "RESSINCRONIZAR" e é desconectado.
+ */
+@Service
+public class FluxoAgendamentosService {
+    private static final Logger logger = LoggerFactory.getLogger(FluxoAgendamentosService.class);
+
+    static final String EVENTO_RESSINCRONIZAR = "RESSINCRONIZAR";
+    private static final int EVENTOS_POR_RODADA = 256;
+
+    private final AnelEventos<EventoFluxo> anel;
+    private final List<Assinante> assinantes = new CopyOnWriteArrayList<>();
+    private final ExecutorService envio;
+    private final int maxAssinantes;
+    private final long timeoutMs;
+    private final long heartbeatMs;
+
+    public FluxoAgendamentosService(@Value("${app.fluxo.capacidade:1024}") int capacidade,
+                                    @Value("${app.fluxo.max-assinantes:100}") int maxAssinantes,
+                                    @Value("${app.fluxo.threads-envio:4}") int threadsEnvio,
+                                    @Value("${app.fluxo.timeout-ms:1800000}") long timeoutMs,
+                                    @Value("${app.fluxo.heartbeat-ms:15000}") long heartbeatMs) {
+        this.anel = new AnelEventos<>(capacidade);
+        this.maxAssinantes = maxAssinantes;
+        this.timeoutMs = timeoutMs;
+        this.heartbeatMs = heartbeatMs;
+        AtomicInteger contador = new AtomicInteger();
+        this.envio = Executors.newFixedThreadPool(threadsEnvio, r -> {
+            Thread thread = new Thread(r, "fluxo-sse-" + contador.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public SseEmitter assinar(Long ultimoEventoId) {
+        if (assinantes.size() >= maxAssinantes) {
+            logger.error("Limite de {} assinantes do fluxo atingido", maxAssinantes);
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Limite de assinantes do fluxo atingido");
+        }
+
+        long ultima = anel.ultimaSequencia();
+        // Um id maior que o último publicado vem de antes de um reinício: nao há como retomar
+        boolean retomavel = ultimoEventoId == null || ultimoEventoId <= ultima;
+        long inicio = ultimoEventoId != null && retomavel ? ultimoEventoId + 1 : ultima + 1;
+
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Assinante assinante = new Assinante(emitter, inicio);
+        emitter.onCompletion(() -> assinantes.remove(assinante));
+        emitter.onTimeout(() -> {
+            assinantes.remove(assinante);
+            emitter.complete();
+        });
+        emitter.onError(e -> assinantes.remove(assinante));
+        assinantes.add(assinante);
+        logger.info("Novo assinante do fluxo de agendamentos a partir do evento {}", inicio);
+
+        agendarEnvio(assinante, !retomavel);
+        return emitter;
+    }
+
+    @TransactionalEventListener
+    public void aoAgendar(TransferenciaAgendadaEvent event) {
+        publicar(TipoEvento.TRANSFERENCIA_AGENDADA, new TransferenciaResponseDTO(event.getTransferencia()));
+    }
+
+    @TransactionalEventListener
+    public void aoRemover(TransferenciaRemovidaEvent event) {
+        publicar(TipoEvento.TRANSFERENCIA_REMOVIDA, new TransferenciaResponseDTO(event.getTransferencia()));
+    }
+
+    @TransactionalEventListener
+    public void aoAlterar(TransferenciaAlteradaEvent event) {
+        publicar(TipoEvento.TRANSFERENCIA_ALTERADA, new TransferenciaResponseDTO(event.getTransferencia()));
+    }
+
+    void publicar(TipoEvento tipo, TransferenciaResponseDTO transferencia) {
+        anel.publicar(new EventoFluxo(tipo, transferencia));
+        for (Assinante assinante : assinantes) {
+            agendarEnvio(assinante, false);
+        }
+    }
+
+    // Garante entrega de eventos cujo sinal chegou enquanto o assinante estava ocupado, e envia heartbeats
+    @Scheduled(fixedDelayString = "${app.fluxo.intervalo-ms:500}")
+    public void varrer() {
+        for (Assinante assinante : assinantes) {
+            agendarEnvio(assinante, false);
+        }
+    }
+
+    public int quantidadeAssinantes() {
+        return assinantes.size();
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        envio.shutdownNow();
+        for (Assinante assinante : assinantes) {
+            assinante.emitter.complete();
+        }
+        assinantes.clear();
+    }
+
+    private void agendarEnvio(Assinante assinante, boolean ressincronizar) {
+        if (!assinante.ocupado.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            envio.execute(() -> {
+                try {
+                    if (ressincronizar) {
+                        ressincronizar(assinante);
+                    } else {
+                        drenar(assinante);
+                    }
+                } finally {
+                    assinante.ocupado.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            assinante.ocupado.set(false);
+        }
+    }
+
+    private void drenar(Assinante assinante) {
+        List<AnelEventos.Celula<EventoFluxo>> lote = new ArrayList<>(EVENTOS_POR_RODADA);
+        try {
+            while (true) {
+                lote.clear();
+                if (!anel.ler(assinante.proximo, EVENTOS_POR_RODADA, lote)) {
+                    ressincronizar(assinante);
+                    return;
+                }
+                if (lote.isEmpty()) {
+                    break;
+                }
+                for (AnelEventos.Celula<EventoFluxo> celula : lote) {
+                    assinante.emitter.send(SseEmitter.event()
+                            .id(String.valueOf(celula.getSequencia()))
+                            .name(celula.getValor().getTipo().name())
+                            .data(celula.getValor().getTransferencia()));
+                    assinante.proximo = celula.getSequencia() + 1;
+                }
+                assinante.ultimoEnvio = System.currentTimeMillis();
+            }
+            if (System.currentTimeMillis() - assinante.ultimoEnvio >= heartbeatMs) {
+                assinante.emitter.send(SseEmitter.event().comment("heartbeat"));
+                assinante.ultimoEnvio = System.currentTimeMillis();
+            }
+        } catch (IOException | IllegalStateException e) {
+            logger.debug("Assinante do fluxo desconectado: {}", e.getMessage());
+            remover(assinante);
+        }
+    }
+
+    private void ressincronizar(Assinante assinante) {
+        long ultima = anel.ultimaSequencia();
+        logger.warn("Assinante do fluxo atrasado no evento {} (último: {}); solicitando ressincronizacao",
+                assinante.proximo, ultima);
+        try {
+            assinante.emitter.send(SseEmitter.event()
+                    .id(String.valueOf(ultima))
+                    .name(EVENTO_RESSINCRONIZAR)
+                    .data(Collections.singletonMap("ultimoEventoId", ultima)));
+            assinante.emitter.complete();
+        } catch (IOException | IllegalStateException e) {
+            logger.debug("Assinante do fluxo desconectado: {}", e.getMessage());
+        }
+        assinantes.remove(assinante);
+    }
+
+    private void remover(Assinante assinante) {
+        assinantes.remove(assinante);
+        try {
+            assinante.emitter.complete();
+        } catch (IllegalStateException e) {
+            logger.debug("Emitter já finalizado");
+        }
+    }
+
+    private static final class Assinante {
+        private final SseEmitter emitter;
+        private final AtomicBoolean ocupado = new AtomicBoolean();
+        private volatile long proximo;
+        private volatile long ultimoEnvio = System.currentTimeMillis();
+
+        private Assinante(SseEmitter emitter, long proximo) {
+            this.emitter = emitter;
+            this.proximo = proximo;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.wscastro.betransferscheduler.service.outbox;
+
+import com.wscastro.betransferscheduler.model.EventoOutbox;
+import com.wscastro.betransferscheduler.repository.EventoOutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Drena o outbox em lotes, na ordem de gravacao, e marca cada lote como publicado somente depois
+ * que o publicador confirma o envio.
+ */
+@Component
+public class OutboxRelay {
+    private static final Logger logger = LoggerFactory.getLogger(OutboxRelay.class);
+
+    private final EventoOutboxRepository repository;
+    private final PublicadorEventos publicador;
+    private final TransactionTemplate transacao;
+    private final int tamanhoLote;
+    private final long lingerMs;
+    private final long retencaoHoras;
+
+    private final AtomicLong atrasoMs = new AtomicLong();
+    private final Counter publicados;
+    private final Counter falhas;
+
+    public OutboxRelay(EventoOutboxRepository repository,
+                       PublicadorEventos publicador,
+                       PlatformTransactionManager transactionManager,
+                       MeterRegistry meterRegistry,
+                       @Value("${app.outbox.tamanho-lote:100}") int tamanhoLote,
+                       @Value("${app.outbox.linger-ms:50}") long lingerMs,
+                       @Value("${app.outbox.retencao-horas:24}") long retencaoHoras) {
+        this.repository = repository;
+        this.publicador = publicador;
+        this.transacao = new TransactionTemplate(transactionManager);
+        this.tamanhoLote = tamanhoLote;
+        this.lingerMs = lingerMs;
+        this.retencaoHoras = retencaoHoras;
+
+        Gauge.builder("outbox.relay.atraso", atrasoMs, atraso -> atraso.get() / 1000.0)
+                .description("Idade do evento pendente mais antigo no outbox")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("outbox.pendentes", repository, EventoOutboxRepository::countByPublicadoEmIsNull)
+                .description("Eventos ainda nao publicados")
+                .register(meterRegistry);
+        this.publicados = Counter.builder("outbox.relay.publicados").register(meterRegistry);
+        this.falhas = Counter.builder("outbox.relay.falhas").register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.outbox.intervalo-ms:200}")
+    public void drenar() {
+        boolean loteCheio = true;
+        while (loteCheio) {
+            loteCheio = drenarLote();
+        }
+    }
+
+    // Retorna true quando o lote saiu cheio, indicando que provavelmente há mais eventos pendentes
+    boolean drenarLote() {
+        List<EventoOutbox> lote = repository.findByPublicadoEmIsNullOrderByIdAsc(PageRequest.of(0, tamanhoLote));
+        LocalDateTime agora = LocalDateTime.now();
+        if (lote.isEmpty()) {
+            atrasoMs.set(0);
+            return false;
+        }
+
+        long idadeMaisAntigo = Duration.between(lote.get(0).getCriadoEm(), agora).toMillis();
+        atrasoMs.set(Math.max(0, idadeMaisAntigo));
+        if (lote.size() < tamanhoLote && idadeMaisAntigo < lingerMs) {
+            return false;
+        }
+
+        try {
+            publicador.publicar(lote);
+        } catch (Exception e) {
+            // Nada é marcado: o mesmo lote será reenviado na próxima execucao
+            falhas.increment();
+            logger.error("Falha ao publicar lote do outbox iniciado no evento {}: {}", lote.get(0).getId(), e.getMessage());
+            return false;
+        }
+
+        List<Long> ids = lote.stream().map(EventoOutbox::getId).collect(Collectors.toList());
+        transacao.executeWithoutResult(status -> repository.marcarPublicados(ids, agora));
+        publicados.increment(lote.size());
+        logger.debug("Lote de {} evento(s) do outbox publicado", lote.size());
+        return lote.size() == tamanhoLote;
+    }
+
+    @Scheduled(cron = "${app.outbox.limpeza-cron:0 15 * * * *}")
+    public void removerPublicados() {
+        LocalDateTime limite = LocalDateTime.now().minusHours(retencaoHoras);
+        Integer removidos = transacao.execute(status -> repository.removerPublicadosAntesDe(limite));
+        logger.info("{} evento(s) publicado(s) removido(s) do outbox", removidos);
+    }
+}
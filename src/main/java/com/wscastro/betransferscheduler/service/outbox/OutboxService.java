@@ -0,0 +1,61 @@
+package com.wscastro.betransferscheduler.service.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wscastro.betransferscheduler.dto.TransferenciaResponseDTO;
+import com.wscastro.betransferscheduler.event.TransferenciaAgendadaEvent;
+import com.wscastro.betransferscheduler.event.TransferenciaAlteradaEvent;
+import com.wscastro.betransferscheduler.event.TransferenciaRemovidaEvent;
+import com.wscastro.betransferscheduler.model.EventoOutbox;
+import com.wscastro.betransferscheduler.model.TipoEvento;
+import com.wscastro.betransferscheduler.model.Transferencia;
+import com.wscastro.betransferscheduler.repository.EventoOutboxRepository;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+
+@Service
+public class OutboxService {
+
+    private final EventoOutboxRepository repository;
+    private final ObjectMapper objectMapper;
+
+    public OutboxService(EventoOutboxRepository repository, ObjectMapper objectMapper) {
+        this.repository = repository;
+        this.objectMapper = objectMapper;
+    }
+
+    // Gravado na mesma transacao do agendamento: o evento só existe se a transferência existir
+    @EventListener
+    public void aoAgendar(TransferenciaAgendadaEvent event) {
+        registrar(TipoEvento.TRANSFERENCIA_AGENDADA, event.getTransferencia());
+    }
+
+    @EventListener
+    public void aoRemover(TransferenciaRemovidaEvent event) {
+        registrar(TipoEvento.TRANSFERENCIA_REMOVIDA, event.getTransferencia());
+    }
+
+    @EventListener
+    public void aoAlterar(TransferenciaAlteradaEvent event) {
+        registrar(TipoEvento.TRANSFERENCIA_ALTERADA, event.getTransferencia());
+    }
+
+    private void registrar(TipoEvento tipo, Transferencia transferencia) {
+        EventoOutbox evento = new EventoOutbox();
+        evento.setTipo(tipo);
+        evento.setTransferenciaId(transferencia.getId());
+        evento.setPayload(serializar(transferencia));
+        evento.setCriadoEm(LocalDateTime.now());
+        repository.save(evento);
+    }
+
+    private String serializar(Transferencia transferencia) {
+        try {
+            return objectMapper.writeValueAsString(new TransferenciaResponseDTO(transferencia));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Nao foi possível serializar a transferência " + transferencia.getId(), e);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.wscastro.betransferscheduler.service.outbox;
+
+import com.wscastro.betransferscheduler.model.EventoOutbox;
+
+import java.util.List;
+
+/**
+ * Destino dos eventos drenados do outbox. A entrega é "pelo menos uma vez": um lote pode ser
+ * reenviado se o relay cair entre a publicacao e a marcacao, entao os consumidores devem
+ * deduplicar pelo id do evento.
+ */
+public interface PublicadorEventos {
+
+    void publicar(List<EventoOutbox> lote) throws Exception;
+}
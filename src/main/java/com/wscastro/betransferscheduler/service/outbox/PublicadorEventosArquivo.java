@@ -0,0 +1,46 @@
+package com.wscastro.betransferscheduler.service.outbox;
+
+import com.wscastro.betransferscheduler.model.EventoOutbox;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+// Uma linha por evento: id, tipo, id da transferência e payload JSON, separados por tabulacao
+@Component
+@ConditionalOnProperty(name = "app.outbox.publicador", havingValue = "arquivo")
+public class PublicadorEventosArquivo implements PublicadorEventos {
+
+    private final Path arquivo;
+
+    public PublicadorEventosArquivo(@Value("${app.outbox.arquivo:outbox-eventos.log}") String arquivo) {
+        this.arquivo = Paths.get(arquivo);
+    }
+
+    @Override
+    public synchronized void publicar(List<EventoOutbox> lote) throws IOException {
+        StringBuilder linhas = new StringBuilder();
+        for (EventoOutbox evento : lote) {
+            linhas.append(evento.getId()).append('\t')
+                    .append(evento.getTipo()).append('\t')
+                    .append(evento.getTransferenciaId()).append('\t')
+                    .append(evento.getPayload()).append('\n');
+        }
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer buffer = ByteBuffer.wrap(linhas.toString().getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                canal.write(buffer);
+            }
+            canal.force(false);
+        }
+    }
+}
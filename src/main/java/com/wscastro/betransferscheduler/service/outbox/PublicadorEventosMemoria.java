@@ -0,0 +1,37 @@
+package com.wscastro.betransferscheduler.service.outbox;
+
+import com.wscastro.betransferscheduler.model.EventoOutbox;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+@Component
+@ConditionalOnProperty(name = "app.outbox.publicador", havingValue = "memoria", matchIfMissing = true)
+public class PublicadorEventosMemoria implements PublicadorEventos {
+
+    private final int capacidade;
+    private final Deque<EventoOutbox> eventos = new ArrayDeque<>();
+
+    public PublicadorEventosMemoria(@Value("${app.outbox.memoria.capacidade:1000}") int capacidade) {
+        this.capacidade = capacidade;
+    }
+
+    @Override
+    public synchronized void publicar(List<EventoOutbox> lote) {
+        for (EventoOutbox evento : lote) {
+            if (eventos.size() == capacidade) {
+                eventos.removeFirst();
+            }
+            eventos.addLast(evento);
+        }
+    }
+
+    public synchronized List<EventoOutbox> recentes() {
+        return new ArrayList<>(eventos);
+    }
+}
@@ -0,0 +1,105 @@
+package com.wscastro.betransferscheduler.sobrecarga;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limite de requisicoes simultâneas ajustado pela latência medida (estilo Vegas/gradiente). Compara a latência
+ * média recente com a menor latência observada: enquanto a recente fica abaixo do dobro da menor, o limite
+ * cresce aos poucos; quando ela sobe (H2 ou disco mais lentos, fila se formando) o limite cai na mesma proporcao.
+ *
+ * <p>Escritas podem ocupar o limite inteiro; leituras só até {@code fracaoLeitura} dele, de modo que sob
+ * sobrecarga as listagens sao recusadas antes dos agendamentos.
+ */
+public class LimiteAdaptativo {
+
+    private static final int AMOSTRAS_POR_JANELA = 10;
+    private static final int JANELAS_POR_PERIODO = 100;
+    private static final double TOLERANCIA = 2.0;
+    private static final double SUAVIZACAO = 0.2;
+
+    private final int limiteMinimo;
+    private final int limiteMaximo;
+    private final double fracaoLeitura;
+    private final AtomicInteger emAndamento = new AtomicInteger();
+
+    private volatile double limite;
+    private double rttSemCarga;
+    private int janelasNoPeriodo;
+    private long somaRttJanela;
+    private int amostrasJanela;
+    private int maximoEmAndamentoJanela;
+
+    public LimiteAdaptativo(int limiteInicial, int limiteMinimo, int limiteMaximo, double fracaoLeitura) {
+        this.limite = limiteInicial;
+        this.limiteMinimo = limiteMinimo;
+        this.limiteMaximo = limiteMaximo;
+        this.fracaoLeitura = fracaoLeitura;
+    }
+
+    /** Reserva uma vaga; devolve {@code false} se o limite da prioridade já foi atingido. */
+    public boolean adquirir(boolean escrita) {
+        double teto = escrita ? limite : Math.max(1, limite * fracaoLeitura);
+        while (true) {
+            int atual = emAndamento.get();
+            if (atual >= teto) {
+                return false;
+            }
+            if (emAndamento.compareAndSet(atual, atual + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Devolve a vaga. Só as respostas bem-sucedidas entram na medicao: um erro costuma ser rápido e faria o
+     * servidor parecer mais folgado do que está.
+     */
+    public void liberar(long rttNanos, boolean amostraValida) {
+        int simultaneas = emAndamento.getAndDecrement();
+        if (amostraValida) {
+            registrar(rttNanos, simultaneas);
+        }
+    }
+
+    private synchronized void registrar(long rttNanos, int simultaneas) {
+        somaRttJanela += rttNanos;
+        maximoEmAndamentoJanela = Math.max(maximoEmAndamentoJanela, simultaneas);
+        if (++amostrasJanela < AMOSTRAS_POR_JANELA) {
+            return;
+        }
+        double rttCurto = (double) somaRttJanela / amostrasJanela;
+        int maximoEmAndamento = maximoEmAndamentoJanela;
+        somaRttJanela = 0;
+        amostrasJanela = 0;
+        maximoEmAndamentoJanela = 0;
+
+        // Linha de base: a menor latência do período; renovada de tempos em tempos para acompanhar um banco que
+        // ficou mais lento de vez, baixando o limite para esvaziar a fila e medir de novo
+        if (++janelasNoPeriodo >= JANELAS_POR_PERIODO) {
+            janelasNoPeriodo = 0;
+            rttSemCarga = 0;
+            limite = Math.max(limiteMinimo, limite / 2);
+            return;
+        }
+        if (rttSemCarga == 0 || rttCurto < rttSemCarga) {
+            rttSemCarga = rttCurto;
+        }
+
+        double atual = limite;
+        // Com poucas requisicoes em andamento a latência nao diz nada sobre a capacidade; nao cresce à toa
+        if (maximoEmAndamento < atual / 2) {
+            return;
+        }
+        double gradiente = Math.max(0.5, Math.min(1.0, TOLERANCIA * rttSemCarga / rttCurto));
+        double novo = atual * gradiente + Math.sqrt(atual);
+        limite = Math.max(limiteMinimo, Math.min(limiteMaximo, atual * (1 - SUAVIZACAO) + novo * SUAVIZACAO));
+    }
+
+    public double getLimite() {
+        return limite;
+    }
+
+    public int getEmAndamento() {
+        return emAndamento.get();
+    }
+}
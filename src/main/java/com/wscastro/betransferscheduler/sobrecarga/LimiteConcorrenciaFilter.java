@@ -0,0 +1,138 @@
+package com.wscastro.betransferscheduler.sobrecarga;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wscastro.betransferscheduler.exception.ErrorResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Aplica o {@link LimiteAdaptativo} às requisicoes de {@code /agendamentos}. Acima do limite a requisicao é
+ * recusada na hora com 503 e {@code Retry-After}, antes de ocupar thread de bulkhead ou conexao do banco; as
+ * que passam continuam rápidas e o throughput útil se mantém mesmo com mais clientes do que o servidor atende.
+ *
+ * <p>A vaga só é devolvida quando a resposta termina, inclusive nas requisicoes assíncronas dos bulkheads.
+ * O stream de agendamentos fica de fora: é longo por natureza e distorceria a latência medida.
+ */
+public class LimiteConcorrenciaFilter extends OncePerRequestFilter {
+    private static final Logger logger = LoggerFactory.getLogger(LimiteConcorrenciaFilter.class);
+
+    private final LimiteAdaptativo limite;
+    private final ObjectMapper objectMapper;
+    private final long retryAfterSegundos;
+    private final Counter recusadasEscrita;
+    private final Counter recusadasLeitura;
+
+    public LimiteConcorrenciaFilter(LimiteAdaptativo limite, ObjectMapper objectMapper, long retryAfterSegundos,
+                                    MeterRegistry meterRegistry) {
+        this.limite = limite;
+        this.objectMapper = objectMapper;
+        this.retryAfterSegundos = retryAfterSegundos;
+        Gauge.builder("sobrecarga.limite", limite, LimiteAdaptativo::getLimite)
+                .description("Limite atual de requisicoes simultâneas em /agendamentos")
+                .register(meterRegistry);
+        Gauge.builder("sobrecarga.em-andamento", limite, LimiteAdaptativo::getEmAndamento)
+                .description("Requisicoes em andamento em /agendamentos")
+                .register(meterRegistry);
+        this.recusadasEscrita = Counter.builder("sobrecarga.recusadas")
+                .tag("prioridade", "escrita")
+                .description("Requisicoes recusadas pelo limite de concorrência")
+                .register(meterRegistry);
+        this.recusadasLeitura = Counter.builder("sobrecarga.recusadas")
+                .tag("prioridade", "leitura")
+                .description("Requisicoes recusadas pelo limite de concorrência")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getRequestURI().endsWith("/agendamentos/stream");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        boolean escrita = escrita(request);
+        if (!limite.adquirir(escrita)) {
+            (escrita ? recusadasEscrita : recusadasLeitura).increment();
+            recusar(request, response);
+            return;
+        }
+        long inicio = System.nanoTime();
+        AtomicBoolean liberada = new AtomicBoolean();
+        try {
+            chain.doFilter(request, response);
+        } catch (IOException | ServletException | RuntimeException e) {
+            liberar(liberada, inicio, false);
+            throw e;
+        }
+        if (isAsyncStarted(request)) {
+            request.getAsyncContext().addListener(new AsyncListener() {
+                @Override
+                public void onComplete(AsyncEvent event) {
+                    liberar(liberada, inicio, response.getStatus() < 500);
+                }
+
+                @Override
+                public void onTimeout(AsyncEvent event) {
+                    liberar(liberada, inicio, false);
+                }
+
+                @Override
+                public void onError(AsyncEvent event) {
+                    liberar(liberada, inicio, false);
+                }
+
+                @Override
+                public void onStartAsync(AsyncEvent event) {
+                }
+            });
+        } else {
+            liberar(liberada, inicio, response.getStatus() < 500);
+        }
+    }
+
+    private void liberar(AtomicBoolean liberada, long inicio, boolean amostraValida) {
+        if (liberada.compareAndSet(false, true)) {
+            limite.liberar(System.nanoTime() - inicio, amostraValida);
+        }
+    }
+
+    private void recusar(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        logger.error("Limite de concorrência atingido ({} em andamento): recusando {} {}",
+                limite.getEmAndamento(), request.getMethod(), request.getRequestURI());
+        ErrorResponse errorResponse = ErrorResponse.builder()
+                .timestamp(LocalDateTime.now())
+                .status(HttpStatus.SERVICE_UNAVAILABLE.value())
+                .error(HttpStatus.SERVICE_UNAVAILABLE.getReasonPhrase())
+                .message("Servidor sobrecarregado, tente novamente em instantes")
+                .path(request.getRequestURI())
+                .build();
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSegundos));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), errorResponse);
+    }
+
+    private static boolean escrita(HttpServletRequest request) {
+        HttpMethod metodo = HttpMethod.resolve(request.getMethod());
+        return metodo != HttpMethod.GET && metodo != HttpMethod.HEAD && metodo != HttpMethod.OPTIONS;
+    }
+}
@@ -0,0 +1,114 @@
+package com.wscastro.betransferscheduler.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.wscastro.betransferscheduler.dto.TransferenciaResponseDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compara tamanho de payload e vazao de serializacao entre JSON, CBOR e Smile para os DTOs de transferência.
+ * Executar com {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class FormatosSerializacaoBenchmarkTest {
+    private static final Logger logger = LoggerFactory.getLogger(FormatosSerializacaoBenchmarkTest.class);
+
+    private static final int AQUECIMENTO = 20_000;
+    private static final int ITERACOES = 100_000;
+
+    private final Map<String, ObjectMapper> formatos = new LinkedHashMap<>();
+    private TransferenciaResponseDTO transferencia;
+    private Page<TransferenciaResponseDTO> pagina;
+
+    @BeforeEach
+    void setUp() {
+        formatos.put("json", configurar(Jackson2ObjectMapperBuilder.json()));
+        formatos.put("cbor", configurar(Jackson2ObjectMapperBuilder.cbor()));
+        formatos.put("smile", configurar(Jackson2ObjectMapperBuilder.smile()));
+
+        List<TransferenciaResponseDTO> conteudo = new ArrayList<>();
+        LocalDateTime agora = LocalDateTime.now();
+        for (int i = 0; i < 100; i++) {
+            TransferenciaResponseDTO dto = new TransferenciaResponseDTO();
+            dto.setId((long) i + 1);
+            dto.setContaOrigem(String.format("%010d", 1_000_000_000L + i));
+            dto.setContaDestino(String.format("%010d", 2_000_000_000L + i));
+            dto.setValor(new BigDecimal("1234.56").add(BigDecimal.valueOf(i)));
+            dto.setTaxa(new BigDecimal("12.00"));
+            dto.setDataAgendamento(agora);
+            dto.setDataTransferencia(agora.plusDays(i % 50));
+            dto.setVersao((long) i + 1);
+            conteudo.add(dto);
+        }
+        transferencia = conteudo.get(0);
+        pagina = new PageImpl<>(conteudo, PageRequest.of(0, 100), 1_000);
+    }
+
+    @Test
+    void tamanhoDoPayload_FormatosBinariosDevemSerMenoresQueJson() throws Exception {
+        Map<String, Integer> tamanhosPagina = new LinkedHashMap<>();
+        for (Map.Entry<String, ObjectMapper> formato : formatos.entrySet()) {
+            int unico = formato.getValue().writeValueAsBytes(transferencia).length;
+            int paginaBytes = formato.getValue().writeValueAsBytes(pagina).length;
+            tamanhosPagina.put(formato.getKey(), paginaBytes);
+            logger.info("[{}] transferência: {} bytes, página de 100: {} bytes", formato.getKey(), unico, paginaBytes);
+        }
+
+        assertTrue(tamanhosPagina.get("cbor") < tamanhosPagina.get("json"));
+        assertTrue(tamanhosPagina.get("smile") < tamanhosPagina.get("json"));
+    }
+
+    @Test
+    void vazao_SerializacaoEDesserializacaoPorFormato() throws Exception {
+        for (Map.Entry<String, ObjectMapper> formato : formatos.entrySet()) {
+            ObjectMapper mapper = formato.getValue();
+            TransferenciaResponseDTO lido = null;
+            for (int i = 0; i < AQUECIMENTO; i++) {
+                lido = mapper.readValue(mapper.writeValueAsBytes(transferencia), TransferenciaResponseDTO.class);
+            }
+
+            long inicio = System.nanoTime();
+            for (int i = 0; i < ITERACOES; i++) {
+                mapper.writeValueAsBytes(transferencia);
+            }
+            long escrita = System.nanoTime() - inicio;
+
+            byte[] bytes = mapper.writeValueAsBytes(transferencia);
+            inicio = System.nanoTime();
+            for (int i = 0; i < ITERACOES; i++) {
+                lido = mapper.readValue(bytes, TransferenciaResponseDTO.class);
+            }
+            long leitura = System.nanoTime() - inicio;
+
+            logger.info("[{}] escrita: {} ops/s, leitura: {} ops/s", formato.getKey(),
+                    opsPorSegundo(escrita), opsPorSegundo(leitura));
+            assertEquals(transferencia, lido);
+        }
+    }
+
+    private static ObjectMapper configurar(Jackson2ObjectMapperBuilder builder) {
+        // Mesma configuracao de datas aplicada pelo Spring Boot ao ObjectMapper da aplicacao
+        return builder.featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build();
+    }
+
+    private static long opsPorSegundo(long nanos) {
+        return ITERACOES * 1_000_000_000L / Math.max(1, nanos);
+    }
+}
@@ -0,0 +1,139 @@
+package com.wscastro.betransferscheduler.benchmark;
+
+import com.wscastro.betransferscheduler.dto.ResumoDiarioDTO;
+import com.wscastro.betransferscheduler.model.ResumoDiario;
+import com.wscastro.betransferscheduler.model.Transferencia;
+import com.wscastro.betransferscheduler.repository.ResumoDiarioRepository;
+import com.wscastro.betransferscheduler.repository.TransferenciaRepository;
+import com.wscastro.betransferscheduler.service.colunar.LeituraPendentesService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Heap ocupado pelas pendentes como lista de {@link Transferencia} e no modelo colunar do
+ * {@link LeituraPendentesService}, e o custo do total por dia de vencimento nos dois. Executar com
+ * {@code mvn test -Pbenchmark}; o perfil sobe o heap para comportar 10 milhões de entidades.
+ */
+@Tag("benchmark")
+class LeituraPendentesBenchmarkTest {
+    private static final Logger logger = LoggerFactory.getLogger(LeituraPendentesBenchmarkTest.class);
+
+    private static final int DIAS = 50;
+
+    // Estimativa conservadora do heap por entidade com datas, valores e contas próprios
+    private static final long BYTES_POR_ENTIDADE = 600;
+
+    @ParameterizedTest
+    @ValueSource(ints = {1_000_000, 10_000_000})
+    void heapEVarredura_EntidadesContraColunas(int quantidade) {
+        assumeTrue(Runtime.getRuntime().maxMemory() > quantidade * BYTES_POR_ENTIDADE,
+                "Heap insuficiente para " + quantidade + " entidades");
+        LocalDate amanha = LocalDate.now().plusDays(1);
+
+        // Colunas primeiro: medidas depois das entidades, herdariam o lixo que um único GC nao recolhe
+        long antes = heapUsado();
+        LeituraPendentesService colunas = carregarColunas(amanha, quantidade);
+        long bytesColunas = heapUsado() - antes;
+        long nanosColunas = somarColunas(colunas, amanha);
+
+        antes = heapUsado();
+        List<Transferencia> entidades = new ArrayList<>(quantidade);
+        for (int dia = 0; dia < DIAS; dia++) {
+            entidades.addAll(gerarDia(amanha, dia, quantidade));
+        }
+        long bytesEntidades = heapUsado() - antes;
+        long nanosEntidades = somarEntidades(entidades);
+
+        logger.info("{} pendentes: entidades {} MB ({} bytes/linha), colunas {} MB ({} bytes/linha)", quantidade,
+                bytesEntidades >> 20, bytesEntidades / quantidade, bytesColunas >> 20, bytesColunas / quantidade);
+        logger.info("Total por dia de {} pendentes: entidades {} ns/linha, colunas {} ns/linha", quantidade,
+                nanosEntidades / quantidade, nanosColunas / quantidade);
+        assertEquals(quantidade, colunas.tamanho());
+        assertTrue(bytesColunas * 4 < bytesEntidades);
+    }
+
+    private LeituraPendentesService carregarColunas(LocalDate amanha, int quantidade) {
+        TransferenciaRepository repository = mock(TransferenciaRepository.class);
+        ResumoDiarioRepository resumoDiarioRepository = mock(ResumoDiarioRepository.class);
+        List<ResumoDiario> dias = new ArrayList<>();
+        for (int dia = 0; dia < DIAS; dia++) {
+            ResumoDiario resumo = new ResumoDiario();
+            resumo.setData(amanha.plusDays(dia));
+            resumo.setQuantidade((long) quantidade / DIAS);
+            dias.add(resumo);
+        }
+        when(resumoDiarioRepository.findByDataGreaterThanEqualOrderByDataAsc(any())).thenReturn(dias);
+        // Cada dia é gerado só quando pedido, em ordem de vencimento e id, como numa leitura do banco
+        when(repository.buscarVencimentos(any(), any())).thenAnswer(invocacao -> gerarDia(amanha,
+                (int) (invocacao.<LocalDateTime>getArgument(0).toLocalDate().toEpochDay() - amanha.toEpochDay()),
+                quantidade));
+
+        LeituraPendentesService colunas = new LeituraPendentesService(repository, resumoDiarioRepository, 1024);
+        colunas.recarregar();
+        return colunas;
+    }
+
+    private static List<Transferencia> gerarDia(LocalDate amanha, int dia, int quantidade) {
+        int porDia = quantidade / DIAS;
+        List<Transferencia> transferencias = new ArrayList<>(porDia);
+        LocalDateTime vencimento = amanha.plusDays(dia).atTime(9, 0);
+        for (int i = 0; i < porDia; i++) {
+            long id = (long) dia * porDia + i + 1;
+            Transferencia t = new Transferencia();
+            t.setId(id);
+            t.setContaOrigem(String.format("%010d", 1_000_000_000L + id % 100_000));
+            t.setContaDestino(String.format("%010d", 2_000_000_000L + id % 100_000));
+            t.setValor(BigDecimal.valueOf(10_000 + id % 1_000_000, 2));
+            t.setTaxa(BigDecimal.valueOf(1_200 + id % 500, 2));
+            t.setDataAgendamento(LocalDateTime.now().withNano(0).plusSeconds(id % 3_600));
+            t.setDataTransferencia(vencimento.plusSeconds(i * 28_800L / porDia));
+            t.setVersao(id);
+            transferencias.add(t);
+        }
+        return transferencias;
+    }
+
+    private static long somarEntidades(List<Transferencia> entidades) {
+        Map<LocalDate, BigDecimal> totais = new TreeMap<>();
+        long inicio = System.nanoTime();
+        for (Transferencia t : entidades) {
+            totais.merge(t.getDataTransferencia().toLocalDate(), t.getValor(), BigDecimal::add);
+        }
+        long decorrido = System.nanoTime() - inicio;
+        assertEquals(DIAS, totais.size());
+        return decorrido;
+    }
+
+    private static long somarColunas(LeituraPendentesService colunas, LocalDate amanha) {
+        // Aquecimento do JIT na varredura
+        colunas.resumirPorDia(amanha, amanha.plusDays(1));
+        long inicio = System.nanoTime();
+        List<ResumoDiarioDTO> totais = colunas.resumirPorDia(amanha, amanha.plusDays(DIAS - 1));
+        long decorrido = System.nanoTime() - inicio;
+        assertEquals(DIAS, totais.size());
+        return decorrido;
+    }
+
+    private static long heapUsado() {
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,116 @@
+package com.wscastro.betransferscheduler.benchmark;
+
+import com.wscastro.betransferscheduler.sobrecarga.LimiteAdaptativo;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Teste de carga do {@link LimiteAdaptativo}: clientes em laço fechado (metade escritas, metade listagens) contra
+ * um servidor simulado com capacidade fixa (4 "conexoes" de 5 ms). Mede o goodput, isto é, respostas dentro do
+ * SLO por segundo, com carga normal e com 16x mais clientes do que o servidor atende, com e sem o limite.
+ * Executar com {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class LimiteAdaptativoSobrecargaBenchmarkTest {
+    private static final Logger logger = LoggerFactory.getLogger(LimiteAdaptativoSobrecargaBenchmarkTest.class);
+
+    private static final int CONEXOES = 4;
+    private static final long SERVICO_MS = 5;
+    private static final long SLO_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long AQUECIMENTO_MS = 1_000;
+    private static final long MEDICAO_MS = 4_000;
+    private static final long ESPERA_APOS_RECUSA_MS = 10;
+
+    @Test
+    void goodput_SobSobrecargaComLimite_DeveSeManterProximoDaCargaNormal() throws Exception {
+        Resultado normal = executar(8, true);
+        Resultado sobrecarga = executar(128, true);
+        Resultado semLimite = executar(128, false);
+
+        assertTrue(sobrecarga.goodput() >= normal.goodput() * 0.7,
+                "goodput sob sobrecarga caiu demais: " + sobrecarga.goodput() + " de " + normal.goodput());
+        assertTrue(sobrecarga.goodput() > semLimite.goodput() * 2,
+                "o limite deveria preservar o goodput: " + sobrecarga.goodput() + " contra " + semLimite.goodput());
+        assertTrue(sobrecarga.escritas > sobrecarga.leituras, "escritas deveriam ter prioridade sobre listagens");
+    }
+
+    private Resultado executar(int clientes, boolean comLimite) throws Exception {
+        LimiteAdaptativo limite = new LimiteAdaptativo(20, 4, 200, 0.75);
+        Semaphore conexoes = new Semaphore(CONEXOES, true);
+        AtomicLong escritas = new AtomicLong();
+        AtomicLong leituras = new AtomicLong();
+        AtomicLong recusadas = new AtomicLong();
+        long inicioMedicao = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(AQUECIMENTO_MS);
+        long fim = inicioMedicao + TimeUnit.MILLISECONDS.toNanos(MEDICAO_MS);
+
+        ExecutorService executor = Executors.newFixedThreadPool(clientes);
+        List<Future<?>> futuros = new ArrayList<>();
+        for (int i = 0; i < clientes; i++) {
+            boolean escrita = i % 2 == 0;
+            futuros.add(executor.submit(() -> {
+                while (System.nanoTime() < fim) {
+                    long inicio = System.nanoTime();
+                    if (comLimite && !limite.adquirir(escrita)) {
+                        if (inicio >= inicioMedicao) {
+                            recusadas.incrementAndGet();
+                        }
+                        Thread.sleep(ESPERA_APOS_RECUSA_MS);
+                        continue;
+                    }
+                    conexoes.acquire();
+                    try {
+                        Thread.sleep(SERVICO_MS);
+                    } finally {
+                        conexoes.release();
+                    }
+                    long rtt = System.nanoTime() - inicio;
+                    if (comLimite) {
+                        limite.liberar(rtt, true);
+                    }
+                    if (inicio >= inicioMedicao && rtt <= SLO_NANOS) {
+                        (escrita ? escritas : leituras).incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> futuro : futuros) {
+            futuro.get();
+        }
+        executor.shutdown();
+
+        Resultado resultado = new Resultado(escritas.get(), leituras.get());
+        logger.info("[{} clientes, limite {}] goodput: {} req/s (escritas {}, listagens {}), recusadas: {}/s, limite final: {}",
+                clientes, comLimite ? "ligado" : "desligado", resultado.goodput(),
+                resultado.escritas * 1_000 / MEDICAO_MS, resultado.leituras * 1_000 / MEDICAO_MS,
+                recusadas.get() * 1_000 / MEDICAO_MS, Math.round(limite.getLimite()));
+        return resultado;
+    }
+
+    private static class Resultado {
+        private final long escritas;
+        private final long leituras;
+
+        Resultado(long escritas, long leituras) {
+            this.escritas = escritas;
+            this.leituras = leituras;
+        }
+
+        long goodput() {
+            return (escritas + leituras) * 1_000 / MEDICAO_MS;
+        }
+    }
+}
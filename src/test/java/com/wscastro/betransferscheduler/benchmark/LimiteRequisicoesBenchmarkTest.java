@@ -0,0 +1,87 @@
+package com.wscastro.betransferscheduler.benchmark;
+
+import com.wscastro.betransferscheduler.service.LimiteRequisicoesService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Custo do {@link LimiteRequisicoesService} por agendamento com milhoes de contas de origem distintas: primeiro
+ * contato (cria o balde), contas já conhecidas e uma única conta disputada por todas as threads, além da memória
+ * ocupada pelos baldes. Executar com {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class LimiteRequisicoesBenchmarkTest {
+    private static final Logger logger = LoggerFactory.getLogger(LimiteRequisicoesBenchmarkTest.class);
+
+    private static final int CONTAS = 2_000_000;
+    private static final int THREADS = Runtime.getRuntime().availableProcessors();
+
+    @Test
+    void custoPorAgendamento_ComMilhoesDeContas() throws Exception {
+        String[] contas = new String[CONTAS];
+        for (int i = 0; i < CONTAS; i++) {
+            contas[i] = String.format("%010d", 1_000_000_000L + i);
+        }
+        LimiteRequisicoesService limite = new LimiteRequisicoesService(60, 20, CONTAS);
+
+        long heapAntes = heapUsado();
+        long novas = medir(limite, contas, 1);
+        long bytesPorConta = (heapUsado() - heapAntes) / CONTAS;
+        long conhecidas = medir(limite, contas, 5);
+
+        String[] disputada = new String[CONTAS];
+        Arrays.fill(disputada, "1234567890");
+        LimiteRequisicoesService folgado = new LimiteRequisicoesService(Integer.MAX_VALUE / 2, Integer.MAX_VALUE / 2,
+                CONTAS);
+        long mesmaConta = medir(folgado, disputada, 1);
+
+        logger.info("{} threads, {} contas: primeiro contato {} ns/op, contas conhecidas {} ns/op, "
+                        + "uma conta disputada {} ns/op, ~{} bytes por conta acompanhada",
+                THREADS, CONTAS, novas, conhecidas, mesmaConta, bytesPorConta);
+        assertTrue(conhecidas < 10_000, "consumir deveria custar poucos microssegundos: " + conhecidas + " ns");
+    }
+
+    /** Todas as threads percorrem as contas {@code voltas} vezes; devolve o custo médio por chamada. */
+    private static long medir(LimiteRequisicoesService limite, String[] contas, int voltas) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futuros = new ArrayList<>();
+        long inicio = System.nanoTime();
+        for (int t = 0; t < THREADS; t++) {
+            int deslocamento = t;
+            futuros.add(executor.submit(() -> {
+                for (int volta = 0; volta < voltas; volta++) {
+                    for (int i = deslocamento; i < contas.length; i += THREADS) {
+                        try {
+                            limite.consumir(contas[i]);
+                        } catch (RuntimeException e) {
+                            // conta no limite: a recusa também faz parte do custo medido
+                        }
+                    }
+                }
+            }));
+        }
+        for (Future<?> futuro : futuros) {
+            futuro.get();
+        }
+        long decorrido = System.nanoTime() - inicio;
+        executor.shutdown();
+        return decorrido * THREADS / ((long) contas.length * voltas);
+    }
+
+    private static long heapUsado() {
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,88 @@
+package com.wscastro.betransferscheduler.benchmark;
+
+import com.wscastro.betransferscheduler.model.Transferencia;
+import com.wscastro.betransferscheduler.repository.TransferenciaRepository;
+import com.wscastro.betransferscheduler.repository.log.LogTransferenciaRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compara a vazao de insercao do log de transferências com o repositório JPA sobre H2. Cada insercao roda
+ * na sua própria transacao, como no agendamento. Executar com {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@DataJpaTest
+@Sql({"/schema.sql"})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class LogTransferenciaRepositoryBenchmarkTest {
+    private static final Logger logger = LoggerFactory.getLogger(LogTransferenciaRepositoryBenchmarkTest.class);
+
+    private static final int AQUECIMENTO = 5_000;
+    private static final int ITERACOES = 50_000;
+
+    @Autowired
+    private TransferenciaRepository jpaRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    Path diretorio;
+
+    @Test
+    void vazaoDeInsercao_LogDeveSuperarH2() {
+        TransactionTemplate transacao = new TransactionTemplate(transactionManager);
+        LogTransferenciaRepository logRepository =
+                new LogTransferenciaRepository(diretorio, 64 * 1024 * 1024, 0.5, false, null);
+        try {
+            inserir(jpaRepository, transacao, AQUECIMENTO);
+            inserir(logRepository, transacao, AQUECIMENTO);
+
+            long h2 = inserir(jpaRepository, transacao, ITERACOES);
+            long log = inserir(logRepository, transacao, ITERACOES);
+
+            logger.info("Insercoes por segundo - H2/JPA: {}, log: {}", opsPorSegundo(h2), opsPorSegundo(log));
+            assertEquals(AQUECIMENTO + ITERACOES, logRepository.count());
+            assertTrue(log < h2, "O log deveria inserir mais rápido que o H2");
+        } finally {
+            logRepository.fechar();
+            jpaRepository.deleteAll();
+        }
+    }
+
+    private static long inserir(TransferenciaRepository repository, TransactionTemplate transacao, int quantidade) {
+        LocalDateTime agora = LocalDateTime.now();
+        long inicio = System.nanoTime();
+        for (int i = 0; i < quantidade; i++) {
+            Transferencia transferencia = new Transferencia();
+            transferencia.setContaOrigem(String.format("%010d", 1_000_000_000L + i % 1_000));
+            transferencia.setContaDestino("0987654321");
+            transferencia.setValor(new BigDecimal("100.00"));
+            transferencia.setTaxa(new BigDecimal("12.00"));
+            transferencia.setDataAgendamento(agora);
+            transferencia.setDataTransferencia(agora.plusDays(i % 50));
+            transacao.executeWithoutResult(status -> repository.save(transferencia));
+        }
+        return System.nanoTime() - inicio;
+    }
+
+    private static long opsPorSegundo(long nanos) {
+        return ITERACOES * 1_000_000_000L / Math.max(1, nanos);
+    }
+}
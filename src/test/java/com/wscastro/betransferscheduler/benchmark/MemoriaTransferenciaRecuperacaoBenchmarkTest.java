@@ -0,0 +1,73 @@
+package com.wscastro.betransferscheduler.benchmark;
+
+import com.wscastro.betransferscheduler.model.Transferencia;
+import com.wscastro.betransferscheduler.repository.memoria.MemoriaTransferenciaRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Mede o tempo de recuperacao do armazenamento em memória: 90% dos agendamentos vêm do snapshot e os 10%
+ * restantes da reproducao do diário. Executar com {@code mvn test -Pbenchmark}; o perfil sobe o heap para
+ * comportar 10 milhões de agendamentos.
+ */
+@Tag("benchmark")
+class MemoriaTransferenciaRecuperacaoBenchmarkTest {
+    private static final Logger logger = LoggerFactory.getLogger(MemoriaTransferenciaRecuperacaoBenchmarkTest.class);
+
+    // Estimativa conservadora do heap ocupado por agendamento, contando estado e snapshot em andamento
+    private static final long BYTES_POR_AGENDAMENTO = 800;
+
+    @TempDir
+    Path diretorio;
+
+    @ParameterizedTest
+    @ValueSource(ints = {1_000_000, 10_000_000})
+    void recuperacao_SnapshotMaisDiario(int quantidade) {
+        assumeTrue(Runtime.getRuntime().maxMemory() > quantidade * BYTES_POR_AGENDAMENTO,
+                "Heap insuficiente para " + quantidade + " agendamentos");
+        popular(quantidade);
+        System.gc();
+
+        long inicio = System.nanoTime();
+        MemoriaTransferenciaRepository recuperado = new MemoriaTransferenciaRepository(diretorio, false, null);
+        long milis = (System.nanoTime() - inicio) / 1_000_000;
+
+        logger.info("Recuperacao de {} agendamentos: {} ms ({} por segundo)",
+                quantidade, milis, quantidade * 1000L / Math.max(1, milis));
+        assertEquals(quantidade, recuperado.count());
+        assertTrue(recuperado.existsById((long) quantidade));
+    }
+
+    private void popular(int quantidade) {
+        // Sem fsync por escrita: a carga só precisa estar em disco antes da reabertura
+        MemoriaTransferenciaRepository repository = new MemoriaTransferenciaRepository(diretorio, false, null);
+        LocalDateTime agora = LocalDateTime.now();
+        int noSnapshot = quantidade / 10 * 9;
+        for (int i = 0; i < quantidade; i++) {
+            if (i == noSnapshot) {
+                repository.gerarSnapshot();
+            }
+            Transferencia transferencia = new Transferencia();
+            transferencia.setContaOrigem(String.format("%010d", 1_000_000_000L + i % 100_000));
+            transferencia.setContaDestino("0987654321");
+            transferencia.setValor(BigDecimal.valueOf(10_000 + i % 1_000_000, 2));
+            transferencia.setTaxa(new BigDecimal("12.00"));
+            transferencia.setDataAgendamento(agora);
+            transferencia.setDataTransferencia(agora.plusDays(i % 50));
+            transferencia.setVersao((long) i + 1);
+            repository.save(transferencia);
+        }
+        repository.flush();
+    }
+}
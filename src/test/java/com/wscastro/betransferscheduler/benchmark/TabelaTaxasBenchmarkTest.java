@@ -0,0 +1,110 @@
+package com.wscastro.betransferscheduler.benchmark;
+
+import com.wscastro.betransferscheduler.model.Taxa;
+import com.wscastro.betransferscheduler.service.TabelaTaxas;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Custo da busca de faixa de taxa com milhares de faixas (dias × valor): o índice da {@link TabelaTaxas} contra a
+ * varredura linear da lista, que é o que um filtro por faixa sobre a lista inteira faria. Executar com
+ * {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class TabelaTaxasBenchmarkTest {
+    private static final Logger logger = LoggerFactory.getLogger(TabelaTaxasBenchmarkTest.class);
+
+    private static final int FAIXAS_DIAS = 50;
+    private static final int FAIXAS_VALOR = 100;
+    private static final int BUSCAS = 2_000_000;
+
+    @Test
+    void custoPorBusca_ComMilharesDeFaixas() {
+        List<Taxa> taxas = new ArrayList<>();
+        long id = 1;
+        for (int d = 0; d < FAIXAS_DIAS; d++) {
+            for (int v = 0; v < FAIXAS_VALOR; v++) {
+                Taxa taxa = new Taxa();
+                taxa.setId(id++);
+                taxa.setDiasMinimo(d * 10L);
+                taxa.setDiasMaximo(d * 10L + 9);
+                taxa.setValorMinimo(v == 0 ? null : BigDecimal.valueOf(v * 1000L));
+                taxa.setValorMaximo(v == FAIXAS_VALOR - 1 ? null : BigDecimal.valueOf(v * 1000L + 999.99));
+                taxa.setPercentual(BigDecimal.valueOf(v, 4));
+                taxa.setValorFixo(BigDecimal.valueOf(d));
+                taxas.add(taxa);
+            }
+        }
+        long inicioCompilacao = System.nanoTime();
+        TabelaTaxas tabela = TabelaTaxas.compilar(taxas);
+        long compilacaoMs = (System.nanoTime() - inicioCompilacao) / 1_000_000;
+
+        Random aleatorio = new Random(42);
+        long[] dias = new long[BUSCAS];
+        BigDecimal[] valores = new BigDecimal[BUSCAS];
+        for (int i = 0; i < BUSCAS; i++) {
+            dias[i] = aleatorio.nextInt(FAIXAS_DIAS * 10);
+            valores[i] = BigDecimal.valueOf(aleatorio.nextInt(FAIXAS_VALOR * 100_000), 2);
+        }
+
+        // Aquecimento do JIT nos dois caminhos
+        medirIndice(tabela, dias, valores, BUSCAS / 10);
+        medirLinear(taxas, dias, valores, BUSCAS / 100);
+
+        long indice = medirIndice(tabela, dias, valores, BUSCAS);
+        long linear = medirLinear(taxas, dias, valores, BUSCAS / 100);
+
+        logger.info("{} faixas compiladas em {} ms: índice {} ns/op, varredura linear {} ns/op",
+                taxas.size(), compilacaoMs, indice, linear);
+        for (int i = 0; i < 1000; i++) {
+            assertSame(linear(taxas, dias[i], valores[i]), tabela.buscar(dias[i], valores[i]));
+        }
+        assertTrue(indice < linear, "o índice deveria ser mais rápido que a varredura: " + indice + " ns");
+    }
+
+    private static long medirIndice(TabelaTaxas tabela, long[] dias, BigDecimal[] valores, int buscas) {
+        int encontradas = 0;
+        long inicio = System.nanoTime();
+        for (int i = 0; i < buscas; i++) {
+            if (tabela.buscar(dias[i], valores[i]) != null) {
+                encontradas++;
+            }
+        }
+        long decorrido = System.nanoTime() - inicio;
+        assertEquals(buscas, encontradas);
+        return decorrido / buscas;
+    }
+
+    private static long medirLinear(List<Taxa> taxas, long[] dias, BigDecimal[] valores, int buscas) {
+        int encontradas = 0;
+        long inicio = System.nanoTime();
+        for (int i = 0; i < buscas; i++) {
+            if (linear(taxas, dias[i], valores[i]) != null) {
+                encontradas++;
+            }
+        }
+        long decorrido = System.nanoTime() - inicio;
+        assertEquals(buscas, encontradas);
+        return decorrido / buscas;
+    }
+
+    private static Taxa linear(List<Taxa> taxas, long dias, BigDecimal valor) {
+        for (Taxa taxa : taxas) {
+            if (taxa.getDiasMinimo() <= dias && dias <= taxa.getDiasMaximo()
+                    && (taxa.getValorMinimo() == null || taxa.getValorMinimo().compareTo(valor) <= 0)
+                    && (taxa.getValorMaximo() == null || valor.compareTo(taxa.getValorMaximo()) <= 0)) {
+                return taxa;
+            }
+        }
+        return null;
+    }
+}
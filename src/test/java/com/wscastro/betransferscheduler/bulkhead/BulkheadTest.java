@@ -0,0 +1,109 @@
+package com.wscastro.betransferscheduler.bulkhead;
+
+import com.wscastro.betransferscheduler.exception.BulkheadSaturadoException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BulkheadTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private Bulkhead bulkhead;
+
+    @AfterEach
+    void tearDown() {
+        bulkhead.encerrar();
+    }
+
+    @Test
+    void executar_DeveRodarNaThreadDoBulkheadComODecorador() throws Exception {
+        // Arrange
+        AtomicInteger decoradas = new AtomicInteger();
+        bulkhead = new Bulkhead("leitura", 2, 10, Duration.ofSeconds(5), 1, tarefa -> {
+            decoradas.incrementAndGet();
+            return tarefa;
+        }, meterRegistry);
+
+        // Act
+        String thread = bulkhead.executar(() -> Thread.currentThread().getName()).get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertTrue(thread.startsWith("bulkhead-leitura-"));
+        assertEquals(1, decoradas.get());
+    }
+
+    @Test
+    void executar_ComThreadsEFilaOcupadas_DeveRecusarNaHora() {
+        // Arrange
+        bulkhead = new Bulkhead("escrita", 1, 1, Duration.ofSeconds(5), 3, tarefa -> tarefa, meterRegistry);
+        CountDownLatch liberar = new CountDownLatch(1);
+        bulkhead.executar(() -> aguardar(liberar));
+        bulkhead.executar(() -> aguardar(liberar));
+
+        // Act
+        BulkheadSaturadoException exception = assertThrows(BulkheadSaturadoException.class,
+                () -> bulkhead.executar(() -> "nao executa"));
+        liberar.countDown();
+
+        // Assert
+        assertEquals(3, exception.getRetryAfterSegundos());
+        assertEquals(1.0, meterRegistry.get("bulkhead.recusadas")
+                .tag("bulkhead", "escrita").tag("motivo", "fila-cheia").counter().count());
+    }
+
+    @Test
+    void executar_ComEsperaNaFilaAcimaDoLimite_DeveFalharSemExecutar() throws Exception {
+        // Arrange
+        bulkhead = new Bulkhead("administracao", 1, 1, Duration.ofMillis(50), 1, tarefa -> tarefa, meterRegistry);
+        CountDownLatch liberar = new CountDownLatch(1);
+        bulkhead.executar(() -> aguardar(liberar));
+        AtomicInteger executadas = new AtomicInteger();
+
+        // Act
+        CompletableFuture<Integer> enfileirada = bulkhead.executar(executadas::incrementAndGet);
+        Thread.sleep(100);
+        liberar.countDown();
+
+        // Assert
+        ExecutionException exception = assertThrows(ExecutionException.class,
+                () -> enfileirada.get(5, TimeUnit.SECONDS));
+        assertTrue(exception.getCause() instanceof BulkheadSaturadoException);
+        assertEquals(0, executadas.get());
+        assertEquals(1.0, meterRegistry.get("bulkhead.recusadas")
+                .tag("bulkhead", "administracao").tag("motivo", "espera-excedida").counter().count());
+    }
+
+    @Test
+    void executar_ComFalhaNaTarefa_DeveCompletarComAExcecao() {
+        // Arrange
+        bulkhead = new Bulkhead("escrita", 1, 1, Duration.ofSeconds(5), 1, tarefa -> tarefa, meterRegistry);
+
+        // Act
+        CompletableFuture<Object> resultado = bulkhead.executar(() -> {
+            throw new IllegalStateException("falhou");
+        });
+
+        // Assert
+        ExecutionException exception = assertThrows(ExecutionException.class,
+                () -> resultado.get(5, TimeUnit.SECONDS));
+        assertTrue(exception.getCause() instanceof IllegalStateException);
+    }
+
+    private static String aguardar(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "liberada";
+    }
+}
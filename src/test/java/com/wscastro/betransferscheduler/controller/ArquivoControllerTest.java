@@ -0,0 +1,99 @@
+package com.wscastro.betransferscheduler.controller;
+
+import com.wscastro.betransferscheduler.bulkhead.Bulkheads;
+import com.wscastro.betransferscheduler.dto.ArquivamentoDTO;
+import com.wscastro.betransferscheduler.dto.TransferenciaArquivadaDTO;
+import com.wscastro.betransferscheduler.exception.GlobalExceptionHandler;
+import com.wscastro.betransferscheduler.service.ArquivamentoService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(MockitoExtension.class)
+class ArquivoControllerTest {
+
+    private MockMvc mockMvc;
+
+    @Mock
+    private ArquivamentoService arquivamentoService;
+
+    @Spy
+    private Bulkheads bulkheads = Bulkheads.desabilitados();
+
+    @InjectMocks
+    private ArquivoController arquivoController;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(arquivoController)
+                .setCustomArgumentResolvers(new PageableHandlerMethodArgumentResolver())
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+    }
+
+    @Test
+    void listar_ComContaEPeriodo_DeveRetornarAsArquivadas() throws Exception {
+        TransferenciaArquivadaDTO arquivada = new TransferenciaArquivadaDTO();
+        arquivada.setId(7L);
+        arquivada.setValor(new BigDecimal("100.00"));
+        when(arquivamentoService.listar(eq("1234567890"), eq(LocalDate.of(2030, 1, 1)), eq(LocalDate.of(2030, 1, 31)),
+                any(Pageable.class))).thenReturn(new PageImpl<>(List.of(arquivada)));
+
+        executar(get("/arquivo/transferencias")
+                .param("contaOrigem", "1234567890")
+                .param("inicio", "2030-01-01")
+                .param("fim", "2030-01-31"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(1)))
+                .andExpect(jsonPath("$.content[0].id", is(7)));
+    }
+
+    @Test
+    void arquivar_DeveRetornarOTotalArquivado() throws Exception {
+        ArquivamentoDTO arquivamento = new ArquivamentoDTO(LocalDate.of(2030, 1, 1));
+        arquivamento.setArquivadas(42L);
+        when(arquivamentoService.arquivar()).thenReturn(arquivamento);
+
+        executar(post("/arquivo/execucoes"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.arquivadas", is(42)));
+
+        verify(arquivamentoService, times(1)).arquivar();
+    }
+
+    // Os controllers entregam o trabalho a um bulkhead e respondem de forma assíncrona
+    private ResultActions executar(RequestBuilder requisicao) throws Exception {
+        MvcResult resultado = mockMvc.perform(requisicao)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(resultado));
+    }
+}
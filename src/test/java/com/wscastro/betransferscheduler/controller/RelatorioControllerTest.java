@@ -0,0 +1,166 @@
+package com.wscastro.betransferscheduler.controller;
+
+import com.wscastro.betransferscheduler.bulkhead.Bulkheads;
+import com.wscastro.betransferscheduler.dto.RecalculoTaxasDTO;
+import com.wscastro.betransferscheduler.dto.ResumoDiarioDTO;
+import com.wscastro.betransferscheduler.exception.GlobalExceptionHandler;
+import com.wscastro.betransferscheduler.service.CompensacaoService;
+import com.wscastro.betransferscheduler.service.RecalculoTaxasService;
+import com.wscastro.betransferscheduler.service.ResumoDiarioService;
+import com.wscastro.betransferscheduler.service.colunar.LeituraPendentesService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(MockitoExtension.class)
+class RelatorioControllerTest {
+
+    private MockMvc mockMvc;
+
+    @Mock
+    private ResumoDiarioService resumoDiarioService;
+
+    @Mock
+    private CompensacaoService compensacaoService;
+
+    @Mock
+    private RecalculoTaxasService recalculoTaxasService;
+
+    @Mock
+    private LeituraPendentesService leituraPendentesService;
+
+    @Spy
+    private Bulkheads bulkheads = Bulkheads.desabilitados();
+
+    @InjectMocks
+    private RelatorioController relatorioController;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(relatorioController)
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+    }
+
+    @Test
+    void diario_ComPeriodo_DeveRetornarResumos() throws Exception {
+        ResumoDiarioDTO resumo = new ResumoDiarioDTO();
+        resumo.setData(LocalDate.of(2030, 1, 10));
+        resumo.setQuantidade(2L);
+        resumo.setValorTotal(new BigDecimal("300.00"));
+        resumo.setTaxaTotal(new BigDecimal("24.00"));
+
+        when(resumoDiarioService.listar(LocalDate.of(2030, 1, 1), LocalDate.of(2030, 1, 31)))
+                .thenReturn(List.of(resumo));
+
+        executar(get("/relatorios/diario")
+                .param("inicio", "2030-01-01")
+                .param("fim", "2030-01-31"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].quantidade", is(2)))
+                .andExpect(jsonPath("$[0].valorTotal", is(300.00)))
+                .andExpect(jsonPath("$[0].taxaTotal", is(24.00)));
+    }
+
+    @Test
+    void diario_SemPeriodo_DeveConsultarAPartirDeHoje() throws Exception {
+        when(resumoDiarioService.listar(any(LocalDate.class), isNull())).thenReturn(List.of());
+
+        executar(get("/relatorios/diario"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(0)));
+
+        verify(resumoDiarioService).listar(LocalDate.now(), null);
+    }
+
+    @Test
+    void pendentes_SemInicio_DeveResumirOModeloColunarAPartirDeHoje() throws Exception {
+        ResumoDiarioDTO resumo = new ResumoDiarioDTO();
+        resumo.setData(LocalDate.now().plusDays(3));
+        resumo.setQuantidade(4L);
+        resumo.setValorTotal(new BigDecimal("410.00"));
+        resumo.setTaxaTotal(new BigDecimal("48.00"));
+        LocalDate fim = LocalDate.now().plusDays(7);
+        when(leituraPendentesService.resumirPorDia(LocalDate.now(), fim)).thenReturn(List.of(resumo));
+
+        executar(get("/relatorios/pendentes").param("fim", fim.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].quantidade", is(4)))
+                .andExpect(jsonPath("$[0].valorTotal", is(410.00)));
+    }
+
+    @Test
+    void reconstruirDiario_DeveRetornarDatasDivergentes() throws Exception {
+        when(resumoDiarioService.verificarEReconstruir()).thenReturn(List.of());
+
+        executar(post("/relatorios/diario/reconstrucao"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(0)));
+
+        verify(resumoDiarioService, times(1)).verificarEReconstruir();
+    }
+
+    @Test
+    void recalcularTaxas_DeveAceitarERetornarAExecucao() throws Exception {
+        RecalculoTaxasDTO recalculo = new RecalculoTaxasDTO(3L, true);
+        recalculo.setLidas(10L);
+        when(recalculoTaxasService.iniciar()).thenReturn(recalculo);
+
+        executar(post("/relatorios/recalculo-taxas"))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "/relatorios/recalculo-taxas/3"))
+                .andExpect(jsonPath("$.execucao", is(3)))
+                .andExpect(jsonPath("$.retomada", is(true)));
+
+        verify(recalculoTaxasService, never()).recalcular();
+    }
+
+    @Test
+    void progressoRecalculoTaxas_DeveRetornarOAndamentoDaExecucao() throws Exception {
+        RecalculoTaxasDTO recalculo = new RecalculoTaxasDTO(3L, false);
+        recalculo.setLidas(10L);
+        recalculo.setAlteradas(4L);
+        when(recalculoTaxasService.progresso(3L)).thenReturn(recalculo);
+
+        executar(get("/relatorios/recalculo-taxas/3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.execucao", is(3)))
+                .andExpect(jsonPath("$.alteradas", is(4)));
+    }
+
+    // Os controllers entregam o trabalho a um bulkhead e respondem de forma assíncrona
+    private ResultActions executar(RequestBuilder requisicao) throws Exception {
+        MvcResult resultado = mockMvc.perform(requisicao)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(resultado));
+    }
+}
@@ -1,16 +1,26 @@
 package com.wscastro.betransferscheduler.controller;
 
+import com.wscastro.betransferscheduler.bulkhead.Bulkheads;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wscastro.betransferscheduler.dto.AlteracoesDTO;
+import com.wscastro.betransferscheduler.dto.RemocaoDTO;
 import com.wscastro.betransferscheduler.dto.TransferenciaRequestDTO;
 import com.wscastro.betransferscheduler.dto.TransferenciaResponseDTO;
 import com.wscastro.betransferscheduler.exception.DataEntradaInvalidaException;
 import com.wscastro.betransferscheduler.exception.GlobalExceptionHandler;
+import com.wscastro.betransferscheduler.exception.RequisicoesExcedidasException;
+import com.wscastro.betransferscheduler.service.CacheListagemService;
+import com.wscastro.betransferscheduler.service.LimiteRequisicoesService;
+import com.wscastro.betransferscheduler.service.SincronizacaoService;
 import com.wscastro.betransferscheduler.service.TransferenciaService;
+import com.wscastro.betransferscheduler.service.TransferenciaService.ListagemPaginada;
+import com.wscastro.betransferscheduler.service.fluxo.FluxoAgendamentosService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
@@ -18,9 +28,14 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
@@ -29,10 +44,13 @@ import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @ExtendWith(MockitoExtension.class)
@@ -43,6 +61,21 @@ class TransferenciaControllerTest {
     @Mock
     private TransferenciaService transferenciaService;
 
+    @Mock
+    private FluxoAgendamentosService fluxoAgendamentosService;
+
+    @Mock
+    private SincronizacaoService sincronizacaoService;
+
+    @Mock
+    private CacheListagemService cacheListagemService;
+
+    @Mock
+    private LimiteRequisicoesService limiteRequisicoesService;
+
+    @Spy
+    private Bulkheads bulkheads = Bulkheads.desabilitados();
+
     @InjectMocks
     private TransferenciaController transferenciaController;
 
@@ -83,10 +116,10 @@ class TransferenciaControllerTest {
 
     @Test
     void agendar_DeveRetornarTransferenciaAgendada() throws Exception {
-        when(transferenciaService.agendarTransferencia(any(TransferenciaRequestDTO.class)))
+        when(transferenciaService.agendarTransferencia(any(TransferenciaRequestDTO.class), isNull()))
                 .thenReturn(responseDTO);
 
-        mockMvc.perform(post("/agendamentos")
+        executar(post("/agendamentos")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(requestDTO)))
                 .andExpect(status().isOk())
@@ -113,7 +146,7 @@ class TransferenciaControllerTest {
 
     @Test
     void agendar_ComDataInvalida_DeveRetornarBadRequest() throws Exception {
-        when(transferenciaService.agendarTransferencia(any(TransferenciaRequestDTO.class)))
+        when(transferenciaService.agendarTransferencia(any(TransferenciaRequestDTO.class), isNull()))
                 .thenThrow(new DataEntradaInvalidaException("Data inválida"));
 
         mockMvc.perform(post("/agendamentos")
@@ -122,6 +155,21 @@ class TransferenciaControllerTest {
                 .andExpect(status().isBadRequest());
     }
 
+    @Test
+    void agendar_ComLimiteDaContaExcedido_DeveRetornarTooManyRequestsSemChamarServico() throws Exception {
+        doThrow(new RequisicoesExcedidasException("Muitos agendamentos", 3))
+                .when(limiteRequisicoesService).consumir("1234567890");
+
+        mockMvc.perform(post("/agendamentos")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(requestDTO)))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "3"))
+                .andExpect(jsonPath("$.status", is(429)));
+
+        verifyNoInteractions(transferenciaService);
+    }
+
     @Test
     void listarTodos_DeveRetornarPaginaDeTransferencias() throws Exception {
         TransferenciaResponseDTO responseDTO2 = new TransferenciaResponseDTO();
@@ -136,9 +184,9 @@ class TransferenciaControllerTest {
         List<TransferenciaResponseDTO> transferencias = Arrays.asList(responseDTO, responseDTO2);
         Page<TransferenciaResponseDTO> page = new PageImpl<>(transferencias);
 
-        when(transferenciaService.listarTodas(any(Pageable.class))).thenReturn(page);
+        when(transferenciaService.listarTodas(any(Pageable.class))).thenReturn(new ListagemPaginada(page, "W/\"abc-1\""));
 
-        mockMvc.perform(get("/agendamentos")
+        executar(get("/agendamentos")
                 .param("page", "0")
                 .param("size", "10"))
                 .andExpect(status().isOk())
@@ -151,13 +199,47 @@ class TransferenciaControllerTest {
                 .andExpect(jsonPath("$.content[1].valor", is(200.00)));
     }
 
+    @Test
+    void listarTodos_ComIfNoneMatchDaVersaoAtual_DeveRetornarNotModifiedSemConsultar() throws Exception {
+        when(cacheListagemService.etag()).thenReturn("W/\"abc-3\"");
+
+        mockMvc.perform(get("/agendamentos").header("If-None-Match", "W/\"abc-3\""))
+                .andExpect(status().isNotModified());
+
+        verifyNoInteractions(transferenciaService);
+    }
+
+    @Test
+    void listarTodos_ComIfNoneMatchDesatualizado_DeveRetornarPaginaComNovaETag() throws Exception {
+        when(cacheListagemService.etag()).thenReturn("W/\"abc-4\"");
+        when(transferenciaService.listarTodas(any(Pageable.class)))
+                .thenReturn(new ListagemPaginada(new PageImpl<>(List.of(responseDTO)), "W/\"abc-4\""));
+
+        executar(get("/agendamentos").header("If-None-Match", "W/\"abc-3\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "W/\"abc-4\""))
+                .andExpect(jsonPath("$.content", hasSize(1)));
+    }
+
+    @Test
+    void listarTodos_ComPaginaLidaDaReplica_NaoDeveEnviarETag() throws Exception {
+        when(cacheListagemService.etag()).thenReturn("W/\"abc-4\"");
+        when(transferenciaService.listarTodas(any(Pageable.class)))
+                .thenReturn(new ListagemPaginada(new PageImpl<>(List.of(responseDTO)), null));
+
+        executar(get("/agendamentos"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("ETag"))
+                .andExpect(jsonPath("$.content", hasSize(1)));
+    }
+
     @Test
     void deletar_DeveRetornarNoContent() throws Exception {
         Long id = 1L;
 
         doNothing().when(transferenciaService).deletarTransferencia(id);
 
-        mockMvc.perform(delete("/agendamentos/{id}", id))
+        executar(delete("/agendamentos/{id}", id))
                 .andExpect(status().isNoContent());
 
         verify(transferenciaService, times(1)).deletarTransferencia(id);
@@ -176,4 +258,59 @@ class TransferenciaControllerTest {
 
         verify(transferenciaService, times(1)).deletarTransferencia(id);
     }
+
+    @Test
+    void acompanhar_ComLastEventId_DeveRetomarDoEventoInformado() throws Exception {
+        when(fluxoAgendamentosService.assinar(41L)).thenReturn(new SseEmitter());
+
+        mockMvc.perform(get("/agendamentos/stream")
+                .header("Last-Event-ID", "41")
+                .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted());
+
+        verify(fluxoAgendamentosService).assinar(41L);
+    }
+
+    @Test
+    void listarAlteracoes_DeveRetornarAlteracoesERemocoesDesdeAVersao() throws Exception {
+        responseDTO.setVersao(12L);
+        RemocaoDTO remocao = new RemocaoDTO();
+        remocao.setId(7L);
+        remocao.setVersao(13L);
+        AlteracoesDTO alteracoes = new AlteracoesDTO();
+        alteracoes.getAlteradas().add(responseDTO);
+        alteracoes.getRemovidas().add(remocao);
+        alteracoes.setVersao(13L);
+        when(sincronizacaoService.listarAlteracoes(10L, 500)).thenReturn(alteracoes);
+
+        executar(get("/agendamentos/changes").param("since", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.alteradas", hasSize(1)))
+                .andExpect(jsonPath("$.alteradas[0].versao", is(12)))
+                .andExpect(jsonPath("$.removidas[0].id", is(7)))
+                .andExpect(jsonPath("$.versao", is(13)))
+                .andExpect(jsonPath("$.haMais", is(false)));
+    }
+
+    @Test
+    void listarVencimentos_DeveRetornarTransferenciasDoPeriodo() throws Exception {
+        LocalDate inicio = hoje.toLocalDate().plusDays(1);
+        LocalDate fim = inicio.plusDays(6);
+        when(transferenciaService.listarVencimentos(inicio, fim)).thenReturn(List.of(responseDTO));
+
+        executar(get("/agendamentos/vencimentos")
+                .param("inicio", inicio.toString())
+                .param("fim", fim.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id", is(1)));
+    }
+
+    // Os controllers entregam o trabalho a um bulkhead e respondem de forma assíncrona
+    private ResultActions executar(RequestBuilder requisicao) throws Exception {
+        MvcResult resultado = mockMvc.perform(requisicao)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(resultado));
+    }
 }
@@ -0,0 +1,109 @@
+package com.wscastro.betransferscheduler.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wscastro.betransferscheduler.dto.TransferenciaRequestDTO;
+import com.wscastro.betransferscheduler.dto.TransferenciaResponseDTO;
+import com.wscastro.betransferscheduler.service.TransferenciaService;
+import com.wscastro.betransferscheduler.service.TransferenciaService.ListagemPaginada;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.nullable;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "app.bulkhead.habilitado=true",
+        "app.bulkhead.escrita.threads=1",
+        "app.bulkhead.escrita.fila=1",
+        "app.bulkhead.retry-after-segundos=2"
+})
+@AutoConfigureMockMvc
+class BulkheadIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @MockBean
+    private TransferenciaService transferenciaService;
+
+    private final CountDownLatch liberarEscritas = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() {
+        TransferenciaResponseDTO agendada = new TransferenciaResponseDTO();
+        agendada.setId(1L);
+        agendada.setContaOrigem("1234567890");
+        when(transferenciaService.agendarTransferencia(any(TransferenciaRequestDTO.class), nullable(String.class))).thenAnswer(invocacao -> {
+            liberarEscritas.await(5, TimeUnit.SECONDS);
+            return agendada;
+        });
+        when(transferenciaService.listarTodas(any(Pageable.class)))
+                .thenReturn(new ListagemPaginada(new PageImpl<>(List.of(agendada)), null));
+    }
+
+    @AfterEach
+    void tearDown() {
+        liberarEscritas.countDown();
+    }
+
+    @Test
+    void agendar_ComBulkheadDeEscritaCheio_DeveResponder503SemAfetarLeituras() throws Exception {
+        // Arrange: uma escrita ocupa a única thread e outra ocupa a única posicao da fila
+        MvcResult emExecucao = mockMvc.perform(agendar()).andExpect(request().asyncStarted()).andReturn();
+        MvcResult naFila = mockMvc.perform(agendar()).andExpect(request().asyncStarted()).andReturn();
+
+        // Act & Assert
+        mockMvc.perform(agendar())
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "2"))
+                .andExpect(jsonPath("$.status").value(503));
+
+        MvcResult leitura = mockMvc.perform(get("/agendamentos")).andExpect(request().asyncStarted()).andReturn();
+        mockMvc.perform(asyncDispatch(leitura))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].id").value(1));
+
+        liberarEscritas.countDown();
+        mockMvc.perform(asyncDispatch(emExecucao)).andExpect(status().isOk());
+        mockMvc.perform(asyncDispatch(naFila)).andExpect(status().isOk());
+    }
+
+    private MockHttpServletRequestBuilder agendar() throws Exception {
+        TransferenciaRequestDTO dto = new TransferenciaRequestDTO();
+        dto.setContaOrigem("1234567890");
+        dto.setContaDestino("0987654321");
+        dto.setValor(new BigDecimal("100.00"));
+        dto.setDataTransferencia(LocalDateTime.now().plusDays(5));
+        return post("/agendamentos")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(dto));
+    }
+}
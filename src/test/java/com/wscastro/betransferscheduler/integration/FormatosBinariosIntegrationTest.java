@@ -0,0 +1,131 @@
+package com.wscastro.betransferscheduler.integration;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wscastro.betransferscheduler.dto.TransferenciaRequestDTO;
+import com.wscastro.betransferscheduler.dto.TransferenciaResponseDTO;
+import com.wscastro.betransferscheduler.repository.TransferenciaRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Sql({"/schema.sql", "/data.sql"})
+class FormatosBinariosIntegrationTest {
+
+    private static final MediaType SMILE = MediaType.valueOf("application/x-jackson-smile");
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MappingJackson2CborHttpMessageConverter cborConverter;
+
+    @Autowired
+    private MappingJackson2SmileHttpMessageConverter smileConverter;
+
+    @Autowired
+    private TransferenciaRepository transferenciaRepository;
+
+    private TransferenciaRequestDTO requestDTO;
+
+    @BeforeEach
+    void setUp() {
+        transferenciaRepository.deleteAll();
+        requestDTO = new TransferenciaRequestDTO();
+        requestDTO.setContaOrigem("1234567890");
+        requestDTO.setContaDestino("0987654321");
+        requestDTO.setValor(new BigDecimal("100.00"));
+        requestDTO.setDataTransferencia(LocalDateTime.now().plusDays(5));
+    }
+
+    // Os agendamentos sao confirmados nas threads do bulkhead, fora de uma transacao do teste que pudesse desfazê-los
+    @AfterEach
+    void tearDown() {
+        transferenciaRepository.deleteAll();
+    }
+
+    @Test
+    void agendar_ComCorpoEAcceptCbor_DeveResponderEmCbor() throws Exception {
+        // Arrange
+        ObjectMapper cbor = cborConverter.getObjectMapper();
+
+        // Act
+        MvcResult result = executar(post("/agendamentos")
+                .contentType(MediaType.APPLICATION_CBOR)
+                .accept(MediaType.APPLICATION_CBOR)
+                .content(cbor.writeValueAsBytes(requestDTO)))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn();
+
+        // Assert
+        TransferenciaResponseDTO response = cbor.readValue(result.getResponse().getContentAsByteArray(),
+                TransferenciaResponseDTO.class);
+        assertEquals("1234567890", response.getContaOrigem());
+        assertEquals(0, new BigDecimal("100.00").compareTo(response.getValor()));
+        assertEquals(0, new BigDecimal("12.00").compareTo(response.getTaxa()));
+        assertEquals(requestDTO.getDataTransferencia(), response.getDataTransferencia());
+    }
+
+    @Test
+    void listarTodos_ComAcceptSmile_DeveResponderPaginaEmSmile() throws Exception {
+        // Arrange
+        executar(post("/agendamentos")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(requestDTO)))
+                .andExpect(status().isOk());
+
+        // Act
+        MvcResult result = executar(get("/agendamentos").accept(SMILE))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(SMILE))
+                .andReturn();
+
+        // Assert
+        JsonNode pagina = smileConverter.getObjectMapper().readTree(result.getResponse().getContentAsByteArray());
+        assertEquals(1, pagina.get("content").size());
+        assertEquals("1234567890", pagina.get("content").get(0).get("contaOrigem").asText());
+    }
+
+    @Test
+    void listarTodos_SemAccept_DeveManterJsonComoPadrao() throws Exception {
+        executar(get("/agendamentos"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+    }
+
+    // Os controllers entregam o trabalho a um bulkhead e respondem de forma assíncrona
+    private ResultActions executar(RequestBuilder requisicao) throws Exception {
+        MvcResult resultado = mockMvc.perform(requisicao)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(resultado));
+    }
+}
@@ -0,0 +1,51 @@
+package com.wscastro.betransferscheduler.integration;
+
+import com.wscastro.betransferscheduler.BeTransferSchedulerApplication;
+import com.wscastro.betransferscheduler.service.TaxaService;
+import com.wscastro.betransferscheduler.service.fluxo.FluxoAgendamentosService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Sobe a aplicacao completa no perfil {@code rapido} e verifica o tempo até {@link ApplicationReadyEvent}.
+ * Usa um banco H2 próprio para nao compartilhar schema e dados com os contextos dos demais testes.
+ */
+class InicializacaoRapidaIntegrationTest {
+
+    private static final Duration ORCAMENTO = Duration.ofSeconds(20);
+
+    @Test
+    void inicializacao_PerfilRapido_DeveFicarProntaDentroDoOrcamento() {
+        // Arrange
+        AtomicLong prontaEm = new AtomicLong();
+        SpringApplication aplicacao = new SpringApplicationBuilder(BeTransferSchedulerApplication.class)
+                .profiles("rapido")
+                .properties("server.port=0", "spring.datasource.url=jdbc:h2:mem:inicializacao-rapida")
+                .build();
+        aplicacao.addListeners((ApplicationListener<ApplicationReadyEvent>) evento -> prontaEm.set(System.nanoTime()));
+
+        // Act
+        long inicio = System.nanoTime();
+        try (ConfigurableApplicationContext contexto = aplicacao.run()) {
+            Duration atePronta = Duration.ofNanos(prontaEm.get() - inicio);
+
+            // Assert
+            assertTrue(atePronta.compareTo(ORCAMENTO) < 0, "Inicializacao levou " + atePronta.toMillis() + " ms");
+            ConfigurableListableBeanFactory beans = contexto.getBeanFactory();
+            assertTrue(beans.getBeanDefinition("taxaService").isLazyInit());
+            assertTrue(beans.containsSingleton("taxaService"), "TaxaService deveria ter sido aquecido na subida");
+            // Beans com tarefas agendadas nao podem ficar preguiçosos
+            assertFalse(beans.getBeanDefinition(contexto.getBeanNamesForType(FluxoAgendamentosService.class)[0]).isLazyInit());
+        }
+    }
+}
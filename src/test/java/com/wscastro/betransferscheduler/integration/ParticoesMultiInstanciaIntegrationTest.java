@@ -0,0 +1,156 @@
+package com.wscastro.betransferscheduler.integration;
+
+import com.wscastro.betransferscheduler.BeTransferSchedulerApplication;
+import com.wscastro.betransferscheduler.particao.GerenciadorParticoes;
+import org.h2.tools.Server;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.DatabasePopulatorUtils;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.net.ServerSocket;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Três instâncias da aplicacao na mesma JVM, cada uma com seu contexto Spring, apontando para um único H2 em modo
+ * servidor. Comeca com todas as particoes presas a uma instância que "morreu" sem devolvê-las: nada executa até
+ * as leases dela vencerem.
+ */
+class ParticoesMultiInstanciaIntegrationTest {
+
+    private static final int PARTICOES = 16;
+
+    private Server servidor;
+    private String url;
+    private JdbcTemplate jdbc;
+    private final List<ConfigurableApplicationContext> instancias = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        int porta;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            porta = socket.getLocalPort();
+        }
+        servidor = Server.createTcpServer("-tcpPort", String.valueOf(porta), "-ifNotExists").start();
+        url = "jdbc:h2:tcp://localhost:" + porta + "/mem:particoes;DB_CLOSE_DELAY=-1";
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(url, "sa", "password");
+        DatabasePopulatorUtils.execute(new ResourceDatabasePopulator(new ClassPathResource("schema.sql")), dataSource);
+        jdbc = new JdbcTemplate(dataSource);
+    }
+
+    @AfterEach
+    void tearDown() {
+        instancias.forEach(ConfigurableApplicationContext::close);
+        servidor.stop();
+    }
+
+    @Test
+    void instancias_DevemDividirAsParticoesEExecutarCadaVencidaUmaUnicaVez() throws Exception {
+        // Arrange: uma instância que morreu ainda segura todas as particoes
+        for (int particao = 0; particao < PARTICOES; particao++) {
+            jdbc.update("insert into particao_lease (particao, dono, expira_em, epoca) values (?, 'no-morto', ?, 1)",
+                    particao, Timestamp.valueOf(LocalDateTime.now().plusHours(1)));
+        }
+        jdbc.update("insert into particao_no (no, visto_em) values ('no-morto', ?)", Timestamp.valueOf(LocalDateTime.now()));
+        for (int i = 1; i <= 3; i++) {
+            instancias.add(iniciar("no-" + i));
+        }
+        inserirVencidas(0, 300);
+        Thread.sleep(1000);
+        assertEquals(0, executadas());
+
+        // Act: as leases da instância morta vencem
+        jdbc.update("update particao_lease set expira_em = ? where dono = 'no-morto'",
+                Timestamp.valueOf(LocalDateTime.now()));
+
+        // Assert
+        aguardar(() -> executadas() == 300);
+        aguardar(() -> particoesPorInstancia(3));
+        assertEquals(300, executadas());
+        assertEquals(3, jdbc.queryForObject("select count(distinct no) from transferencia_execucao", Integer.class));
+        assertEquals(0, jdbc.queryForObject("select count(*) from particao_lease where epoca < 2", Integer.class));
+
+        // Act: uma instância sai e novas transferências vencem
+        instancias.remove(2).close();
+        inserirVencidas(300, 150);
+
+        // Assert
+        aguardar(() -> executadas() == 450);
+        aguardar(() -> particoesPorInstancia(2));
+        assertEquals(0, jdbc.queryForObject("select count(*) from transferencia_execucao "
+                + "where no = 'no-3' and transferencia_id > 300", Integer.class));
+    }
+
+    private ConfigurableApplicationContext iniciar(String no) {
+        return new SpringApplicationBuilder(BeTransferSchedulerApplication.class)
+                .web(WebApplicationType.NONE)
+                // Argumentos, e nao properties(): precisam vencer o application.properties dos testes
+                .run("--spring.datasource.url=" + url,
+                        "--spring.jmx.enabled=false",
+                        "--app.particoes.habilitado=true",
+                        "--app.particoes.no-id=" + no,
+                        "--app.particoes.quantidade=" + PARTICOES,
+                        "--app.particoes.duracao-lease-ms=1500",
+                        "--app.particoes.intervalo-heartbeat-ms=250",
+                        "--app.particoes.intervalo-processamento-ms=100",
+                        "--app.particoes.tamanho-lote=20");
+    }
+
+    /** Cada instância viva tem no máximo a sua parte e, juntas, cobrem todas as particoes. */
+    private boolean particoesPorInstancia(int vivas) {
+        int parte = (PARTICOES + vivas - 1) / vivas;
+        Set<Integer> cobertas = new HashSet<>();
+        for (ConfigurableApplicationContext instancia : instancias) {
+            Map<Integer, Long> particoes = instancia.getBean(GerenciadorParticoes.class).particoes();
+            if (particoes.size() > parte) {
+                return false;
+            }
+            for (Integer particao : particoes.keySet()) {
+                if (!cobertas.add(particao)) {
+                    return false;
+                }
+            }
+        }
+        return cobertas.size() == PARTICOES;
+    }
+
+    private void inserirVencidas(int primeira, int quantidade) {
+        LocalDateTime vencimento = LocalDateTime.now().minusMinutes(1);
+        for (int i = primeira; i < primeira + quantidade; i++) {
+            jdbc.update("insert into transferencia (id, conta_origem, conta_destino, valor, taxa, data_agendamento, "
+                            + "data_transferencia, versao) values (?, ?, '0987654321', 10.00, 0.00, ?, ?, ?)",
+                    i + 1, String.format("%010d", 1_000_000_000L + i * 7L), Timestamp.valueOf(vencimento.minusDays(1)),
+                    Timestamp.valueOf(vencimento), i + 1);
+        }
+    }
+
+    private int executadas() {
+        return jdbc.queryForObject("select count(*) from transferencia_execucao", Integer.class);
+    }
+
+    private static void aguardar(BooleanSupplier condicao) throws InterruptedException {
+        long limite = System.currentTimeMillis() + 30_000;
+        while (!condicao.getAsBoolean()) {
+            if (System.currentTimeMillis() > limite) {
+                fail("condicao nao atingida em 30 s");
+            }
+            Thread.sleep(100);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.wscastro.betransferscheduler.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wscastro.betransferscheduler.dto.TransferenciaRequestDTO;
+import com.wscastro.betransferscheduler.repository.ResumoDiarioRepository;
+import com.wscastro.betransferscheduler.repository.TransferenciaRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Sql({"/schema.sql", "/data.sql"})
+class RelatorioIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private TransferenciaRepository transferenciaRepository;
+
+    @Autowired
+    private ResumoDiarioRepository resumoDiarioRepository;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @BeforeEach
+    void setUp() {
+        transferenciaRepository.deleteAll();
+        resumoDiarioRepository.deleteAll();
+        jdbc.update("delete from transferencia_arquivada");
+    }
+
+    @Test
+    void diario_DeveRefletirAgendamentosERemocoes() throws Exception {
+        // Arrange
+        LocalDateTime dataTransferencia = LocalDateTime.now().plusDays(5);
+        agendar("100.00", dataTransferencia);
+        agendar("200.00", dataTransferencia);
+        Long id = transferenciaRepository.findAll().get(0).getId();
+
+        executar(delete("/agendamentos/{id}", id))
+                .andExpect(status().isNoContent());
+
+        // Act & Assert - Taxa para 5 dias é fixa de 12.00
+        executar(get("/relatorios/diario"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].data", is(dataTransferencia.toLocalDate().toString())))
+                .andExpect(jsonPath("$[0].quantidade", is(1)))
+                .andExpect(jsonPath("$[0].taxaTotal", is(12.00)));
+    }
+
+    @Test
+    void reconstruirDiario_ComResumoDivergente_DeveReconstruirAPartirDasTransferencias() throws Exception {
+        // Arrange
+        LocalDateTime dataTransferencia = LocalDateTime.now().plusDays(5);
+        agendar("100.00", dataTransferencia);
+        resumoDiarioRepository.deleteAll();
+
+        // Act & Assert
+        executar(post("/relatorios/diario/reconstrucao"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)));
+
+        executar(get("/relatorios/diario"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].quantidade", is(1)))
+                .andExpect(jsonPath("$[0].valorTotal", is(100.00)));
+
+        executar(post("/relatorios/diario/reconstrucao"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(0)));
+    }
+
+    @Test
+    void arquivar_DeveMoverAsAntigasMantendoOResumoConsistente() throws Exception {
+        // Arrange - transferência de 120 dias atrás, fora da retencao de 90
+        LocalDate antiga = LocalDate.now().minusDays(120);
+        jdbc.update("insert into transferencia (conta_origem, conta_destino, valor, taxa, data_agendamento, "
+                        + "data_transferencia, versao) values ('1234567890', '0987654321', 100.00, 12.00, ?, ?, 1)",
+                Timestamp.valueOf(antiga.minusDays(5).atStartOfDay()), Timestamp.valueOf(antiga.atTime(10, 0)));
+        jdbc.update("insert into resumo_diario (data, quantidade, valor_total, taxa_total) values (?, 1, 100.00, 12.00)",
+                antiga);
+        agendar("200.00", LocalDateTime.now().plusDays(5));
+
+        // Act & Assert
+        executar(post("/arquivo/execucoes"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.arquivadas", is(1)));
+
+        executar(get("/arquivo/transferencias")
+                .param("inicio", antiga.toString())
+                .param("fim", antiga.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(1)))
+                .andExpect(jsonPath("$.content[0].valor", is(100.00)));
+
+        executar(post("/relatorios/diario/reconstrucao"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(0)));
+    }
+
+    private void agendar(String valor, LocalDateTime dataTransferencia) throws Exception {
+        TransferenciaRequestDTO requestDTO = new TransferenciaRequestDTO();
+        requestDTO.setContaOrigem("1234567890");
+        requestDTO.setContaDestino("0987654321");
+        requestDTO.setValor(new BigDecimal(valor));
+        requestDTO.setDataTransferencia(dataTransferencia);
+
+        executar(post("/agendamentos")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(requestDTO)))
+                .andExpect(status().isOk());
+    }
+
+    // Os controllers entregam o trabalho a um bulkhead e respondem de forma assíncrona
+    private ResultActions executar(RequestBuilder requisicao) throws Exception {
+        MvcResult resultado = mockMvc.perform(requisicao)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(resultado));
+    }
+}
@@ -0,0 +1,163 @@
+package com.wscastro.betransferscheduler.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wscastro.betransferscheduler.datasource.ConsistenciaLeituraFilter;
+import com.wscastro.betransferscheduler.datasource.MonitorReplica;
+import com.wscastro.betransferscheduler.dto.TransferenciaRequestDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Usa uma segunda base H2 no lugar da réplica. Ela nao recebe nada da primária: o "estado de replicacao" é
+ * simulado gravando o heartbeat diretamente nela, e uma linha que só existe na réplica mostra de onde veio a leitura.
+ */
+@SpringBootTest(properties = {
+        "app.datasource.replica.url=jdbc:h2:mem:replica-teste",
+        "app.datasource.replica.inicializar=true",
+        "app.datasource.replica.tolerancia-atraso-ms=5000",
+        "app.datasource.replica.intervalo-heartbeat-ms=3600000"
+})
+@AutoConfigureMockMvc
+@Sql({"/schema.sql", "/data.sql"})
+class ReplicaLeituraIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MonitorReplica monitorReplica;
+
+    @Autowired
+    @Qualifier("dataSourcePrimaria")
+    private DataSource primaria;
+
+    @Autowired
+    @Qualifier("dataSourceReplica")
+    private DataSource replica;
+
+    @BeforeEach
+    void setUp() {
+        new JdbcTemplate(primaria).update("delete from transferencia");
+        new JdbcTemplate(replica).update("delete from transferencia");
+        new JdbcTemplate(replica).update("insert into transferencia (conta_origem, conta_destino, valor, taxa, "
+                + "data_agendamento, data_transferencia, versao) values ('5555555555', '6666666666', 10.00, 3.00, "
+                + "current_timestamp, current_timestamp, 1)");
+    }
+
+    @Test
+    void listar_ComReplicaEmDia_DeveLerDaReplica() throws Exception {
+        // Arrange
+        replicaAte(Instant.now());
+
+        // Act & Assert
+        executar(get("/agendamentos").param("size", "7"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("ETag"))
+                .andExpect(jsonPath("$.totalElements").value(1))
+                .andExpect(jsonPath("$.content[0].contaOrigem").value("5555555555"));
+    }
+
+    @Test
+    void listar_ComReplicaAlemDaTolerancia_DeveLerDaPrimaria() throws Exception {
+        // Arrange
+        replicaAte(Instant.now().minusSeconds(60));
+
+        // Act & Assert
+        assertFalse(monitorReplica.disponivel());
+        executar(get("/agendamentos").param("size", "8"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andExpect(jsonPath("$.totalElements").value(0));
+    }
+
+    @Test
+    void disponivel_ComMedicaoMaisAntigaQueAValidade_DeveConsiderarAReplicaIndisponivel() throws Exception {
+        // Arrange
+        MonitorReplica monitor = new MonitorReplica(primaria, replica, Duration.ofSeconds(5), Duration.ofMillis(50));
+        new JdbcTemplate(replica).update("merge into replicacao_heartbeat key (id) values (1, ?)",
+                Timestamp.from(Instant.now()));
+        monitor.verificar();
+        assertTrue(monitor.disponivel());
+
+        // Act: nenhum heartbeat novo depois da validade
+        Thread.sleep(100);
+
+        // Assert
+        assertFalse(monitor.disponivel());
+    }
+
+    @Test
+    void listar_AposEscritaDaSessao_DeveLerDaPrimariaAteAReplicaAlcancar() throws Exception {
+        // Arrange
+        replicaAte(Instant.now());
+        TransferenciaRequestDTO dto = new TransferenciaRequestDTO();
+        dto.setContaOrigem("1234567890");
+        dto.setContaDestino("0987654321");
+        dto.setValor(new BigDecimal("100.00"));
+        dto.setDataTransferencia(LocalDateTime.now().plusDays(5));
+        executar(post("/agendamentos")
+                        .header(ConsistenciaLeituraFilter.CABECALHO_SESSAO, "sessao-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(dto)))
+                .andExpect(status().isOk());
+
+        // Act & Assert: outras sessoes continuam na réplica, que ainda nao tem a escrita
+        executar(get("/agendamentos").param("size", "9"))
+                .andExpect(jsonPath("$.content[0].contaOrigem").value("5555555555"));
+        executar(get("/agendamentos").param("size", "9")
+                        .header(ConsistenciaLeituraFilter.CABECALHO_SESSAO, "sessao-1"))
+                .andExpect(jsonPath("$.totalElements").value(1))
+                .andExpect(jsonPath("$.content[0].contaOrigem").value("1234567890"));
+
+        // Act & Assert: com a réplica em dia, a sessao volta a ler dela
+        replicaAte(Instant.now());
+        executar(get("/agendamentos").param("size", "10")
+                        .header(ConsistenciaLeituraFilter.CABECALHO_SESSAO, "sessao-1"))
+                .andExpect(jsonPath("$.content[0].contaOrigem").value("5555555555"));
+    }
+
+    private void replicaAte(Instant instante) {
+        new JdbcTemplate(replica).update("merge into replicacao_heartbeat key (id) values (1, ?)",
+                Timestamp.from(instante));
+        monitorReplica.verificar();
+    }
+
+    // Os controllers entregam o trabalho a um bulkhead e respondem de forma assíncrona
+    private ResultActions executar(RequestBuilder requisicao) throws Exception {
+        MvcResult resultado = mockMvc.perform(requisicao)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(resultado));
+    }
+}
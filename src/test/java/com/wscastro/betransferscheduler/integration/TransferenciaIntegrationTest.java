@@ -12,6 +12,9 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.jdbc.Sql;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -20,9 +23,11 @@ import java.util.List;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
@@ -55,7 +60,7 @@ class TransferenciaIntegrationTest {
         requestDTO.setDataTransferencia(hoje.plusDays(5));
 
         // Act & Assert
-        mockMvc.perform(post("/agendamentos")
+        executar(post("/agendamentos")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(requestDTO)))
                 .andExpect(status().isOk())
@@ -121,7 +126,7 @@ class TransferenciaIntegrationTest {
     @Test
     void listarTransferencias_DeveRetornarListaVazia_QuandoNaoHaTransferencias() throws Exception {
         // Act & Assert
-        mockMvc.perform(get("/agendamentos"))
+        executar(get("/agendamentos"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.content", hasSize(0)))
                 .andExpect(jsonPath("$.totalElements", is(0)));
@@ -139,7 +144,7 @@ class TransferenciaIntegrationTest {
         requestDTO1.setValor(new BigDecimal("100.00"));
         requestDTO1.setDataTransferencia(hoje.plusDays(5));
 
-        mockMvc.perform(post("/agendamentos")
+        executar(post("/agendamentos")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(requestDTO1)))
                 .andExpect(status().isOk());
@@ -151,13 +156,13 @@ class TransferenciaIntegrationTest {
         requestDTO2.setValor(new BigDecimal("200.00"));
         requestDTO2.setDataTransferencia(hoje.plusDays(15));
 
-        mockMvc.perform(post("/agendamentos")
+        executar(post("/agendamentos")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(requestDTO2)))
                 .andExpect(status().isOk());
 
         // Act & Assert
-        mockMvc.perform(get("/agendamentos"))
+        executar(get("/agendamentos"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.content", hasSize(2)))
                 .andExpect(jsonPath("$.totalElements", is(2)))
@@ -191,14 +196,14 @@ class TransferenciaIntegrationTest {
             requestDTO.setValor(new BigDecimal("100.00"));
             requestDTO.setDataTransferencia(hoje.plusDays(5)); // Taxa fixa de 12.00
 
-            mockMvc.perform(post("/agendamentos")
+            executar(post("/agendamentos")
                     .contentType(MediaType.APPLICATION_JSON)
                     .content(objectMapper.writeValueAsString(requestDTO)))
                     .andExpect(status().isOk());
         }
 
         // Act & Assert - First page with 2 items
-        mockMvc.perform(get("/agendamentos")
+        executar(get("/agendamentos")
                 .param("page", "0")
                 .param("size", "2"))
                 .andExpect(status().isOk())
@@ -208,7 +213,7 @@ class TransferenciaIntegrationTest {
                 .andExpect(jsonPath("$.number", is(0)));
 
         // Act & Assert - Second page with 2 items
-        mockMvc.perform(get("/agendamentos")
+        executar(get("/agendamentos")
                 .param("page", "1")
                 .param("size", "2"))
                 .andExpect(status().isOk())
@@ -218,7 +223,7 @@ class TransferenciaIntegrationTest {
                 .andExpect(jsonPath("$.number", is(1)));
 
         // Act & Assert - Third page with 2 items (should have only 1 item)
-        mockMvc.perform(get("/agendamentos")
+        executar(get("/agendamentos")
                 .param("page", "2")
                 .param("size", "2"))
                 .andExpect(status().isOk())
@@ -227,4 +232,12 @@ class TransferenciaIntegrationTest {
                 .andExpect(jsonPath("$.totalPages", is(3)))
                 .andExpect(jsonPath("$.number", is(2)));
     }
+
+    // Os controllers entregam o trabalho a um bulkhead e respondem de forma assíncrona
+    private ResultActions executar(RequestBuilder requisicao) throws Exception {
+        MvcResult resultado = mockMvc.perform(requisicao)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(resultado));
+    }
 }
@@ -0,0 +1,117 @@
+package com.wscastro.betransferscheduler.particao;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DespachanteFaixasTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private DespachanteFaixas despachante;
+
+    @AfterEach
+    void tearDown() {
+        despachante.encerrar();
+    }
+
+    @Test
+    void despachar_ComVariosProdutores_DeveManterAOrdemDeCadaConta() throws Exception {
+        // Arrange
+        despachante = new DespachanteFaixas(4, 1000, meterRegistry);
+        despachante.iniciar();
+        Map<String, List<Integer>> executadas = new ConcurrentHashMap<>();
+        List<CompletableFuture<Void>> futuros = Collections.synchronizedList(new ArrayList<>());
+
+        // Act: cada produtor despacha 1..500 de suas próprias contas, intercaladas com as dos outros
+        List<Thread> produtores = new ArrayList<>();
+        for (int p = 0; p < 4; p++) {
+            int produtor = p;
+            produtores.add(new Thread(() -> {
+                for (int seq = 0; seq < 500; seq++) {
+                    for (int c = 0; c < 8; c++) {
+                        String conta = String.format("%010d", produtor * 100 + c);
+                        int valor = seq;
+                        futuros.add(despachante.despachar(conta, () -> executadas
+                                .computeIfAbsent(conta, k -> Collections.synchronizedList(new ArrayList<>()))
+                                .add(valor)));
+                    }
+                }
+            }));
+        }
+        produtores.forEach(Thread::start);
+        for (Thread produtor : produtores) {
+            produtor.join();
+        }
+        CompletableFuture.allOf(futuros.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+
+        // Assert
+        assertEquals(32, executadas.size());
+        for (List<Integer> sequencia : executadas.values()) {
+            assertEquals(500, sequencia.size());
+            for (int i = 0; i < sequencia.size(); i++) {
+                assertEquals(i, sequencia.get(i));
+            }
+        }
+        for (int faixa = 0; faixa < despachante.getQuantidade(); faixa++) {
+            assertEquals(0, despachante.profundidade(faixa));
+        }
+    }
+
+    @Test
+    void despachar_ComFaixaQuente_DeveDesviarApenasContasSemPendencias() throws Exception {
+        // Arrange
+        despachante = new DespachanteFaixas(2, 3, meterRegistry);
+        despachante.iniciar();
+        String quente = contaNaFaixa(0, 0);
+        String ociosa = contaNaFaixa(0, 1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        List<String> ordem = Collections.synchronizedList(new ArrayList<>());
+        despachante.despachar(quente, () -> aguardar(liberar));
+        for (int i = 0; i < 5; i++) {
+            despachante.despachar(quente, () -> ordem.add(quente));
+        }
+
+        // Act
+        CompletableFuture<Void> desviada = despachante.despachar(ociosa, () -> ordem.add(ociosa));
+        int faixaQuente = despachante.faixaAtual(quente);
+        desviada.get(5, TimeUnit.SECONDS);
+        liberar.countDown();
+        despachante.despachar(quente, () -> ordem.add("ultima")).get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertEquals(0, faixaQuente);
+        assertEquals(ociosa, ordem.get(0));
+        assertEquals("ultima", ordem.get(ordem.size() - 1));
+        assertEquals(1.0, meterRegistry.counter("execucao.faixa.redistribuidas").count());
+        assertEquals(-1, despachante.faixaAtual(ociosa));
+    }
+
+    private static String contaNaFaixa(int faixa, int ignorar) {
+        int encontradas = 0;
+        for (long numero = 1_000_000_000L; ; numero++) {
+            String conta = String.valueOf(numero);
+            if (Math.floorMod(conta.hashCode(), 2) == faixa && encontradas++ == ignorar) {
+                return conta;
+            }
+        }
+    }
+
+    private static void aguardar(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
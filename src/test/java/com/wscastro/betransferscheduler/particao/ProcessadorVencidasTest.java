@@ -0,0 +1,173 @@
+package com.wscastro.betransferscheduler.particao;
+
+import com.wscastro.betransferscheduler.model.Transferencia;
+import com.wscastro.betransferscheduler.repository.TransferenciaRepository;
+import com.wscastro.betransferscheduler.repository.particionado.ParticionadoTransferenciaRepository;
+import com.wscastro.betransferscheduler.service.CacheListagemService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProcessadorVencidasTest {
+
+    private static final String CONTA = "0000000001";
+
+    private JdbcTemplate jdbc;
+    private TransferenciaRepository repository;
+    private GerenciadorParticoes gerenciador;
+    private DespachanteFaixas despachante;
+    private ThreadPoolTaskScheduler agendador;
+    private ProcessadorVencidas processador;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:vencidas-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "password");
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(dataSource);
+        jdbc = new JdbcTemplate(dataSource);
+        // Um armazenamento fora da tabela transferencia: o processador lê pelo repositório, nao por SQL direto
+        repository = new ParticionadoTransferenciaRepository(jdbc, new DataSourceTransactionManager(dataSource), 0,
+                (CacheListagemService) null);
+        gerenciador = new GerenciadorParticoes(dataSource, "no-teste", 1, Duration.ofSeconds(30),
+                Duration.ofSeconds(10));
+        gerenciador.iniciar();
+        gerenciador.heartbeat();
+        despachante = new DespachanteFaixas(1, 1000, new SimpleMeterRegistry());
+        despachante.iniciar();
+        agendador = new ThreadPoolTaskScheduler();
+        agendador.initialize();
+        processador = new ProcessadorVencidas(dataSource, repository, gerenciador, despachante, 500, agendador,
+                Duration.ofMillis(20));
+    }
+
+    @AfterEach
+    void tearDown() {
+        processador.encerrar();
+        agendador.shutdown();
+        despachante.encerrar();
+        gerenciador.encerrar();
+    }
+
+    @Test
+    void processar_ComFaixaOcupada_DeveRetornarSemEsperarOLote() throws Exception {
+        // Arrange: a faixa da conta fica presa numa tarefa anterior
+        long id = inserirVencida(CONTA);
+        CountDownLatch liberar = new CountDownLatch(1);
+        despachante.despachar(CONTA, () -> {
+            try {
+                liberar.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        // Act
+        CompletableFuture<Void> ciclo = processador.processar();
+
+        // Assert
+        assertFalse(ciclo.isDone());
+        assertEquals(0, execucoes(id));
+        liberar.countDown();
+        ciclo.get(5, TimeUnit.SECONDS);
+        assertEquals(1, execucoes(id));
+    }
+
+    @Test
+    void iniciar_DeveEncadearOsCiclosPeloAgendador() throws Exception {
+        // Arrange
+        processador.iniciar();
+
+        // Act: a transferência vence depois do primeiro ciclo; um ciclo seguinte a executa
+        Thread.sleep(100);
+        long id = inserirVencida(CONTA);
+
+        // Assert
+        long limite = System.currentTimeMillis() + 5000;
+        while (execucoes(id) == 0 && System.currentTimeMillis() < limite) {
+            Thread.sleep(20);
+        }
+        assertEquals(1, execucoes(id));
+    }
+
+    @Test
+    void processar_ComTransferenciasCompensadas_DeveExecutarSoALiquidacao() throws Exception {
+        // Arrange: duas transferências de hoje compensadas numa liquidacao
+        long ida = inserirVencida(CONTA);
+        long volta = inserirVencida("0000000002");
+        jdbc.update("insert into liquidacao (id, data, conta_origem, conta_destino, valor, valor_bruto, quantidade, "
+                + "criada_em) values (77, ?, ?, '0000000002', 0.00, 200.00, 2, ?)", LocalDate.now(), CONTA,
+                LocalDateTime.now());
+        jdbc.update("insert into transferencia_liquidacao (transferencia_id, liquidacao_id) values (?, 77), (?, 77)",
+                ida, volta);
+
+        // Act
+        processador.processar().get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertEquals(0, execucoes(ida));
+        assertEquals(0, execucoes(volta));
+        assertEquals(1, jdbc.queryForObject("select count(*) from liquidacao_execucao where liquidacao_id = 77",
+                Integer.class));
+    }
+
+    @Test
+    void encerrar_ComCicloEmAndamento_DeveEsperarOCicloTerminar() throws Exception {
+        // Arrange: o primeiro ciclo agendado fica preso na faixa da conta
+        long id = inserirVencida(CONTA);
+        CountDownLatch liberar = new CountDownLatch(1);
+        despachante.despachar(CONTA, () -> {
+            try {
+                liberar.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        processador.iniciar();
+        Thread.sleep(200);
+
+        // Act
+        CompletableFuture<Void> encerramento = CompletableFuture.runAsync(processador::encerrar);
+
+        // Assert
+        Thread.sleep(100);
+        assertFalse(encerramento.isDone());
+        liberar.countDown();
+        encerramento.get(5, TimeUnit.SECONDS);
+        assertEquals(1, execucoes(id));
+    }
+
+    private long inserirVencida(String conta) {
+        LocalDateTime agora = LocalDateTime.now().minusSeconds(1);
+        Transferencia t = new Transferencia();
+        t.setContaOrigem(conta);
+        t.setContaDestino("0000000009");
+        t.setValor(new BigDecimal("100.00"));
+        t.setTaxa(new BigDecimal("3.00"));
+        t.setDataAgendamento(agora);
+        t.setDataTransferencia(agora);
+        return repository.save(t).getId();
+    }
+
+    private int execucoes(long id) {
+        return jdbc.queryForObject("select count(*) from transferencia_execucao where transferencia_id = ?",
+                Integer.class, id);
+    }
+}
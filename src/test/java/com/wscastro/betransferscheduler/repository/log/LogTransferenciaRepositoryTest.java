@@ -0,0 +1,290 @@
+package com.wscastro.betransferscheduler.repository.log;
+
+import com.wscastro.betransferscheduler.model.Transferencia;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogTransferenciaRepositoryTest {
+
+    private static final int TAMANHO_SEGMENTO = 16 * CodificadorTransferencia.TAMANHO_REGISTRO;
+
+    @TempDir
+    Path diretorio;
+
+    private LogTransferenciaRepository transferenciaRepository;
+    private LocalDateTime hoje;
+
+    @BeforeEach
+    void setUp() {
+        transferenciaRepository = abrir();
+        hoje = LocalDateTime.now();
+    }
+
+    @Test
+    void save_DeveSalvarTransferencia() {
+        // Arrange
+        Transferencia transferencia = transferencia("1234567890", "100.00", 5);
+
+        // Act
+        Transferencia savedTransferencia = transferenciaRepository.save(transferencia);
+
+        // Assert
+        assertNotNull(savedTransferencia.getId());
+        Transferencia lida = transferenciaRepository.findById(savedTransferencia.getId()).orElseThrow();
+        assertEquals("1234567890", lida.getContaOrigem());
+        assertEquals("0987654321", lida.getContaDestino());
+        assertEquals(new BigDecimal("100.00"), lida.getValor());
+        assertEquals(new BigDecimal("12.00"), lida.getTaxa());
+        assertEquals(hoje, lida.getDataAgendamento());
+        assertEquals(hoje.plusDays(5), lida.getDataTransferencia());
+    }
+
+    @Test
+    void findAll_ComPaginacao_DeveRetornarPaginaDeTransferencias() {
+        // Arrange
+        for (int i = 0; i < 5; i++) {
+            transferenciaRepository.save(transferencia("1000000000", "100.00", i + 1));
+        }
+
+        // Act
+        Page<Transferencia> primeira = transferenciaRepository.findAll(PageRequest.of(0, 2));
+        Page<Transferencia> terceira = transferenciaRepository.findAll(PageRequest.of(2, 2));
+
+        // Assert
+        assertEquals(5, primeira.getTotalElements());
+        assertEquals(3, primeira.getTotalPages());
+        assertEquals(2, primeira.getContent().size());
+        assertEquals(1, terceira.getContent().size());
+    }
+
+    @Test
+    void findAll_ComOrdenacao_DeveOrdenarPeloCampo() {
+        // Arrange
+        transferenciaRepository.save(transferencia("1000000000", "300.00", 1));
+        transferenciaRepository.save(transferencia("1000000000", "100.00", 2));
+        transferenciaRepository.save(transferencia("1000000000", "200.00", 3));
+
+        // Act
+        Pageable pageable = PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "valor"));
+        List<Transferencia> ordenadas = transferenciaRepository.findAll(pageable).getContent();
+
+        // Assert
+        assertEquals(new BigDecimal("300.00"), ordenadas.get(0).getValor());
+        assertEquals(new BigDecimal("200.00"), ordenadas.get(1).getValor());
+        assertEquals(new BigDecimal("100.00"), ordenadas.get(2).getValor());
+    }
+
+    @Test
+    void delete_DeveRemoverTransferencia() {
+        // Arrange
+        Transferencia savedTransferencia = transferenciaRepository.save(transferencia("1234567890", "100.00", 5));
+
+        // Act
+        transferenciaRepository.delete(savedTransferencia);
+        Optional<Transferencia> deletedTransferencia = transferenciaRepository.findById(savedTransferencia.getId());
+
+        // Assert
+        assertFalse(deletedTransferencia.isPresent());
+        assertEquals(0, transferenciaRepository.count());
+    }
+
+    @Test
+    void recuperar_DeveReconstruirIndiceAPartirDosSegmentos() {
+        // Arrange
+        Transferencia mantida = transferenciaRepository.save(transferencia("1234567890", "100.00", 5));
+        Transferencia removida = transferenciaRepository.save(transferencia("1111111111", "200.00", 6));
+        mantida.setTaxa(new BigDecimal("15.00"));
+        transferenciaRepository.save(mantida);
+        transferenciaRepository.delete(removida);
+        transferenciaRepository.fechar();
+
+        // Act
+        LogTransferenciaRepository reaberto = abrir();
+
+        // Assert
+        assertEquals(1, reaberto.count());
+        assertEquals(new BigDecimal("15.00"), reaberto.findById(mantida.getId()).orElseThrow().getTaxa());
+        assertFalse(reaberto.existsById(removida.getId()));
+        assertTrue(reaberto.save(transferencia("2222222222", "1.00", 1)).getId() > removida.getId());
+    }
+
+    @Test
+    void recuperar_ComRegistroCorrompidoNoFinal_DeveDescartarSomenteEle() throws IOException {
+        // Arrange
+        transferenciaRepository.save(transferencia("1234567890", "100.00", 5));
+        transferenciaRepository.save(transferencia("1111111111", "200.00", 6));
+        transferenciaRepository.fechar();
+        try (RandomAccessFile arquivo = new RandomAccessFile(diretorio.resolve("segmento-000001.log").toFile(), "rw")) {
+            arquivo.seek(CodificadorTransferencia.TAMANHO_REGISTRO + 20);
+            arquivo.write(0x7F);
+        }
+
+        // Act
+        LogTransferenciaRepository reaberto = abrir();
+        Transferencia nova = reaberto.save(transferencia("3333333333", "50.00", 2));
+
+        // Assert
+        List<Transferencia> recuperadas = abrir().findAll();
+        assertEquals(2, recuperadas.size());
+        assertEquals("1234567890", recuperadas.get(0).getContaOrigem());
+        assertEquals(nova.getId(), recuperadas.get(1).getId());
+        assertEquals("3333333333", recuperadas.get(1).getContaOrigem());
+    }
+
+    @Test
+    void compactar_DeveRecuperarEspacoSemPerderTransferenciasVivas() {
+        // Arrange - enche dois segmentos e remove quase tudo do primeiro
+        for (int i = 0; i < 20; i++) {
+            transferenciaRepository.save(transferencia("1000000000", String.valueOf(i + 1), 1));
+        }
+        for (long id = 1; id <= 14; id++) {
+            transferenciaRepository.deleteById(id);
+        }
+        int segmentosAntes = transferenciaRepository.quantidadeSegmentos();
+
+        // Act
+        transferenciaRepository.compactar();
+
+        // Assert
+        assertTrue(transferenciaRepository.quantidadeSegmentos() < segmentosAntes);
+        assertEquals(6, transferenciaRepository.count());
+        LogTransferenciaRepository reaberto = abrir();
+        assertEquals(6, reaberto.count());
+        assertEquals(new BigDecimal("20.00"), reaberto.findById(20L).orElseThrow().getValor());
+        assertFalse(reaberto.existsById(1L));
+    }
+
+    @Test
+    void save_DentroDeTransacao_SoDeveGravarNoCommit() {
+        // Arrange
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            Transferencia transferencia = transferenciaRepository.save(transferencia("1234567890", "100.00", 5));
+            assertFalse(transferenciaRepository.existsById(transferencia.getId()));
+
+            // Act
+            concluir(TransactionSynchronization.STATUS_COMMITTED);
+
+            // Assert
+            assertTrue(transferenciaRepository.existsById(transferencia.getId()));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void save_ComRollbackDepoisDeAplicar_DeveDesfazerAsEscritas() {
+        // Arrange
+        Transferencia existente = transferenciaRepository.save(transferencia("1234567890", "100.00", 5));
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            Transferencia nova = transferenciaRepository.save(transferencia("1111111111", "200.00", 6));
+            existente.setTaxa(new BigDecimal("99.00"));
+            transferenciaRepository.save(existente);
+
+            // Act - o banco falha depois que o log já foi gravado
+            concluir(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+            // Assert
+            assertFalse(transferenciaRepository.existsById(nova.getId()));
+            assertEquals(new BigDecimal("12.00"), transferenciaRepository.findById(existente.getId()).orElseThrow().getTaxa());
+            assertEquals(List.of(existente.getId()), transferenciaRepository.buscarVencimentos(hoje, hoje.plusDays(10))
+                    .stream().map(Transferencia::getId).collect(Collectors.toList()));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void delete_ConcorrenteJaConfirmado_DeveFalharNoCommit() {
+        // Arrange
+        Transferencia transferencia = transferenciaRepository.save(transferencia("1234567890", "100.00", 5));
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            Transferencia lida = transferenciaRepository.findById(transferencia.getId()).orElseThrow();
+            transferenciaRepository.delete(lida);
+            transferenciaRepository.delete(transferencia);
+
+            // Act & Assert
+            assertThrows(ObjectOptimisticLockingFailureException.class, () -> {
+                for (TransactionSynchronization sincronizacao : TransactionSynchronizationManager.getSynchronizations()) {
+                    sincronizacao.beforeCommit(false);
+                }
+            });
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+            assertTrue(transferenciaRepository.existsById(transferencia.getId()));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void consultas_DevemUsarOsIndicesEmMemoria() {
+        // Arrange
+        Transferencia primeira = transferencia("1234567890", "100.00", 3);
+        primeira.setVersao(7L);
+        Transferencia segunda = transferencia("1234567890", "100.0", 1);
+        segunda.setVersao(9L);
+        transferenciaRepository.save(primeira);
+        transferenciaRepository.save(segunda);
+        Transferencia igual = transferenciaRepository.save(transferencia("1234567890", "100", 3));
+        transferenciaRepository.fechar();
+
+        // Act
+        LogTransferenciaRepository reaberto = abrir();
+
+        // Assert
+        assertEquals(List.of(segunda.getId(), primeira.getId(), igual.getId()), reaberto.buscarVencimentos(hoje,
+                hoje.plusDays(4)).stream().map(Transferencia::getId).collect(Collectors.toList()));
+        assertEquals(List.of(primeira.getId(), igual.getId()), reaberto.buscarDuplicadas("1234567890", "0987654321",
+                new BigDecimal("100.000"), hoje.plusDays(3)));
+        assertEquals(9L, reaberto.buscarMaiorVersao());
+        assertEquals(List.of(segunda.getId()), reaberto.findByVersaoGreaterThanAndVersaoLessThanEqualOrderByVersaoAsc(
+                7L, 9L, PageRequest.of(0, 10)).stream().map(Transferencia::getId).collect(Collectors.toList()));
+        Page<Transferencia> porVencimento = reaberto.findAll(PageRequest.of(1, 2, Sort.by("dataTransferencia")));
+        assertEquals(3, porVencimento.getTotalElements());
+        assertEquals(igual.getId(), porVencimento.getContent().get(0).getId());
+    }
+
+    // Simula o gerenciador de transacoes: aplica as escritas e termina com o status dado
+    private void concluir(int status) {
+        List<TransactionSynchronization> sincronizacoes = TransactionSynchronizationManager.getSynchronizations();
+        sincronizacoes.forEach(s -> s.beforeCommit(false));
+        sincronizacoes.forEach(s -> s.afterCompletion(status));
+    }
+
+    private LogTransferenciaRepository abrir() {
+        return new LogTransferenciaRepository(diretorio, TAMANHO_SEGMENTO, 0.5, false, null);
+    }
+
+    private Transferencia transferencia(String contaOrigem, String valor, int dias) {
+        Transferencia transferencia = new Transferencia();
+        transferencia.setContaOrigem(contaOrigem);
+        transferencia.setContaDestino("0987654321");
+        transferencia.setValor(new BigDecimal(valor));
+        transferencia.setTaxa(new BigDecimal("12.00"));
+        transferencia.setDataAgendamento(hoje);
+        transferencia.setDataTransferencia(hoje.plusDays(dias));
+        return transferencia;
+    }
+}
@@ -0,0 +1,195 @@
+package com.wscastro.betransferscheduler.repository.memoria;
+
+import com.wscastro.betransferscheduler.model.Transferencia;
+import com.wscastro.betransferscheduler.repository.log.CodificadorTransferencia;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MemoriaTransferenciaRepositoryTest {
+
+    @TempDir
+    Path diretorio;
+
+    private MemoriaTransferenciaRepository transferenciaRepository;
+    private LocalDateTime hoje;
+
+    @BeforeEach
+    void setUp() {
+        hoje = LocalDateTime.now();
+        transferenciaRepository = abrir();
+    }
+
+    @Test
+    void save_DeveSalvarTransferencia() {
+        // Arrange
+        Transferencia transferencia = transferencia("1234567890", "100.00");
+
+        // Act
+        Transferencia savedTransferencia = transferenciaRepository.save(transferencia);
+
+        // Assert
+        assertNotNull(savedTransferencia.getId());
+        Transferencia lida = transferenciaRepository.findById(savedTransferencia.getId()).orElseThrow();
+        assertEquals("1234567890", lida.getContaOrigem());
+        assertEquals(new BigDecimal("100.00"), lida.getValor());
+        assertEquals(hoje, lida.getDataAgendamento());
+    }
+
+    @Test
+    void findById_DeveDevolverCopiaDesvinculadaDoEstado() {
+        // Arrange
+        Long id = transferenciaRepository.save(transferencia("1234567890", "100.00")).getId();
+
+        // Act
+        transferenciaRepository.findById(id).orElseThrow().setValor(new BigDecimal("999.00"));
+
+        // Assert
+        assertEquals(new BigDecimal("100.00"), transferenciaRepository.findById(id).orElseThrow().getValor());
+    }
+
+    @Test
+    void recuperar_SemSnapshot_DeveReproduzirODiario() {
+        // Arrange
+        Transferencia mantida = transferenciaRepository.save(transferencia("1234567890", "100.00"));
+        Transferencia removida = transferenciaRepository.save(transferencia("1111111111", "200.00"));
+        mantida.setTaxa(new BigDecimal("15.00"));
+        transferenciaRepository.save(mantida);
+        transferenciaRepository.delete(removida);
+
+        // Act
+        MemoriaTransferenciaRepository reaberto = abrir();
+
+        // Assert
+        assertEquals(1, reaberto.count());
+        assertEquals(new BigDecimal("15.00"), reaberto.findById(mantida.getId()).orElseThrow().getTaxa());
+        assertFalse(reaberto.existsById(removida.getId()));
+    }
+
+    @Test
+    void recuperar_DeveCarregarSnapshotEReproduzirSomenteODiarioPosterior() throws IOException {
+        // Arrange
+        for (int i = 0; i < 3; i++) {
+            transferenciaRepository.save(transferencia("1000000000", "100.00"));
+        }
+        transferenciaRepository.gerarSnapshot();
+        transferenciaRepository.save(transferencia("2000000000", "50.00"));
+        transferenciaRepository.deleteById(1L);
+
+        // Act
+        MemoriaTransferenciaRepository reaberto = abrir();
+
+        // Assert
+        assertEquals(3, reaberto.count());
+        assertFalse(reaberto.existsById(1L));
+        assertEquals("2000000000", reaberto.findById(4L).orElseThrow().getContaOrigem());
+        assertEquals(List.of("diario-000002.wal", "diario-000003.wal", "snapshot-000002.bin"), arquivos());
+    }
+
+    @Test
+    void recuperar_ComRegistroIncompletoNoFinalDoDiario_DeveDescartarSomenteEle() throws IOException {
+        // Arrange
+        transferenciaRepository.save(transferencia("1234567890", "100.00"));
+        transferenciaRepository.save(transferencia("1111111111", "200.00"));
+        transferenciaRepository.flush();
+        byte[] gravacaoInterrompida = new byte[CodificadorTransferencia.TAMANHO_REGISTRO + 50];
+        Arrays.fill(gravacaoInterrompida, (byte) 1);
+        Files.write(diretorio.resolve("diario-000001.wal"), gravacaoInterrompida, StandardOpenOption.APPEND);
+
+        // Act
+        MemoriaTransferenciaRepository reaberto = abrir();
+        reaberto.save(transferencia("3333333333", "50.00"));
+
+        // Assert
+        MemoriaTransferenciaRepository recuperado = abrir();
+        assertEquals(3, recuperado.count());
+        assertEquals("3333333333", recuperado.findById(3L).orElseThrow().getContaOrigem());
+    }
+
+    @Test
+    void gerarSnapshot_NaoDeveReutilizarIdsDeTransferenciasRemovidas() {
+        // Arrange
+        for (int i = 0; i < 3; i++) {
+            transferenciaRepository.save(transferencia("1000000000", "100.00"));
+        }
+        transferenciaRepository.deleteById(3L);
+        transferenciaRepository.gerarSnapshot();
+
+        // Act
+        MemoriaTransferenciaRepository reaberto = abrir();
+        Transferencia nova = reaberto.save(transferencia("1000000000", "100.00"));
+
+        // Assert
+        assertEquals(4L, nova.getId());
+    }
+
+    @Test
+    void delete_ComRollbackDepoisDoCommitDoDiario_DeveRestaurarInclusiveNaRecuperacao() {
+        // Arrange
+        Transferencia transferencia = transferenciaRepository.save(transferencia("1234567890", "100.00"));
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            transferenciaRepository.delete(transferencia);
+            List<TransactionSynchronization> sincronizacoes = TransactionSynchronizationManager.getSynchronizations();
+
+            // Act
+            sincronizacoes.forEach(s -> s.beforeCommit(false));
+            assertFalse(transferenciaRepository.existsById(transferencia.getId()));
+            sincronizacoes.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        // Assert
+        assertTrue(transferenciaRepository.existsById(transferencia.getId()));
+        transferenciaRepository.fechar();
+        assertTrue(abrir().existsById(transferencia.getId()));
+    }
+
+    @Test
+    void delete_DeTransferenciaJaRemovida_DeveFalhar() {
+        // Arrange
+        Transferencia transferencia = transferenciaRepository.save(transferencia("1234567890", "100.00"));
+        transferenciaRepository.delete(transferencia);
+
+        // Act & Assert
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> transferenciaRepository.delete(transferencia));
+    }
+
+    private MemoriaTransferenciaRepository abrir() {
+        return new MemoriaTransferenciaRepository(diretorio, true, null);
+    }
+
+    private List<String> arquivos() throws IOException {
+        try (Stream<Path> arquivos = Files.list(diretorio)) {
+            return arquivos.map(p -> p.getFileName().toString()).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private Transferencia transferencia(String contaOrigem, String valor) {
+        Transferencia transferencia = new Transferencia();
+        transferencia.setContaOrigem(contaOrigem);
+        transferencia.setContaDestino("0987654321");
+        transferencia.setValor(new BigDecimal(valor));
+        transferencia.setTaxa(new BigDecimal("12.00"));
+        transferencia.setDataAgendamento(hoje);
+        transferencia.setDataTransferencia(hoje.plusDays(5));
+        return transferencia;
+    }
+}
@@ -0,0 +1,320 @@
+package com.wscastro.betransferscheduler.repository.particionado;
+
+import com.wscastro.betransferscheduler.model.Transferencia;
+import com.wscastro.betransferscheduler.repository.ResumoDiarioRepository.TotaisDiarios;
+import com.wscastro.betransferscheduler.repository.TransferenciaRepository.SaidaDiaria;
+import com.wscastro.betransferscheduler.service.CacheListagemService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.DatabasePopulatorUtils;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParticionadoTransferenciaRepositoryTest {
+
+    private JdbcTemplate jdbc;
+    private DataSourceTransactionManager transactionManager;
+    private LocalDateTime agora;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:particionado-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "password");
+        DatabasePopulatorUtils.execute(new ResourceDatabasePopulator(new ClassPathResource("schema.sql")), dataSource);
+        jdbc = new JdbcTemplate(dataSource);
+        transactionManager = new DataSourceTransactionManager(dataSource);
+        agora = LocalDateTime.now().withNano(0);
+    }
+
+    @Test
+    void save_DeveGravarNaParticaoDoMesDeVencimento() {
+        // Arrange
+        ParticionadoTransferenciaRepository repositorio = abrir(0);
+        LocalDateTime proximoMes = agora.plusMonths(1);
+
+        // Act
+        Long id = repositorio.save(transferencia("100.00", agora)).getId();
+        repositorio.save(transferencia("200.00", proximoMes));
+
+        // Assert
+        String tabela = "transferencia_p" + YearMonth.from(proximoMes).toString().replace("-", "");
+        assertEquals(1, jdbc.queryForObject("select count(*) from " + tabela, Integer.class));
+        assertEquals(2, repositorio.particoes().size());
+        assertEquals(2, repositorio.count());
+        assertEquals(new BigDecimal("100.00"), repositorio.findById(id).orElseThrow().getValor());
+    }
+
+    @Test
+    void buscarVencimentos_DeveLerSoAsParticoesDoPeriodo() {
+        // Arrange
+        ParticionadoTransferenciaRepository repositorio = abrir(0);
+        LocalDateTime inicio = agora.plusMonths(2).withDayOfMonth(1).toLocalDate().atStartOfDay();
+        repositorio.save(transferencia("100.00", inicio.minusMonths(1)));
+        repositorio.save(transferencia("200.00", inicio.plusDays(3)));
+        repositorio.save(transferencia("300.00", inicio.plusDays(1)));
+        repositorio.save(transferencia("400.00", inicio.plusMonths(1)));
+
+        // Act
+        List<Transferencia> semana = repositorio.buscarVencimentos(inicio, inicio.plusDays(7));
+
+        // Assert
+        assertEquals(List.of("transferencia_p" + YearMonth.from(inicio).toString().replace("-", "")),
+                repositorio.particoesEntre(inicio, inicio.plusDays(7)));
+        assertEquals(List.of("300.00", "200.00"), semana.stream().map(t -> t.getValor().toPlainString())
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    void somarSaidasPorContaEDia_DeveIgnorarParticoesAnterioresAoInicio() {
+        // Arrange
+        ParticionadoTransferenciaRepository repositorio = abrir(0);
+        repositorio.save(transferencia("100.00", agora.minusMonths(2)));
+        repositorio.save(transferencia("200.00", agora.plusDays(1)));
+        repositorio.save(transferencia("50.00", agora.plusDays(1)));
+
+        // Act
+        List<SaidaDiaria> saidas = repositorio.somarSaidasPorContaEDia(agora.toLocalDate().atStartOfDay());
+
+        // Assert
+        assertEquals(1, saidas.size());
+        assertEquals(0, new BigDecimal("250.00").compareTo(saidas.get(0).getTotal()));
+    }
+
+    @Test
+    void somarTotaisPorDia_DeveSomarCadaDiaDasParticoes() {
+        // Arrange
+        ParticionadoTransferenciaRepository repositorio = abrir(0);
+        repositorio.save(transferencia("100.00", agora.plusDays(1)));
+        repositorio.save(transferencia("50.00", agora.plusDays(1)));
+        repositorio.save(transferencia("200.00", agora.plusMonths(2)));
+
+        // Act
+        List<TotaisDiarios> totais = repositorio.somarTotaisPorDia();
+
+        // Assert
+        TotaisDiarios dia = totais.stream().filter(t -> t.getData().equals(agora.plusDays(1).toLocalDate()))
+                .findFirst().orElseThrow();
+        assertEquals(2, totais.size());
+        assertEquals(2L, dia.getQuantidade());
+        assertEquals(0, new BigDecimal("150.00").compareTo(dia.getValorTotal()));
+        assertEquals(0, new BigDecimal("24.00").compareTo(dia.getTaxaTotal()));
+    }
+
+    @Test
+    void descartarVencidas_DeveRemoverAParticaoInteiraSemTocarNasDemais() {
+        // Arrange
+        ParticionadoTransferenciaRepository repositorio = abrir(3);
+        repositorio.save(transferencia("100.00", agora.minusMonths(5)));
+        repositorio.save(transferencia("100.00", agora.minusMonths(5)));
+        Long mantida = repositorio.save(transferencia("200.00", agora.plusDays(1))).getId();
+
+        // Act
+        repositorio.descartarVencidas();
+
+        // Assert
+        assertEquals(1, repositorio.particoes().size());
+        assertEquals(1, repositorio.count());
+        assertTrue(repositorio.existsById(mantida));
+        String descartada = "TRANSFERENCIA_P" + YearMonth.from(agora.minusMonths(5)).toString().replace("-", "");
+        assertEquals(0, jdbc.queryForObject("select count(*) from information_schema.tables where table_name = ?",
+                Integer.class, descartada));
+    }
+
+    @Test
+    void abrir_DeveContinuarOsIdsDasParticoesExistentes() {
+        // Arrange
+        ParticionadoTransferenciaRepository repositorio = abrir(0);
+        repositorio.save(transferencia("100.00", agora));
+        Long ultimo = repositorio.save(transferencia("200.00", agora.plusMonths(3))).getId();
+
+        // Act
+        Long proximo = abrir(0).save(transferencia("300.00", agora)).getId();
+
+        // Assert
+        assertEquals(ultimo + 1, proximo);
+    }
+
+    @Test
+    void abrir_ComParticaoGravadaAntesDaSequencia_DeveAvancarASequencia() {
+        // Arrange
+        abrir(0).save(transferencia("100.00", agora));
+        String tabela = "transferencia_p" + YearMonth.from(agora).toString().replace("-", "");
+        jdbc.update("update " + tabela + " set id = 50");
+
+        // Act
+        Long proximo = abrir(0).save(transferencia("200.00", agora)).getId();
+
+        // Assert
+        assertEquals(51L, proximo);
+    }
+
+    @Test
+    void save_EmDuasInstancias_DeveGerarIdsDistintosPelaSequencia() {
+        // Arrange
+        ParticionadoTransferenciaRepository primeira = abrir(0);
+        ParticionadoTransferenciaRepository segunda = abrir(0);
+
+        // Act
+        Long a = primeira.save(transferencia("100.00", agora)).getId();
+        Long b = segunda.save(transferencia("200.00", agora)).getId();
+        Long c = primeira.save(transferencia("300.00", agora)).getId();
+
+        // Assert
+        assertEquals(3, List.of(a, b, c).stream().distinct().count());
+        assertEquals(3, primeira.count());
+    }
+
+    @Test
+    void save_ComIdJaUsado_DeveFalharSemSobrescrever() {
+        // Arrange
+        ParticionadoTransferenciaRepository repositorio = abrir(0);
+        Long id = repositorio.save(transferencia("100.00", agora)).getId();
+        jdbc.execute("alter sequence transferencia_id_seq restart with " + id);
+
+        // Act & Assert
+        assertThrows(DuplicateKeyException.class, () -> repositorio.save(transferencia("200.00", agora)));
+        assertEquals(new BigDecimal("100.00"), repositorio.findById(id).orElseThrow().getValor());
+    }
+
+    @Test
+    void save_ComIdExistente_DeveAtualizarNaParticao() {
+        // Arrange
+        ParticionadoTransferenciaRepository repositorio = abrir(0);
+        Transferencia salva = repositorio.save(transferencia("100.00", agora));
+        salva.setTaxa(new BigDecimal("20.00"));
+
+        // Act
+        repositorio.save(salva);
+
+        // Assert
+        assertEquals(1, repositorio.count());
+        assertEquals(new BigDecimal("20.00"), repositorio.findById(salva.getId()).orElseThrow().getTaxa());
+    }
+
+    @Test
+    void save_DentroDeTransacaoDesfeita_NaoDeveGravarNada() {
+        // Arrange
+        ParticionadoTransferenciaRepository repositorio = abrir(0);
+        TransactionTemplate transacao = new TransactionTemplate(transactionManager);
+
+        // Act
+        transacao.executeWithoutResult(status -> {
+            repositorio.save(transferencia("100.00", agora.plusMonths(4)));
+            assertEquals(1, repositorio.count());
+            status.setRollbackOnly();
+        });
+
+        // Assert
+        assertEquals(0, repositorio.count());
+        assertEquals(1, repositorio.particoes().size());
+    }
+
+    @Test
+    void save_DentroDeTransacao_DeveFalharNaHoraComIdRepetido() {
+        // Arrange
+        ParticionadoTransferenciaRepository repositorio = abrir(0);
+        Long id = repositorio.save(transferencia("100.00", agora)).getId();
+        jdbc.execute("alter sequence transferencia_id_seq restart with " + id);
+        TransactionTemplate transacao = new TransactionTemplate(transactionManager);
+
+        // Act & Assert
+        assertThrows(DuplicateKeyException.class, () -> transacao.executeWithoutResult(status ->
+                repositorio.save(transferencia("200.00", agora))));
+        assertEquals(1, repositorio.count());
+    }
+
+    @Test
+    void findAll_PaginadoPeloVencimento_DeveLerSoAsParticoesDaPagina() {
+        // Arrange
+        ParticionadoTransferenciaRepository repositorio = abrir(0);
+        LocalDateTime inicio = agora.plusMonths(1).withDayOfMonth(1).toLocalDate().atStartOfDay();
+        for (int mes = 0; mes < 3; mes++) {
+            for (int dia = 0; dia < 3; dia++) {
+                repositorio.save(transferencia((mes * 3 + dia + 1) + ".00", inicio.plusMonths(mes).plusDays(dia)));
+            }
+        }
+
+        // Act
+        Page<Transferencia> crescente = repositorio.findAll(PageRequest.of(1, 4, Sort.by("dataTransferencia")));
+        Page<Transferencia> decrescente = repositorio.findAll(
+                PageRequest.of(0, 2, Sort.by(Sort.Direction.DESC, "dataTransferencia")));
+
+        // Assert
+        assertEquals(9, crescente.getTotalElements());
+        assertEquals(List.of("5.00", "6.00", "7.00", "8.00"), valores(crescente.getContent()));
+        assertEquals(List.of("9.00", "8.00"), valores(decrescente.getContent()));
+    }
+
+    @Test
+    void findAll_PaginadoSemOrdenacao_DeveSeguirOId() {
+        // Arrange
+        ParticionadoTransferenciaRepository repositorio = abrir(0);
+        repositorio.save(transferencia("1.00", agora.plusMonths(2)));
+        repositorio.save(transferencia("2.00", agora));
+        repositorio.save(transferencia("3.00", agora.plusMonths(1)));
+
+        // Act
+        Page<Transferencia> pagina = repositorio.findAll(PageRequest.of(0, 2));
+
+        // Assert
+        assertEquals(3, pagina.getTotalElements());
+        assertEquals(List.of("1.00", "2.00"), valores(pagina.getContent()));
+    }
+
+    @Test
+    void findByVersao_DeveFiltrarEOrdenarNoBanco() {
+        // Arrange
+        ParticionadoTransferenciaRepository repositorio = abrir(0);
+        long[] versoes = {5, 2, 9, 7};
+        for (int i = 0; i < versoes.length; i++) {
+            Transferencia t = transferencia((i + 1) + ".00", agora.plusMonths(i));
+            t.setVersao(versoes[i]);
+            repositorio.save(t);
+        }
+
+        // Act
+        List<Transferencia> alteradas = repositorio.findByVersaoGreaterThanAndVersaoLessThanEqualOrderByVersaoAsc(
+                2L, 9L, PageRequest.of(0, 2));
+
+        // Assert
+        assertEquals(List.of(5L, 7L), alteradas.stream().map(Transferencia::getVersao).collect(Collectors.toList()));
+        assertEquals(9L, repositorio.buscarMaiorVersao());
+    }
+
+    private static List<String> valores(List<Transferencia> transferencias) {
+        return transferencias.stream().map(t -> t.getValor().toPlainString()).collect(Collectors.toList());
+    }
+
+    private ParticionadoTransferenciaRepository abrir(int retencaoMeses) {
+        return new ParticionadoTransferenciaRepository(jdbc, transactionManager, retencaoMeses,
+                (CacheListagemService) null);
+    }
+
+    private Transferencia transferencia(String valor, LocalDateTime dataTransferencia) {
+        Transferencia t = new Transferencia();
+        t.setContaOrigem("1234567890");
+        t.setContaDestino("0987654321");
+        t.setValor(new BigDecimal(valor));
+        t.setTaxa(new BigDecimal("12.00"));
+        t.setDataAgendamento(agora);
+        t.setDataTransferencia(dataTransferencia);
+        return t;
+    }
+}
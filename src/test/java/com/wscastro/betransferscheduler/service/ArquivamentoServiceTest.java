@@ -0,0 +1,110 @@
+package com.wscastro.betransferscheduler.service;
+
+import com.wscastro.betransferscheduler.dto.ArquivamentoDTO;
+import com.wscastro.betransferscheduler.repository.TransferenciaRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.DatabasePopulatorUtils;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ArquivamentoServiceTest {
+
+    private DriverManagerDataSource dataSource;
+    private JdbcTemplate jdbc;
+    private TransferenciaRepository transferenciaRepository;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:arquivamento-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                "sa", "password");
+        DatabasePopulatorUtils.execute(new ResourceDatabasePopulator(new ClassPathResource("schema.sql")), dataSource);
+        jdbc = new JdbcTemplate(dataSource);
+        transferenciaRepository = mock(TransferenciaRepository.class);
+        when(transferenciaRepository.naTabelaTransferencia()).thenReturn(true);
+        // Versoes já gravadas antes do arquivamento
+        new ContadorVersoes(jdbc, new DataSourceTransactionManager(dataSource), 300).garantirAoMenos(1008L);
+    }
+
+    @Test
+    void arquivar_DeveMoverEmLotesSoAsAnterioresARetencao() {
+        // Arrange
+        for (long id = 1; id <= 5; id++) {
+            agendar(id, LocalDate.now().minusDays(100));
+        }
+        agendar(6, LocalDate.now().minusDays(10));
+        agendar(7, LocalDate.now().plusDays(3));
+        agendar(8, LocalDate.now().minusDays(91));
+
+        // Act
+        ArquivamentoDTO resultado = servico(2).arquivar();
+
+        // Assert
+        assertEquals(6, resultado.getArquivadas());
+        assertEquals(3, resultado.getLotes());
+        assertEquals(2, jdbc.queryForObject("select count(*) from transferencia", Integer.class));
+        assertEquals(6, jdbc.queryForObject("select count(*) from transferencia_arquivada", Integer.class));
+        assertEquals(1008L, jdbc.queryForObject("select versao from transferencia_arquivada where id = 8", Long.class));
+        assertEquals(6, jdbc.queryForObject("select count(distinct versao) from transferencia_removida "
+                + "where id in (1, 2, 3, 4, 5, 8) and versao > 1008", Integer.class));
+        assertEquals(0, servico(2).arquivar().getArquivadas());
+    }
+
+    @Test
+    void arquivar_ComArmazenamentoAlternativo_DeveRecusar() {
+        // Arrange
+        agendar(1, LocalDate.now().minusDays(100));
+        when(transferenciaRepository.naTabelaTransferencia()).thenReturn(false);
+        doCallRealMethod().when(transferenciaRepository).exigirTabelaTransferencia(anyString());
+
+        // Act & Assert
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class, () -> servico(100).arquivar());
+        assertEquals(HttpStatus.NOT_IMPLEMENTED, exception.getStatus());
+        assertEquals(1, jdbc.queryForObject("select count(*) from transferencia", Integer.class));
+    }
+
+    @Test
+    void arquivar_SemTransferenciasAntigas_NaoDeveAlterarNada() {
+        // Arrange
+        agendar(1, LocalDate.now().minusDays(89));
+
+        // Act
+        ArquivamentoDTO resultado = servico(100).arquivar();
+
+        // Assert
+        assertEquals(0, resultado.getArquivadas());
+        assertEquals(0, resultado.getLotes());
+        assertEquals(1, jdbc.queryForObject("select count(*) from transferencia", Integer.class));
+    }
+
+    private ArquivamentoService servico(int tamanhoLote) {
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        ContadorVersoes contador = new ContadorVersoes(jdbc, transactionManager, 300);
+        SincronizacaoService sincronizacao = new SincronizacaoService(transferenciaRepository, null, contador,
+                transactionManager, 168, 1000);
+        return new ArquivamentoService(jdbc, transactionManager, null, transferenciaRepository, sincronizacao,
+                new CacheListagemService(contador, 3, 64), 90, tamanhoLote);
+    }
+
+    private void agendar(long id, LocalDate dia) {
+        jdbc.update("insert into transferencia (id, conta_origem, conta_destino, valor, taxa, data_agendamento, "
+                        + "data_transferencia, versao) values (?, '1000000001', '1000000002', 100.00, 12.00, ?, ?, ?)",
+                id, Timestamp.valueOf(dia.minusDays(5).atStartOfDay()), Timestamp.valueOf(dia.atTime(10, 0)),
+                1000 + id);
+    }
+}
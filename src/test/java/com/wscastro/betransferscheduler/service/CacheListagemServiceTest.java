@@ -0,0 +1,120 @@
+package com.wscastro.betransferscheduler.service;
+
+import com.wscastro.betransferscheduler.dto.TransferenciaResponseDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class CacheListagemServiceTest {
+
+    private ContadorVersoes contadorVersoes;
+    private CacheListagemService cacheListagemService;
+    private Page<TransferenciaResponseDTO> pagina;
+
+    @BeforeEach
+    void setUp() {
+        contadorVersoes = mock(ContadorVersoes.class);
+        cacheListagemService = new CacheListagemService(contadorVersoes, 2, 4);
+        pagina = new PageImpl<>(List.of(new TransferenciaResponseDTO()));
+    }
+
+    @Test
+    void buscar_NaMesmaVersao_DeveRetornarPaginaGuardada() {
+        // Arrange
+        Pageable pageable = PageRequest.of(0, 20, Sort.by("dataTransferencia"));
+        long versao = cacheListagemService.versao();
+        cacheListagemService.guardar(pageable, versao, pagina);
+
+        // Act
+        Page<TransferenciaResponseDTO> result = cacheListagemService.buscar(PageRequest.of(0, 20, Sort.by("dataTransferencia")), versao);
+
+        // Assert
+        assertSame(pagina, result);
+        assertNull(cacheListagemService.buscar(PageRequest.of(0, 20), versao));
+    }
+
+    @Test
+    void registrarAlteracao_DeveAvancarVersaoEInvalidarPaginas() {
+        // Arrange
+        Pageable pageable = PageRequest.of(0, 20);
+        long versao = cacheListagemService.versao();
+        String etagAnterior = cacheListagemService.etag();
+        cacheListagemService.guardar(pageable, versao, pagina);
+
+        // Act
+        cacheListagemService.registrarAlteracao();
+
+        // Assert
+        assertEquals(versao + 1, cacheListagemService.versao());
+        assertNotEquals(etagAnterior, cacheListagemService.etag());
+        assertNull(cacheListagemService.buscar(pageable, cacheListagemService.versao()));
+    }
+
+    @Test
+    void atualizarVersaoGlobal_ComEscritaDeOutraInstancia_DeveInvalidarPaginas() {
+        // Arrange
+        Pageable pageable = PageRequest.of(0, 20);
+        long versao = cacheListagemService.versao();
+        cacheListagemService.guardar(pageable, versao, pagina);
+        when(contadorVersoes.versaoSegura()).thenReturn(7L);
+
+        // Act
+        cacheListagemService.atualizarVersaoGlobal();
+        long nova = cacheListagemService.versao();
+        cacheListagemService.atualizarVersaoGlobal();
+
+        // Assert
+        assertNotEquals(versao, nova);
+        assertNull(cacheListagemService.buscar(pageable, nova));
+        assertEquals(nova, cacheListagemService.versao());
+    }
+
+    @Test
+    void etag_NaoDeveConsultarOBanco() {
+        // Act
+        cacheListagemService.etag();
+        cacheListagemService.versao();
+
+        // Assert
+        verifyNoInteractions(contadorVersoes);
+    }
+
+    @Test
+    void guardar_ComVersaoLidaAntesDeUmaEscrita_NaoDeveGuardar() {
+        // Arrange
+        Pageable pageable = PageRequest.of(0, 20);
+        long versaoLida = cacheListagemService.versao();
+        cacheListagemService.registrarAlteracao();
+
+        // Act
+        cacheListagemService.guardar(pageable, versaoLida, pagina);
+
+        // Assert
+        assertNull(cacheListagemService.buscar(pageable, versaoLida));
+        assertNull(cacheListagemService.buscar(pageable, cacheListagemService.versao()));
+    }
+
+    @Test
+    void guardar_ForaDasPrimeirasPaginas_NaoDeveGuardar() {
+        // Arrange
+        Pageable pageable = PageRequest.of(2, 20);
+        long versao = cacheListagemService.versao();
+
+        // Act
+        cacheListagemService.guardar(pageable, versao, pagina);
+
+        // Assert
+        assertNull(cacheListagemService.buscar(pageable, versao));
+    }
+}
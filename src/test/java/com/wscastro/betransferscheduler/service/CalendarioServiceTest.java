@@ -0,0 +1,102 @@
+package com.wscastro.betransferscheduler.service;
+
+import com.wscastro.betransferscheduler.model.Feriado;
+import com.wscastro.betransferscheduler.repository.FeriadoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CalendarioServiceTest {
+
+    @Mock
+    private FeriadoRepository feriadoRepository;
+
+    private CalendarioService calendarioService;
+    private LocalDate segunda;
+
+    @BeforeEach
+    void setUp() {
+        calendarioService = new CalendarioService(feriadoRepository, "", 400);
+        segunda = LocalDate.now().plusDays(14).with(TemporalAdjusters.next(DayOfWeek.MONDAY));
+    }
+
+    @Test
+    void diasUteisEntre_DevePularFimDeSemanaEFeriado() {
+        // Arrange
+        when(feriadoRepository.findByDataBetween(any(), any())).thenReturn(List.of(feriado(segunda.plusDays(2))));
+
+        // Act
+        long uteis = calendarioService.diasUteisEntre(segunda, segunda.plusWeeks(1));
+
+        // Assert
+        // Terca, quinta, sexta e a segunda seguinte; quarta é feriado
+        assertEquals(4, uteis);
+        assertEquals(0, calendarioService.diasUteisEntre(segunda.minusDays(2), segunda.minusDays(1)));
+        assertEquals(0, calendarioService.diasUteisEntre(segunda, segunda));
+    }
+
+    @Test
+    void diasUteisEntre_DeveCoincidirComAContagemDiaADia() {
+        // Arrange
+        LocalDate hoje = LocalDate.now();
+        when(feriadoRepository.findByDataBetween(any(), any())).thenReturn(List.of(
+                feriado(hoje.plusDays(10)), feriado(hoje.plusDays(64)), feriado(hoje.plusDays(65)),
+                feriado(hoje.plusDays(128)), feriado(hoje.plusDays(300))));
+        Set<LocalDate> feriados = Set.of(hoje.plusDays(10), hoje.plusDays(64), hoje.plusDays(65),
+                hoje.plusDays(128), hoje.plusDays(300));
+        Random random = new Random(42);
+
+        // Act & Assert
+        for (int i = 0; i < 2000; i++) {
+            LocalDate de = hoje.plusDays(random.nextInt(390));
+            LocalDate ate = de.plusDays(random.nextInt(400 - (int) (de.toEpochDay() - hoje.toEpochDay())));
+            assertEquals(contar(de, ate, feriados), calendarioService.diasUteisEntre(de, ate), de + " a " + ate);
+        }
+        verify(feriadoRepository, times(1)).findByDataBetween(any(), any());
+    }
+
+    @Test
+    void diasUteisEntre_ForaDoHorizonte_DeveContarDiaADia() {
+        // Arrange
+        calendarioService = new CalendarioService(feriadoRepository, "", 30);
+        when(feriadoRepository.findByDataBetween(any(), any())).thenReturn(List.of());
+
+        // Act
+        long uteis = calendarioService.diasUteisEntre(segunda, segunda.plusWeeks(10));
+
+        // Assert
+        assertEquals(50, uteis);
+    }
+
+    private static long contar(LocalDate de, LocalDate ate, Set<LocalDate> feriados) {
+        long uteis = 0;
+        for (LocalDate dia = de.plusDays(1); !dia.isAfter(ate); dia = dia.plusDays(1)) {
+            if (dia.getDayOfWeek() != DayOfWeek.SATURDAY && dia.getDayOfWeek() != DayOfWeek.SUNDAY
+                    && !feriados.contains(dia)) {
+                uteis++;
+            }
+        }
+        return uteis;
+    }
+
+    private static Feriado feriado(LocalDate data) {
+        Feriado feriado = new Feriado();
+        feriado.setData(data);
+        feriado.setDescricao("Feriado");
+        return feriado;
+    }
+}
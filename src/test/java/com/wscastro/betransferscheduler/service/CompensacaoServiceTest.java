@@ -0,0 +1,172 @@
+package com.wscastro.betransferscheduler.service;
+
+import com.wscastro.betransferscheduler.dto.CompensacaoDTO;
+import com.wscastro.betransferscheduler.event.TransferenciaRemovidaEvent;
+import com.wscastro.betransferscheduler.exception.DataEntradaInvalidaException;
+import com.wscastro.betransferscheduler.model.Transferencia;
+import com.wscastro.betransferscheduler.repository.TransferenciaRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.DatabasePopulatorUtils;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CompensacaoServiceTest {
+
+    private static final String A = "1000000001";
+    private static final String B = "1000000002";
+    private static final String C = "1000000003";
+
+    private DriverManagerDataSource dataSource;
+    private JdbcTemplate jdbc;
+    private LocalDate data;
+    private long proximoId;
+    private TransferenciaRepository transferenciaRepository;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:compensacao-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                "sa", "password");
+        DatabasePopulatorUtils.execute(new ResourceDatabasePopulator(new ClassPathResource("schema.sql")), dataSource);
+        jdbc = new JdbcTemplate(dataSource);
+        data = LocalDate.now().plusDays(3);
+        transferenciaRepository = mock(TransferenciaRepository.class);
+        when(transferenciaRepository.naTabelaTransferencia()).thenReturn(true);
+        proximoId = 1;
+    }
+
+    @Test
+    void compensar_DeveGerarUmaLiquidacaoLiquidaPorPar() {
+        // Arrange
+        agendar(A, B, "100.00", data);
+        agendar(B, A, "30.00", data);
+        agendar(A, B, "10.00", data);
+        agendar(C, A, "50.00", data);
+        long outroDia = agendar(A, B, "999.00", data.plusDays(1));
+
+        // Act
+        CompensacaoDTO resultado = servico(1000).compensar(data);
+
+        // Assert
+        assertEquals(4, resultado.getTransferencias());
+        assertEquals(2, resultado.getLiquidacoes());
+        assertEquals(0, new BigDecimal("190.00").compareTo(resultado.getValorBruto()));
+        assertEquals(0, new BigDecimal("130.00").compareTo(resultado.getValorLiquido()));
+        Map<String, Object> ab = jdbc.queryForMap("select * from liquidacao where conta_destino = ?", B);
+        assertEquals(A, ab.get("conta_origem"));
+        assertEquals(0, new BigDecimal("80.00").compareTo((BigDecimal) ab.get("valor")));
+        assertEquals(3, ab.get("quantidade"));
+        assertEquals(4, jdbc.queryForObject("select count(*) from transferencia_liquidacao", Integer.class));
+        assertEquals(0, jdbc.queryForObject("select count(*) from transferencia_liquidacao where transferencia_id = ?",
+                Integer.class, outroDia));
+        assertEquals(0, servico(1000).compensar(data).getTransferencias());
+    }
+
+    @Test
+    void compensar_ComParticoesMenoresQueODia_DeveLiquidarTudoPreservandoOSaldoDeCadaPar() {
+        // Arrange
+        Map<String, BigDecimal> esperado = new HashMap<>();
+        for (int i = 0; i < 300; i++) {
+            String origem = String.valueOf(1_000_000_000L + i % 13);
+            String destino = String.valueOf(1_000_000_000L + (i * 7 + 3) % 11);
+            if (origem.equals(destino)) {
+                continue;
+            }
+            BigDecimal valor = BigDecimal.valueOf(10 + i % 17);
+            agendar(origem, destino, valor.toPlainString(), data);
+            somar(esperado, origem, destino, valor);
+        }
+        long agendadas = jdbc.queryForObject("select count(*) from transferencia", Long.class);
+
+        // Act
+        CompensacaoDTO resultado = servico(16).compensar(data);
+
+        // Assert
+        assertEquals(agendadas, resultado.getTransferencias());
+        assertTrue(resultado.getParticoes() > 1);
+        Map<String, BigDecimal> liquidado = new HashMap<>();
+        jdbc.query("select conta_origem, conta_destino, valor from liquidacao", rs -> {
+            somar(liquidado, rs.getString("conta_origem"), rs.getString("conta_destino"), rs.getBigDecimal("valor"));
+        });
+        assertEquals(esperado.keySet(), liquidado.keySet());
+        esperado.forEach((par, saldo) -> assertEquals(0, saldo.compareTo(liquidado.get(par)), par));
+        assertEquals(agendadas, jdbc.queryForObject("select count(*) from transferencia_liquidacao", Long.class));
+    }
+
+    @Test
+    void compensar_ComDataDeHoje_DeveLancarExcecao() {
+        // Act & Assert
+        assertThrows(DataEntradaInvalidaException.class, () -> servico(1000).compensar(LocalDate.now()));
+    }
+
+    @Test
+    void aoRemover_TransferenciaCompensada_DeveRecusarARemocao() {
+        // Arrange
+        long id = agendar(A, B, "100.00", data);
+        agendar(B, A, "40.00", data);
+        CompensacaoService servico = servico(1000);
+        servico.compensar(data);
+        Transferencia transferencia = new Transferencia();
+        transferencia.setId(id);
+
+        // Act
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> servico.aoRemover(new TransferenciaRemovidaEvent(transferencia)));
+
+        // Assert
+        assertEquals(HttpStatus.CONFLICT, ex.getStatus());
+    }
+
+    @Test
+    void compensar_ComArmazenamentoAlternativo_DeveRecusar() {
+        // Arrange
+        agendar(A, B, "100.00", data);
+        when(transferenciaRepository.naTabelaTransferencia()).thenReturn(false);
+        doCallRealMethod().when(transferenciaRepository).exigirTabelaTransferencia(anyString());
+
+        // Act & Assert
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class, () -> servico(100).compensar(data));
+        assertEquals(HttpStatus.NOT_IMPLEMENTED, ex.getStatus());
+        assertEquals(0, jdbc.queryForObject("select count(*) from liquidacao", Integer.class));
+    }
+
+    private CompensacaoService servico(int linhasPorParticao) {
+        return new CompensacaoService(jdbc, new DataSourceTransactionManager(dataSource), transferenciaRepository,
+                linhasPorParticao);
+    }
+
+    private long agendar(String origem, String destino, String valor, LocalDate dia) {
+        long id = proximoId++;
+        jdbc.update("insert into transferencia (id, conta_origem, conta_destino, valor, taxa, data_agendamento, "
+                        + "data_transferencia, versao) values (?, ?, ?, ?, 0.00, ?, ?, ?)",
+                id, origem, destino, new BigDecimal(valor), Timestamp.valueOf(LocalDate.now().atStartOfDay()),
+                Timestamp.valueOf(dia.atTime(10, 0)), id);
+        return id;
+    }
+
+    // Saldo por par nao ordenado; positivo quando a menor conta paga a maior
+    private static void somar(Map<String, BigDecimal> saldos, String origem, String destino, BigDecimal valor) {
+        boolean origemMenor = origem.compareTo(destino) < 0;
+        String par = origemMenor ? origem + ":" + destino : destino + ":" + origem;
+        saldos.merge(par, origemMenor ? valor : valor.negate(), BigDecimal::add);
+    }
+}
@@ -0,0 +1,134 @@
+package com.wscastro.betransferscheduler.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.DatabasePopulatorUtils;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContadorVersoesTest {
+
+    private DriverManagerDataSource dataSource;
+    private JdbcTemplate jdbc;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:contador-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                "sa", "password");
+        DatabasePopulatorUtils.execute(new ResourceDatabasePopulator(new ClassPathResource("schema.sql")), dataSource);
+        jdbc = new JdbcTemplate(dataSource);
+    }
+
+    @Test
+    void reservar_EmDuasInstancias_DeveDistribuirVersoesDistintas() {
+        // Arrange
+        ContadorVersoes primeira = contador();
+        ContadorVersoes segunda = contador();
+
+        // Act
+        long a = primeira.reservar(1);
+        long b = segunda.reservar(3);
+        long c = primeira.reservar(1);
+
+        // Assert
+        assertEquals(1L, a);
+        assertEquals(2L, b);
+        assertEquals(5L, c);
+    }
+
+    @Test
+    void versaoSegura_ComReservaDeOutraInstancia_DeveFicarAbaixoDelaAteSerLiberada() {
+        // Arrange
+        ContadorVersoes primeira = contador();
+        ContadorVersoes segunda = contador();
+        long pendente = segunda.reservar(1);
+        primeira.liberar(primeira.reservar(1));
+
+        // Act
+        long antes = primeira.versaoSegura();
+        segunda.liberar(pendente);
+        long depois = primeira.versaoSegura();
+
+        // Assert
+        assertEquals(0L, antes);
+        assertEquals(2L, depois);
+    }
+
+    @Test
+    void versaoSegura_ComReservaExpirada_DeveIgnorarAReserva() {
+        // Arrange
+        ContadorVersoes contador = contador();
+        long versao = contador.reservar(1);
+        jdbc.update("update versao_reservada set reservada_em = ? where versao = ?",
+                Timestamp.valueOf(LocalDateTime.now().minusMinutes(10)), versao);
+
+        // Act
+        long segura = contador.versaoSegura();
+
+        // Assert
+        assertEquals(1L, segura);
+        assertEquals(1, contador.descartarExpiradas());
+    }
+
+    @Test
+    void garantirAoMenos_NaoDeveVoltarOContador() {
+        // Arrange
+        ContadorVersoes contador = contador();
+        contador.garantirAoMenos(10L);
+
+        // Act
+        contador.garantirAoMenos(4L);
+
+        // Assert
+        assertEquals(11L, contador.reservar(1));
+    }
+
+    @Test
+    void liberarNoCommit_DeveSegurarAVersaoSeguraAteOCommit() {
+        // Arrange
+        ContadorVersoes contador = contador();
+        TransactionTemplate transacao = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        // Outra instância: mesmo banco, outra conexao, fora da transacao
+        DriverManagerDataSource outraConexao = new DriverManagerDataSource(dataSource.getUrl(), "sa", "password");
+        ContadorVersoes outraInstancia = new ContadorVersoes(new JdbcTemplate(outraConexao),
+                new DataSourceTransactionManager(outraConexao), 300);
+        long[] duranteATransacao = new long[1];
+
+        // Act
+        transacao.executeWithoutResult(status -> {
+            contador.liberarNoCommit(contador.reservar(1));
+            duranteATransacao[0] = outraInstancia.versaoSegura();
+        });
+
+        // Assert
+        assertEquals(0L, duranteATransacao[0]);
+        assertEquals(1L, outraInstancia.versaoSegura());
+    }
+
+    @Test
+    void registrarCompactacao_DeveValerParaOutraInstanciaESemVoltar() {
+        // Arrange
+        ContadorVersoes primeira = contador();
+        primeira.registrarCompactacao(40L);
+
+        // Act
+        primeira.registrarCompactacao(25L);
+
+        // Assert
+        assertEquals(40L, contador().versaoCompactada());
+    }
+
+    private ContadorVersoes contador() {
+        return new ContadorVersoes(jdbc, new DataSourceTransactionManager(dataSource), 300);
+    }
+}
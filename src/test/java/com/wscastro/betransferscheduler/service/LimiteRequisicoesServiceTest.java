@@ -0,0 +1,102 @@
+package com.wscastro.betransferscheduler.service;
+
+import com.wscastro.betransferscheduler.exception.RequisicoesExcedidasException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LimiteRequisicoesServiceTest {
+
+    private final AtomicLong relogio = new AtomicLong();
+    private LimiteRequisicoesService limite;
+
+    @BeforeEach
+    void setUp() {
+        // 6 por minuto (uma ficha a cada 10 s) com rajada de 3
+        limite = new LimiteRequisicoesService(6, 3, 100, relogio::get);
+    }
+
+    @Test
+    void construir_ComZeroPorMinuto_DeveRecusarAConfiguracao() {
+        // Act
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> new LimiteRequisicoesService(0, 3, 100, relogio::get));
+
+        // Assert
+        assertTrue(exception.getMessage().contains("por-minuto"));
+    }
+
+    @Test
+    void consumir_AcimaDaRajada_DeveRecusarComTempoAteAProximaFicha() {
+        // Arrange
+        limite.consumir("1234567890");
+        limite.consumir("1234567890");
+        limite.consumir("1234567890");
+
+        // Act
+        RequisicoesExcedidasException exception = assertThrows(RequisicoesExcedidasException.class,
+                () -> limite.consumir("1234567890"));
+
+        // Assert
+        assertEquals(10, exception.getRetryAfterSegundos());
+        assertDoesNotThrow(() -> limite.consumir("0987654321"));
+    }
+
+    @Test
+    void consumir_DepoisDoIntervalo_DeveLiberarNovaFicha() {
+        // Arrange
+        for (int i = 0; i < 3; i++) {
+            limite.consumir("1234567890");
+        }
+        avancar(4);
+        RequisicoesExcedidasException exception = assertThrows(RequisicoesExcedidasException.class,
+                () -> limite.consumir("1234567890"));
+        assertEquals(6, exception.getRetryAfterSegundos());
+
+        // Act
+        avancar(6);
+
+        // Assert
+        assertDoesNotThrow(() -> limite.consumir("1234567890"));
+        assertThrows(RequisicoesExcedidasException.class, () -> limite.consumir("1234567890"));
+    }
+
+    @Test
+    void descartarOciosos_DeveRemoverApenasBaldesCheios() {
+        // Arrange
+        limite.consumir("1111111111");
+        avancar(30);
+        limite.consumir("2222222222");
+
+        // Act
+        limite.descartarOciosos();
+
+        // Assert
+        assertEquals(1, limite.contasAcompanhadas());
+    }
+
+    @Test
+    void consumir_ComMapaCheioDeContasAtivas_DeveDeixarContaNovaPassarSemAcompanhar() {
+        // Arrange
+        limite = new LimiteRequisicoesService(6, 1, 2, relogio::get);
+        limite.consumir("1111111111");
+        limite.consumir("2222222222");
+
+        // Act
+        for (int i = 0; i < 5; i++) {
+            limite.consumir("3333333333");
+        }
+
+        // Assert
+        assertEquals(2, limite.contasAcompanhadas());
+        assertThrows(RequisicoesExcedidasException.class, () -> limite.consumir("1111111111"));
+    }
+
+    private void avancar(long segundos) {
+        relogio.addAndGet(TimeUnit.SECONDS.toNanos(segundos));
+    }
+}
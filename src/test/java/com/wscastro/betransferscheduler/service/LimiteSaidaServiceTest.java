@@ -0,0 +1,167 @@
+package com.wscastro.betransferscheduler.service;
+
+import com.wscastro.betransferscheduler.event.TransferenciaRemovidaEvent;
+import com.wscastro.betransferscheduler.exception.LimiteSaidaExcedidoException;
+import com.wscastro.betransferscheduler.model.Transferencia;
+import com.wscastro.betransferscheduler.repository.TransferenciaRepository;
+import com.wscastro.betransferscheduler.repository.TransferenciaRepository.SaidaDiaria;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class LimiteSaidaServiceTest {
+
+    @Mock
+    private TransferenciaRepository transferenciaRepository;
+
+    private LimiteSaidaService limiteSaidaService;
+    private LocalDate dia;
+
+    @BeforeEach
+    void setUp() {
+        limiteSaidaService = new LimiteSaidaService(transferenciaRepository, new BigDecimal("1000.00"), 16);
+        dia = LocalDate.now().plusDays(5);
+    }
+
+    @Test
+    void afterSingletonsInstantiated_DeveCarregarTotaisDoBanco() {
+        // Arrange
+        when(transferenciaRepository.somarSaidasPorContaEDia(any(LocalDateTime.class)))
+                .thenReturn(List.of(saida("1234567890", dia, "900.00")));
+
+        // Act
+        limiteSaidaService.afterSingletonsInstantiated();
+
+        // Assert
+        assertEquals(0, new BigDecimal("900.00").compareTo(limiteSaidaService.totalAgendado("1234567890", dia)));
+        assertThrows(LimiteSaidaExcedidoException.class, () -> {
+            limiteSaidaService.reservar("1234567890", dia, new BigDecimal("100.01"));
+        });
+        limiteSaidaService.reservar("1234567890", dia, new BigDecimal("100.00"));
+    }
+
+    @Test
+    void reservar_DentroDoLimite_DeveAcumularPorContaEDia() {
+        // Act
+        limiteSaidaService.reservar("1234567890", dia, new BigDecimal("600.00"));
+        limiteSaidaService.reservar("1234567890", dia.plusDays(1), new BigDecimal("600.00"));
+        limiteSaidaService.reservar("1111111111", dia, new BigDecimal("600.00"));
+
+        // Assert
+        assertEquals(new BigDecimal("600.00"), limiteSaidaService.totalAgendado("1234567890", dia));
+        assertEquals(new BigDecimal("600.00"), limiteSaidaService.totalAgendado("1234567890", dia.plusDays(1)));
+        assertEquals(new BigDecimal("600.00"), limiteSaidaService.totalAgendado("1111111111", dia));
+    }
+
+    @Test
+    void reservar_AcimaDoLimite_DeveLancarExcecaoSemAlterarTotal() {
+        // Arrange
+        limiteSaidaService.reservar("1234567890", dia, new BigDecimal("600.00"));
+
+        // Act & Assert
+        assertThrows(LimiteSaidaExcedidoException.class, () -> {
+            limiteSaidaService.reservar("1234567890", dia, new BigDecimal("400.01"));
+        });
+        assertEquals(new BigDecimal("600.00"), limiteSaidaService.totalAgendado("1234567890", dia));
+    }
+
+    @Test
+    void aoRemover_DeveDevolverValorAoLimite() {
+        // Arrange
+        limiteSaidaService.reservar("1234567890", dia, new BigDecimal("1000.00"));
+        Transferencia transferencia = new Transferencia();
+        transferencia.setContaOrigem("1234567890");
+        transferencia.setValor(new BigDecimal("1000.00"));
+        transferencia.setDataTransferencia(dia.atTime(10, 0));
+
+        // Act
+        limiteSaidaService.aoRemover(new TransferenciaRemovidaEvent(transferencia));
+
+        // Assert
+        assertEquals(BigDecimal.ZERO, limiteSaidaService.totalAgendado("1234567890", dia));
+        limiteSaidaService.reservar("1234567890", dia, new BigDecimal("1000.00"));
+    }
+
+    @Test
+    void reservar_ComAgendamentosConcorrentes_NaoDeveUltrapassarOLimite() throws Exception {
+        // Arrange - 64 tarefas disputando 400 reservas de 7.00 na mesma conta e dia (limite 1000.00)
+        int tarefas = 64;
+        int tentativasPorTarefa = 25;
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        CountDownLatch largada = new CountDownLatch(1);
+        AtomicInteger aceitas = new AtomicInteger();
+        AtomicInteger rejeitadas = new AtomicInteger();
+        List<Future<?>> futuros = new ArrayList<>();
+
+        for (int i = 0; i < tarefas; i++) {
+            String outraConta = String.format("%010d", i);
+            futuros.add(executor.submit(() -> {
+                largada.await();
+                for (int j = 0; j < tentativasPorTarefa; j++) {
+                    try {
+                        limiteSaidaService.reservar("1234567890", dia, new BigDecimal("7.00"));
+                        aceitas.incrementAndGet();
+                    } catch (LimiteSaidaExcedidoException e) {
+                        rejeitadas.incrementAndGet();
+                    }
+                    // Contas diferentes, em listras diferentes, nao devem ser afetadas
+                    limiteSaidaService.reservar(outraConta, dia, new BigDecimal("1.00"));
+                }
+                return null;
+            }));
+        }
+
+        // Act
+        largada.countDown();
+        for (Future<?> futuro : futuros) {
+            futuro.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // Assert - 142 * 7.00 = 994.00; a 143ª reserva ultrapassaria o limite
+        assertEquals(142, aceitas.get());
+        assertEquals(tarefas * tentativasPorTarefa - 142, rejeitadas.get());
+        assertEquals(new BigDecimal("994.00"), limiteSaidaService.totalAgendado("1234567890", dia));
+        for (int i = 0; i < tarefas; i++) {
+            assertEquals(new BigDecimal("25.00"), limiteSaidaService.totalAgendado(String.format("%010d", i), dia));
+        }
+    }
+
+    private SaidaDiaria saida(String conta, LocalDate data, String total) {
+        return new SaidaDiaria() {
+            @Override
+            public String getContaOrigem() {
+                return conta;
+            }
+
+            @Override
+            public LocalDate getData() {
+                return data;
+            }
+
+            @Override
+            public BigDecimal getTotal() {
+                return new BigDecimal(total);
+            }
+        };
+    }
+}
@@ -0,0 +1,240 @@
+package com.wscastro.betransferscheduler.service;
+
+import com.wscastro.betransferscheduler.dto.RecalculoTaxasDTO;
+import com.wscastro.betransferscheduler.event.TransferenciaAlteradaEvent;
+import com.wscastro.betransferscheduler.model.Taxa;
+import com.wscastro.betransferscheduler.repository.TaxaRepository;
+import com.wscastro.betransferscheduler.repository.TransferenciaRepository;
+import com.wscastro.betransferscheduler.service.colunar.LeituraPendentesService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.DatabasePopulatorUtils;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class RecalculoTaxasServiceTest {
+
+    @Mock
+    private TaxaRepository taxaRepository;
+
+    @Mock
+    private SincronizacaoService sincronizacaoService;
+
+    @Mock
+    private LeituraPendentesService leituraPendentesService;
+
+    @Mock
+    private TransferenciaRepository transferenciaRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private DriverManagerDataSource dataSource;
+    private JdbcTemplate jdbc;
+    private TaxaService taxaService;
+    private LocalDate data;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:recalculo-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                "sa", "password");
+        DatabasePopulatorUtils.execute(new ResourceDatabasePopulator(new ClassPathResource("schema.sql")), dataSource);
+        jdbc = new JdbcTemplate(dataSource);
+        taxaService = new TaxaService(taxaRepository, null);
+        taxaService.setDiasLimite(50);
+        data = LocalDate.now().plusDays(5);
+
+        // Taxa fixa da faixa de 1 a 10 dias passou de 12.00 para 20.00
+        lenient().when(taxaRepository.findAll()).thenReturn(List.of(faixa(1L, 10L, "20.00")));
+        AtomicLong versoes = new AtomicLong(100);
+        lenient().when(transferenciaRepository.naTabelaTransferencia()).thenReturn(true);
+        lenient().when(sincronizacaoService.reservarVersoes(anyInt()))
+                .thenAnswer(invocacao -> versoes.getAndAdd(invocacao.<Integer>getArgument(0)) + 1);
+    }
+
+    @Test
+    void recalcular_DeveAtualizarTaxaVersaoEResumoSoDasPendentes() {
+        // Arrange
+        for (long id = 1; id <= 5; id++) {
+            agendar(id, data);
+        }
+        agendar(6, LocalDate.now().minusDays(1));
+        jdbc.update("insert into transferencia_execucao (transferencia_id, particao, no, epoca, executada_em) "
+                + "values (5, 0, 'no-1', 1, ?)", Timestamp.valueOf(LocalDateTime.now()));
+        jdbc.update("insert into resumo_diario (data, quantidade, valor_total, taxa_total) values (?, 5, 500.00, 60.00)",
+                data);
+
+        // Act
+        RecalculoTaxasDTO resultado = servico(2).recalcular();
+
+        // Assert
+        assertFalse(resultado.isRetomada());
+        assertEquals(4, resultado.getLidas());
+        assertEquals(4, resultado.getAlteradas());
+        assertEquals(4, jdbc.queryForObject("select count(*) from transferencia where taxa = 20.00 and versao > 100",
+                Integer.class));
+        assertEquals(0, new BigDecimal("12.00").compareTo(taxa(5)));
+        assertEquals(0, new BigDecimal("12.00").compareTo(taxa(6)));
+        assertEquals(0, new BigDecimal("92.00").compareTo(jdbc.queryForObject(
+                "select taxa_total from resumo_diario where data = ?", BigDecimal.class, data)));
+        assertEquals(0, jdbc.queryForObject("select count(*) from recalculo_taxas where concluido_em is null",
+                Integer.class));
+        assertEquals(0, servico(2).recalcular().getAlteradas());
+        verify(leituraPendentesService).recarregar();
+        ArgumentCaptor<TransferenciaAlteradaEvent> eventos = ArgumentCaptor.forClass(TransferenciaAlteradaEvent.class);
+        verify(eventPublisher, times(4)).publishEvent(eventos.capture());
+        assertTrue(eventos.getAllValues().stream().allMatch(e -> e.getTransferencia().getVersao() > 100
+                && new BigDecimal("20.00").compareTo(e.getTransferencia().getTaxa()) == 0
+                && "1000000001".equals(e.getTransferencia().getContaOrigem())));
+    }
+
+    @Test
+    void recalcular_ComArmazenamentoAlternativo_DeveRecusar() {
+        // Arrange
+        when(transferenciaRepository.naTabelaTransferencia()).thenReturn(false);
+        doCallRealMethod().when(transferenciaRepository).exigirTabelaTransferencia(anyString());
+        RecalculoTaxasService servico = servico(1000);
+
+        // Act & Assert
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class, servico::recalcular);
+        assertEquals(HttpStatus.NOT_IMPLEMENTED, exception.getStatus());
+        assertEquals(0, jdbc.queryForObject("select count(*) from recalculo_taxas", Integer.class));
+    }
+
+    @Test
+    void recalcular_ComExecucaoInterrompida_DeveContinuarDoUltimoIdConfirmado() {
+        // Arrange
+        for (long id = 1; id <= 4; id++) {
+            agendar(id, data);
+        }
+        jdbc.update("insert into recalculo_taxas (id, ultimo_id, lidas, alteradas, sem_taxa, iniciado_em) "
+                + "values (7, 2, 2, 0, 0, ?)", Timestamp.valueOf(LocalDateTime.now()));
+
+        // Act
+        RecalculoTaxasDTO resultado = servico(1000).recalcular();
+
+        // Assert
+        assertTrue(resultado.isRetomada());
+        assertEquals(7, resultado.getExecucao());
+        assertEquals(4, resultado.getLidas());
+        assertEquals(2, resultado.getAlteradas());
+        assertEquals(0, new BigDecimal("12.00").compareTo(taxa(2)));
+        assertEquals(0, new BigDecimal("20.00").compareTo(taxa(3)));
+    }
+
+    @Test
+    void recalcular_SemFaixaAplicavel_DeveManterATaxaAtual() {
+        // Arrange
+        agendar(1, data);
+        agendar(2, LocalDate.now().plusDays(15));
+
+        // Act
+        RecalculoTaxasDTO resultado = servico(1000).recalcular();
+
+        // Assert
+        assertEquals(1, resultado.getAlteradas());
+        assertEquals(1, resultado.getSemTaxa());
+        assertEquals(0, new BigDecimal("12.00").compareTo(taxa(2)));
+    }
+
+    @Test
+    void iniciar_DeveDevolverAExecucaoAntesDeProcessarEAcompanharPeloProgresso() {
+        // Arrange
+        for (long id = 1; id <= 3; id++) {
+            agendar(id, data);
+        }
+        List<Runnable> tarefas = new ArrayList<>();
+        RecalculoTaxasService servico = servico(2, tarefas::add);
+
+        // Act
+        RecalculoTaxasDTO aceita = servico.iniciar();
+        RecalculoTaxasDTO repetida = servico.iniciar();
+        RecalculoTaxasDTO antes = servico.progresso(aceita.getExecucao());
+        tarefas.remove(0).run();
+        RecalculoTaxasDTO depois = servico.progresso(aceita.getExecucao());
+
+        // Assert
+        assertFalse(aceita.isRetomada());
+        assertEquals(aceita.getExecucao(), repetida.getExecucao());
+        assertTrue(tarefas.isEmpty());
+        assertEquals(0, antes.getLidas());
+        assertNull(antes.getConcluidaEm());
+        assertEquals(3, depois.getLidas());
+        assertEquals(3, depois.getAlteradas());
+        assertEquals(3, depois.getUltimoId());
+        assertNotNull(depois.getConcluidaEm());
+        assertEquals(0, new BigDecimal("20.00").compareTo(taxa(3)));
+    }
+
+    @Test
+    void progresso_ComExecucaoInexistente_DeveRetornarNaoEncontrado() {
+        // Act & Assert
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> servico(1000).progresso(99L));
+        assertEquals(HttpStatus.NOT_FOUND, exception.getStatus());
+    }
+
+    private RecalculoTaxasService servico(int tamanhoLote) {
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        CacheListagemService cache = new CacheListagemService(new ContadorVersoes(jdbc, transactionManager, 300), 3, 64);
+        return new RecalculoTaxasService(jdbc, transactionManager, taxaService, transferenciaRepository, eventPublisher,
+                sincronizacaoService, cache, leituraPendentesService, tamanhoLote, 2);
+    }
+
+    private RecalculoTaxasService servico(int tamanhoLote, Executor execucao) {
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        CacheListagemService cache = new CacheListagemService(new ContadorVersoes(jdbc, transactionManager, 300), 3, 64);
+        return new RecalculoTaxasService(jdbc, transactionManager, taxaService, transferenciaRepository, eventPublisher,
+                sincronizacaoService, cache, leituraPendentesService, tamanhoLote, 2, execucao);
+    }
+
+    private void agendar(long id, LocalDate dia) {
+        jdbc.update("insert into transferencia (id, conta_origem, conta_destino, valor, taxa, data_agendamento, "
+                        + "data_transferencia, versao) values (?, '1000000001', '1000000002', 100.00, 12.00, ?, ?, ?)",
+                id, Timestamp.valueOf(LocalDate.now().atStartOfDay()), Timestamp.valueOf(dia.atTime(10, 0)), id);
+    }
+
+    private BigDecimal taxa(long id) {
+        return jdbc.queryForObject("select taxa from transferencia where id = ?", BigDecimal.class, id);
+    }
+
+    private static Taxa faixa(Long diasMinimo, Long diasMaximo, String valorFixo) {
+        Taxa taxa = new Taxa();
+        taxa.setId(diasMinimo);
+        taxa.setDiasMinimo(diasMinimo);
+        taxa.setDiasMaximo(diasMaximo);
+        taxa.setPercentual(BigDecimal.ZERO);
+        taxa.setValorFixo(new BigDecimal(valorFixo));
+        return taxa;
+    }
+}
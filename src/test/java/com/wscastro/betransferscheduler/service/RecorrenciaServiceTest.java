@@ -0,0 +1,167 @@
+package com.wscastro.betransferscheduler.service;
+
+import com.wscastro.betransferscheduler.dto.OcorrenciaDTO;
+import com.wscastro.betransferscheduler.dto.RecorrenciaRequestDTO;
+import com.wscastro.betransferscheduler.dto.TransferenciaRequestDTO;
+import com.wscastro.betransferscheduler.exception.ContasIguaisException;
+import com.wscastro.betransferscheduler.exception.LimiteSaidaExcedidoException;
+import com.wscastro.betransferscheduler.model.Periodicidade;
+import com.wscastro.betransferscheduler.model.Recorrencia;
+import com.wscastro.betransferscheduler.repository.RecorrenciaRepository;
+import com.wscastro.betransferscheduler.repository.TransferenciaRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RecorrenciaServiceTest {
+
+    @Mock
+    private RecorrenciaRepository recorrenciaRepository;
+
+    @Mock
+    private TransferenciaService transferenciaService;
+
+    @Mock
+    private TransferenciaRepository transferenciaRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private RecorrenciaService recorrenciaService;
+
+    private LocalDateTime inicio;
+    private Recorrencia recorrencia;
+
+    @BeforeEach
+    void setUp() {
+        recorrenciaService.setDiasLimite(50);
+        inicio = LocalDateTime.now().plusDays(1).withHour(10).withMinute(0).withSecond(0).withNano(0);
+
+        recorrencia = new Recorrencia();
+        recorrencia.setId(1L);
+        recorrencia.setContaOrigem("1234567890");
+        recorrencia.setContaDestino("0987654321");
+        recorrencia.setValor(new BigDecimal("100.00"));
+        recorrencia.setPeriodicidade(Periodicidade.SEMANAL);
+        recorrencia.setDataInicio(inicio);
+        recorrencia.setProximaOcorrencia(inicio);
+        recorrencia.setDataCriacao(LocalDateTime.now());
+    }
+
+    @Test
+    void materializarPendentes_DeveAgendarApenasOcorrenciasDentroDoHorizonte() {
+        // Arrange
+        when(recorrenciaRepository.buscarPendentes(any(LocalDateTime.class))).thenReturn(List.of(1L));
+        when(recorrenciaRepository.buscarParaMaterializar(1L)).thenReturn(Optional.of(recorrencia));
+        LocalDate horizonte = LocalDate.now().plusDays(50);
+        long esperadas = 0;
+        while (!inicio.plusWeeks(esperadas).toLocalDate().isAfter(horizonte)) {
+            esperadas++;
+        }
+
+        // Act
+        recorrenciaService.materializarPendentes();
+
+        // Assert
+        ArgumentCaptor<TransferenciaRequestDTO> captor = ArgumentCaptor.forClass(TransferenciaRequestDTO.class);
+        verify(transferenciaService, times((int) esperadas)).agendarTransferencia(captor.capture());
+        assertEquals(inicio, captor.getAllValues().get(0).getDataTransferencia());
+        assertEquals(inicio.plusWeeks(esperadas - 1), captor.getAllValues().get((int) esperadas - 1).getDataTransferencia());
+        assertEquals(esperadas, recorrencia.getOcorrenciasMaterializadas());
+        assertEquals(inicio.plusWeeks(esperadas), recorrencia.getProximaOcorrencia());
+    }
+
+    @Test
+    void materializarPendentes_ComOcorrenciaRecusada_DevePularEContinuar() {
+        // Arrange
+        recorrencia.setDataFim(inicio.plusWeeks(2));
+        when(recorrenciaRepository.buscarPendentes(any(LocalDateTime.class))).thenReturn(List.of(1L));
+        when(recorrenciaRepository.buscarParaMaterializar(1L)).thenReturn(Optional.of(recorrencia));
+        when(transferenciaService.agendarTransferencia(any(TransferenciaRequestDTO.class)))
+                .thenThrow(new LimiteSaidaExcedidoException("Limite excedido"))
+                .thenReturn(null);
+
+        // Act
+        recorrenciaService.materializarPendentes();
+
+        // Assert
+        verify(transferenciaService, times(3)).agendarTransferencia(any(TransferenciaRequestDTO.class));
+        assertEquals(3, recorrencia.getOcorrenciasMaterializadas());
+        assertNull(recorrencia.getProximaOcorrencia());
+    }
+
+    @Test
+    void listarOcorrencias_DeveExpandirARegraSemGravar() {
+        // Arrange
+        recorrencia.setPeriodicidade(Periodicidade.MENSAL);
+        recorrencia.setOcorrenciasMaterializadas(2);
+        when(recorrenciaRepository.findById(1L)).thenReturn(Optional.of(recorrencia));
+        when(transferenciaRepository.buscarDuplicadas(any(), any(), any(), any())).thenReturn(List.of(7L));
+
+        // Act
+        List<OcorrenciaDTO> ocorrencias = recorrenciaService.listarOcorrencias(1L,
+                inicio.plusMonths(11).toLocalDate(), 500);
+
+        // Assert
+        assertEquals(12, ocorrencias.size());
+        assertTrue(ocorrencias.get(1).isMaterializada());
+        assertFalse(ocorrencias.get(2).isMaterializada());
+        assertEquals(inicio.plusMonths(11), ocorrencias.get(11).getDataTransferencia());
+        verify(recorrenciaRepository, never()).save(any());
+        verifyNoInteractions(transferenciaService);
+    }
+
+    @Test
+    void listarOcorrencias_ComOcorrenciaPulada_NaoDeveMarcarComoMaterializada() {
+        // Arrange: a primeira ocorrência foi recusada e só a segunda virou transferência
+        recorrencia.setOcorrenciasMaterializadas(2);
+        when(recorrenciaRepository.findById(1L)).thenReturn(Optional.of(recorrencia));
+        when(transferenciaRepository.buscarDuplicadas("1234567890", "0987654321", new BigDecimal("100.00"), inicio))
+                .thenReturn(List.of());
+        when(transferenciaRepository.buscarDuplicadas("1234567890", "0987654321", new BigDecimal("100.00"),
+                inicio.plusWeeks(1))).thenReturn(List.of(7L));
+
+        // Act
+        List<OcorrenciaDTO> ocorrencias = recorrenciaService.listarOcorrencias(1L,
+                inicio.plusWeeks(2).toLocalDate(), 500);
+
+        // Assert
+        assertEquals(3, ocorrencias.size());
+        assertFalse(ocorrencias.get(0).isMaterializada());
+        assertTrue(ocorrencias.get(1).isMaterializada());
+        assertFalse(ocorrencias.get(2).isMaterializada());
+        verify(transferenciaRepository, times(2)).buscarDuplicadas(any(), any(), any(), any());
+    }
+
+    @Test
+    void criar_ComContasIguais_DeveLancarExcecao() {
+        // Arrange
+        RecorrenciaRequestDTO dto = new RecorrenciaRequestDTO();
+        dto.setContaOrigem("1234567890");
+        dto.setContaDestino("1234567890");
+        dto.setValor(new BigDecimal("100.00"));
+        dto.setPeriodicidade(Periodicidade.MENSAL);
+        dto.setDataInicio(inicio);
+
+        // Act & Assert
+        assertThrows(ContasIguaisException.class, () -> recorrenciaService.criar(dto));
+        verify(recorrenciaRepository, never()).save(any());
+    }
+}
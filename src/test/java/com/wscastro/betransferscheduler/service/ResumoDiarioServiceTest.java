@@ -0,0 +1,212 @@
+package com.wscastro.betransferscheduler.service;
+
+import com.wscastro.betransferscheduler.dto.ResumoDiarioDTO;
+import com.wscastro.betransferscheduler.event.TransferenciaAgendadaEvent;
+import com.wscastro.betransferscheduler.event.TransferenciaRemovidaEvent;
+import com.wscastro.betransferscheduler.model.ResumoDiario;
+import com.wscastro.betransferscheduler.model.Transferencia;
+import com.wscastro.betransferscheduler.repository.ResumoDiarioRepository;
+import com.wscastro.betransferscheduler.repository.ResumoDiarioRepository.TotaisDiarios;
+import com.wscastro.betransferscheduler.repository.TransferenciaRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ResumoDiarioServiceTest {
+
+    @Mock
+    private ResumoDiarioRepository resumoDiarioRepository;
+
+    @Mock
+    private TransferenciaRepository transferenciaRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private ResumoDiarioService resumoDiarioService;
+
+    private Transferencia transferencia;
+    private LocalDate dia;
+
+    @BeforeEach
+    void setUp() {
+        LocalDateTime dataTransferencia = LocalDateTime.now().plusDays(5);
+        dia = dataTransferencia.toLocalDate();
+
+        transferencia = new Transferencia();
+        transferencia.setId(1L);
+        transferencia.setContaOrigem("1234567890");
+        transferencia.setContaDestino("0987654321");
+        transferencia.setValor(new BigDecimal("100.00"));
+        transferencia.setTaxa(new BigDecimal("8.2000"));
+        transferencia.setDataAgendamento(LocalDateTime.now());
+        transferencia.setDataTransferencia(dataTransferencia);
+    }
+
+    @Test
+    void aoAgendar_ComResumoExistente_DeveIncrementar() {
+        // Arrange
+        when(resumoDiarioRepository.incrementar(dia, 1, new BigDecimal("100.00"), new BigDecimal("8.20")))
+                .thenReturn(1);
+
+        // Act
+        resumoDiarioService.aoAgendar(new TransferenciaAgendadaEvent(transferencia));
+
+        // Assert
+        verify(resumoDiarioRepository, never()).criarVazio(any());
+        verifyNoInteractions(transactionManager);
+    }
+
+    @Test
+    void aoAgendar_PrimeiroAgendamentoDoDia_DeveCriarResumoEIncrementar() {
+        // Arrange
+        when(resumoDiarioRepository.incrementar(dia, 1, new BigDecimal("100.00"), new BigDecimal("8.20")))
+                .thenReturn(0, 1);
+
+        // Act
+        resumoDiarioService.aoAgendar(new TransferenciaAgendadaEvent(transferencia));
+
+        // Assert
+        InOrder ordem = inOrder(resumoDiarioRepository);
+        ordem.verify(resumoDiarioRepository).incrementar(dia, 1, new BigDecimal("100.00"), new BigDecimal("8.20"));
+        ordem.verify(resumoDiarioRepository).criarVazio(dia);
+        ordem.verify(resumoDiarioRepository).incrementar(dia, 1, new BigDecimal("100.00"), new BigDecimal("8.20"));
+    }
+
+    @Test
+    void aoAgendar_ResumoCriadoConcorrentemente_DeveIncrementarMesmoAssim() {
+        // Arrange
+        when(resumoDiarioRepository.incrementar(dia, 1, new BigDecimal("100.00"), new BigDecimal("8.20")))
+                .thenReturn(0, 1);
+        when(resumoDiarioRepository.criarVazio(dia)).thenThrow(new DataIntegrityViolationException("duplicada"));
+
+        // Act
+        resumoDiarioService.aoAgendar(new TransferenciaAgendadaEvent(transferencia));
+
+        // Assert
+        verify(resumoDiarioRepository, times(2))
+                .incrementar(dia, 1, new BigDecimal("100.00"), new BigDecimal("8.20"));
+    }
+
+    @Test
+    void aoRemover_DeveDecrementar() {
+        // Arrange
+        when(resumoDiarioRepository.incrementar(dia, -1, new BigDecimal("-100.00"), new BigDecimal("-8.20")))
+                .thenReturn(1);
+
+        // Act
+        resumoDiarioService.aoRemover(new TransferenciaRemovidaEvent(transferencia));
+
+        // Assert
+        verify(resumoDiarioRepository).incrementar(dia, -1, new BigDecimal("-100.00"), new BigDecimal("-8.20"));
+    }
+
+    @Test
+    void listar_DeveRetornarResumosDoPeriodo() {
+        // Arrange
+        when(resumoDiarioRepository.findByDataBetweenOrderByDataAsc(dia, dia.plusDays(1)))
+                .thenReturn(List.of(resumo(dia, 2L, "300.00", "24.00")));
+
+        // Act
+        List<ResumoDiarioDTO> resumos = resumoDiarioService.listar(dia, dia.plusDays(1));
+
+        // Assert
+        assertEquals(1, resumos.size());
+        assertEquals(dia, resumos.get(0).getData());
+        assertEquals(2L, resumos.get(0).getQuantidade());
+        assertEquals(new BigDecimal("300.00"), resumos.get(0).getValorTotal());
+        assertEquals(new BigDecimal("24.00"), resumos.get(0).getTaxaTotal());
+    }
+
+    @Test
+    void verificarEReconstruir_ResumoConsistente_NaoDeveReconstruir() {
+        // Arrange
+        when(resumoDiarioRepository.findAll()).thenReturn(List.of(resumo(dia, 2L, "300.00", "24.00")));
+        when(transferenciaRepository.somarTotaisPorDia()).thenReturn(List.of(totais(dia, 1L, "200.00", "12.00")));
+        when(resumoDiarioRepository.somarArquivadasPorDia()).thenReturn(List.of(totais(dia, 1L, "100.00", "12.00")));
+
+        // Act
+        List<LocalDate> divergentes = resumoDiarioService.verificarEReconstruir();
+
+        // Assert
+        assertTrue(divergentes.isEmpty());
+        verify(resumoDiarioRepository, never()).save(any());
+        verify(resumoDiarioRepository, never()).delete(any());
+    }
+
+    @Test
+    void verificarEReconstruir_ResumoDivergente_DeveCorrigirSomenteOsDiasDivergentes() {
+        // Arrange
+        LocalDate outroDia = dia.plusDays(1);
+        LocalDate diaCorreto = dia.plusDays(2);
+        ResumoDiario sobra = resumo(outroDia, 1L, "50.00", "12.00");
+        when(resumoDiarioRepository.findAll()).thenReturn(List.of(
+                resumo(dia, 1L, "100.00", "12.00"), sobra, resumo(diaCorreto, 1L, "10.00", "1.00")));
+        when(transferenciaRepository.somarTotaisPorDia()).thenReturn(List.of(
+                totais(dia, 2L, "300.00", "24.00"), totais(diaCorreto, 1L, "10.00", "1.00")));
+        when(resumoDiarioRepository.somarArquivadasPorDia()).thenReturn(List.of());
+
+        // Act
+        List<LocalDate> divergentes = resumoDiarioService.verificarEReconstruir();
+
+        // Assert
+        assertEquals(List.of(dia, outroDia), divergentes);
+        ArgumentCaptor<ResumoDiario> captor = ArgumentCaptor.forClass(ResumoDiario.class);
+        verify(resumoDiarioRepository).save(captor.capture());
+        assertEquals(dia, captor.getValue().getData());
+        assertEquals(2L, captor.getValue().getQuantidade());
+        assertEquals(new BigDecimal("300.00"), captor.getValue().getValorTotal());
+        assertEquals(new BigDecimal("24.00"), captor.getValue().getTaxaTotal());
+        verify(resumoDiarioRepository).delete(sobra);
+    }
+
+    private ResumoDiario resumo(LocalDate data, Long quantidade, String valor, String taxa) {
+        ResumoDiario resumo = new ResumoDiario();
+        resumo.setData(data);
+        resumo.setQuantidade(quantidade);
+        resumo.setValorTotal(new BigDecimal(valor));
+        resumo.setTaxaTotal(new BigDecimal(taxa));
+        return resumo;
+    }
+
+    private TotaisDiarios totais(LocalDate data, Long quantidade, String valor, String taxa) {
+        return new TotaisDiarios() {
+            @Override
+            public LocalDate getData() {
+                return data;
+            }
+
+            @Override
+            public Long getQuantidade() {
+                return quantidade;
+            }
+
+            @Override
+            public BigDecimal getValorTotal() {
+                return new BigDecimal(valor);
+            }
+
+            @Override
+            public BigDecimal getTaxaTotal() {
+                return new BigDecimal(taxa);
+            }
+        };
+    }
+}
@@ -0,0 +1,164 @@
+package com.wscastro.betransferscheduler.service;
+
+import com.wscastro.betransferscheduler.dto.AlteracoesDTO;
+import com.wscastro.betransferscheduler.model.Transferencia;
+import com.wscastro.betransferscheduler.model.TransferenciaRemovida;
+import com.wscastro.betransferscheduler.repository.TransferenciaRemovidaRepository;
+import com.wscastro.betransferscheduler.repository.TransferenciaRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SincronizacaoServiceTest {
+
+    @Mock
+    private TransferenciaRepository transferenciaRepository;
+
+    @Mock
+    private TransferenciaRemovidaRepository removidaRepository;
+
+    @Mock
+    private ContadorVersoes contadorVersoes;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SincronizacaoService sincronizacaoService;
+
+    @BeforeEach
+    void setUp() {
+        sincronizacaoService = new SincronizacaoService(transferenciaRepository, removidaRepository,
+                contadorVersoes, transactionManager, 168, 1000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+    }
+
+    @Test
+    void reservarVersao_DeveLiberarAReservaNaPropriaTransacao() {
+        // Arrange
+        when(contadorVersoes.reservar(1)).thenReturn(5L);
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+
+        // Act
+        long versao = sincronizacaoService.reservarVersao();
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+
+        // Assert
+        assertEquals(5L, versao);
+        verify(contadorVersoes).liberarNoCommit(5L);
+        verify(contadorVersoes, never()).liberar(anyLong());
+    }
+
+    @Test
+    void reservarVersao_ComRollback_DeveLiberarAReservaNumaTransacaoPropria() {
+        // Arrange
+        when(contadorVersoes.reservar(1)).thenReturn(5L);
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+
+        // Act
+        sincronizacaoService.reservarVersao();
+        List<TransactionSynchronization> pendentes = TransactionSynchronizationManager.getSynchronizations();
+        pendentes.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        // Assert
+        verify(contadorVersoes).liberar(5L);
+    }
+
+    @Test
+    void listarAlteracoes_DeveIntercalarAlteracoesERemocoesPelaVersao() {
+        // Arrange
+        when(contadorVersoes.versaoSegura()).thenReturn(3L);
+        when(transferenciaRepository.findByVersaoGreaterThanAndVersaoLessThanEqualOrderByVersaoAsc(eq(0L), eq(3L), any(Pageable.class)))
+                .thenReturn(List.of(transferencia(1L, 1L), transferencia(2L, 3L)));
+        when(removidaRepository.findByVersaoGreaterThanAndVersaoLessThanEqualOrderByVersaoAsc(eq(0L), eq(3L), any(Pageable.class)))
+                .thenReturn(List.of(remocao(9L, 2L)));
+
+        // Act
+        AlteracoesDTO alteracoes = sincronizacaoService.listarAlteracoes(0L, 2);
+
+        // Assert
+        assertEquals(1, alteracoes.getAlteradas().size());
+        assertEquals(1L, alteracoes.getAlteradas().get(0).getId());
+        assertEquals(1, alteracoes.getRemovidas().size());
+        assertEquals(9L, alteracoes.getRemovidas().get(0).getId());
+        assertEquals(2L, alteracoes.getVersao());
+        assertTrue(alteracoes.isHaMais());
+    }
+
+    @Test
+    void compactar_DeveRegistrarAVersaoCompactadaNoContador() {
+        // Arrange
+        when(removidaRepository.buscarMaiorVersaoAntesDe(any(LocalDateTime.class))).thenReturn(50L);
+
+        // Act
+        sincronizacaoService.compactar();
+
+        // Assert
+        verify(contadorVersoes).registrarCompactacao(50L);
+        verify(removidaRepository).removerAntesDe(any(LocalDateTime.class));
+    }
+
+    @Test
+    void listarAlteracoes_ComVersaoJaCompactada_DeveRetornarGone() {
+        // Arrange: compactada por outra instância, ou antes de esta reiniciar
+        when(contadorVersoes.versaoCompactada()).thenReturn(50L);
+
+        // Act & Assert
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class, () -> {
+            sincronizacaoService.listarAlteracoes(10L, 100);
+        });
+        assertEquals(HttpStatus.GONE, exception.getStatus());
+    }
+
+    private Transferencia transferencia(Long id, Long versao) {
+        Transferencia t = new Transferencia();
+        t.setId(id);
+        t.setContaOrigem("1234567890");
+        t.setContaDestino("0987654321");
+        t.setValor(new BigDecimal("100.00"));
+        t.setTaxa(new BigDecimal("12.00"));
+        t.setDataAgendamento(LocalDateTime.now());
+        t.setDataTransferencia(LocalDateTime.now().plusDays(5));
+        t.setVersao(versao);
+        return t;
+    }
+
+    private TransferenciaRemovida remocao(Long id, Long versao) {
+        TransferenciaRemovida r = new TransferenciaRemovida();
+        r.setId(id);
+        r.setVersao(versao);
+        r.setRemovidaEm(LocalDateTime.now());
+        return r;
+    }
+}
@@ -18,6 +18,9 @@ import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -26,6 +29,9 @@ class TaxaServiceTest {
     @Mock
     private TaxaRepository taxaRepository;
 
+    @Mock
+    private CalendarioService calendarioService;
+
     @InjectMocks
     private TaxaService taxaService;
 
@@ -77,6 +83,9 @@ class TaxaServiceTest {
         taxa41a50Dias.setDiasMaximo(50L);
         taxa41a50Dias.setPercentual(new BigDecimal("0.017"));
         taxa41a50Dias.setValorFixo(null);
+
+        lenient().when(taxaRepository.findAll()).thenReturn(List.of(taxaMesmoDia, taxaAte10Dias, taxa11a20Dias,
+                taxa21a30Dias, taxa31a40Dias, taxa41a50Dias));
     }
 
     @Test
@@ -84,8 +93,6 @@ class TaxaServiceTest {
         // Arrange
         LocalDateTime hoje = LocalDateTime.now();
         BigDecimal valor = new BigDecimal("100.00");
-        when(taxaRepository.findByDiasMinimoLessThanEqualAndDiasMaximoGreaterThanEqual(0L, 0L))
-                .thenReturn(List.of(taxaMesmoDia));
 
         // Act
         BigDecimal taxa = taxaService.calcularTaxa(valor, hoje, hoje);
@@ -101,8 +108,6 @@ class TaxaServiceTest {
         LocalDateTime hoje = LocalDateTime.now();
         LocalDateTime dataTransferencia = hoje.plusDays(5);
         BigDecimal valor = new BigDecimal("100.00");
-        when(taxaRepository.findByDiasMinimoLessThanEqualAndDiasMaximoGreaterThanEqual(5L, 5L))
-                .thenReturn(List.of(taxaAte10Dias));
 
         // Act
         BigDecimal taxa = taxaService.calcularTaxa(valor, hoje, dataTransferencia);
@@ -118,8 +123,6 @@ class TaxaServiceTest {
         LocalDateTime hoje = LocalDateTime.now();
         LocalDateTime dataTransferencia = hoje.plusDays(15);
         BigDecimal valor = new BigDecimal("100.00");
-        when(taxaRepository.findByDiasMinimoLessThanEqualAndDiasMaximoGreaterThanEqual(15L, 15L))
-                .thenReturn(List.of(taxa11a20Dias));
 
         // Act
         BigDecimal taxa = taxaService.calcularTaxa(valor, hoje, dataTransferencia);
@@ -135,8 +138,6 @@ class TaxaServiceTest {
         LocalDateTime hoje = LocalDateTime.now();
         LocalDateTime dataTransferencia = hoje.plusDays(25);
         BigDecimal valor = new BigDecimal("100.00");
-        when(taxaRepository.findByDiasMinimoLessThanEqualAndDiasMaximoGreaterThanEqual(25L, 25L))
-                .thenReturn(List.of(taxa21a30Dias));
 
         // Act
         BigDecimal taxa = taxaService.calcularTaxa(valor, hoje, dataTransferencia);
@@ -152,8 +153,6 @@ class TaxaServiceTest {
         LocalDateTime hoje = LocalDateTime.now();
         LocalDateTime dataTransferencia = hoje.plusDays(35);
         BigDecimal valor = new BigDecimal("100.00");
-        when(taxaRepository.findByDiasMinimoLessThanEqualAndDiasMaximoGreaterThanEqual(35L, 35L))
-                .thenReturn(List.of(taxa31a40Dias));
 
         // Act
         BigDecimal taxa = taxaService.calcularTaxa(valor, hoje, dataTransferencia);
@@ -169,8 +168,6 @@ class TaxaServiceTest {
         LocalDateTime hoje = LocalDateTime.now();
         LocalDateTime dataTransferencia = hoje.plusDays(45);
         BigDecimal valor = new BigDecimal("100.00");
-        when(taxaRepository.findByDiasMinimoLessThanEqualAndDiasMaximoGreaterThanEqual(45L, 45L))
-                .thenReturn(List.of(taxa41a50Dias));
 
         // Act
         BigDecimal taxa = taxaService.calcularTaxa(valor, hoje, dataTransferencia);
@@ -206,18 +203,109 @@ class TaxaServiceTest {
         });
     }
 
+    @Test
+    void calcularTaxa_ComDiasUteis_DeveEscolherAFaixaPelosDiasUteis() {
+        // Arrange
+        taxaService.setDiasUteis(true);
+        LocalDateTime hoje = LocalDateTime.now();
+        LocalDateTime dataTransferencia = hoje.plusDays(60);
+        BigDecimal valor = new BigDecimal("100.00");
+        when(calendarioService.diasUteisEntre(hoje.toLocalDate(), dataTransferencia.toLocalDate())).thenReturn(42L);
+
+        // Act
+        BigDecimal taxa = taxaService.calcularTaxa(valor, hoje, dataTransferencia);
+
+        // Assert
+        // 60 dias corridos, mas 42 úteis: 100 * 0.017 = 1.70
+        assertEquals(0, new BigDecimal("1.70").compareTo(taxa.setScale(2, RoundingMode.HALF_UP)));
+    }
+
+    @Test
+    void calcularTaxa_ComDiasUteisAcimaDoLimite_DeveLancarExcecao() {
+        // Arrange
+        taxaService.setDiasUteis(true);
+        LocalDateTime hoje = LocalDateTime.now();
+        LocalDateTime dataTransferencia = hoje.plusDays(75);
+        when(calendarioService.diasUteisEntre(hoje.toLocalDate(), dataTransferencia.toLocalDate())).thenReturn(51L);
+
+        // Act & Assert
+        assertThrows(DataEntradaInvalidaException.class, () -> {
+            taxaService.calcularTaxa(new BigDecimal("100.00"), hoje, dataTransferencia);
+        });
+    }
+
+    @Test
+    void calcularTaxa_ComFaixasDeValor_DeveEscolherAFaixaPeloValor() {
+        // Arrange
+        Taxa ate1000 = faixa(1L, 1L, 10L, null, new BigDecimal("1000.00"), new BigDecimal("12.00"));
+        Taxa acimaDe1000 = faixa(2L, 1L, 10L, new BigDecimal("1000.01"), null, new BigDecimal("20.00"));
+        when(taxaRepository.findAll()).thenReturn(List.of(acimaDe1000, ate1000));
+        LocalDateTime hoje = LocalDateTime.now();
+
+        // Act
+        BigDecimal taxaLimite = taxaService.calcularTaxa(new BigDecimal("1000.00"), hoje, hoje.plusDays(5));
+        BigDecimal taxaAcima = taxaService.calcularTaxa(new BigDecimal("1000.01"), hoje, hoje.plusDays(5));
+
+        // Assert
+        assertEquals(0, new BigDecimal("12.00").compareTo(taxaLimite));
+        assertEquals(0, new BigDecimal("20.00").compareTo(taxaAcima));
+    }
+
+    @Test
+    void recarregarTaxas_ComFaixasSobrepostas_DeveManterAsFaixasAnteriores() {
+        // Arrange
+        LocalDateTime hoje = LocalDateTime.now();
+        taxaService.recarregarTaxas();
+        Taxa sobreposta = faixa(7L, 5L, 15L, null, null, new BigDecimal("1.00"));
+        when(taxaRepository.findAll()).thenReturn(List.of(taxaAte10Dias, sobreposta));
+
+        // Act
+        taxaService.recarregarTaxas();
+        BigDecimal taxa = taxaService.calcularTaxa(new BigDecimal("100.00"), hoje, hoje.plusDays(5));
+
+        // Assert
+        assertEquals(0, new BigDecimal("12.00").compareTo(taxa));
+    }
+
     @Test
     void calcularTaxa_TaxaNaoEncontrada_DeveLancarExcecao() {
         // Arrange
         LocalDateTime hoje = LocalDateTime.now();
         LocalDateTime dataTransferencia = hoje.plusDays(5);
         BigDecimal valor = new BigDecimal("100.00");
-        when(taxaRepository.findByDiasMinimoLessThanEqualAndDiasMaximoGreaterThanEqual(anyLong(), anyLong()))
-                .thenReturn(List.of());
+        when(taxaRepository.findAll()).thenReturn(List.of(taxaMesmoDia, taxa41a50Dias));
 
         // Act & Assert
         assertThrows(TaxaInvalidaException.class, () -> {
             taxaService.calcularTaxa(valor, hoje, dataTransferencia);
         });
     }
-}
\ No newline at end of file
+
+    @Test
+    void aquecer_DeveCompilarAsFaixasUmaVezSemConsultarPorFaixa() {
+        // Arrange
+        Taxa taxaForaDoLimite = new Taxa();
+        taxaForaDoLimite.setDiasMinimo(60L);
+        taxaForaDoLimite.setDiasMaximo(90L);
+        when(taxaRepository.findAll()).thenReturn(List.of(taxaMesmoDia, taxa41a50Dias, taxaForaDoLimite));
+
+        // Act
+        taxaService.aquecer();
+
+        // Assert
+        verify(taxaRepository).findAll();
+        verify(taxaRepository, never()).findByDiasMinimoLessThanEqualAndDiasMaximoGreaterThanEqual(anyLong(), anyLong());
+    }
+
+    private static Taxa faixa(Long id, Long diasMinimo, Long diasMaximo, BigDecimal valorMinimo,
+                              BigDecimal valorMaximo, BigDecimal valorFixo) {
+        Taxa taxa = new Taxa();
+        taxa.setId(id);
+        taxa.setDiasMinimo(diasMinimo);
+        taxa.setDiasMaximo(diasMaximo);
+        taxa.setValorMinimo(valorMinimo);
+        taxa.setValorMaximo(valorMaximo);
+        taxa.setValorFixo(valorFixo);
+        return taxa;
+    }
+}
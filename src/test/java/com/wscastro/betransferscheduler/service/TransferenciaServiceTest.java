@@ -2,8 +2,11 @@ package com.wscastro.betransferscheduler.service;
 
 import com.wscastro.betransferscheduler.dto.TransferenciaRequestDTO;
 import com.wscastro.betransferscheduler.dto.TransferenciaResponseDTO;
+import com.wscastro.betransferscheduler.event.TransferenciaAgendadaEvent;
+import com.wscastro.betransferscheduler.event.TransferenciaRemovidaEvent;
 import com.wscastro.betransferscheduler.model.Transferencia;
 import com.wscastro.betransferscheduler.repository.TransferenciaRepository;
+import com.wscastro.betransferscheduler.service.duplicidade.DuplicidadeService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -12,22 +15,27 @@ import org.mockito.Captor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
+import com.wscastro.betransferscheduler.exception.AgendamentoDuplicadoException;
 import com.wscastro.betransferscheduler.exception.ContasIguaisException;
 import com.wscastro.betransferscheduler.exception.DataTransferenciaNaoFuturaException;
+import com.wscastro.betransferscheduler.exception.LimiteSaidaExcedidoException;
 
 @ExtendWith(MockitoExtension.class)
 class TransferenciaServiceTest {
@@ -38,6 +46,21 @@ class TransferenciaServiceTest {
     @Mock
     private TaxaService taxaService;
 
+    @Mock
+    private LimiteSaidaService limiteSaidaService;
+
+    @Mock
+    private SincronizacaoService sincronizacaoService;
+
+    @Mock
+    private CacheListagemService cacheListagemService;
+
+    @Mock
+    private DuplicidadeService duplicidadeService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private TransferenciaService transferenciaService;
 
@@ -102,6 +125,9 @@ class TransferenciaServiceTest {
         assertEquals(new BigDecimal("12.00"), responseDTO.getTaxa());
         assertHourWithoutMillis(hoje, responseDTO.getDataAgendamento());
         assertHourWithoutMillis(hoje.plusDays(5), responseDTO.getDataTransferencia());
+
+        verify(limiteSaidaService).reservar("1234567890", hoje.plusDays(5).toLocalDate(), new BigDecimal("100.00"));
+        verify(eventPublisher).publishEvent(any(TransferenciaAgendadaEvent.class));
     }
 
     @Test
@@ -155,11 +181,14 @@ class TransferenciaServiceTest {
 
         Pageable pageable = PageRequest.of(0, 10);
         when(transferenciaRepository.findAll(pageable)).thenReturn(page);
+        when(cacheListagemService.etag(0L)).thenReturn("W/\"abc-0\"");
 
         // Act
-        Page<TransferenciaResponseDTO> result = transferenciaService.listarTodas(pageable);
+        TransferenciaService.ListagemPaginada listagem = transferenciaService.listarTodas(pageable);
+        Page<TransferenciaResponseDTO> result = listagem.getPagina();
 
         // Assert
+        assertEquals("W/\"abc-0\"", listagem.getEtag());
         assertEquals(2, result.getContent().size());
         assertEquals(2, result.getTotalElements());
 
@@ -203,4 +232,75 @@ class TransferenciaServiceTest {
             transferenciaService.agendarTransferencia(requestDTO);
         });
     }
+
+    @Test
+    void agendarTransferencia_ComLimiteDeSaidaExcedido_NaoDeveSalvar() {
+        // Arrange
+        when(taxaService.calcularTaxa(any(), any(), any())).thenReturn(new BigDecimal("12.00"));
+        doThrow(new LimiteSaidaExcedidoException("Limite excedido"))
+                .when(limiteSaidaService).reservar(any(), any(), any());
+
+        // Act & Assert
+        assertThrows(LimiteSaidaExcedidoException.class, () -> {
+            transferenciaService.agendarTransferencia(requestDTO);
+        });
+        verify(transferenciaRepository, never()).save(any(Transferencia.class));
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void agendarTransferencia_ComDuplicataEmAviso_DeveAgendarInformandoAAnterior() {
+        // Arrange
+        when(duplicidadeService.verificar("painel", "1234567890", "0987654321", new BigDecimal("100.00"),
+                hoje.plusDays(5))).thenReturn(7L);
+        when(taxaService.calcularTaxa(any(), any(), any())).thenReturn(new BigDecimal("12.00"));
+
+        // Act
+        TransferenciaResponseDTO responseDTO = transferenciaService.agendarTransferencia(requestDTO, "painel");
+
+        // Assert
+        assertEquals(7L, responseDTO.getDuplicadaDe());
+        verify(transferenciaRepository).save(any(Transferencia.class));
+        verify(duplicidadeService).registrar(any(Transferencia.class));
+    }
+
+    @Test
+    void agendarTransferencia_ComDuplicataRejeitada_NaoDeveSalvarNemReservarLimite() {
+        // Arrange
+        when(duplicidadeService.verificar(eq("lote"), any(), any(), any(), any()))
+                .thenThrow(new AgendamentoDuplicadoException("Já existe o agendamento 7"));
+
+        // Act & Assert
+        assertThrows(AgendamentoDuplicadoException.class, () -> {
+            transferenciaService.agendarTransferencia(requestDTO, "lote");
+        });
+        verify(transferenciaRepository, never()).save(any(Transferencia.class));
+        verifyNoInteractions(limiteSaidaService, eventPublisher);
+    }
+
+    @Test
+    void deletarTransferencia_DeveRemoverEPublicarEvento() {
+        // Arrange
+        when(transferenciaRepository.findById(1L)).thenReturn(Optional.of(transferencia));
+
+        // Act
+        transferenciaService.deletarTransferencia(1L);
+
+        // Assert
+        verify(transferenciaRepository).delete(transferencia);
+        verify(eventPublisher).publishEvent(any(TransferenciaRemovidaEvent.class));
+    }
+
+    @Test
+    void deletarTransferencia_ComIdInexistente_DeveLancarExcecao() {
+        // Arrange
+        when(transferenciaRepository.findById(999L)).thenReturn(Optional.empty());
+
+        // Act & Assert
+        assertThrows(ResponseStatusException.class, () -> {
+            transferenciaService.deletarTransferencia(999L);
+        });
+        verify(transferenciaRepository, never()).delete(any(Transferencia.class));
+        verifyNoInteractions(eventPublisher);
+    }
 }
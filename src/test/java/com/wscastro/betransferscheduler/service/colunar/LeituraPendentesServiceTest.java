@@ -0,0 +1,184 @@
+package com.wscastro.betransferscheduler.service.colunar;
+
+import com.wscastro.betransferscheduler.dto.ResumoDiarioDTO;
+import com.wscastro.betransferscheduler.event.TransferenciaAgendadaEvent;
+import com.wscastro.betransferscheduler.event.TransferenciaRemovidaEvent;
+import com.wscastro.betransferscheduler.exception.DataEntradaInvalidaException;
+import com.wscastro.betransferscheduler.model.ResumoDiario;
+import com.wscastro.betransferscheduler.model.Transferencia;
+import com.wscastro.betransferscheduler.repository.ResumoDiarioRepository;
+import com.wscastro.betransferscheduler.repository.TransferenciaRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class LeituraPendentesServiceTest {
+
+    @Mock
+    private TransferenciaRepository repository;
+
+    @Mock
+    private ResumoDiarioRepository resumoDiarioRepository;
+
+    private LocalDate amanha;
+
+    @BeforeEach
+    void setUp() {
+        amanha = LocalDate.now().plusDays(1);
+    }
+
+    @Test
+    void recarregar_DeveLerSoOsDiasComAgendamentos() {
+        // Arrange
+        LocalDate depois = amanha.plusDays(2);
+        when(resumoDiarioRepository.findByDataGreaterThanEqualOrderByDataAsc(LocalDate.now()))
+                .thenReturn(List.of(dia(amanha, 2), dia(amanha.plusDays(1), 0), dia(depois, 1)));
+        when(repository.buscarVencimentos(amanha.atStartOfDay(), amanha.plusDays(1).atStartOfDay()))
+                .thenReturn(List.of(transferencia(1L, amanha, "100.00"), transferencia(2L, amanha, "50.00")));
+        when(repository.buscarVencimentos(depois.atStartOfDay(), depois.plusDays(1).atStartOfDay()))
+                .thenReturn(List.of(transferencia(3L, depois, "30.00")));
+        LeituraPendentesService servico = new LeituraPendentesService(repository, resumoDiarioRepository, 16);
+
+        // Act
+        servico.recarregar();
+
+        // Assert
+        assertEquals(3, servico.tamanho());
+        assertEquals(List.of(1L, 2L, 3L), ids(servico, amanha, depois));
+        verify(repository, never()).buscarVencimentos(amanha.plusDays(1).atStartOfDay(), depois.atStartOfDay());
+    }
+
+    @Test
+    void recarregar_DeveAceitarEventosDuranteALeituraEReaplicarNaTroca() {
+        // Arrange: enquanto a recarga lê o dia, outra thread confirma um agendamento e uma remocao
+        LeituraPendentesService servico = new LeituraPendentesService(repository, resumoDiarioRepository, 16);
+        servico.aoAgendar(new TransferenciaAgendadaEvent(transferencia(1L, amanha, "10.00")));
+        when(resumoDiarioRepository.findByDataGreaterThanEqualOrderByDataAsc(LocalDate.now()))
+                .thenReturn(List.of(dia(amanha, 2)));
+        when(repository.buscarVencimentos(amanha.atStartOfDay(), amanha.plusDays(1).atStartOfDay()))
+                .thenAnswer(invocacao -> {
+                    Thread outra = new Thread(() -> {
+                        servico.aoAgendar(new TransferenciaAgendadaEvent(transferencia(3L, amanha, "30.00")));
+                        servico.aoRemover(new TransferenciaRemovidaEvent(transferencia(1L, amanha, "10.00")));
+                    });
+                    outra.start();
+                    outra.join(5000);
+                    assertFalse(outra.isAlive(), "A recarga nao deve travar os eventos");
+                    assertEquals(List.of(3L), ids(servico, amanha, amanha));
+                    // Lida antes do commit da remocao e sem o agendamento novo
+                    return List.of(transferencia(1L, amanha, "10.00"), transferencia(2L, amanha, "20.00"));
+                });
+
+        // Act
+        servico.recarregar();
+
+        // Assert
+        assertEquals(List.of(2L, 3L), ids(servico, amanha, amanha));
+        assertEquals(2, servico.tamanho());
+    }
+
+    @Test
+    void eventos_DevemAtualizarOModeloNaOrdemDeVencimentoAtravesDasCompactacoes() {
+        // Arrange
+        LeituraPendentesService servico = new LeituraPendentesService(repository, resumoDiarioRepository, 2,
+                Runnable::run);
+
+        // Act
+        for (long id = 1; id <= 6; id++) {
+            servico.aoAgendar(new TransferenciaAgendadaEvent(transferencia(id, amanha.plusDays(6 - id), "10.00")));
+        }
+        servico.aoAgendar(new TransferenciaAgendadaEvent(transferencia(6L, amanha, "10.00")));
+        servico.aoRemover(new TransferenciaRemovidaEvent(transferencia(2L, amanha.plusDays(4), "10.00")));
+        servico.aoRemover(new TransferenciaRemovidaEvent(transferencia(5L, amanha.plusDays(1), "10.00")));
+
+        // Assert
+        assertEquals(4, servico.tamanho());
+        assertEquals(List.of(6L, 4L, 3L, 1L), ids(servico, amanha, amanha.plusDays(10)));
+        assertEquals(List.of(4L, 3L), ids(servico, amanha.plusDays(2), amanha.plusDays(3)));
+    }
+
+    @Test
+    void compactacao_DeveRodarForaDaChamadaEPreservarAsAlteracoesFeitasDuranteEla() {
+        // Arrange
+        List<Runnable> tarefas = new ArrayList<>();
+        LeituraPendentesService servico = new LeituraPendentesService(repository, resumoDiarioRepository, 2,
+                tarefas::add);
+        for (long id = 1; id <= 3; id++) {
+            servico.aoAgendar(new TransferenciaAgendadaEvent(transferencia(id, amanha.plusDays(id), "10.00")));
+        }
+
+        // Act
+        servico.aoAgendar(new TransferenciaAgendadaEvent(transferencia(4L, amanha, "10.00")));
+        servico.aoRemover(new TransferenciaRemovidaEvent(transferencia(2L, amanha.plusDays(2), "10.00")));
+        List<Long> antesDaTroca = ids(servico, amanha, amanha.plusDays(10));
+        tarefas.remove(0).run();
+
+        // Assert
+        assertEquals(List.of(4L, 1L, 3L), antesDaTroca);
+        assertEquals(3, servico.tamanho());
+        assertEquals(List.of(4L, 1L, 3L), ids(servico, amanha, amanha.plusDays(10)));
+        assertTrue(tarefas.isEmpty());
+    }
+
+    @Test
+    void resumirPorDia_DeveSomarEmCentavosSoOsDiasDoPeriodo() {
+        // Arrange
+        LeituraPendentesService servico = new LeituraPendentesService(repository, resumoDiarioRepository, 1024);
+        servico.aoAgendar(new TransferenciaAgendadaEvent(transferencia(1L, amanha, "100.10")));
+        servico.aoAgendar(new TransferenciaAgendadaEvent(transferencia(2L, amanha, "0.25")));
+        servico.aoAgendar(new TransferenciaAgendadaEvent(transferencia(3L, amanha.plusDays(2), "7.00")));
+        servico.aoAgendar(new TransferenciaAgendadaEvent(transferencia(4L, amanha.plusDays(9), "9.00")));
+
+        // Act
+        List<ResumoDiarioDTO> resumos = servico.resumirPorDia(amanha, amanha.plusDays(5));
+
+        // Assert
+        assertEquals(2, resumos.size());
+        assertEquals(amanha, resumos.get(0).getData());
+        assertEquals(2L, resumos.get(0).getQuantidade());
+        assertEquals(new BigDecimal("100.35"), resumos.get(0).getValorTotal());
+        assertEquals(new BigDecimal("24.00"), resumos.get(0).getTaxaTotal());
+        assertEquals(amanha.plusDays(2), resumos.get(1).getData());
+        assertThrows(DataEntradaInvalidaException.class, () -> servico.resumirPorDia(amanha, amanha.minusDays(1)));
+        verify(repository, never()).buscarVencimentos(any(), any());
+    }
+
+    private static List<Long> ids(LeituraPendentesService servico, LocalDate inicio, LocalDate fim) {
+        List<Long> ids = new ArrayList<>();
+        servico.percorrer(inicio, fim, (id, vencimento, contaOrigem, contaDestino, valor, taxa) -> ids.add(id));
+        return ids;
+    }
+
+    private static ResumoDiario dia(LocalDate data, long quantidade) {
+        ResumoDiario resumo = new ResumoDiario();
+        resumo.setData(data);
+        resumo.setQuantidade(quantidade);
+        return resumo;
+    }
+
+    private static Transferencia transferencia(Long id, LocalDate dia, String valor) {
+        Transferencia t = new Transferencia();
+        t.setId(id);
+        t.setContaOrigem("1234567890");
+        t.setContaDestino("0987654321");
+        t.setValor(new BigDecimal(valor));
+        t.setTaxa(new BigDecimal("12.00"));
+        t.setDataAgendamento(LocalDate.now().atStartOfDay());
+        t.setDataTransferencia(dia.atTime(10, 0));
+        return t;
+    }
+}
@@ -0,0 +1,213 @@
+package com.wscastro.betransferscheduler.service.duplicidade;
+
+import com.wscastro.betransferscheduler.event.TransferenciaAgendadaEvent;
+import com.wscastro.betransferscheduler.exception.AgendamentoDuplicadoException;
+import com.wscastro.betransferscheduler.model.PoliticaDuplicidade;
+import com.wscastro.betransferscheduler.model.Transferencia;
+import com.wscastro.betransferscheduler.repository.ResumoDiarioRepository;
+import com.wscastro.betransferscheduler.repository.TransferenciaRepository;
+import com.wscastro.betransferscheduler.service.ContadorVersoes;
+import com.wscastro.betransferscheduler.service.colunar.LeituraPendentesService;
+import com.wscastro.betransferscheduler.service.colunar.VisitantePendente;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class DuplicidadeServiceTest {
+
+    @Mock
+    private TransferenciaRepository repository;
+
+    @Mock
+    private ResumoDiarioRepository resumoDiarioRepository;
+
+    @Mock
+    private ContadorVersoes contadorVersoes;
+
+    private LeituraPendentesService leituraPendentesService;
+    private SimpleMeterRegistry meterRegistry;
+    private LocalDateTime vencimento;
+
+    @BeforeEach
+    void setUp() {
+        leituraPendentesService = new LeituraPendentesService(repository, resumoDiarioRepository, 1024);
+        meterRegistry = new SimpleMeterRegistry();
+        vencimento = LocalDate.now().plusDays(3).atTime(10, 0);
+    }
+
+    @Test
+    void verificar_SemAgendamentoIgual_NaoDeveConsultarORepositorio() {
+        // Arrange
+        DuplicidadeService servico = servico(PoliticaDuplicidade.AVISO, List.of());
+        servico.registrar(transferencia(1L, "100.00"));
+
+        // Act
+        Long anterior = servico.verificar(null, "1234567890", "0987654321", new BigDecimal("100.01"), vencimento);
+
+        // Assert
+        assertNull(anterior);
+        verify(repository, never()).buscarDuplicadas(any(), any(), any(), any());
+        assertEquals(1.0, contagem("descartada"));
+    }
+
+    @Test
+    void verificar_ComAgendamentoIgualEmAviso_DeveDevolverOAnterior() {
+        // Arrange
+        DuplicidadeService servico = servico(PoliticaDuplicidade.AVISO, List.of());
+        servico.registrar(transferencia(1L, "100.00"));
+        when(repository.buscarDuplicadas("1234567890", "0987654321", new BigDecimal("100.0"), vencimento))
+                .thenReturn(List.of(1L));
+
+        // Act
+        Long anterior = servico.verificar("painel", "1234567890", "0987654321", new BigDecimal("100.0"), vencimento);
+
+        // Assert
+        assertEquals(1L, anterior);
+        assertEquals(1.0, contagem("confirmada"));
+    }
+
+    @Test
+    void verificar_ComClienteQueRejeita_DeveLancarExcecao() {
+        // Arrange
+        DuplicidadeService servico = servico(PoliticaDuplicidade.AVISO, List.of("lote:REJEITAR"));
+        servico.registrar(transferencia(1L, "100.00"));
+        when(repository.buscarDuplicadas(any(), any(), any(), any())).thenReturn(List.of(1L));
+
+        // Act & Assert
+        assertThrows(AgendamentoDuplicadoException.class, () ->
+                servico.verificar("lote", "1234567890", "0987654321", new BigDecimal("100.00"), vencimento));
+        assertEquals(PoliticaDuplicidade.AVISO, servico.politica("painel"));
+        assertEquals(PoliticaDuplicidade.AVISO, servico.politica(null));
+    }
+
+    @Test
+    void verificar_ComAgendamentoJaRemovido_DeveContarFalsoPositivo() {
+        // Arrange
+        DuplicidadeService servico = servico(PoliticaDuplicidade.REJEITAR, List.of());
+        servico.registrar(transferencia(1L, "100.00"));
+        when(repository.buscarDuplicadas(any(), any(), any(), any())).thenReturn(List.of());
+
+        // Act
+        Long anterior = servico.verificar(null, "1234567890", "0987654321", new BigDecimal("100.00"), vencimento);
+
+        // Assert
+        assertNull(anterior);
+        assertEquals(1.0, contagem("falso-positivo"));
+    }
+
+    @Test
+    void reconstruir_DeveCarregarAsPendentesDoModeloColunar() {
+        // Arrange
+        DuplicidadeService servico = servico(PoliticaDuplicidade.AVISO, List.of());
+        leituraPendentesService.aoAgendar(new TransferenciaAgendadaEvent(transferencia(5L, "42.50")));
+        when(repository.buscarDuplicadas(any(), any(), any(), any())).thenReturn(List.of(5L));
+        assertNull(servico.verificar(null, "1234567890", "0987654321", new BigDecimal("42.50"), vencimento));
+
+        // Act
+        servico.reconstruir();
+
+        // Assert
+        assertEquals(5L, servico.verificar(null, "1234567890", "0987654321", new BigDecimal("42.50"), vencimento));
+    }
+
+    @Test
+    void reconstruir_ComCommitDepoisDoRetrato_NaoDevePerderOAgendamento() {
+        // Arrange
+        Transferencia tardia = transferencia(7L, "13.00");
+        DuplicidadeService[] servico = new DuplicidadeService[1];
+        leituraPendentesService = new LeituraPendentesService(repository, resumoDiarioRepository, 1024) {
+            @Override
+            public void percorrer(LocalDate inicio, LocalDate fim, VisitantePendente visitante) {
+                super.percorrer(inicio, fim, visitante);
+                // Commit que chega depois do retrato, na ordem dos ouvintes
+                TransferenciaAgendadaEvent evento = new TransferenciaAgendadaEvent(tardia);
+                aoAgendar(evento);
+                servico[0].aoAgendar(evento);
+            }
+        };
+        servico[0] = servico(PoliticaDuplicidade.AVISO, List.of());
+        when(repository.buscarDuplicadas(any(), any(), any(), any())).thenReturn(List.of(7L));
+
+        // Act
+        servico[0].reconstruir();
+
+        // Assert
+        assertEquals(7L, servico[0].verificar(null, "1234567890", "0987654321", new BigDecimal("13.00"), vencimento));
+    }
+
+    @Test
+    void acompanhar_ComAgendamentoDeOutraInstancia_DeveIncluirNoFiltro() {
+        // Arrange: a transferência 9 foi confirmada por outra instância, na versao 12
+        DuplicidadeService servico = servico(PoliticaDuplicidade.AVISO, List.of());
+        servico.marcarInicio();
+        Transferencia remota = transferencia(9L, "55.00");
+        remota.setVersao(12L);
+        when(contadorVersoes.versaoSegura()).thenReturn(12L);
+        when(repository.findByVersaoGreaterThanAndVersaoLessThanEqualOrderByVersaoAsc(eq(0L), eq(12L), any()))
+                .thenReturn(List.of(remota));
+        when(repository.buscarDuplicadas(any(), any(), any(), any())).thenReturn(List.of(9L));
+
+        // Act
+        servico.acompanhar();
+
+        // Assert
+        assertEquals(9L, servico.verificar(null, "1234567890", "0987654321", new BigDecimal("55.00"), vencimento));
+    }
+
+    @Test
+    void reconstruir_ComAgendamentoRemotoForaDoModelo_DeveRepassarOFeed() {
+        // Arrange: o modelo colunar nao conhece a remota, que já tinha chegado pelo feed ao filtro antigo
+        DuplicidadeService servico = servico(PoliticaDuplicidade.AVISO, List.of());
+        servico.marcarInicio();
+        Transferencia remota = transferencia(9L, "55.00");
+        remota.setVersao(3L);
+        when(contadorVersoes.versaoSegura()).thenReturn(3L);
+        when(repository.findByVersaoGreaterThanAndVersaoLessThanEqualOrderByVersaoAsc(eq(0L), eq(3L), any()))
+                .thenReturn(List.of(remota));
+        servico.acompanhar();
+        when(repository.buscarDuplicadas(any(), any(), any(), any())).thenReturn(List.of(9L));
+
+        // Act
+        servico.reconstruir();
+
+        // Assert
+        assertEquals(9L, servico.verificar(null, "1234567890", "0987654321", new BigDecimal("55.00"), vencimento));
+    }
+
+    private DuplicidadeService servico(PoliticaDuplicidade padrao, List<String> politicas) {
+        return new DuplicidadeService(repository, leituraPendentesService, contadorVersoes, padrao, politicas, 1_000,
+                0.01, meterRegistry);
+    }
+
+    private double contagem(String resultado) {
+        return meterRegistry.get("duplicidade.verificacoes").tag("resultado", resultado).counter().count();
+    }
+
+    private Transferencia transferencia(Long id, String valor) {
+        Transferencia t = new Transferencia();
+        t.setId(id);
+        t.setContaOrigem("1234567890");
+        t.setContaDestino("0987654321");
+        t.setValor(new BigDecimal(valor));
+        t.setTaxa(new BigDecimal("12.00"));
+        t.setDataAgendamento(LocalDateTime.now());
+        t.setDataTransferencia(vencimento);
+        return t;
+    }
+}
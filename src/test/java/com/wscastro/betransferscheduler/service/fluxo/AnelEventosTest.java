@@ -0,0 +1,88 @@
+package com.wscastro.betransferscheduler.service.fluxo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnelEventosTest {
+
+    @Test
+    void ler_DeveRetornarEventosEmOrdemAPartirDaSequenciaInformada() {
+        // Arrange
+        AnelEventos<String> anel = new AnelEventos<>(8);
+        anel.publicar("a");
+        anel.publicar("b");
+        anel.publicar("c");
+        List<AnelEventos.Celula<String>> destino = new ArrayList<>();
+
+        // Act
+        boolean disponivel = anel.ler(2, 10, destino);
+
+        // Assert
+        assertTrue(disponivel);
+        assertEquals(2, destino.size());
+        assertEquals(2L, destino.get(0).getSequencia());
+        assertEquals("b", destino.get(0).getValor());
+        assertEquals("c", destino.get(1).getValor());
+        assertEquals(3L, anel.ultimaSequencia());
+    }
+
+    @Test
+    void ler_QuandoLeitorFicouParaTras_DeveIndicarRessincronizacao() {
+        // Arrange
+        AnelEventos<Integer> anel = new AnelEventos<>(4);
+        for (int i = 0; i < 6; i++) {
+            anel.publicar(i);
+        }
+        List<AnelEventos.Celula<Integer>> destino = new ArrayList<>();
+
+        // Act & Assert
+        assertFalse(anel.ler(1, 10, destino));
+        assertTrue(anel.ler(3, 10, destino));
+        assertEquals(4, destino.size());
+    }
+
+    @Test
+    void construtor_ComCapacidadeQueNaoEPotenciaDeDois_DeveLancarExcecao() {
+        assertThrows(IllegalArgumentException.class, () -> new AnelEventos<>(1000));
+    }
+
+    @Test
+    void publicar_ComVariosProdutores_NaoDevePerderNemDuplicarSequencias() throws Exception {
+        // Arrange
+        int produtores = 8;
+        int eventosPorProdutor = 100;
+        AnelEventos<Integer> anel = new AnelEventos<>(1024);
+        ExecutorService executor = Executors.newFixedThreadPool(produtores);
+        CountDownLatch largada = new CountDownLatch(1);
+
+        // Act
+        for (int p = 0; p < produtores; p++) {
+            executor.submit(() -> {
+                largada.await();
+                for (int i = 0; i < eventosPorProdutor; i++) {
+                    anel.publicar(i);
+                }
+                return null;
+            });
+        }
+        largada.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        // Assert
+        List<AnelEventos.Celula<Integer>> destino = new ArrayList<>();
+        assertTrue(anel.ler(1, 1024, destino));
+        assertEquals(produtores * eventosPorProdutor, destino.size());
+        for (int i = 0; i < destino.size(); i++) {
+            assertEquals(i + 1L, destino.get(i).getSequencia());
+        }
+    }
+}
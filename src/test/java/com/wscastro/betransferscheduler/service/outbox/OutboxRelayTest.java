@@ -0,0 +1,135 @@
+package com.wscastro.betransferscheduler.service.outbox;
+
+import com.wscastro.betransferscheduler.model.EventoOutbox;
+import com.wscastro.betransferscheduler.model.TipoEvento;
+import com.wscastro.betransferscheduler.repository.EventoOutboxRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxRelayTest {
+
+    @Mock
+    private EventoOutboxRepository eventoOutboxRepository;
+
+    @Mock
+    private PublicadorEventos publicador;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+    private OutboxRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        relay = new OutboxRelay(eventoOutboxRepository, publicador, transactionManager, meterRegistry, 2, 1000, 24);
+    }
+
+    @Test
+    void drenarLote_LoteCheio_DevePublicarEMarcarEmOrdem() throws Exception {
+        // Arrange
+        List<EventoOutbox> lote = List.of(evento(1L, LocalDateTime.now()), evento(2L, LocalDateTime.now()));
+        when(eventoOutboxRepository.findByPublicadoEmIsNullOrderByIdAsc(any(Pageable.class))).thenReturn(lote);
+
+        // Act
+        boolean loteCheio = relay.drenarLote();
+
+        // Assert
+        assertTrue(loteCheio);
+        verify(publicador).publicar(lote);
+        verify(eventoOutboxRepository).marcarPublicados(eq(List.of(1L, 2L)), any(LocalDateTime.class));
+        assertEquals(2.0, meterRegistry.counter("outbox.relay.publicados").count());
+    }
+
+    @Test
+    void drenarLote_LoteIncompletoDentroDoLinger_DeveAguardar() throws Exception {
+        // Arrange
+        when(eventoOutboxRepository.findByPublicadoEmIsNullOrderByIdAsc(any(Pageable.class)))
+                .thenReturn(List.of(evento(1L, LocalDateTime.now())));
+
+        // Act
+        boolean loteCheio = relay.drenarLote();
+
+        // Assert
+        assertFalse(loteCheio);
+        verifyNoInteractions(publicador);
+        verify(eventoOutboxRepository, never()).marcarPublicados(anyList(), any());
+    }
+
+    @Test
+    void drenarLote_LoteIncompletoAposLinger_DevePublicarEMedirAtraso() throws Exception {
+        // Arrange
+        List<EventoOutbox> lote = List.of(evento(1L, LocalDateTime.now().minusSeconds(5)));
+        when(eventoOutboxRepository.findByPublicadoEmIsNullOrderByIdAsc(any(Pageable.class))).thenReturn(lote);
+
+        // Act
+        boolean loteCheio = relay.drenarLote();
+
+        // Assert
+        assertFalse(loteCheio);
+        verify(publicador).publicar(lote);
+        verify(eventoOutboxRepository).marcarPublicados(eq(List.of(1L)), any(LocalDateTime.class));
+        assertTrue(meterRegistry.get("outbox.relay.atraso").gauge().value() >= 5.0);
+    }
+
+    @Test
+    void drenarLote_FalhaNoPublicador_NaoDeveMarcarParaReenviarDepois() throws Exception {
+        // Arrange
+        List<EventoOutbox> lote = List.of(evento(1L, LocalDateTime.now()), evento(2L, LocalDateTime.now()));
+        when(eventoOutboxRepository.findByPublicadoEmIsNullOrderByIdAsc(any(Pageable.class))).thenReturn(lote);
+        doThrow(new IOException("indisponível")).when(publicador).publicar(lote);
+
+        // Act
+        boolean loteCheio = relay.drenarLote();
+
+        // Assert
+        assertFalse(loteCheio);
+        verify(eventoOutboxRepository, never()).marcarPublicados(anyList(), any());
+        assertEquals(1.0, meterRegistry.counter("outbox.relay.falhas").count());
+    }
+
+    @Test
+    void drenar_DeveContinuarEnquantoOsLotesSaiamCheios() throws Exception {
+        // Arrange
+        List<EventoOutbox> primeiro = List.of(evento(1L, LocalDateTime.now()), evento(2L, LocalDateTime.now()));
+        List<EventoOutbox> segundo = List.of(evento(3L, LocalDateTime.now().minusSeconds(5)));
+        when(eventoOutboxRepository.findByPublicadoEmIsNullOrderByIdAsc(any(Pageable.class)))
+                .thenReturn(primeiro, segundo);
+
+        // Act
+        relay.drenar();
+
+        // Assert
+        verify(publicador).publicar(primeiro);
+        verify(publicador).publicar(segundo);
+        verify(eventoOutboxRepository, times(2)).findByPublicadoEmIsNullOrderByIdAsc(any(Pageable.class));
+    }
+
+    private EventoOutbox evento(Long id, LocalDateTime criadoEm) {
+        EventoOutbox evento = new EventoOutbox();
+        evento.setId(id);
+        evento.setTipo(TipoEvento.TRANSFERENCIA_AGENDADA);
+        evento.setTransferenciaId(id);
+        evento.setPayload("{}");
+        evento.setCriadoEm(criadoEm);
+        return evento;
+    }
+}
@@ -0,0 +1,89 @@
+package com.wscastro.betransferscheduler.sobrecarga;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LimiteAdaptativoTest {
+
+    private static final long MILISSEGUNDO = 1_000_000L;
+
+    @Test
+    void adquirir_LeiturasDevemPararAntesDasEscritas() {
+        // Arrange
+        LimiteAdaptativo limite = new LimiteAdaptativo(4, 1, 10, 0.5);
+
+        // Act
+        boolean primeiraLeitura = limite.adquirir(false);
+        boolean segundaLeitura = limite.adquirir(false);
+        boolean terceiraLeitura = limite.adquirir(false);
+        boolean escrita = limite.adquirir(true);
+
+        // Assert
+        assertTrue(primeiraLeitura);
+        assertTrue(segundaLeitura);
+        assertFalse(terceiraLeitura);
+        assertTrue(escrita);
+        assertEquals(3, limite.getEmAndamento());
+    }
+
+    @Test
+    void liberar_ComLatenciaEstavelESaturado_DeveAumentarOLimite() {
+        // Arrange
+        LimiteAdaptativo limite = new LimiteAdaptativo(10, 1, 100, 1.0);
+
+        // Act
+        for (int i = 0; i < 50; i++) {
+            ocuparTudoELiberar(limite, 5 * MILISSEGUNDO);
+        }
+
+        // Assert
+        assertTrue(limite.getLimite() > 10, "limite deveria crescer: " + limite.getLimite());
+        assertEquals(0, limite.getEmAndamento());
+    }
+
+    @Test
+    void liberar_ComLatenciaSubindo_DeveReduzirOLimite() {
+        // Arrange
+        LimiteAdaptativo limite = new LimiteAdaptativo(40, 4, 100, 1.0);
+        for (int i = 0; i < 5; i++) {
+            ocuparTudoELiberar(limite, 5 * MILISSEGUNDO);
+        }
+        double antes = limite.getLimite();
+
+        // Act
+        for (int i = 0; i < 10; i++) {
+            ocuparTudoELiberar(limite, 50 * MILISSEGUNDO);
+        }
+
+        // Assert
+        assertTrue(limite.getLimite() < antes / 2, "limite deveria cair: " + limite.getLimite());
+        assertTrue(limite.getLimite() >= 4);
+    }
+
+    @Test
+    void liberar_ComAmostrasInvalidas_DeveApenasDevolverAVaga() {
+        // Arrange
+        LimiteAdaptativo limite = new LimiteAdaptativo(10, 1, 100, 1.0);
+
+        // Act
+        for (int i = 0; i < 100; i++) {
+            limite.adquirir(true);
+            limite.liberar(1_000 * MILISSEGUNDO, false);
+        }
+
+        // Assert
+        assertEquals(10, limite.getLimite());
+        assertEquals(0, limite.getEmAndamento());
+    }
+
+    private static void ocuparTudoELiberar(LimiteAdaptativo limite, long rttNanos) {
+        int adquiridas = 0;
+        while (limite.adquirir(true)) {
+            adquiridas++;
+        }
+        for (int i = 0; i < adquiridas; i++) {
+            limite.liberar(rttNanos, true);
+        }
+    }
+}
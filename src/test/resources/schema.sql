@@ -1,2 +1,32 @@
-create table if not exists taxa (id bigint generated by default as identity, dias_maximo bigint not null, dias_minimo bigint not null, percentual numeric(19,2) not null, valor_fixo numeric(19,2) not null, primary key (id));
-create table if not exists transferencia (id bigint generated by default as identity, conta_destino varchar(255) not null, conta_origem varchar(255) not null, data_agendamento timestamp not null, data_transferencia timestamp not null, taxa numeric(19,2) not null, valor numeric(19,2) not null, primary key (id));
+create table if not exists taxa (id bigint generated by default as identity, dias_maximo bigint not null, dias_minimo bigint not null, valor_minimo numeric(19,2), valor_maximo numeric(19,2), percentual numeric(19,2) not null, valor_fixo numeric(19,2) not null, primary key (id));
+create table if not exists transferencia (id bigint generated by default as identity, conta_destino varchar(255) not null, conta_origem varchar(255) not null, data_agendamento timestamp not null, data_transferencia timestamp not null, taxa numeric(19,2) not null, valor numeric(19,2) not null, versao bigint, primary key (id));
+create table if not exists resumo_diario (data date not null, quantidade bigint not null, valor_total numeric(19,2) not null, taxa_total numeric(19,2) not null, primary key (data));
+create table if not exists evento_outbox (id bigint generated by default as identity, tipo varchar(40) not null, transferencia_id bigint not null, payload varchar(4000) not null, criado_em timestamp not null, publicado_em timestamp, primary key (id));
+create index if not exists idx_evento_outbox_pendente on evento_outbox (publicado_em, id);
+create index if not exists idx_transferencia_versao on transferencia (versao);
+create table if not exists transferencia_removida (id bigint not null, versao bigint not null, removida_em timestamp not null, primary key (id));
+create index if not exists idx_transferencia_removida_versao on transferencia_removida (versao);
+create table if not exists replicacao_heartbeat (id int not null, instante timestamp not null, primary key (id));
+create table if not exists recorrencia (id bigint generated by default as identity, conta_origem varchar(255) not null, conta_destino varchar(255) not null, valor numeric(19,2) not null, periodicidade varchar(20) not null, data_inicio timestamp not null, data_fim timestamp, ocorrencias_materializadas int not null, proxima_ocorrencia timestamp, data_criacao timestamp not null, primary key (id));
+create index if not exists idx_recorrencia_proxima on recorrencia (proxima_ocorrencia);
+create table if not exists particao_lease (particao int not null, dono varchar(100), expira_em timestamp, epoca bigint not null, primary key (particao));
+create table if not exists particao_no (no varchar(100) not null, visto_em timestamp not null, primary key (no));
+create table if not exists transferencia_execucao (transferencia_id bigint not null, particao int not null, no varchar(100) not null, epoca bigint not null, executada_em timestamp not null, primary key (transferencia_id));
+create index if not exists idx_transferencia_data on transferencia (data_transferencia);
+create sequence if not exists liquidacao_seq;
+create table if not exists liquidacao (id bigint not null, data date not null, conta_origem varchar(255) not null, conta_destino varchar(255) not null, valor numeric(19,2) not null, valor_bruto numeric(19,2) not null, quantidade int not null, criada_em timestamp not null, primary key (id));
+create index if not exists idx_liquidacao_data on liquidacao (data);
+create table if not exists transferencia_liquidacao (transferencia_id bigint not null, liquidacao_id bigint not null, primary key (transferencia_id));
+create table if not exists liquidacao_execucao (liquidacao_id bigint not null, particao int not null, no varchar(100) not null, epoca bigint not null, executada_em timestamp not null, primary key (liquidacao_id));
+create table if not exists feriado (data date not null, descricao varchar(255), primary key (data));
+create table if not exists recalculo_taxas (id bigint not null, ultimo_id bigint not null, lidas bigint not null, alteradas bigint not null, sem_taxa bigint not null, iniciado_em timestamp not null, concluido_em timestamp, primary key (id));
+create table if not exists transferencia_arquivada (id bigint not null, conta_origem varchar(255) not null, conta_destino varchar(255) not null, valor numeric(19,2) not null, taxa numeric(19,2) not null, data_agendamento timestamp not null, data_transferencia timestamp not null, versao bigint, arquivada_em timestamp not null, primary key (id));
+create index if not exists idx_transferencia_arquivada_data on transferencia_arquivada (data_transferencia);
+create index if not exists idx_transferencia_arquivada_conta on transferencia_arquivada (conta_origem, data_transferencia);
+create index if not exists idx_transferencia_arquivada_versao on transferencia_arquivada (versao);
+create table if not exists transferencia_particao (mes date not null, tabela varchar(40) not null, criada_em timestamp not null, primary key (mes));
+create sequence if not exists transferencia_id_seq;
+create index if not exists idx_transferencia_duplicidade on transferencia (conta_origem, data_transferencia);
+create table if not exists versao_contador (id int not null, ultima bigint not null, compactada bigint default 0 not null, primary key (id));
+insert into versao_contador (id, ultima) select 1, 0 where not exists (select 1 from versao_contador where id = 1);
+create table if not exists versao_reservada (versao bigint not null, reservada_em timestamp not null, primary key (versao));